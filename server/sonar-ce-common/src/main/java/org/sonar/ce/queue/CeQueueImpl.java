@@ -70,12 +70,19 @@ public class CeQueueImpl implements CeQueue {
   private final DbClient dbClient;
   private final UuidFactory uuidFactory;
   private final DefaultOrganizationProvider defaultOrganizationProvider;
+  private final CeQueueListener[] listeners;
 
   public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider) {
+    this(system2, dbClient, uuidFactory, defaultOrganizationProvider, new CeQueueListener[0]);
+  }
+
+  public CeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, DefaultOrganizationProvider defaultOrganizationProvider,
+    CeQueueListener[] listeners) {
     this.system2 = system2;
     this.dbClient = dbClient;
     this.uuidFactory = uuidFactory;
     this.defaultOrganizationProvider = defaultOrganizationProvider;
+    this.listeners = listeners;
   }
 
   @Override
@@ -103,6 +110,7 @@ public class CeQueueImpl implements CeQueue {
       }
       CeQueueDto taskDto = addToQueueInDb(dbSession, submission);
       dbSession.commit();
+      notifyListeners();
 
       Map<String, ComponentDto> componentsByUuid = loadComponentDtos(dbSession, taskDto);
       if (componentsByUuid.isEmpty()) {
@@ -141,10 +149,24 @@ public class CeQueueImpl implements CeQueue {
         .collect(Collectors.toList());
       List<CeTask> tasks = loadTasks(dbSession, taskDtos);
       dbSession.commit();
+      if (!taskDtos.isEmpty()) {
+        notifyListeners();
+      }
       return tasks;
     }
   }
 
+  private void notifyListeners() {
+    for (CeQueueListener listener : listeners) {
+      try {
+        listener.onSubmit();
+      } catch (RuntimeException e) {
+        // tasks are in queue anyway, they will be found by the next polling of the queue
+        Loggers.get(CeQueueImpl.class).warn("Failed to notify listener {} of submission of tasks", listener, e);
+      }
+    }
+  }
+
   private Predicate<CeTaskSubmit> filterBySubmitOptions(SubmitOption[] options, Collection<CeTaskSubmit> submissions, DbSession dbSession) {
     EnumSet<SubmitOption> submitOptions = toSet(options);
 
@@ -55,6 +55,10 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.catchThrowable;
 import static org.assertj.core.api.Assertions.tuple;
 import static org.hamcrest.Matchers.startsWith;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.sonar.ce.queue.CeQueue.SubmitOption.UNIQUE_QUEUE_PER_MAIN_COMPONENT;
 
 public class CeQueueImplTest {
@@ -74,7 +78,9 @@ public class CeQueueImplTest {
   private UuidFactory uuidFactory = UuidFactoryImpl.INSTANCE;
   private DefaultOrganizationProvider defaultOrganizationProvider = TestDefaultOrganizationProvider.from(db);
 
-  private CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider);
+  private CeQueueListener listener = mock(CeQueueListener.class);
+
+  private CeQueue underTest = new CeQueueImpl(system2, db.getDbClient(), uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {listener});
 
   @Test
   public void submit_returns_task_populated_from_CeTaskSubmit_and_creates_CeQueue_row() {
@@ -118,6 +124,35 @@ public class CeQueueImplTest {
     verifyCeTask(taskSubmit, task, null, userDto);
   }
 
+  @Test
+  public void submit_notifies_listeners() {
+    underTest.submit(createTaskSubmit("not cpt related"));
+
+    verify(listener).onSubmit();
+  }
+
+  @Test
+  public void submit_does_not_fail_when_a_listener_fails() {
+    doThrow(new IllegalStateException("BOOM")).when(listener).onSubmit();
+    CeTaskSubmit taskSubmit = createTaskSubmit("not cpt related");
+
+    CeTask task = underTest.submit(taskSubmit);
+
+    verifyCeTask(taskSubmit, task, null, null);
+    verifyCeQueueDtoForTaskSubmit(taskSubmit);
+  }
+
+  @Test
+  public void submit_with_UNIQUE_QUEUE_PER_MAIN_COMPONENT_does_not_notify_listeners_when_task_is_not_created() {
+    String mainComponentUuid = randomAlphabetic(5);
+    CeTaskSubmit taskSubmit = createTaskSubmit("with_component", newComponent(mainComponentUuid), null);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    underTest.submit(taskSubmit, UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    verifyZeroInteractions(listener);
+  }
+
   @Test
   public void submit_with_UNIQUE_QUEUE_PER_MAIN_COMPONENT_creates_task_without_component_when_there_is_a_pending_task_without_component() {
     CeTaskSubmit taskSubmit = createTaskSubmit("no_component");
@@ -225,6 +260,23 @@ public class CeQueueImplTest {
     verifyCeQueueDtoForTaskSubmit(taskSubmit2);
   }
 
+  @Test
+  public void massSubmit_notifies_listeners_once() {
+    underTest.massSubmit(asList(createTaskSubmit("type 1"), createTaskSubmit("type 2")));
+
+    verify(listener).onSubmit();
+  }
+
+  @Test
+  public void massSubmit_does_not_notify_listeners_when_no_task_is_created() {
+    String mainComponentUuid = randomAlphabetic(5);
+    insertPendingInQueue(newComponent(mainComponentUuid));
+
+    underTest.massSubmit(of(createTaskSubmit("with_component", newComponent(mainComponentUuid), null)), UNIQUE_QUEUE_PER_MAIN_COMPONENT);
+
+    verifyZeroInteractions(listener);
+  }
+
   @Test
   public void massSubmit_populates_component_name_and_key_of_CeTask_if_project_exists() {
     ComponentDto componentDto1 = insertComponent(ComponentTesting.newPrivateProjectDto(db.getDefaultOrganization(), "PROJECT_1"));
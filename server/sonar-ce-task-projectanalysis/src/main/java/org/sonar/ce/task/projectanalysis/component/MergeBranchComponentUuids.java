@@ -47,7 +47,7 @@ public class MergeBranchComponentUuids {
     this.dbClient = dbClient;
   }
 
-  private void lazyInit() {
+  private synchronized void lazyInit() {
     if (uuidsByKey == null) {
       String mergeBranchUuid = analysisMetadataHolder.getBranch().getMergeBranchUuid().get();
 
@@ -73,6 +73,7 @@ import org.sonar.ce.task.projectanalysis.issue.LoadComponentUuidsHavingOpenIssue
 import org.sonar.ce.task.projectanalysis.issue.MergeBranchTrackerExecution;
 import org.sonar.ce.task.projectanalysis.issue.MovedIssueVisitor;
 import org.sonar.ce.task.projectanalysis.issue.NewEffortAggregator;
+import org.sonar.ce.task.projectanalysis.issue.PrefetchBaseIssuesVisitor;
 import org.sonar.ce.task.projectanalysis.issue.RemoveProcessedComponentsVisitor;
 import org.sonar.ce.task.projectanalysis.issue.RuleRepositoryImpl;
 import org.sonar.ce.task.projectanalysis.issue.RuleTagsCopier;
@@ -118,6 +119,7 @@ import org.sonar.ce.task.projectanalysis.scm.ScmInfoRepositoryImpl;
 import org.sonar.ce.task.projectanalysis.source.DbLineHashVersion;
 import org.sonar.ce.task.projectanalysis.source.FileSourceDataComputer;
 import org.sonar.ce.task.projectanalysis.source.FileSourceDataWarnings;
+import org.sonar.ce.task.projectanalysis.source.FileSourceSnapshotRepositoryImpl;
 import org.sonar.ce.task.projectanalysis.source.LastCommitVisitor;
 import org.sonar.ce.task.projectanalysis.source.NewLinesRepository;
 import org.sonar.ce.task.projectanalysis.source.SignificantCodeRepository;
@@ -127,8 +129,15 @@ import org.sonar.ce.task.projectanalysis.source.SourceLinesDiffImpl;
 import org.sonar.ce.task.projectanalysis.source.SourceLinesHashCache;
 import org.sonar.ce.task.projectanalysis.source.SourceLinesHashRepositoryImpl;
 import org.sonar.ce.task.projectanalysis.source.SourceLinesRepositoryImpl;
+import org.sonar.ce.task.projectanalysis.step.CommentMeasuresStep;
+import org.sonar.ce.task.projectanalysis.step.ComplexityMeasuresStep;
+import org.sonar.ce.task.projectanalysis.step.LanguageDistributionMeasuresStep;
+import org.sonar.ce.task.projectanalysis.step.NewCoverageMeasuresStep;
+import org.sonar.ce.task.projectanalysis.step.NewSizeMeasuresStep;
 import org.sonar.ce.task.projectanalysis.step.ReportComputationSteps;
+import org.sonar.ce.task.projectanalysis.step.SizeMeasuresStep;
 import org.sonar.ce.task.projectanalysis.step.SmallChangesetQualityGateSpecialCase;
+import org.sonar.ce.task.projectanalysis.step.UnitTestMeasuresStep;
 import org.sonar.ce.task.projectanalysis.webhook.WebhookPostTask;
 import org.sonar.ce.task.setting.SettingsLoader;
 import org.sonar.ce.task.step.ComputationStepExecutor;
@@ -218,6 +227,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       DbLineHashVersion.class,
       SignificantCodeRepository.class,
       SourceLinesHashCache.class,
+      FileSourceSnapshotRepositoryImpl.class,
       NewLinesRepository.class,
       FileSourceDataComputer.class,
       SourceLineReadersFactory.class,
@@ -260,6 +270,7 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
 
       // visitors : order is important, measure computers must be executed at the end in order to access to every measures / issues
       LoadComponentUuidsHavingOpenIssuesVisitor.class,
+      PrefetchBaseIssuesVisitor.class,
       IntegrateIssuesVisitor.class,
       CloseIssuesOnRemovedComponentsVisitor.class,
       MaintainabilityMeasuresVisitor.class,
@@ -299,6 +310,15 @@ public final class ProjectAnalysisTaskContainerPopulator implements ContainerPop
       // views
       ViewIndex.class,
 
+      // steps which formulas are executed by FormulaMeasuresStep
+      SizeMeasuresStep.class,
+      NewCoverageMeasuresStep.class,
+      CommentMeasuresStep.class,
+      NewSizeMeasuresStep.class,
+      LanguageDistributionMeasuresStep.class,
+      UnitTestMeasuresStep.class,
+      ComplexityMeasuresStep.class,
+
       BranchLoader.class,
       MeasureToMeasureDto.class,
       SmallChangesetQualityGateSpecialCase.class,
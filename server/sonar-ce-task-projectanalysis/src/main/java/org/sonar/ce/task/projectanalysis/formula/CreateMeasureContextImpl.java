@@ -17,29 +17,28 @@
  * along with this program; if not, write to the Free Software Foundation,
  * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
  */
-package org.sonar.scanner.issue.tracking;
+package org.sonar.ce.task.projectanalysis.formula;
 
-import com.persistit.Value;
-import com.persistit.encoding.CoderContext;
-import com.persistit.encoding.ValueCoder;
-import java.io.IOException;
-import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
 
-public class ServerIssueValueCoder implements ValueCoder {
+class CreateMeasureContextImpl implements CreateMeasureContext {
+  private final Component component;
+  private final Metric metric;
+
+  CreateMeasureContextImpl(Component component, Metric metric) {
+    this.component = component;
+    this.metric = metric;
+  }
 
   @Override
-  public void put(Value value, Object object, CoderContext context) {
-    ServerIssue issue = (ServerIssue) object;
-    value.putByteArray(issue.toByteArray());
+  public Component getComponent() {
+    return component;
   }
 
   @Override
-  public Object get(Value value, Class<?> clazz, CoderContext context) {
-    try {
-      return ServerIssue.parseFrom(value.getByteArray());
-    } catch (IOException e) {
-      throw new IllegalStateException("Unable to read issue from cache", e);
-    }
+  public Metric getMetric() {
+    return metric;
   }
 
 }
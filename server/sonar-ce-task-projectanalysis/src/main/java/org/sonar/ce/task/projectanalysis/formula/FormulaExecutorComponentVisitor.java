@@ -142,7 +142,7 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
   }
 
   private void processLeaf(Component file, Path<FormulaExecutorComponentVisitor.Counters> path) {
-    CounterInitializationContext counterContext = new CounterInitializationContextImpl(file);
+    CounterInitializationContext counterContext = new CounterInitializationContextImpl(file, metricRepository, measureRepository);
     for (Formula formula : formulas) {
       Counter counter = formula.createNewCounter();
       counter.initialize(counterContext);
@@ -171,25 +171,6 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
     }
   }
 
-  private class CounterInitializationContextImpl implements CounterInitializationContext {
-    private final Component file;
-
-    public CounterInitializationContextImpl(Component file) {
-      this.file = file;
-    }
-
-    @Override
-    public Component getLeaf() {
-      return file;
-    }
-
-    @Override
-    public Optional<Measure> getMeasure(String metricKey) {
-      return measureRepository.getRawMeasure(file, metricRepository.getByKey(metricKey));
-    }
-
-  }
-
   public static class Counters {
     Map<Formula, Counter> countersByFormula = new HashMap<>();
 
@@ -210,25 +191,4 @@ public class FormulaExecutorComponentVisitor extends PathAwareVisitorAdapter<For
       return countersByFormula.get(formula);
     }
   }
-
-  private static class CreateMeasureContextImpl implements CreateMeasureContext {
-    private final Component component;
-    private final Metric metric;
-
-    public CreateMeasureContextImpl(Component component, Metric metric) {
-      this.component = component;
-      this.metric = metric;
-    }
-
-    @Override
-    public Component getComponent() {
-      return component;
-    }
-
-    @Override
-    public Metric getMetric() {
-      return metric;
-    }
-
-  }
 }
@@ -0,0 +1,269 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.formula;
+
+import com.google.common.collect.ImmutableList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+import java.util.concurrent.RecursiveTask;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
+import org.sonar.ce.task.projectanalysis.component.VisitException;
+import org.sonar.ce.task.projectanalysis.formula.FormulaExecutorComponentVisitor.Counters;
+import org.sonar.ce.task.projectanalysis.measure.Measure;
+import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
+import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Executes {@link Formula formulas} on a component tree, as {@link FormulaExecutorComponentVisitor} does, but aggregates
+ * the counters of the sub-trees of a component on a {@link ForkJoinPool}.
+ * <p>
+ * Leaves and their measures are processed by the thread of the task of their parent. The counters of the children
+ * of a component are aggregated in the order of the children, so that the result does not depend on the scheduling of
+ * the tasks. Formulas and the repositories they use must be thread-safe, which is the case of
+ * {@link MeasureRepository} and {@link MetricRepository}.
+ * </p>
+ * <p>
+ * When a single thread is configured or when the tree is small, formulas are executed by a
+ * {@link FormulaExecutorComponentVisitor} in the calling thread.
+ * </p>
+ */
+public class ParallelFormulaExecutor {
+  static final int DEFAULT_MIN_COMPONENTS = 1_000;
+  /**
+   * Maximum number of children of a component which are processed by a single task
+   */
+  private static final int CHILDREN_PER_TASK = 64;
+  private static final String FAILURE_MESSAGE = "Execution of formulas failed for Component {key=%s,type=%s}";
+
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  private final List<Formula> formulas;
+  private final int threads;
+  private final int minComponents;
+
+  private ParallelFormulaExecutor(Builder builder, Iterable<Formula> formulas) {
+    this.metricRepository = builder.metricRepository;
+    this.measureRepository = builder.measureRepository;
+    this.formulas = ImmutableList.copyOf(formulas);
+    this.threads = builder.threads;
+    this.minComponents = builder.minComponents;
+  }
+
+  public static Builder newBuilder(MetricRepository metricRepository, MeasureRepository measureRepository) {
+    return new Builder(metricRepository, measureRepository);
+  }
+
+  public static class Builder {
+    private final MetricRepository metricRepository;
+    private final MeasureRepository measureRepository;
+    private int threads = 1;
+    private int minComponents = DEFAULT_MIN_COMPONENTS;
+
+    private Builder(MetricRepository metricRepository, MeasureRepository measureRepository) {
+      this.metricRepository = requireNonNull(metricRepository);
+      this.measureRepository = requireNonNull(measureRepository);
+    }
+
+    public Builder setThreads(int threads) {
+      checkArgument(threads >= 1, "threads must be >= 1. Got %s", threads);
+      this.threads = threads;
+      return this;
+    }
+
+    /**
+     * Trees with less components than the specified number are processed in the calling thread
+     */
+    Builder setMinComponents(int minComponents) {
+      this.minComponents = minComponents;
+      return this;
+    }
+
+    public ParallelFormulaExecutor buildFor(Iterable<Formula> formulas) {
+      return new ParallelFormulaExecutor(this, formulas);
+    }
+  }
+
+  public void execute(Component root) {
+    if (threads == 1 || !hasAtLeast(root, minComponents)) {
+      new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(formulas))
+        .visit(root);
+      return;
+    }
+
+    String threadNamePrefix = Thread.currentThread().getName() + "-formulas-";
+    ForkJoinPool pool = new ForkJoinPool(threads, forkJoinPool -> {
+      ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(forkJoinPool);
+      thread.setName(threadNamePrefix + thread.getPoolIndex());
+      return thread;
+    }, null, false);
+    try {
+      pool.invoke(new ComponentTask(root));
+    } catch (RuntimeException e) {
+      VisitException.rethrowOrWrap(e, FAILURE_MESSAGE, root.getDbKey(), root.getType());
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static boolean hasAtLeast(Component root, int minComponents) {
+    Deque<Component> queue = new ArrayDeque<>();
+    queue.add(root);
+    int count = 0;
+    while (!queue.isEmpty()) {
+      count++;
+      if (count >= minComponents) {
+        return true;
+      }
+      queue.addAll(queue.poll().getChildren());
+    }
+    return false;
+  }
+
+  private Counters processLeaf(Component leaf) {
+    Counters counters = new Counters();
+    CounterInitializationContext counterContext = new CounterInitializationContextImpl(leaf, metricRepository, measureRepository);
+    for (Formula formula : formulas) {
+      Counter counter = formula.createNewCounter();
+      counter.initialize(counterContext);
+      for (String metricKey : formula.getOutputMetricKeys()) {
+        addNewMeasure(leaf, metricKey, formula, counter);
+      }
+      counters.aggregate(formula, counter);
+    }
+    return counters;
+  }
+
+  private void processNotLeaf(Component component, Counters counters) {
+    for (Formula formula : formulas) {
+      Counter counter = counters.getCounter(formula);
+      // If there were no leaf under this node, the counter won't be initialized
+      if (counter != null) {
+        for (String metricKey : formula.getOutputMetricKeys()) {
+          addNewMeasure(component, metricKey, formula, counter);
+        }
+      }
+    }
+  }
+
+  private void addNewMeasure(Component component, String metricKey, Formula formula, Counter counter) {
+    // no new measure can be created by formulas for PROJECT_VIEW components, their measures are the copy
+    if (component.getType() == Component.Type.PROJECT_VIEW) {
+      return;
+    }
+    Metric metric = metricRepository.getByKey(metricKey);
+    Optional<Measure> measure = formula.createMeasure(counter, new CreateMeasureContextImpl(component, metric));
+    if (measure.isPresent()) {
+      measureRepository.add(component, metric, measure.get());
+    }
+  }
+
+  private void aggregate(Counters counters, Counters childCounters) {
+    for (Formula formula : formulas) {
+      Counter childCounter = childCounters.getCounter(formula);
+      if (childCounter != null) {
+        counters.aggregate(formula, childCounter);
+      }
+    }
+  }
+
+  /**
+   * Computes the measures of a component and of its sub-tree. The result is the counters to be aggregated to its parent.
+   */
+  private final class ComponentTask extends RecursiveTask<Counters> {
+    private final Component component;
+
+    private ComponentTask(Component component) {
+      this.component = component;
+    }
+
+    private boolean isLeaf() {
+      return component.getChildren().isEmpty();
+    }
+
+    @Override
+    protected Counters compute() {
+      try {
+        if (isLeaf()) {
+          return processLeaf(component);
+        }
+        List<Component> children = component.getChildren();
+        Counters counters = new ChildrenTask(children, 0, children.size()).invoke();
+        processNotLeaf(component, counters);
+        return counters;
+      } catch (RuntimeException e) {
+        // wrapped in the thread of the task, so that the cause is not copied by the ForkJoinPool when it is rethrown
+        VisitException.rethrowOrWrap(e, FAILURE_MESSAGE, component.getDbKey(), component.getType());
+        return null;
+      }
+    }
+  }
+
+  /**
+   * Aggregates the counters of a range of the children of a component. Children which are not leaves are processed by
+   * tasks of their own.
+   */
+  private final class ChildrenTask extends RecursiveTask<Counters> {
+    private final List<Component> children;
+    private final int from;
+    private final int to;
+
+    private ChildrenTask(List<Component> children, int from, int to) {
+      this.children = children;
+      this.from = from;
+      this.to = to;
+    }
+
+    @Override
+    protected Counters compute() {
+      if (to - from > CHILDREN_PER_TASK) {
+        int middle = (from + to) >>> 1;
+        ChildrenTask right = new ChildrenTask(children, middle, to);
+        right.fork();
+        Counters counters = new ChildrenTask(children, from, middle).invoke();
+        aggregate(counters, right.join());
+        return counters;
+      }
+
+      List<ComponentTask> tasks = new ArrayList<>(to - from);
+      for (int i = from; i < to; i++) {
+        ComponentTask task = new ComponentTask(children.get(i));
+        if (!task.isLeaf()) {
+          task.fork();
+        }
+        tasks.add(task);
+      }
+      Counters counters = new Counters();
+      for (ComponentTask task : tasks) {
+        aggregate(counters, task.isLeaf() ? task.invoke() : task.join());
+      }
+      return counters;
+    }
+  }
+}
@@ -22,11 +22,16 @@ package org.sonar.ce.task.projectanalysis.issue;
 import com.google.common.collect.ImmutableList;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
 import org.apache.ibatis.session.ResultContext;
 import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.config.Configuration;
@@ -44,6 +49,7 @@ import org.sonar.db.issue.IssueDto;
 import org.sonar.db.issue.IssueMapper;
 
 import static com.google.common.base.Preconditions.checkState;
+import static java.lang.Math.min;
 import static java.util.Collections.emptyList;
 import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.toList;
@@ -53,15 +59,28 @@ import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 public class ComponentIssuesLoader {
   private static final int DEFAULT_CLOSED_ISSUES_MAX_AGE = 30;
   private static final String PROPERTY_CLOSED_ISSUE_MAX_AGE = "sonar.issuetracking.closedissues.maxage";
+  /**
+   * Number of components which issues are loaded by a single query when they are prefetched. It must not be greater
+   * than the maximum size of an expression list supported by Oracle.
+   */
+  private static final int DEFAULT_PREFETCH_BATCH_SIZE = 500;
 
   private final DbClient dbClient;
   private final RuleRepository ruleRepository;
   private final ActiveRulesHolder activeRulesHolder;
   private final System2 system2;
   private final int closedIssueMaxAge;
+  private final int prefetchBatchSize;
+  @CheckForNull
+  private volatile PrefetchedIssues prefetchedIssues;
 
   public ComponentIssuesLoader(DbClient dbClient, RuleRepository ruleRepository, ActiveRulesHolder activeRulesHolder,
     Configuration configuration, System2 system2) {
+    this(dbClient, ruleRepository, activeRulesHolder, configuration, system2, DEFAULT_PREFETCH_BATCH_SIZE);
+  }
+
+  ComponentIssuesLoader(DbClient dbClient, RuleRepository ruleRepository, ActiveRulesHolder activeRulesHolder,
+    Configuration configuration, System2 system2, int prefetchBatchSize) {
     this.dbClient = dbClient;
     this.activeRulesHolder = activeRulesHolder;
     this.ruleRepository = ruleRepository;
@@ -70,6 +89,7 @@ public class ComponentIssuesLoader {
       .map(ComponentIssuesLoader::safelyParseClosedIssueMaxAge)
       .filter(i -> i >= 0)
       .orElse(DEFAULT_CLOSED_ISSUES_MAX_AGE);
+    this.prefetchBatchSize = prefetchBatchSize;
   }
 
   private static Integer safelyParseClosedIssueMaxAge(String str) {
@@ -82,7 +102,28 @@ public class ComponentIssuesLoader {
     }
   }
 
+  /**
+   * Declares the components which open and closed issues are going to be loaded, in the order in which they will be
+   * requested.
+   * <p>
+   * Issues are then loaded by batches of consecutive components, ahead of the requests, instead of with one query per
+   * component. Only the batch being consumed and the previous one are kept in memory, and the issues of a component are
+   * released as soon as they are returned. Issues of components which are not declared, or which are requested more
+   * than once, are loaded by a dedicated query.
+   * </p>
+   */
+  public void prefetch(List<String> componentUuids) {
+    this.prefetchedIssues = new PrefetchedIssues(componentUuids);
+  }
+
   public List<DefaultIssue> loadOpenIssues(String componentUuid) {
+    PrefetchedIssues prefetched = this.prefetchedIssues;
+    if (prefetched != null) {
+      List<DefaultIssue> issues = prefetched.pollOpenIssues(componentUuid);
+      if (issues != null) {
+        return issues;
+      }
+    }
     try (DbSession dbSession = dbClient.openSession(false)) {
       return loadOpenIssues(componentUuid, dbSession);
     }
@@ -113,12 +154,19 @@ public class ComponentIssuesLoader {
    * issue.
    */
   public void loadLatestDiffChangesForReopeningOfClosedIssues(Collection<DefaultIssue> issues) {
-    if (issues.isEmpty()) {
+    PrefetchedIssues prefetched = this.prefetchedIssues;
+    Collection<DefaultIssue> issuesToLoad = issues;
+    if (prefetched != null) {
+      issuesToLoad = issues.stream()
+        .filter(issue -> !prefetched.addLatestDiffChanges(issue))
+        .collect(toList());
+    }
+    if (issuesToLoad.isEmpty()) {
       return;
     }
 
     try (DbSession dbSession = dbClient.openSession(false)) {
-      loadLatestDiffChangesForReopeningOfClosedIssues(dbSession, issues);
+      loadLatestDiffChangesForReopeningOfClosedIssues(dbSession, issuesToLoad);
     }
   }
 
@@ -134,53 +182,66 @@ public class ComponentIssuesLoader {
     Map<String, DefaultIssue> issuesByKey = issues.stream().collect(uniqueIndex(DefaultIssue::key));
 
     dbClient.issueChangeDao()
-      .scrollDiffChangesOfIssues(dbSession, issuesByKey.keySet(), new ResultHandler<IssueChangeDto>() {
-        private DefaultIssue currentIssue = null;
-        private boolean previousStatusFound = false;
-        private boolean previousResolutionFound = false;
-
-        @Override
-        public void handleResult(ResultContext<? extends IssueChangeDto> resultContext) {
-          IssueChangeDto issueChangeDto = resultContext.getResultObject();
-          if (currentIssue == null || !currentIssue.key().equals(issueChangeDto.getIssueKey())) {
-            currentIssue = issuesByKey.get(issueChangeDto.getIssueKey());
-            previousStatusFound = false;
-            previousResolutionFound = false;
-          }
-
-          if (currentIssue != null) {
-            FieldDiffs fieldDiffs = issueChangeDto.toFieldDiffs();
-            boolean hasPreviousStatus = fieldDiffs.get("status") != null;
-            boolean hasPreviousResolution = fieldDiffs.get("resolution") != null;
-            if ((!previousStatusFound && hasPreviousStatus) || (!previousResolutionFound && hasPreviousResolution)) {
-              currentIssue.addChange(fieldDiffs);
-            }
-            previousStatusFound |= hasPreviousStatus;
-            previousResolutionFound |= hasPreviousResolution;
-          }
+      .scrollDiffChangesOfIssues(dbSession, issuesByKey.keySet(), new LatestDiffChangesResultHandler((issueKey, fieldDiffs) -> {
+        DefaultIssue issue = issuesByKey.get(issueKey);
+        if (issue != null) {
+          issue.addChange(fieldDiffs);
         }
-      });
+      }));
+  }
+
+  private static class LatestDiffChangesResultHandler implements ResultHandler<IssueChangeDto> {
+    private final BiConsumer<String, FieldDiffs> latestDiffConsumer;
+    private String currentIssueKey = null;
+    private boolean previousStatusFound = false;
+    private boolean previousResolutionFound = false;
+
+    private LatestDiffChangesResultHandler(BiConsumer<String, FieldDiffs> latestDiffConsumer) {
+      this.latestDiffConsumer = latestDiffConsumer;
+    }
+
+    @Override
+    public void handleResult(ResultContext<? extends IssueChangeDto> resultContext) {
+      IssueChangeDto issueChangeDto = resultContext.getResultObject();
+      if (currentIssueKey == null || !currentIssueKey.equals(issueChangeDto.getIssueKey())) {
+        currentIssueKey = issueChangeDto.getIssueKey();
+        previousStatusFound = false;
+        previousResolutionFound = false;
+      }
+
+      FieldDiffs fieldDiffs = issueChangeDto.toFieldDiffs();
+      boolean hasPreviousStatus = fieldDiffs.get("status") != null;
+      boolean hasPreviousResolution = fieldDiffs.get("resolution") != null;
+      if ((!previousStatusFound && hasPreviousStatus) || (!previousResolutionFound && hasPreviousResolution)) {
+        latestDiffConsumer.accept(currentIssueKey, fieldDiffs);
+      }
+      previousStatusFound |= hasPreviousStatus;
+      previousResolutionFound |= hasPreviousResolution;
+    }
   }
 
   private List<DefaultIssue> loadOpenIssues(String componentUuid, DbSession dbSession) {
     List<DefaultIssue> result = new ArrayList<>();
-    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid, resultContext -> {
-      DefaultIssue issue = (resultContext.getResultObject()).toDefaultIssue();
-      Rule rule = ruleRepository.getByKey(issue.ruleKey());
-
-      // TODO this field should be set outside this class
-      if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
-        issue.setOnDisabledRule(true);
-        // TODO to be improved, why setOnDisabledRule(true) is not enough ?
-        issue.setBeingClosed(true);
-      }
-      // FIXME
-      issue.setSelectedAt(System.currentTimeMillis());
-      result.add(issue);
-    });
+    dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuid(componentUuid,
+      resultContext -> result.add(toOpenIssue(resultContext.getResultObject())));
     return ImmutableList.copyOf(result);
   }
 
+  private DefaultIssue toOpenIssue(IssueDto dto) {
+    DefaultIssue issue = dto.toDefaultIssue();
+    Rule rule = ruleRepository.getByKey(issue.ruleKey());
+
+    // TODO this field should be set outside this class
+    if ((!rule.isExternal() && !isActive(issue.ruleKey())) || rule.getStatus() == RuleStatus.REMOVED) {
+      issue.setOnDisabledRule(true);
+      // TODO to be improved, why setOnDisabledRule(true) is not enough ?
+      issue.setBeingClosed(true);
+    }
+    // FIXME
+    issue.setSelectedAt(System.currentTimeMillis());
+    return issue;
+  }
+
   private static void setChanges(Map<String, List<IssueChangeDto>> changeDtoByIssueKey, DefaultIssue i) {
     changeDtoByIssueKey.computeIfAbsent(i.key(), k -> emptyList())
       .forEach(c -> addChangeOrComment(i, c));
@@ -219,14 +280,24 @@ public class ComponentIssuesLoader {
       return emptyList();
     }
 
+    PrefetchedIssues prefetched = this.prefetchedIssues;
+    if (prefetched != null) {
+      List<DefaultIssue> issues = prefetched.pollClosedIssues(componentUuid);
+      if (issues != null) {
+        return issues;
+      }
+    }
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      return loadClosedIssues(dbSession, componentUuid, closeDateAfter());
+    }
+  }
+
+  private long closeDateAfter() {
     Date date = new Date(system2.now());
-    long closeDateAfter = date.toInstant()
+    return date.toInstant()
       .minus(closedIssueMaxAge, ChronoUnit.DAYS)
       .truncatedTo(ChronoUnit.DAYS)
       .toEpochMilli();
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      return loadClosedIssues(dbSession, componentUuid, closeDateAfter);
-    }
   }
 
   private static List<DefaultIssue> loadClosedIssues(DbSession dbSession, String componentUuid, long closeDateAfter) {
@@ -269,4 +340,125 @@ public class ComponentIssuesLoader {
       issues.add(issue);
     }
   }
+
+  private final class PrefetchedIssues {
+    private final List<String> componentUuids;
+    private final Map<String, Integer> indexByComponentUuid = new HashMap<>();
+    private final Window openIssues = new Window(this::loadOpenIssuesBatch);
+    private final Window closedIssues = new Window(this::loadClosedIssuesBatch);
+
+    private PrefetchedIssues(List<String> componentUuids) {
+      this.componentUuids = ImmutableList.copyOf(componentUuids);
+      for (int i = componentUuids.size() - 1; i >= 0; i--) {
+        indexByComponentUuid.put(componentUuids.get(i), i);
+      }
+    }
+
+    @CheckForNull
+    List<DefaultIssue> pollOpenIssues(String componentUuid) {
+      return openIssues.poll(componentUuid);
+    }
+
+    @CheckForNull
+    List<DefaultIssue> pollClosedIssues(String componentUuid) {
+      return closedIssues.poll(componentUuid);
+    }
+
+    /**
+     * @return {@code false} if the latest diff changes of the specified closed issue have not been prefetched
+     */
+    boolean addLatestDiffChanges(DefaultIssue issue) {
+      List<FieldDiffs> latestDiffs = closedIssues.pollLatestDiffs(issue.key());
+      if (latestDiffs == null) {
+        return false;
+      }
+      latestDiffs.forEach(issue::addChange);
+      return true;
+    }
+
+    private Batch loadOpenIssuesBatch(List<String> batchComponentUuids) {
+      Batch batch = new Batch(batchComponentUuids);
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        dbSession.getMapper(IssueMapper.class).scrollNonClosedByComponentUuids(batchComponentUuids,
+          resultContext -> batch.add(toOpenIssue(resultContext.getResultObject())));
+      }
+      return batch;
+    }
+
+    private Batch loadClosedIssuesBatch(List<String> batchComponentUuids) {
+      Batch batch = new Batch(batchComponentUuids);
+      try (DbSession dbSession = dbClient.openSession(false)) {
+        ClosedIssuesResultHandler handler = new ClosedIssuesResultHandler();
+        dbSession.getMapper(IssueMapper.class).scrollClosedByComponentUuids(batchComponentUuids, closeDateAfter(), handler);
+        handler.issues.forEach(batch::add);
+
+        handler.issues.forEach(issue -> batch.latestDiffsByIssueKey.put(issue.key(), new ArrayList<>()));
+        dbClient.issueChangeDao().scrollDiffChangesOfIssues(dbSession, batch.latestDiffsByIssueKey.keySet(),
+          new LatestDiffChangesResultHandler((issueKey, fieldDiffs) -> batch.latestDiffsByIssueKey.get(issueKey).add(fieldDiffs)));
+      }
+      return batch;
+    }
+
+    /**
+     * Batches of issues of the declared components, which are loaded when the first of their components is requested.
+     */
+    private final class Window {
+      private final Function<List<String>, Batch> batchLoader;
+      private final Map<Integer, Batch> batchesByIndex = new HashMap<>();
+      private final BitSet loadedBatches = new BitSet();
+
+      private Window(Function<List<String>, Batch> batchLoader) {
+        this.batchLoader = batchLoader;
+      }
+
+      @CheckForNull
+      synchronized List<DefaultIssue> poll(String componentUuid) {
+        Integer componentIndex = indexByComponentUuid.get(componentUuid);
+        if (componentIndex == null) {
+          return null;
+        }
+        int batchIndex = componentIndex / prefetchBatchSize;
+        if (!loadedBatches.get(batchIndex)) {
+          loadedBatches.set(batchIndex);
+          // components are requested in order, issues of batches before the previous one are not expected anymore
+          batchesByIndex.keySet().removeIf(i -> i < batchIndex - 1);
+          int from = batchIndex * prefetchBatchSize;
+          batchesByIndex.put(batchIndex, batchLoader.apply(componentUuids.subList(from, min(from + prefetchBatchSize, componentUuids.size()))));
+        }
+        Batch batch = batchesByIndex.get(batchIndex);
+        if (batch == null) {
+          return null;
+        }
+        List<DefaultIssue> issues = batch.issuesByComponentUuid.remove(componentUuid);
+        return issues == null ? null : ImmutableList.copyOf(issues);
+      }
+
+      @CheckForNull
+      synchronized List<FieldDiffs> pollLatestDiffs(String issueKey) {
+        for (Batch batch : batchesByIndex.values()) {
+          List<FieldDiffs> latestDiffs = batch.latestDiffsByIssueKey.remove(issueKey);
+          if (latestDiffs != null) {
+            return latestDiffs;
+          }
+        }
+        return null;
+      }
+    }
+  }
+
+  private static final class Batch {
+    private final Map<String, List<DefaultIssue>> issuesByComponentUuid = new HashMap<>();
+    private final Map<String, List<FieldDiffs>> latestDiffsByIssueKey = new HashMap<>();
+
+    private Batch(List<String> componentUuids) {
+      componentUuids.forEach(uuid -> issuesByComponentUuid.put(uuid, new ArrayList<>()));
+    }
+
+    private void add(DefaultIssue issue) {
+      List<DefaultIssue> issues = issuesByComponentUuid.get(issue.componentUuid());
+      if (issues != null) {
+        issues.add(issue);
+      }
+    }
+  }
 }
@@ -0,0 +1,122 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.CheckForNull;
+import org.slf4j.MDC;
+import org.sonar.ce.task.projectanalysis.component.Component;
+
+/**
+ * Tracks the issues of the files of the project on a pool of threads, ahead of their visit by {@link IntegrateIssuesVisitor}.
+ * <p>
+ * Files are tracked in the order in which they are visited. At most {@code 2 * threads} files are tracked in advance,
+ * so that memory used by the results of tracking is bounded. Results are then processed by the visitor, in the thread
+ * of the crawler.
+ * </p>
+ */
+class ConcurrentIssueTracking implements AutoCloseable {
+
+  private final IssueTrackingDelegator issueTracking;
+  private final ExecutorService executorService;
+  private final Iterator<Component> files;
+  private final int maxPendingFiles;
+  private final Map<String, Future<TrackingResult>> pendingByUuid = new HashMap<>();
+  @CheckForNull
+  private final Map<String, String> mdcContext;
+
+  ConcurrentIssueTracking(IssueTrackingDelegator issueTracking, Component root, int threads) {
+    this.issueTracking = issueTracking;
+    this.executorService = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat(Thread.currentThread().getName() + "-issueTracking-%d")
+      .build());
+    List<Component> list = new ArrayList<>();
+    collectFiles(root, list);
+    this.files = list.iterator();
+    this.maxPendingFiles = 2 * threads;
+    this.mdcContext = MDC.getCopyOfContextMap();
+  }
+
+  private static void collectFiles(Component component, List<Component> files) {
+    if (component.getType() == Component.Type.FILE) {
+      files.add(component);
+    }
+    for (Component child : component.getChildren()) {
+      collectFiles(child, files);
+    }
+  }
+
+  /**
+   * Result of the tracking of the issues of the specified file, which has been computed in advance if the file
+   * is visited in the expected order.
+   */
+  TrackingResult track(Component file) {
+    submitPendingFiles();
+    Future<TrackingResult> future = pendingByUuid.remove(file.getUuid());
+    if (future == null) {
+      return issueTracking.track(file);
+    }
+    submitPendingFiles();
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(String.format("Interrupted while tracking issues of component '%s'", file.getDbKey()), e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  private void submitPendingFiles() {
+    while (pendingByUuid.size() < maxPendingFiles && files.hasNext()) {
+      Component file = files.next();
+      pendingByUuid.put(file.getUuid(), executorService.submit(() -> trackInWorkerThread(file)));
+    }
+  }
+
+  private TrackingResult trackInWorkerThread(Component file) {
+    if (mdcContext != null) {
+      MDC.setContextMap(mdcContext);
+    }
+    try {
+      return issueTracking.track(file);
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  @Override
+  public void close() {
+    executorService.shutdownNow();
+  }
+}
@@ -0,0 +1,453 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.ce.task.projectanalysis.util.cache.DiskCacheCodec;
+import org.sonar.ce.task.projectanalysis.util.cache.JavaSerializationCodec;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.db.protobuf.DbIssues;
+
+/**
+ * Compact binary encoding of {@link DefaultIssue} for {@link IssueCache}.
+ * <p/>
+ * Issues which can not be represented by this encoding (unexpected type of locations or of field diff values, current
+ * change which is not the last change) are written with Java serialization.
+ */
+public class DefaultIssueCodec implements DiskCacheCodec<DefaultIssue> {
+
+  private static final byte FORMAT_COMPACT = 1;
+  private static final byte FORMAT_SERIALIZED = 2;
+
+  private static final byte VALUE_NULL = 0;
+  private static final byte VALUE_STRING = 1;
+  private static final byte VALUE_LONG = 2;
+  private static final byte VALUE_INTEGER = 3;
+  private static final byte VALUE_DOUBLE = 4;
+  private static final byte VALUE_BOOLEAN = 5;
+
+  private final JavaSerializationCodec<DefaultIssue> fallbackCodec = new JavaSerializationCodec<>();
+
+  @Override
+  public void write(DefaultIssue issue, DataOutputStream output) throws IOException {
+    if (!isCompactable(issue)) {
+      output.writeByte(FORMAT_SERIALIZED);
+      fallbackCodec.write(issue, output);
+      return;
+    }
+    output.writeByte(FORMAT_COMPACT);
+    writeString(output, issue.key());
+    writeString(output, issue.type() == null ? null : issue.type().name());
+    writeString(output, issue.componentUuid());
+    writeString(output, issue.componentKey());
+    writeString(output, issue.moduleUuid());
+    writeString(output, issue.moduleUuidPath());
+    writeString(output, issue.projectUuid());
+    writeString(output, issue.projectKey());
+    writeString(output, issue.ruleKey() == null ? null : issue.ruleKey().toString());
+    writeString(output, issue.language());
+    writeString(output, issue.severity());
+    writeString(output, issue.message());
+    writeInt(output, issue.line());
+    writeDouble(output, issue.gap());
+    writeLong(output, issue.effortInMinutes());
+    writeString(output, issue.status());
+    writeString(output, issue.resolution());
+    writeString(output, issue.assignee());
+    writeString(output, issue.checksum());
+    writeString(output, issue.authorLogin());
+    writeDate(output, issue.creationDate());
+    writeDate(output, issue.updateDate());
+    writeDate(output, issue.closeDate());
+    writeLong(output, issue.selectedAt());
+    output.writeBoolean(issue.manualSeverity());
+    output.writeBoolean(issue.isFromExternalRuleEngine());
+    output.writeBoolean(issue.isFromHotspot());
+    output.writeBoolean(issue.isNew());
+    output.writeBoolean(issue.isCopied());
+    output.writeBoolean(issue.isBeingClosed());
+    output.writeBoolean(issue.isOnDisabledRule());
+    output.writeBoolean(issue.isChanged());
+    output.writeBoolean(issue.mustSendNotifications());
+
+    Map<String, String> attributes = issue.attributes();
+    output.writeInt(attributes.size());
+    for (Map.Entry<String, String> attribute : attributes.entrySet()) {
+      writeString(output, attribute.getKey());
+      writeString(output, attribute.getValue());
+    }
+
+    Set<String> tags = issue.tags();
+    output.writeInt(tags.size());
+    for (String tag : tags) {
+      writeString(output, tag);
+    }
+
+    DbIssues.Locations locations = issue.getLocations();
+    writeBytes(output, locations == null ? null : locations.toByteArray());
+
+    List<DefaultIssueComment> comments = issue.defaultIssueComments();
+    output.writeInt(comments.size());
+    for (DefaultIssueComment comment : comments) {
+      writeComment(output, comment);
+    }
+
+    writeChanges(output, issue);
+  }
+
+  private static boolean isCompactable(DefaultIssue issue) {
+    Object locations = issue.getLocations();
+    if (locations != null && !(locations instanceof DbIssues.Locations)) {
+      return false;
+    }
+    List<FieldDiffs> changes = issue.changes();
+    FieldDiffs currentChange = issue.currentChange();
+    if (currentChange != null && (changes.isEmpty() || changes.get(changes.size() - 1) != currentChange)) {
+      return false;
+    }
+    return changes.stream()
+      .flatMap(change -> change.diffs().values().stream())
+      .allMatch(diff -> isSupportedValue(diff.oldValue()) && isSupportedValue(diff.newValue()));
+  }
+
+  private static boolean isSupportedValue(@Nullable Serializable value) {
+    return value == null || value instanceof String || value instanceof Long || value instanceof Integer
+      || value instanceof Double || value instanceof Boolean;
+  }
+
+  private static void writeComment(DataOutputStream output, DefaultIssueComment comment) throws IOException {
+    writeString(output, comment.key());
+    writeString(output, comment.issueKey());
+    writeString(output, comment.userUuid());
+    writeString(output, comment.markdownText());
+    writeDate(output, comment.createdAt());
+    writeDate(output, comment.updatedAt());
+    output.writeBoolean(comment.isNew());
+  }
+
+  /**
+   * The same {@link FieldDiffs} instance can be referenced several times by the changes of an issue: distinct
+   * instances are written first, then the list of changes as indexes of these instances.
+   */
+  private static void writeChanges(DataOutputStream output, DefaultIssue issue) throws IOException {
+    List<FieldDiffs> changes = issue.changes();
+    Map<FieldDiffs, Integer> indexes = new IdentityHashMap<>();
+    List<FieldDiffs> distinctChanges = new ArrayList<>();
+    for (FieldDiffs change : changes) {
+      if (!indexes.containsKey(change)) {
+        indexes.put(change, distinctChanges.size());
+        distinctChanges.add(change);
+      }
+    }
+
+    output.writeInt(distinctChanges.size());
+    for (FieldDiffs change : distinctChanges) {
+      writeString(output, change.issueKey());
+      writeString(output, change.userUuid());
+      writeDate(output, change.creationDate());
+      Map<String, FieldDiffs.Diff> diffs = change.diffs();
+      output.writeInt(diffs.size());
+      for (Map.Entry<String, FieldDiffs.Diff> diff : diffs.entrySet()) {
+        writeString(output, diff.getKey());
+        writeValue(output, diff.getValue().oldValue());
+        writeValue(output, diff.getValue().newValue());
+      }
+    }
+
+    output.writeInt(changes.size());
+    for (FieldDiffs change : changes) {
+      output.writeInt(indexes.get(change));
+    }
+    output.writeBoolean(issue.currentChange() != null);
+  }
+
+  @Override
+  public DefaultIssue read(DataInputStream input) throws IOException {
+    byte format = input.readByte();
+    if (format == FORMAT_SERIALIZED) {
+      return fallbackCodec.read(input);
+    }
+    if (format != FORMAT_COMPACT) {
+      throw new IllegalStateException("Unsupported issue format: " + format);
+    }
+
+    DefaultIssue issue = new DefaultIssue();
+    issue.setKey(readString(input));
+    String type = readString(input);
+    if (type != null) {
+      issue.setType(RuleType.valueOf(type));
+    }
+    issue.setComponentUuid(readString(input));
+    issue.setComponentKey(readString(input));
+    issue.setModuleUuid(readString(input));
+    issue.setModuleUuidPath(readString(input));
+    issue.setProjectUuid(readString(input));
+    issue.setProjectKey(readString(input));
+    String ruleKey = readString(input);
+    if (ruleKey != null) {
+      issue.setRuleKey(RuleKey.parse(ruleKey));
+    }
+    issue.setLanguage(readString(input));
+    issue.setSeverity(readString(input));
+    issue.setMessage(readString(input));
+    issue.setLine(readInt(input));
+    issue.setGap(readDouble(input));
+    Long effort = readLong(input);
+    issue.setEffort(effort == null ? null : Duration.create(effort));
+    String status = readString(input);
+    if (status != null) {
+      issue.setStatus(status);
+    }
+    issue.setResolution(readString(input));
+    issue.setAssigneeUuid(readString(input));
+    issue.setChecksum(readString(input));
+    issue.setAuthorLogin(readString(input));
+    Date creationDate = readDate(input);
+    if (creationDate != null) {
+      issue.setCreationDate(creationDate);
+    }
+    issue.setUpdateDate(readDate(input));
+    issue.setCloseDate(readDate(input));
+    issue.setSelectedAt(readLong(input));
+    issue.setManualSeverity(input.readBoolean());
+    issue.setIsFromExternalRuleEngine(input.readBoolean());
+    issue.setIsFromHotspot(input.readBoolean());
+    issue.setNew(input.readBoolean());
+    issue.setCopied(input.readBoolean());
+    issue.setBeingClosed(input.readBoolean());
+    issue.setOnDisabledRule(input.readBoolean());
+    issue.setChanged(input.readBoolean());
+    issue.setSendNotifications(input.readBoolean());
+
+    int attributeCount = input.readInt();
+    for (int i = 0; i < attributeCount; i++) {
+      issue.setAttribute(readString(input), readString(input));
+    }
+
+    int tagCount = input.readInt();
+    if (tagCount > 0) {
+      Set<String> tags = new LinkedHashSet<>(tagCount);
+      for (int i = 0; i < tagCount; i++) {
+        tags.add(readString(input));
+      }
+      issue.setTags(tags);
+    }
+
+    byte[] locations = readBytes(input);
+    if (locations != null) {
+      issue.setLocations(DbIssues.Locations.parseFrom(locations));
+    }
+
+    int commentCount = input.readInt();
+    for (int i = 0; i < commentCount; i++) {
+      issue.addComment(readComment(input));
+    }
+
+    readChanges(input, issue);
+    return issue;
+  }
+
+  private static DefaultIssueComment readComment(DataInputStream input) throws IOException {
+    DefaultIssueComment comment = new DefaultIssueComment()
+      .setKey(readString(input))
+      .setIssueKey(readString(input))
+      .setUserUuid(readString(input))
+      .setMarkdownText(readString(input));
+    Date createdAt = readDate(input);
+    if (createdAt != null) {
+      comment.setCreatedAt(createdAt);
+    }
+    comment.setUpdatedAt(readDate(input));
+    comment.setNew(input.readBoolean());
+    return comment;
+  }
+
+  private static void readChanges(DataInputStream input, DefaultIssue issue) throws IOException {
+    int distinctCount = input.readInt();
+    List<FieldDiffs> distinctChanges = new ArrayList<>(distinctCount);
+    for (int i = 0; i < distinctCount; i++) {
+      FieldDiffs change = new FieldDiffs()
+        .setIssueKey(readString(input))
+        .setUserUuid(readString(input));
+      Date creationDate = readDate(input);
+      if (creationDate != null) {
+        change.setCreationDate(creationDate);
+      }
+      int diffCount = input.readInt();
+      for (int j = 0; j < diffCount; j++) {
+        change.setDiff(readString(input), readValue(input), readValue(input));
+      }
+      distinctChanges.add(change);
+    }
+
+    int changeCount = input.readInt();
+    List<FieldDiffs> changes = new ArrayList<>(changeCount);
+    for (int i = 0; i < changeCount; i++) {
+      changes.add(distinctChanges.get(input.readInt()));
+    }
+    boolean hasCurrentChange = input.readBoolean();
+    int lastIndex = changes.size() - 1;
+    for (int i = 0; i < lastIndex; i++) {
+      issue.addChange(changes.get(i));
+    }
+    if (hasCurrentChange) {
+      // current change is always the last one, see isCompactable(DefaultIssue)
+      issue.setCurrentChange(changes.get(lastIndex));
+    } else if (lastIndex >= 0) {
+      issue.addChange(changes.get(lastIndex));
+    }
+  }
+
+  private static void writeValue(DataOutputStream output, @Nullable Serializable value) throws IOException {
+    if (value == null) {
+      output.writeByte(VALUE_NULL);
+    } else if (value instanceof String) {
+      output.writeByte(VALUE_STRING);
+      writeString(output, (String) value);
+    } else if (value instanceof Long) {
+      output.writeByte(VALUE_LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Integer) {
+      output.writeByte(VALUE_INTEGER);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Double) {
+      output.writeByte(VALUE_DOUBLE);
+      output.writeDouble((Double) value);
+    } else {
+      output.writeByte(VALUE_BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    }
+  }
+
+  @CheckForNull
+  private static Serializable readValue(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case VALUE_NULL:
+        return null;
+      case VALUE_STRING:
+        return readString(input);
+      case VALUE_LONG:
+        return input.readLong();
+      case VALUE_INTEGER:
+        return input.readInt();
+      case VALUE_DOUBLE:
+        return input.readDouble();
+      case VALUE_BOOLEAN:
+        return input.readBoolean();
+      default:
+        throw new IllegalStateException("Unsupported field diff value type: " + type);
+    }
+  }
+
+  private static void writeString(DataOutputStream output, @Nullable String s) throws IOException {
+    writeBytes(output, s == null ? null : s.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @CheckForNull
+  private static String readString(DataInputStream input) throws IOException {
+    byte[] bytes = readBytes(input);
+    return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  private static void writeBytes(DataOutputStream output, @Nullable byte[] bytes) throws IOException {
+    if (bytes == null) {
+      output.writeInt(-1);
+    } else {
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    }
+  }
+
+  @CheckForNull
+  private static byte[] readBytes(DataInputStream input) throws IOException {
+    int length = input.readInt();
+    if (length < 0) {
+      return null;
+    }
+    byte[] bytes = new byte[length];
+    input.readFully(bytes);
+    return bytes;
+  }
+
+  private static void writeInt(DataOutputStream output, @Nullable Integer i) throws IOException {
+    output.writeBoolean(i != null);
+    if (i != null) {
+      output.writeInt(i);
+    }
+  }
+
+  @CheckForNull
+  private static Integer readInt(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readInt() : null;
+  }
+
+  private static void writeLong(DataOutputStream output, @Nullable Long l) throws IOException {
+    output.writeBoolean(l != null);
+    if (l != null) {
+      output.writeLong(l);
+    }
+  }
+
+  @CheckForNull
+  private static Long readLong(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readLong() : null;
+  }
+
+  private static void writeDouble(DataOutputStream output, @Nullable Double d) throws IOException {
+    output.writeBoolean(d != null);
+    if (d != null) {
+      output.writeDouble(d);
+    }
+  }
+
+  @CheckForNull
+  private static Double readDouble(DataInputStream input) throws IOException {
+    return input.readBoolean() ? input.readDouble() : null;
+  }
+
+  private static void writeDate(DataOutputStream output, @Nullable Date date) throws IOException {
+    writeLong(output, date == null ? null : date.getTime());
+  }
+
+  @CheckForNull
+  private static Date readDate(DataInputStream input) throws IOException {
+    Long time = readLong(input);
+    return time == null ? null : new Date(time);
+  }
+}
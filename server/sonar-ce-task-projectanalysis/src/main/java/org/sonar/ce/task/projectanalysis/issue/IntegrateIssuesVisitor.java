@@ -23,18 +23,33 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.stream.Stream;
+import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.picocontainer.Startable;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.rules.RuleType;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.util.cache.DiskCache;
 import org.sonar.core.issue.DefaultIssue;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 
-public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
+/**
+ * When issues are tracked concurrently, the pool of threads is stopped once the project is visited, or when the
+ * container of the task is stopped if visit is interrupted, for example because another visitor fails.
+ */
+public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter implements Startable {
+
+  /**
+   * Number of threads used to track the issues of files. Default is 1: files are tracked when they are visited.
+   */
+  public static final String PROPERTY_TRACKING_THREADS = "sonar.ce.task.issueTracking.threads";
 
   private final IssueCache issueCache;
   private final IssueLifecycle issueLifecycle;
@@ -43,11 +58,31 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
   private final ShortBranchIssueMerger issueStatusCopier;
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final MergeBranchComponentUuids mergeBranchComponentUuids;
+  @CheckForNull
+  private final TreeRootHolder treeRootHolder;
+  private final int trackingThreads;
+  @CheckForNull
+  private ConcurrentIssueTracking concurrentTracking;
 
   public IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
     AnalysisMetadataHolder analysisMetadataHolder, IssueTrackingDelegator issueTracking, ShortBranchIssueMerger issueStatusCopier,
     MergeBranchComponentUuids mergeBranchComponentUuids) {
+    this(issueCache, issueLifecycle, issueVisitors, analysisMetadataHolder, issueTracking, issueStatusCopier, mergeBranchComponentUuids, null, 1);
+  }
+
+  public IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
+    AnalysisMetadataHolder analysisMetadataHolder, IssueTrackingDelegator issueTracking, ShortBranchIssueMerger issueStatusCopier,
+    MergeBranchComponentUuids mergeBranchComponentUuids, TreeRootHolder treeRootHolder, Configuration configuration) {
+    this(issueCache, issueLifecycle, issueVisitors, analysisMetadataHolder, issueTracking, issueStatusCopier, mergeBranchComponentUuids, treeRootHolder,
+      configuration.getInt(PROPERTY_TRACKING_THREADS).orElse(1));
+  }
+
+  IntegrateIssuesVisitor(IssueCache issueCache, IssueLifecycle issueLifecycle, IssueVisitors issueVisitors,
+    AnalysisMetadataHolder analysisMetadataHolder, IssueTrackingDelegator issueTracking, ShortBranchIssueMerger issueStatusCopier,
+    MergeBranchComponentUuids mergeBranchComponentUuids, @Nullable TreeRootHolder treeRootHolder, int trackingThreads) {
     super(CrawlerDepthLimit.FILE, POST_ORDER);
+    checkArgument(trackingThreads >= 1, "The property '%s' must be an int value >= 1. Got '%s'", PROPERTY_TRACKING_THREADS, trackingThreads);
+    checkArgument(trackingThreads == 1 || treeRootHolder != null, "Tree of components is required to track issues concurrently");
     this.issueCache = issueCache;
     this.issueLifecycle = issueLifecycle;
     this.issueVisitors = issueVisitors;
@@ -55,21 +90,55 @@ public class IntegrateIssuesVisitor extends TypeAwareVisitorAdapter {
     this.issueTracking = issueTracking;
     this.issueStatusCopier = issueStatusCopier;
     this.mergeBranchComponentUuids = mergeBranchComponentUuids;
+    this.treeRootHolder = treeRootHolder;
+    this.trackingThreads = trackingThreads;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, threads are started by the first visit of a file
+  }
+
+  @Override
+  public void stop() {
+    stopConcurrentTracking();
   }
 
   @Override
   public void visitAny(Component component) {
     try (DiskCache<DefaultIssue>.DiskAppender cacheAppender = issueCache.newAppender()) {
       issueVisitors.beforeComponent(component);
-      TrackingResult tracking = issueTracking.track(component);
+      TrackingResult tracking = track(component);
       fillNewOpenIssues(component, tracking.newIssues(), cacheAppender);
       fillExistingOpenIssues(component, tracking.issuesToMerge(), cacheAppender);
       closeIssues(component, tracking.issuesToClose(), cacheAppender);
       copyIssues(component, tracking.issuesToCopy(), cacheAppender);
       issueVisitors.afterComponent(component);
     } catch (Exception e) {
+      stopConcurrentTracking();
       throw new IllegalStateException(String.format("Fail to process issues of component '%s'", component.getDbKey()), e);
     }
+    if (component.getType() == Component.Type.PROJECT) {
+      // the project is the last visited component
+      stopConcurrentTracking();
+    }
+  }
+
+  private TrackingResult track(Component component) {
+    if (trackingThreads == 1 || component.getType() != Component.Type.FILE) {
+      return issueTracking.track(component);
+    }
+    if (concurrentTracking == null) {
+      concurrentTracking = new ConcurrentIssueTracking(issueTracking, treeRootHolder.getRoot(), trackingThreads);
+    }
+    return concurrentTracking.track(component);
+  }
+
+  private void stopConcurrentTracking() {
+    if (concurrentTracking != null) {
+      concurrentTracking.close();
+      concurrentTracking = null;
+    }
   }
 
   private void fillNewOpenIssues(Component component, Stream<DefaultIssue> newIssues, DiskCache<DefaultIssue>.DiskAppender cacheAppender) {
@@ -0,0 +1,64 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
+import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+
+import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
+
+/**
+ * Declares to {@link ComponentIssuesLoader} the files which base issues are going to be loaded during issue tracking,
+ * in the order in which they are visited, so that they are loaded by batches rather than one by one.
+ */
+public class PrefetchBaseIssuesVisitor extends TypeAwareVisitorAdapter {
+
+  private final ComponentIssuesLoader issuesLoader;
+  private final MovedFilesRepository movedFilesRepository;
+
+  public PrefetchBaseIssuesVisitor(ComponentIssuesLoader issuesLoader, MovedFilesRepository movedFilesRepository) {
+    super(CrawlerDepthLimit.PROJECT, PRE_ORDER);
+    this.issuesLoader = issuesLoader;
+    this.movedFilesRepository = movedFilesRepository;
+  }
+
+  @Override
+  public void visitProject(Component project) {
+    List<String> fileUuids = new ArrayList<>();
+    collectFileUuids(project, fileUuids);
+    issuesLoader.prefetch(fileUuids);
+  }
+
+  private void collectFileUuids(Component component, List<String> fileUuids) {
+    if (component.getType() == Component.Type.FILE) {
+      // issues of a moved file are loaded from its original file
+      fileUuids.add(movedFilesRepository.getOriginalFile(component)
+        .transform(MovedFilesRepository.OriginalFile::getUuid)
+        .or(component.getUuid()));
+    }
+    for (Component child : component.getChildren()) {
+      collectFileUuids(child, fileUuids);
+    }
+  }
+}
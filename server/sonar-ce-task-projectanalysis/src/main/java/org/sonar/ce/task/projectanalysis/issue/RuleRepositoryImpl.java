@@ -60,7 +60,7 @@ public class RuleRepositoryImpl implements RuleRepository {
     this.analysisMetadataHolder = analysisMetadataHolder;
   }
 
-  public void addOrUpdateAddHocRuleIfNeeded(RuleKey ruleKey, Supplier<NewAdHocRule> ruleSupplier) {
+  public synchronized void addOrUpdateAddHocRuleIfNeeded(RuleKey ruleKey, Supplier<NewAdHocRule> ruleSupplier) {
     ensureInitialized();
 
     Rule existingRule = rulesByKey.get(ruleKey);
@@ -72,7 +72,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public void saveOrUpdateAddHocRules(DbSession dbSession) {
+  public synchronized void saveOrUpdateAddHocRules(DbSession dbSession) {
     ensureInitialized();
 
     adHocRulesPersist.values().forEach(r -> persistAndIndex(dbSession, r));
@@ -85,7 +85,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public Rule getByKey(RuleKey key) {
+  public synchronized Rule getByKey(RuleKey key) {
     verifyKeyArgument(key);
 
     ensureInitialized();
@@ -96,7 +96,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public Optional<Rule> findByKey(RuleKey key) {
+  public synchronized Optional<Rule> findByKey(RuleKey key) {
     verifyKeyArgument(key);
 
     ensureInitialized();
@@ -105,7 +105,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public Rule getById(int id) {
+  public synchronized Rule getById(int id) {
     ensureInitialized();
 
     Rule rule = rulesById.get(id);
@@ -114,7 +114,7 @@ public class RuleRepositoryImpl implements RuleRepository {
   }
 
   @Override
-  public Optional<Rule> findById(int id) {
+  public synchronized Optional<Rule> findById(int id) {
     ensureInitialized();
 
     return Optional.ofNullable(rulesById.get(id));
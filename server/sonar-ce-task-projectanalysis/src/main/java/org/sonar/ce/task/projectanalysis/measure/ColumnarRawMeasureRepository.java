@@ -0,0 +1,341 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.measure;
+
+import com.google.common.collect.ImmutableSetMultimap;
+import com.google.common.collect.SetMultimap;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Function;
+import javax.annotation.CheckForNull;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.lang.String.format;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Columnar implementation of MeasureRepository which supports only raw measures.
+ * Intended to be used as a delegate of other MeasureRepository implementations (hence the final keyword).
+ * <p>
+ * Each component is given a dense index, in the order in which measures are added to components, and measures are
+ * stored in one column by metric. Measures which hold only a number and, optionally, a variation are stored in primitive
+ * arrays: the {@link Measure} object is created again each time it is read. Other measures (text, data, level, with a
+ * QualityGate status or for a developer) are stored as is.
+ * </p>
+ */
+public final class ColumnarRawMeasureRepository<T> implements MeasureRepository {
+  private final Function<Component, T> componentToKey;
+  private final Map<T, Integer> componentIndexes = new HashMap<>();
+  private final Map<String, Column> columnsByMetricKey = new LinkedHashMap<>();
+  private final Map<T, Map<MeasureKey, Measure>> developerMeasures = new HashMap<>();
+
+  public ColumnarRawMeasureRepository(Function<Component, T> componentToKey) {
+    this.componentToKey = requireNonNull(componentToKey);
+  }
+
+  /**
+   * @throws UnsupportedOperationException all the time, not supported
+   */
+  @Override
+  public Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+    throw new UnsupportedOperationException("This implementation of MeasureRepository supports only raw measures");
+  }
+
+  @Override
+  public Optional<Measure> getRawMeasure(final Component component, final Metric metric) {
+    // fail fast
+    requireNonNull(component);
+    requireNonNull(metric);
+
+    return Optional.ofNullable(find(component, new MeasureKey(metric.getKey(), null)));
+  }
+
+  @Override
+  public void add(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    requireNonNull(metric);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, new MeasureKey(metric.getKey(), measure.getDeveloper())) != null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be set only once for a specific Component (key=%s), Metric (key=%s). Use update method",
+          component.getDbKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  @Override
+  public void update(Component component, Metric metric, Measure measure) {
+    requireNonNull(component);
+    requireNonNull(metric);
+    checkValueTypeConsistency(metric, measure);
+
+    if (find(component, new MeasureKey(metric.getKey(), measure.getDeveloper())) == null) {
+      throw new UnsupportedOperationException(
+        format(
+          "a measure can be updated only if one already exists for a specific Component (key=%s), Metric (key=%s). Use add method",
+          component.getDbKey(),
+          metric.getKey()));
+    }
+    add(component, metric, measure, OverridePolicy.OVERRIDE);
+  }
+
+  private static void checkValueTypeConsistency(Metric metric, Measure measure) {
+    checkArgument(
+      measure.getValueType() == Measure.ValueType.NO_VALUE || measure.getValueType() == metric.getType().getValueType(),
+      "Measure's ValueType (%s) is not consistent with the Metric's ValueType (%s)",
+      measure.getValueType(), metric.getType().getValueType());
+  }
+
+  @Override
+  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+    requireNonNull(metric);
+    requireNonNull(component);
+    T componentKey = componentToKey.apply(component);
+    Set<Measure> res = new HashSet<>();
+    Integer index = componentIndexes.get(componentKey);
+    Column column = columnsByMetricKey.get(metric.getKey());
+    if (index != null && column != null) {
+      Measure measure = column.get(index);
+      if (measure != null) {
+        res.add(measure);
+      }
+    }
+    Map<MeasureKey, Measure> measuresOfDevelopers = developerMeasures.get(componentKey);
+    if (measuresOfDevelopers != null) {
+      measuresOfDevelopers.entrySet().stream()
+        .filter(entry -> entry.getKey().getMetricKey().equals(metric.getKey()))
+        .forEach(entry -> res.add(entry.getValue()));
+    }
+    return res;
+  }
+
+  @Override
+  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+    T componentKey = componentToKey.apply(component);
+    ImmutableSetMultimap.Builder<String, Measure> builder = ImmutableSetMultimap.builder();
+    Integer index = componentIndexes.get(componentKey);
+    if (index != null) {
+      for (Column column : columnsByMetricKey.values()) {
+        Measure measure = column.get(index);
+        if (measure != null) {
+          builder.put(column.metricKey, measure);
+        }
+      }
+    }
+    Map<MeasureKey, Measure> measuresOfDevelopers = developerMeasures.get(componentKey);
+    if (measuresOfDevelopers != null) {
+      for (Map.Entry<MeasureKey, Measure> entry : measuresOfDevelopers.entrySet()) {
+        builder.put(entry.getKey().getMetricKey(), entry.getValue());
+      }
+    }
+    return builder.build();
+  }
+
+  @CheckForNull
+  private Measure find(Component component, MeasureKey key) {
+    T componentKey = componentToKey.apply(component);
+    if (key.getDeveloper() != null) {
+      Map<MeasureKey, Measure> measuresOfDevelopers = developerMeasures.get(componentKey);
+      return measuresOfDevelopers == null ? null : measuresOfDevelopers.get(key);
+    }
+    Integer index = componentIndexes.get(componentKey);
+    Column column = columnsByMetricKey.get(key.getMetricKey());
+    if (index == null || column == null) {
+      return null;
+    }
+    return column.get(index);
+  }
+
+  public void add(Component component, Metric metric, Measure measure, OverridePolicy overridePolicy) {
+    requireNonNull(component);
+    requireNonNull(measure);
+    requireNonNull(overridePolicy);
+
+    T componentKey = componentToKey.apply(component);
+    if (measure.getDeveloper() != null) {
+      Map<MeasureKey, Measure> measuresOfDevelopers = developerMeasures.computeIfAbsent(componentKey, key -> new HashMap<>());
+      MeasureKey key = new MeasureKey(metric.getKey(), measure.getDeveloper());
+      if (!measuresOfDevelopers.containsKey(key) || overridePolicy == OverridePolicy.OVERRIDE) {
+        measuresOfDevelopers.put(key, measure);
+      }
+      return;
+    }
+
+    int index = indexOf(componentKey);
+    Column column = columnsByMetricKey.computeIfAbsent(metric.getKey(), Column::new);
+    if (!column.contains(index) || overridePolicy == OverridePolicy.OVERRIDE) {
+      column.put(index, measure);
+    }
+  }
+
+  private int indexOf(T componentKey) {
+    Integer index = componentIndexes.get(componentKey);
+    if (index == null) {
+      index = componentIndexes.size();
+      componentIndexes.put(componentKey, index);
+    }
+    return index;
+  }
+
+  public enum OverridePolicy {
+    OVERRIDE, DO_NOT_OVERRIDE
+  }
+
+  /**
+   * Measures of a single metric, by component index. For each component, a flag byte tells whether there is a measure
+   * and where its value is stored.
+   */
+  private static final class Column {
+    private static final byte PRIMITIVE = 1;
+    private static final byte HAS_VALUE = 2;
+    private static final byte HAS_VARIATION = 4;
+    private static final byte OBJECT = 8;
+
+    private final String metricKey;
+    private byte[] flags = new byte[0];
+    /**
+     * Value type of the measures stored in {@link #values}, {@code null} until a value is stored
+     */
+    @CheckForNull
+    private Measure.ValueType valueType;
+    @CheckForNull
+    private double[] values;
+    @CheckForNull
+    private double[] variations;
+    private final Map<Integer, Measure> objects = new HashMap<>();
+
+    private Column(String metricKey) {
+      this.metricKey = metricKey;
+    }
+
+    private boolean contains(int index) {
+      return index < flags.length && flags[index] != 0;
+    }
+
+    @CheckForNull
+    private Measure get(int index) {
+      if (index >= flags.length) {
+        return null;
+      }
+      byte flag = flags[index];
+      if ((flag & OBJECT) != 0) {
+        return objects.get(index);
+      }
+      if ((flag & PRIMITIVE) == 0) {
+        return null;
+      }
+      boolean hasValue = (flag & HAS_VALUE) != 0;
+      return Measure.createNumeric(
+        hasValue ? valueType : Measure.ValueType.NO_VALUE,
+        hasValue ? values[index] : null,
+        (flag & HAS_VARIATION) != 0 ? variations[index] : null);
+    }
+
+    private void put(int index, Measure measure) {
+      ensureCapacity(index);
+      if ((flags[index] & OBJECT) != 0) {
+        objects.remove(index);
+      }
+      if (!isPrimitive(measure)) {
+        objects.put(index, measure);
+        flags[index] = OBJECT;
+        return;
+      }
+
+      byte flag = PRIMITIVE;
+      if (measure.getValueType() != Measure.ValueType.NO_VALUE) {
+        valueType = measure.getValueType();
+        values = allocate(values);
+        values[index] = toDouble(measure);
+        flag |= HAS_VALUE;
+      }
+      if (measure.hasVariation()) {
+        variations = allocate(variations);
+        variations[index] = measure.getVariation();
+        flag |= HAS_VARIATION;
+      }
+      flags[index] = flag;
+    }
+
+    /**
+     * Only numbers of the same type are stored in primitive arrays. Whatever is lost when the measure is created again
+     * from these arrays (data, QualityGate status, developer) must not be set.
+     */
+    private boolean isPrimitive(Measure measure) {
+      if (measure.getDeveloper() != null || measure.getData() != null || measure.hasQualityGateStatus()) {
+        return false;
+      }
+      switch (measure.getValueType()) {
+        case NO_VALUE:
+          return true;
+        case BOOLEAN:
+        case INT:
+        case LONG:
+        case DOUBLE:
+          return valueType == null || valueType == measure.getValueType();
+        default:
+          return false;
+      }
+    }
+
+    private static double toDouble(Measure measure) {
+      switch (measure.getValueType()) {
+        case BOOLEAN:
+          return measure.getBooleanValue() ? 1.0D : 0.0D;
+        case INT:
+          return measure.getIntValue();
+        case LONG:
+          return measure.getLongValue();
+        case DOUBLE:
+          return measure.getDoubleValue();
+        default:
+          throw new IllegalArgumentException("Measure of type " + measure.getValueType() + " has no numeric value");
+      }
+    }
+
+    private void ensureCapacity(int index) {
+      if (index < flags.length) {
+        return;
+      }
+      int newLength = Math.max(index + 1, flags.length + (flags.length >> 1));
+      flags = Arrays.copyOf(flags, newLength);
+      if (values != null) {
+        values = Arrays.copyOf(values, newLength);
+      }
+      if (variations != null) {
+        variations = Arrays.copyOf(variations, newLength);
+      }
+    }
+
+    private double[] allocate(@CheckForNull double[] array) {
+      return array == null ? new double[flags.length] : array;
+    }
+  }
+}
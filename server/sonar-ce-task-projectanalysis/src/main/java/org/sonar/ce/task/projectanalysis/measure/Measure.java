@@ -99,6 +99,14 @@ public final class Measure {
     return new UpdateMeasureBuilder(measure);
   }
 
+  /**
+   * Creates again a measure which has only a numeric value and a variation, as stored by
+   * {@link ColumnarRawMeasureRepository}. Unlike {@link NewMeasureBuilder#create(double, int)}, the value is not scaled.
+   */
+  static Measure createNumeric(ValueType valueType, @Nullable Double value, @Nullable Double variation) {
+    return new Measure(valueType, null, value, null, null, null, variation);
+  }
+
   public static final class NewMeasureBuilder {
     private Developer developer;
     private QualityGateStatus qualityGateStatus;
@@ -25,7 +25,7 @@ import java.util.Optional;
 import java.util.Set;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
-import org.sonar.ce.task.projectanalysis.measure.MapBasedRawMeasureRepository.OverridePolicy;
+import org.sonar.ce.task.projectanalysis.measure.ColumnarRawMeasureRepository.OverridePolicy;
 import org.sonar.ce.task.projectanalysis.metric.Metric;
 import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
 import org.sonar.ce.task.projectanalysis.metric.ReportMetricValidator;
@@ -38,8 +38,11 @@ import org.sonar.scanner.protocol.output.ScannerReport;
 import static java.util.Objects.requireNonNull;
 import static org.sonar.ce.task.projectanalysis.component.ComponentFunctions.toComponentUuid;
 
+/**
+ * Raw measures can be read and written from several threads, for example during concurrent issue tracking.
+ */
 public class MeasureRepositoryImpl implements MeasureRepository {
-  private final MapBasedRawMeasureRepository<String> delegate = new MapBasedRawMeasureRepository<>(toComponentUuid());
+  private final ColumnarRawMeasureRepository<String> delegate = new ColumnarRawMeasureRepository<>(toComponentUuid());
   private final DbClient dbClient;
   private final BatchReportReader reportReader;
   private final BatchMeasureToMeasure batchMeasureToMeasure;
@@ -74,7 +77,7 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   }
 
   @Override
-  public Optional<Measure> getRawMeasure(Component component, Metric metric) {
+  public synchronized Optional<Measure> getRawMeasure(Component component, Metric metric) {
     Optional<Measure> local = delegate.getRawMeasure(component, metric);
     if (local.isPresent()) {
       return local;
@@ -86,23 +89,23 @@ public class MeasureRepositoryImpl implements MeasureRepository {
   }
 
   @Override
-  public void add(Component component, Metric metric, Measure measure) {
+  public synchronized void add(Component component, Metric metric, Measure measure) {
     delegate.add(component, metric, measure);
   }
 
   @Override
-  public void update(Component component, Metric metric, Measure measure) {
+  public synchronized void update(Component component, Metric metric, Measure measure) {
     delegate.update(component, metric, measure);
   }
 
   @Override
-  public Set<Measure> getRawMeasures(Component component, Metric metric) {
+  public synchronized Set<Measure> getRawMeasures(Component component, Metric metric) {
     loadBatchMeasuresForComponent(component);
     return delegate.getRawMeasures(component, metric);
   }
 
   @Override
-  public SetMultimap<String, Measure> getRawMeasures(Component component) {
+  public synchronized SetMultimap<String, Measure> getRawMeasures(Component component) {
     loadBatchMeasuresForComponent(component);
     return delegate.getRawMeasures(component);
   }
@@ -26,6 +26,8 @@ import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.ce.task.projectanalysis.source.FileSourceSnapshot;
+import org.sonar.ce.task.projectanalysis.source.FileSourceSnapshotRepository;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.source.FileSourceDto;
@@ -36,11 +38,14 @@ public class ScmInfoDbLoader {
   private final AnalysisMetadataHolder analysisMetadataHolder;
   private final DbClient dbClient;
   private final MergeBranchComponentUuids mergeBranchComponentUuid;
+  private final FileSourceSnapshotRepository fileSourceSnapshotRepository;
 
-  public ScmInfoDbLoader(AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient, MergeBranchComponentUuids mergeBranchComponentUuid) {
+  public ScmInfoDbLoader(AnalysisMetadataHolder analysisMetadataHolder, DbClient dbClient, MergeBranchComponentUuids mergeBranchComponentUuid,
+    FileSourceSnapshotRepository fileSourceSnapshotRepository) {
     this.analysisMetadataHolder = analysisMetadataHolder;
     this.dbClient = dbClient;
     this.mergeBranchComponentUuid = mergeBranchComponentUuid;
+    this.fileSourceSnapshotRepository = fileSourceSnapshotRepository;
   }
 
   public Optional<DbScmInfo> getScmInfo(Component file) {
@@ -49,6 +54,14 @@ public class ScmInfoDbLoader {
       return Optional.empty();
     }
 
+    if (!analysisMetadataHolder.isFirstAnalysis()) {
+      Optional<FileSourceSnapshot> snapshot = fileSourceSnapshotRepository.getPrevious(file);
+      if (snapshot.isPresent()) {
+        LOGGER.trace("Reading SCM info from snapshot of file '{}'", uuid.get());
+        return DbScmInfo.create(snapshot.get().getScmLines(), snapshot.get().getSrcHash());
+      }
+    }
+
     LOGGER.trace("Reading SCM info from DB for file '{}'", uuid.get());
     try (DbSession dbSession = dbClient.openSession(false)) {
       FileSourceDto dto = dbClient.fileSourceDao().selectByFileUuid(dbSession, uuid.get());
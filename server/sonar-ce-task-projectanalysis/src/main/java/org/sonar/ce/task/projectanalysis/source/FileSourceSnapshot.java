@@ -0,0 +1,94 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import java.util.List;
+import javax.annotation.concurrent.Immutable;
+import org.sonar.db.protobuf.DbFileSources;
+
+import static java.util.Objects.requireNonNull;
+
+/**
+ * The part of the data of a file persisted in table FILE_SOURCES which is read again by the next analysis of the
+ * same branch: hashes, line hashes and SCM information of lines.
+ */
+@Immutable
+public final class FileSourceSnapshot {
+  private final String srcHash;
+  private final String dataHash;
+  private final int lineHashesVersion;
+  private final List<String> lineHashes;
+  private final DbFileSources.Data scmData;
+
+  FileSourceSnapshot(String srcHash, String dataHash, int lineHashesVersion, List<String> lineHashes, DbFileSources.Data scmData) {
+    this.srcHash = requireNonNull(srcHash);
+    this.dataHash = requireNonNull(dataHash);
+    this.lineHashesVersion = lineHashesVersion;
+    this.lineHashes = requireNonNull(lineHashes);
+    this.scmData = requireNonNull(scmData);
+  }
+
+  /**
+   * Only the SCM fields of lines are kept from {@code lineData}.
+   */
+  public static FileSourceSnapshot of(String srcHash, String dataHash, int lineHashesVersion, List<String> lineHashes, DbFileSources.Data lineData) {
+    DbFileSources.Data.Builder scmData = DbFileSources.Data.newBuilder();
+    for (DbFileSources.Line line : lineData.getLinesList()) {
+      DbFileSources.Line.Builder scmLine = scmData.addLinesBuilder().setLine(line.getLine());
+      if (line.hasScmRevision()) {
+        scmLine.setScmRevision(line.getScmRevision());
+      }
+      if (line.hasScmAuthor()) {
+        scmLine.setScmAuthor(line.getScmAuthor());
+      }
+      if (line.hasScmDate()) {
+        scmLine.setScmDate(line.getScmDate());
+      }
+    }
+    return new FileSourceSnapshot(srcHash, dataHash, lineHashesVersion, lineHashes, scmData.build());
+  }
+
+  public String getSrcHash() {
+    return srcHash;
+  }
+
+  public String getDataHash() {
+    return dataHash;
+  }
+
+  public int getLineHashesVersion() {
+    return lineHashesVersion;
+  }
+
+  public List<String> getLineHashes() {
+    return lineHashes;
+  }
+
+  /**
+   * Lines of the file, with only their line number and SCM fields
+   */
+  public List<DbFileSources.Line> getScmLines() {
+    return scmData.getLinesList();
+  }
+
+  DbFileSources.Data getScmData() {
+    return scmData;
+  }
+}
@@ -0,0 +1,49 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import java.util.Optional;
+import org.sonar.ce.task.projectanalysis.component.Component;
+
+/**
+ * Snapshots of the sources of the files of the analyzed branch, kept on the local disk of the Compute Engine by each
+ * analysis so that the next analysis of the same branch does not have to read them again from table FILE_SOURCES.
+ */
+public interface FileSourceSnapshotRepository {
+
+  /**
+   * Snapshot of the sources of the specified file which have been persisted by the previous analysis of the branch.
+   * Empty if there is no such snapshot on the local disk or if it is not consistent with the data in DB (eg. the branch
+   * has been analyzed by another Compute Engine node since then), in which case data must be read from DB.
+   */
+  Optional<FileSourceSnapshot> getPrevious(Component file);
+
+  /**
+   * Adds the snapshot of the sources of the specified file which are persisted by the current analysis. Can be called
+   * by several threads.
+   */
+  void add(Component file, FileSourceSnapshot snapshot);
+
+  /**
+   * Replaces the snapshots of the previous analysis by those which have been added. Snapshots of the previous analysis
+   * are no longer returned by {@link #getPrevious(Component)} after this call.
+   */
+  void save();
+}
@@ -0,0 +1,297 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.io.ByteStreams;
+import com.google.common.io.CountingInputStream;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.CheckForNull;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.io.IOUtils;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Snapshots of a branch are stored in a single file, named after the uuid of the branch, in directory "ce-snapshots"
+ * of the temp directory of the SonarQube instance (hence they are lost on restart).
+ * <p>
+ * The file starts with the version of its format, followed by one record by file: the uuid of the file, the length of
+ * the snapshot and the snapshot itself. Only the position of the snapshots is loaded in memory, snapshots are read
+ * from disk when requested. The file of the current analysis is written to a temporary file which is moved over the
+ * file of the previous analysis by {@link #save()}.
+ * </p>
+ * <p>
+ * A snapshot is returned only if its src_hash, data_hash and line hashes version are those of the file in DB. Any
+ * failure to read or write snapshots is logged and ignored: data is then read from DB.
+ * </p>
+ */
+public class FileSourceSnapshotRepositoryImpl implements FileSourceSnapshotRepository, Startable {
+  private static final Logger LOG = Loggers.get(FileSourceSnapshotRepositoryImpl.class);
+  private static final String SNAPSHOTS_DIRECTORY = "ce-snapshots";
+  private static final String TEMP_FILE_SUFFIX = ".tmp";
+  private static final int FORMAT_VERSION = 1;
+
+  private final ServerFileSystem serverFileSystem;
+  private final DbClient dbClient;
+  private final TreeRootHolder treeRootHolder;
+
+  private boolean loaded = false;
+  private Map<String, Position> positionsByFileUuid = Collections.emptyMap();
+  private Map<String, FileSourceDto> dbHashesByFileUuid = Collections.emptyMap();
+  @CheckForNull
+  private FileChannel previousSnapshots;
+
+  @CheckForNull
+  private DataOutputStream currentSnapshots;
+  private boolean writeFailed = false;
+
+  public FileSourceSnapshotRepositoryImpl(ServerFileSystem serverFileSystem, DbClient dbClient, TreeRootHolder treeRootHolder) {
+    this.serverFileSystem = serverFileSystem;
+    this.dbClient = dbClient;
+    this.treeRootHolder = treeRootHolder;
+  }
+
+  @Override
+  public void start() {
+    // nothing to do, snapshots are lazily loaded
+  }
+
+  @Override
+  public synchronized void stop() {
+    IOUtils.closeQuietly(previousSnapshots);
+    previousSnapshots = null;
+    if (currentSnapshots != null) {
+      // snapshots of the current analysis have not been saved
+      abortWrite();
+    }
+  }
+
+  @Override
+  public Optional<FileSourceSnapshot> getPrevious(Component file) {
+    Position position;
+    FileSourceDto dbHashes;
+    FileChannel channel;
+    synchronized (this) {
+      ensureLoaded();
+      position = positionsByFileUuid.get(file.getUuid());
+      dbHashes = dbHashesByFileUuid.get(file.getUuid());
+      channel = previousSnapshots;
+    }
+    if (position == null || dbHashes == null || channel == null) {
+      return Optional.empty();
+    }
+    try {
+      FileSourceSnapshot snapshot = read(channel, position);
+      if (snapshot.getSrcHash().equals(dbHashes.getSrcHash())
+        && snapshot.getDataHash().equals(dbHashes.getDataHash())
+        && snapshot.getLineHashesVersion() == dbHashes.getLineHashesVersion()) {
+        return Optional.of(snapshot);
+      }
+      LOG.trace("Snapshot of sources of file '{}' is outdated", file.getUuid());
+    } catch (IOException e) {
+      LOG.debug("Failed to read snapshot of sources of file '{}'", file.getUuid(), e);
+    }
+    return Optional.empty();
+  }
+
+  private void ensureLoaded() {
+    if (loaded) {
+      return;
+    }
+    loaded = true;
+    Path path = getSnapshotsPath();
+    if (!Files.exists(path)) {
+      return;
+    }
+    try {
+      positionsByFileUuid = readPositions(path);
+      previousSnapshots = FileChannel.open(path, READ);
+    } catch (IOException e) {
+      LOG.warn("Failed to read snapshots of sources from '{}'. Sources are read from database.", path, e);
+      positionsByFileUuid = Collections.emptyMap();
+      return;
+    }
+    dbHashesByFileUuid = new HashMap<>();
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      dbSession.select("org.sonar.db.source.FileSourceMapper.selectHashesForProject", ImmutableMap.of("projectUuid", treeRootHolder.getRoot().getUuid()),
+        context -> {
+          FileSourceDto dto = (FileSourceDto) context.getResultObject();
+          dbHashesByFileUuid.put(dto.getFileUuid(), dto);
+        });
+    }
+  }
+
+  private static Map<String, Position> readPositions(Path path) throws IOException {
+    long size = Files.size(path);
+    Map<String, Position> positions = new HashMap<>();
+    try (CountingInputStream counting = new CountingInputStream(new BufferedInputStream(Files.newInputStream(path)));
+      DataInputStream input = new DataInputStream(counting)) {
+      if (input.readInt() != FORMAT_VERSION) {
+        return Collections.emptyMap();
+      }
+      while (counting.getCount() < size) {
+        String fileUuid = input.readUTF();
+        int length = input.readInt();
+        positions.put(fileUuid, new Position(counting.getCount(), length));
+        ByteStreams.skipFully(input, length);
+      }
+    }
+    return positions;
+  }
+
+  private static FileSourceSnapshot read(FileChannel channel, Position position) throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(position.length);
+    while (buffer.hasRemaining()) {
+      // positional reads can be done concurrently by several threads
+      if (channel.read(buffer, position.offset + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(buffer.array()));
+    String srcHash = input.readUTF();
+    String dataHash = input.readUTF();
+    int lineHashesVersion = input.readInt();
+    int lineHashesCount = input.readInt();
+    List<String> lineHashes = new ArrayList<>(lineHashesCount);
+    for (int i = 0; i < lineHashesCount; i++) {
+      lineHashes.add(input.readUTF());
+    }
+    byte[] scmData = new byte[input.readInt()];
+    input.readFully(scmData);
+    return new FileSourceSnapshot(srcHash, dataHash, lineHashesVersion, lineHashes, DbFileSources.Data.parseFrom(scmData));
+  }
+
+  @Override
+  public synchronized void add(Component file, FileSourceSnapshot snapshot) {
+    if (writeFailed) {
+      return;
+    }
+    Path tempPath = getTempPath();
+    try {
+      if (currentSnapshots == null) {
+        Files.createDirectories(tempPath.getParent());
+        currentSnapshots = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempPath)));
+        currentSnapshots.writeInt(FORMAT_VERSION);
+      }
+      byte[] bytes = encode(snapshot);
+      currentSnapshots.writeUTF(file.getUuid());
+      currentSnapshots.writeInt(bytes.length);
+      currentSnapshots.write(bytes);
+    } catch (IOException e) {
+      LOG.warn("Failed to write snapshots of sources to '{}'", tempPath, e);
+      abortWrite();
+    }
+  }
+
+  private static byte[] encode(FileSourceSnapshot snapshot) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      output.writeUTF(snapshot.getSrcHash());
+      output.writeUTF(snapshot.getDataHash());
+      output.writeInt(snapshot.getLineHashesVersion());
+      output.writeInt(snapshot.getLineHashes().size());
+      for (String lineHash : snapshot.getLineHashes()) {
+        output.writeUTF(lineHash);
+      }
+      byte[] scmData = snapshot.getScmData().toByteArray();
+      output.writeInt(scmData.length);
+      output.write(scmData);
+    }
+    return bytes.toByteArray();
+  }
+
+  @Override
+  public synchronized void save() {
+    // snapshots of the previous analysis are obsolete, even if the new ones can't be saved
+    loaded = true;
+    positionsByFileUuid = Collections.emptyMap();
+    IOUtils.closeQuietly(previousSnapshots);
+    previousSnapshots = null;
+
+    if (currentSnapshots == null) {
+      return;
+    }
+    Path tempPath = getTempPath();
+    Path path = getSnapshotsPath();
+    try {
+      currentSnapshots.close();
+      currentSnapshots = null;
+      Files.move(tempPath, path, REPLACE_EXISTING, ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOG.warn("Failed to save snapshots of sources to '{}'", path, e);
+      abortWrite();
+    }
+  }
+
+  private void abortWrite() {
+    writeFailed = true;
+    IOUtils.closeQuietly(currentSnapshots);
+    currentSnapshots = null;
+    FileUtils.deleteQuietly(getTempPath().toFile());
+  }
+
+  private Path getSnapshotsPath() {
+    return serverFileSystem.getTempDir().toPath().resolve(SNAPSHOTS_DIRECTORY).resolve(treeRootHolder.getRoot().getUuid());
+  }
+
+  private Path getTempPath() {
+    return serverFileSystem.getTempDir().toPath().resolve(SNAPSHOTS_DIRECTORY).resolve(treeRootHolder.getRoot().getUuid() + TEMP_FILE_SUFFIX);
+  }
+
+  private static final class Position {
+    private final long offset;
+    private final int length;
+
+    private Position(long offset, int length) {
+      this.offset = offset;
+      this.length = length;
+    }
+  }
+}
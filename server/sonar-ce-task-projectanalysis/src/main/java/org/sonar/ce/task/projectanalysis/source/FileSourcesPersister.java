@@ -0,0 +1,196 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.CheckForNull;
+import org.slf4j.MDC;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.source.FileSourceDto;
+
+import static com.google.common.util.concurrent.Futures.immediateFuture;
+
+/**
+ * Persists file sources on a pipeline of threads: DTOs are prepared (encoding and hashing of data) by a pool of
+ * threads, while a single thread writes them to DB in JDBC batches, in the order in which they have been submitted.
+ * <p>
+ * At most {@code 2 * encoderThreads} DTOs are prepared in advance and at most {@code batchSize} DTOs are held by the
+ * JDBC batch, so that memory is bounded even when files are big.
+ * </p>
+ */
+class FileSourcesPersister implements AutoCloseable {
+  private static final Future<Write> END_OF_WRITES = immediateFuture(null);
+
+  private final DbClient dbClient;
+  private final int batchSize;
+  private final ExecutorService encoders;
+  private final ExecutorService writerExecutor;
+  private final BlockingQueue<Future<Write>> pendingWrites;
+  @CheckForNull
+  private final Map<String, String> mdcContext;
+  private Future<?> writer;
+
+  FileSourcesPersister(DbClient dbClient, int encoderThreads, int batchSize) {
+    this.dbClient = dbClient;
+    this.batchSize = batchSize;
+    String threadNamePrefix = Thread.currentThread().getName() + "-fileSources-";
+    this.encoders = Executors.newFixedThreadPool(encoderThreads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat(threadNamePrefix + "encoder-%d")
+      .build());
+    this.writerExecutor = Executors.newSingleThreadExecutor(new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat(threadNamePrefix + "writer-%d")
+      .build());
+    this.pendingWrites = new ArrayBlockingQueue<>(2 * encoderThreads);
+    this.mdcContext = MDC.getCopyOfContextMap();
+  }
+
+  /**
+   * Prepares a write, which is {@code null} if there is nothing to persist, on the pool of encoder threads and
+   * queues it for the writer thread. Blocks while too many writes are pending.
+   */
+  void submit(Callable<Write> write) {
+    if (writer == null) {
+      writer = writerExecutor.submit(this::writeAll);
+    }
+    enqueue(encoders.submit(() -> callWithMdc(write)));
+  }
+
+  /**
+   * Waits for all the submitted writes to be persisted and committed.
+   *
+   * @throws RuntimeException the failure of the preparation or of the persistence of a write
+   */
+  void finish() {
+    if (writer == null) {
+      return;
+    }
+    enqueue(END_OF_WRITES);
+    waitFor(writer);
+  }
+
+  private void enqueue(Future<Write> write) {
+    try {
+      while (!pendingWrites.offer(write, 100, TimeUnit.MILLISECONDS)) {
+        if (writer.isDone()) {
+          // writer failed, its failure is rethrown
+          waitFor(writer);
+          throw new IllegalStateException("Writer of file sources stopped unexpectedly");
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting file sources", e);
+    }
+  }
+
+  private void writeAll() {
+    try (DbSession dbSession = dbClient.openSession(true)) {
+      int count = 0;
+      Future<Write> pendingWrite = pendingWrites.take();
+      while (pendingWrite != END_OF_WRITES) {
+        Write write = waitFor(pendingWrite);
+        if (write != null) {
+          write.execute(dbClient, dbSession);
+          count++;
+          if (count % batchSize == 0) {
+            dbSession.commit();
+          }
+        }
+        pendingWrite = pendingWrites.take();
+      }
+      dbSession.commit();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting file sources", e);
+    }
+  }
+
+  private <T> T callWithMdc(Callable<T> callable) throws Exception {
+    if (mdcContext != null) {
+      MDC.setContextMap(mdcContext);
+    }
+    try {
+      return callable.call();
+    } finally {
+      MDC.clear();
+    }
+  }
+
+  private static <T> T waitFor(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while persisting file sources", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    encoders.shutdownNow();
+    writerExecutor.shutdownNow();
+  }
+
+  /**
+   * Insert or update of a {@link FileSourceDto}.
+   */
+  static final class Write {
+    private final FileSourceDto dto;
+    private final boolean insert;
+
+    private Write(FileSourceDto dto, boolean insert) {
+      this.dto = dto;
+      this.insert = insert;
+    }
+
+    static Write insert(FileSourceDto dto) {
+      return new Write(dto, true);
+    }
+
+    static Write update(FileSourceDto dto) {
+      return new Write(dto, false);
+    }
+
+    private void execute(DbClient dbClient, DbSession dbSession) {
+      if (insert) {
+        dbClient.fileSourceDao().insert(dbSession, dto);
+      } else {
+        dbClient.fileSourceDao().update(dbSession, dto);
+      }
+    }
+  }
+}
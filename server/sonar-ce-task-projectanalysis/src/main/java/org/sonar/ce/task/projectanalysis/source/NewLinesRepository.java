@@ -51,7 +51,11 @@ public class NewLinesRepository {
     return isPullRequestOrShortLivedBranch() || periodHolder.hasPeriod();
   }
 
-  public Optional<Set<Integer>> getNewLines(Component component) {
+  /**
+   * Synchronized, as new lines of files may be requested by formulas executed by several threads (see
+   * {@link org.sonar.ce.task.projectanalysis.formula.ParallelFormulaExecutor}).
+   */
+  public synchronized Optional<Set<Integer>> getNewLines(Component component) {
     Optional<Set<Integer>> reportChangedLines = getChangedLinesFromReport(component);
     if (reportChangedLines.isPresent()) {
       return reportChangedLines;
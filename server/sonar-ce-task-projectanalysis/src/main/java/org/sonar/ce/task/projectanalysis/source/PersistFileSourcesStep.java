@@ -20,21 +20,27 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.codec.digest.DigestUtils;
 import org.apache.commons.lang.ObjectUtils;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.DepthTraversalTypeAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.duplication.DuplicationRepository;
 import org.sonar.ce.task.projectanalysis.scm.Changeset;
+import org.sonar.ce.task.projectanalysis.scm.ScmInfoRepository;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.ConcurrentComputationStep;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.protobuf.DbFileSources;
@@ -42,31 +48,44 @@ import org.sonar.db.source.FileSourceDto;
 
 import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.PRE_ORDER;
 
-public class PersistFileSourcesStep implements ComputationStep {
+public class PersistFileSourcesStep implements ConcurrentComputationStep {
+  /**
+   * Number of threads which encode and hash the data of files, while they are written to DB by another thread
+   */
+  private static final int ENCODER_THREADS = 2;
+  /**
+   * Don't use big batches for file_sources since keeping all data in memory can produce OOM for big files
+   */
+  private static final int BATCH_SIZE = 20;
+
   private final DbClient dbClient;
   private final System2 system2;
   private final TreeRootHolder treeRootHolder;
   private final SourceLinesHashRepository sourceLinesHash;
   private final FileSourceDataComputer fileSourceDataComputer;
   private final FileSourceDataWarnings fileSourceDataWarnings;
+  private final FileSourceSnapshotRepository fileSourceSnapshotRepository;
 
   public PersistFileSourcesStep(DbClient dbClient, System2 system2, TreeRootHolder treeRootHolder,
     SourceLinesHashRepository sourceLinesHash, FileSourceDataComputer fileSourceDataComputer,
-    FileSourceDataWarnings fileSourceDataWarnings) {
+    FileSourceDataWarnings fileSourceDataWarnings, FileSourceSnapshotRepository fileSourceSnapshotRepository) {
     this.dbClient = dbClient;
     this.system2 = system2;
     this.treeRootHolder = treeRootHolder;
     this.sourceLinesHash = sourceLinesHash;
     this.fileSourceDataComputer = fileSourceDataComputer;
     this.fileSourceDataWarnings = fileSourceDataWarnings;
+    this.fileSourceSnapshotRepository = fileSourceSnapshotRepository;
   }
 
   @Override
   public void execute(ComputationStep.Context context) {
-    // Don't use batch insert for file_sources since keeping all data in memory can produce OOM for big files
-    try (DbSession dbSession = dbClient.openSession(false)) {
-      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession))
+    try (DbSession dbSession = dbClient.openSession(false);
+      FileSourcesPersister persister = new FileSourcesPersister(dbClient, ENCODER_THREADS, BATCH_SIZE)) {
+      new DepthTraversalTypeAwareCrawler(new FileSourceVisitor(dbSession, persister))
         .visit(treeRootHolder.getRoot());
+      persister.finish();
+      fileSourceSnapshotRepository.save();
     } finally {
       fileSourceDataWarnings.commitWarnings();
     }
@@ -74,13 +93,15 @@ public class PersistFileSourcesStep implements ComputationStep {
 
   private class FileSourceVisitor extends TypeAwareVisitorAdapter {
     private final DbSession session;
+    private final FileSourcesPersister persister;
 
     private Map<String, FileSourceDto> previousFileSourcesByUuid = new HashMap<>();
     private String projectUuid;
 
-    private FileSourceVisitor(DbSession session) {
+    private FileSourceVisitor(DbSession session, FileSourcesPersister persister) {
       super(CrawlerDepthLimit.FILE, PRE_ORDER);
       this.session = session;
+      this.persister = persister;
     }
 
     @Override
@@ -95,15 +116,28 @@ public class PersistFileSourcesStep implements ComputationStep {
 
     @Override
     public void visitFile(Component file) {
+      FileSourceDataComputer.Data fileSourceData;
       try {
-        FileSourceDataComputer.Data fileSourceData = fileSourceDataComputer.compute(file, fileSourceDataWarnings);
-        persistSource(fileSourceData, file);
+        fileSourceData = fileSourceDataComputer.compute(file, fileSourceDataWarnings);
       } catch (Exception e) {
         throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getDbKey()), e);
       }
+      // line hashes version and previous hashes are read by the thread of the crawler, data is encoded by the persister
+      int lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
+      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      long now = system2.now();
+      persister.submit(() -> {
+        try {
+          return toWrite(fileSourceData, file, lineHashesVersion, previousDto, now);
+        } catch (Exception e) {
+          throw new IllegalStateException(String.format("Cannot persist sources of %s", file.getDbKey()), e);
+        }
+      });
     }
 
-    private void persistSource(FileSourceDataComputer.Data fileSourceData, Component file) {
+    @CheckForNull
+    private FileSourcesPersister.Write toWrite(FileSourceDataComputer.Data fileSourceData, Component file, int lineHashesVersion,
+      @Nullable FileSourceDto previousDto, long now) {
       DbFileSources.Data lineData = fileSourceData.getLineData();
 
       byte[] binaryData = FileSourceDto.encodeSourceData(lineData);
@@ -111,8 +145,7 @@ public class PersistFileSourcesStep implements ComputationStep {
       String srcHash = fileSourceData.getSrcHash();
       List<String> lineHashes = fileSourceData.getLineHashes();
       Changeset latestChangeWithRevision = fileSourceData.getLatestChangeWithRevision();
-      int lineHashesVersion = sourceLinesHash.getLineHashesVersion(file);
-      FileSourceDto previousDto = previousFileSourcesByUuid.get(file.getUuid());
+      fileSourceSnapshotRepository.add(file, FileSourceSnapshot.of(srcHash, dataHash, lineHashesVersion, lineHashes, lineData));
 
       if (previousDto == null) {
         FileSourceDto dto = new FileSourceDto()
@@ -123,31 +156,29 @@ public class PersistFileSourcesStep implements ComputationStep {
           .setDataHash(dataHash)
           .setLineHashes(lineHashes)
           .setLineHashesVersion(lineHashesVersion)
-          .setCreatedAt(system2.now())
-          .setUpdatedAt(system2.now())
+          .setCreatedAt(now)
+          .setUpdatedAt(now)
           .setRevision(computeRevision(latestChangeWithRevision));
-        dbClient.fileSourceDao().insert(session, dto);
-        session.commit();
-      } else {
-        // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
-        boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
-        boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
-        String revision = computeRevision(latestChangeWithRevision);
-        boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
-        boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
-        if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
-          previousDto
-            .setBinaryData(binaryData)
-            .setDataHash(dataHash)
-            .setSrcHash(srcHash)
-            .setLineHashes(lineHashes)
-            .setLineHashesVersion(lineHashesVersion)
-            .setRevision(revision)
-            .setUpdatedAt(system2.now());
-          dbClient.fileSourceDao().update(session, previousDto);
-          session.commit();
-        }
+        return FileSourcesPersister.Write.insert(dto);
+      }
+      // Update only if data_hash has changed or if src_hash is missing or revision is missing (progressive migration)
+      boolean binaryDataUpdated = !dataHash.equals(previousDto.getDataHash());
+      boolean srcHashUpdated = !srcHash.equals(previousDto.getSrcHash());
+      String revision = computeRevision(latestChangeWithRevision);
+      boolean revisionUpdated = !ObjectUtils.equals(revision, previousDto.getRevision());
+      boolean lineHashesVersionUpdated = previousDto.getLineHashesVersion() != lineHashesVersion;
+      if (binaryDataUpdated || srcHashUpdated || revisionUpdated || lineHashesVersionUpdated) {
+        previousDto
+          .setBinaryData(binaryData)
+          .setDataHash(dataHash)
+          .setSrcHash(srcHash)
+          .setLineHashes(lineHashes)
+          .setLineHashesVersion(lineHashesVersion)
+          .setRevision(revision)
+          .setUpdatedAt(now);
+        return FileSourcesPersister.Write.update(previousDto);
       }
+      return null;
     }
 
     @CheckForNull
@@ -159,6 +190,18 @@ public class PersistFileSourcesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(TreeRootHolder.class, BatchReportReader.class, SourceLinesRepository.class, DuplicationRepository.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    // line hashes, SCM info and new lines are lazily loaded and cached
+    return ImmutableSet.of(FileSourceDataWarnings.class, SourceLinesHashRepository.class, ScmInfoRepository.class, NewLinesRepository.class,
+      FileSourceSnapshotRepository.class);
+  }
+
   @Override
   public String getDescription() {
     return "Persist sources";
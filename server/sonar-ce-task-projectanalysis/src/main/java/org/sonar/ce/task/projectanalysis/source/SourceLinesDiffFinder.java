@@ -19,47 +19,330 @@
  */
 package org.sonar.ce.task.projectanalysis.source;
 
-import difflib.myers.DifferentiationFailedException;
-import difflib.myers.MyersDiff;
-import difflib.myers.PathNode;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 
+/**
+ * Matches the lines of two versions of a file.
+ * <p>
+ * Lines are replaced by int identifiers, then compared with the linear space variant of the Myers diff algorithm
+ * (see "An O(ND) Difference Algorithm and Its Variations", section 4b): the middle snake of the edit graph is searched
+ * from both ends, then the two halves are compared independently.
+ * </p>
+ * <p>
+ * The number of steps of the algorithm is bounded. When the bound is reached, for example when comparing two huge
+ * generated files, the remaining parts of the files are matched by a cheaper approximation: lines which are unique
+ * in both parts are used as anchors, then anchors are extended to the identical lines which surround them.
+ * </p>
+ */
 public class SourceLinesDiffFinder {
   private static final Logger LOG = Loggers.get(SourceLinesDiffFinder.class);
 
+  /**
+   * Enough to compare files of 100k lines having thousands of differences, within a few hundreds of milliseconds
+   */
+  static final long DEFAULT_MAX_STEPS = 100_000_000L;
+
+  private final long maxSteps;
+
+  public SourceLinesDiffFinder() {
+    this(DEFAULT_MAX_STEPS);
+  }
+
+  SourceLinesDiffFinder(long maxSteps) {
+    this.maxSteps = maxSteps;
+  }
+
+  /**
+   * @return for each line of {@code right}, the number (starting from 1) of the matching line in {@code left}, or 0
+   *         if the line does not match any line of {@code left}
+   */
   public int[] findMatchingLines(List<String> left, List<String> right) {
-    int[] index = new int[right.size()];
-
-    int dbLine = left.size();
-    int reportLine = right.size();
-    try {
-      PathNode node = MyersDiff.buildPath(left.toArray(), right.toArray());
-
-      while (node.prev != null) {
-        PathNode prevNode = node.prev;
-
-        if (!node.isSnake()) {
-          // additions
-          reportLine -= (node.j - prevNode.j);
-          // removals
-          dbLine -= (node.i - prevNode.i);
-        } else {
-          // matches
-          for (int i = node.i; i > prevNode.i; i--) {
-            index[reportLine - 1] = dbLine;
-            reportLine--;
-            dbLine--;
+    Map<String, Integer> ids = new HashMap<>();
+    int[] leftIds = toIds(left, ids);
+    int[] rightIds = toIds(right, ids);
+
+    Diff diff = new Diff(leftIds, rightIds, maxSteps);
+    diff.run();
+    if (diff.remainingSteps < 0) {
+      LOG.debug("Too many differences between {} and {} lines, matching of lines is approximated", left.size(), right.size());
+    }
+    return diff.matches;
+  }
+
+  private static int[] toIds(List<String> lines, Map<String, Integer> ids) {
+    int[] result = new int[lines.size()];
+    int i = 0;
+    for (String line : lines) {
+      Integer id = ids.get(line);
+      if (id == null) {
+        id = ids.size();
+        ids.put(line, id);
+      }
+      result[i] = id;
+      i++;
+    }
+    return result;
+  }
+
+  private static final class Diff {
+    private final int[] left;
+    private final int[] right;
+    private final int[] matches;
+    private final int[] forward;
+    private final int[] backward;
+    private final Deque<int[]> regions = new ArrayDeque<>();
+    private long remainingSteps;
+
+    private Diff(int[] left, int[] right, long maxSteps) {
+      this.left = left;
+      this.right = right;
+      this.matches = new int[right.length];
+      int vLength = left.length + right.length + 3;
+      this.forward = new int[vLength];
+      this.backward = new int[vLength];
+      this.remainingSteps = maxSteps;
+    }
+
+    private void run() {
+      regions.push(new int[] {0, left.length, 0, right.length});
+      while (!regions.isEmpty()) {
+        int[] region = regions.pop();
+        diff(region[0], region[1], region[2], region[3]);
+      }
+    }
+
+    /**
+     * Matches lines of {@code left[leftStart, leftEnd)} with lines of {@code right[rightStart, rightEnd)}. Sub-regions
+     * which remain to be compared are pushed to {@link #regions}.
+     */
+    private void diff(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+      int ls = leftStart;
+      int le = leftEnd;
+      int rs = rightStart;
+      int re = rightEnd;
+      while (ls < le && rs < re && left[ls] == right[rs]) {
+        match(ls, rs);
+        ls++;
+        rs++;
+      }
+      while (ls < le && rs < re && left[le - 1] == right[re - 1]) {
+        le--;
+        re--;
+        match(le, re);
+      }
+      if (ls == le || rs == re) {
+        return;
+      }
+      if (remainingSteps < 0 || !bisect(ls, le, rs, re)) {
+        matchUniqueLines(ls, le, rs, re);
+      }
+    }
+
+    /**
+     * Searches for the middle snake of the shortest edit script, and pushes the two regions on each side of it.
+     *
+     * @return false if the maximum number of steps has been reached
+     */
+    private boolean bisect(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+      int n = leftEnd - leftStart;
+      int m = rightEnd - rightStart;
+      int maxD = (n + m + 1) / 2;
+      int vOffset = maxD;
+      int vLength = 2 * maxD + 2;
+      Arrays.fill(forward, 0, vLength, -1);
+      Arrays.fill(backward, 0, vLength, -1);
+      forward[vOffset + 1] = 0;
+      backward[vOffset + 1] = 0;
+      int delta = n - m;
+      // if the total number of lines is odd, then the front path collides with the reverse path
+      boolean front = delta % 2 != 0;
+      // offsets for start and end of k loops, prevent mapping of space beyond the grid
+      int k1start = 0;
+      int k1end = 0;
+      int k2start = 0;
+      int k2end = 0;
+      for (int d = 0; d < maxD; d++) {
+        remainingSteps -= 2L * d + 2;
+        if (remainingSteps < 0) {
+          return false;
+        }
+        // walk the front path one step
+        for (int k1 = -d + k1start; k1 <= d - k1end; k1 += 2) {
+          int k1Offset = vOffset + k1;
+          int x1;
+          if (k1 == -d || (k1 != d && forward[k1Offset - 1] < forward[k1Offset + 1])) {
+            x1 = forward[k1Offset + 1];
+          } else {
+            x1 = forward[k1Offset - 1] + 1;
+          }
+          int y1 = x1 - k1;
+          while (x1 < n && y1 < m && left[leftStart + x1] == right[rightStart + y1]) {
+            x1++;
+            y1++;
+          }
+          forward[k1Offset] = x1;
+          if (x1 > n) {
+            // ran off the right of the graph
+            k1end += 2;
+          } else if (y1 > m) {
+            // ran off the bottom of the graph
+            k1start += 2;
+          } else if (front) {
+            int k2Offset = vOffset + delta - k1;
+            if (k2Offset >= 0 && k2Offset < vLength && backward[k2Offset] != -1 && x1 >= n - backward[k2Offset]) {
+              split(leftStart, leftEnd, rightStart, rightEnd, x1, y1);
+              return true;
+            }
+          }
+        }
+
+        // walk the reverse path one step
+        for (int k2 = -d + k2start; k2 <= d - k2end; k2 += 2) {
+          int k2Offset = vOffset + k2;
+          int x2;
+          if (k2 == -d || (k2 != d && backward[k2Offset - 1] < backward[k2Offset + 1])) {
+            x2 = backward[k2Offset + 1];
+          } else {
+            x2 = backward[k2Offset - 1] + 1;
+          }
+          int y2 = x2 - k2;
+          while (x2 < n && y2 < m && left[leftEnd - x2 - 1] == right[rightEnd - y2 - 1]) {
+            x2++;
+            y2++;
+          }
+          backward[k2Offset] = x2;
+          if (x2 > n) {
+            k2end += 2;
+          } else if (y2 > m) {
+            k2start += 2;
+          } else if (!front) {
+            int k1Offset = vOffset + delta - k2;
+            if (k1Offset >= 0 && k1Offset < vLength && forward[k1Offset] != -1) {
+              int x1 = forward[k1Offset];
+              int y1 = vOffset + x1 - k1Offset;
+              if (x1 >= n - x2) {
+                split(leftStart, leftEnd, rightStart, rightEnd, x1, y1);
+                return true;
+              }
+            }
           }
         }
-        node = prevNode;
       }
-    } catch (DifferentiationFailedException e) {
-      LOG.error("Error finding matching lines", e);
-      return index;
+      // no common line
+      return true;
     }
-    return index;
-  }
 
+    private void split(int leftStart, int leftEnd, int rightStart, int rightEnd, int x, int y) {
+      regions.push(new int[] {leftStart + x, leftEnd, rightStart + y, rightEnd});
+      regions.push(new int[] {leftStart, leftStart + x, rightStart, rightStart + y});
+    }
+
+    /**
+     * Approximation used when the maximum number of steps has been reached: lines which are unique in both regions
+     * are matched if they are in the same order (longest increasing subsequence, as in "patience diff"), then
+     * each match is extended to the identical surrounding lines.
+     */
+    private void matchUniqueLines(int leftStart, int leftEnd, int rightStart, int rightEnd) {
+      // for each line id: number of occurrences in left region, number of occurrences in right region, position in left region
+      Map<Integer, int[]> occurrences = new HashMap<>();
+      for (int i = leftStart; i < leftEnd; i++) {
+        int[] occurrence = occurrences.computeIfAbsent(left[i], id -> new int[3]);
+        occurrence[0]++;
+        occurrence[2] = i;
+      }
+      for (int i = rightStart; i < rightEnd; i++) {
+        int[] occurrence = occurrences.get(right[i]);
+        if (occurrence != null) {
+          occurrence[1]++;
+        }
+      }
+
+      // positions in the left region of the unique lines, in the order of the right region
+      int[] candidates = new int[rightEnd - rightStart];
+      int[] candidateRightLines = new int[rightEnd - rightStart];
+      int count = 0;
+      for (int i = rightStart; i < rightEnd; i++) {
+        int[] occurrence = occurrences.get(right[i]);
+        if (occurrence != null && occurrence[0] == 1 && occurrence[1] == 1) {
+          candidates[count] = occurrence[2];
+          candidateRightLines[count] = i;
+          count++;
+        }
+      }
+
+      int[] anchors = longestIncreasingSubsequence(candidates, count);
+      int previousLeft = leftStart;
+      int previousRight = rightStart;
+      for (int a = 0; a < anchors.length; a++) {
+        int l = candidates[anchors[a]];
+        int r = candidateRightLines[anchors[a]];
+        // extend the anchor backward
+        int bl = l;
+        int br = r;
+        while (bl > previousLeft && br > previousRight && left[bl - 1] == right[br - 1]) {
+          bl--;
+          br--;
+          match(bl, br);
+        }
+        // extend the anchor forward, up to the next anchor
+        int nextLeft = a + 1 < anchors.length ? candidates[anchors[a + 1]] : leftEnd;
+        int nextRight = a + 1 < anchors.length ? candidateRightLines[anchors[a + 1]] : rightEnd;
+        match(l, r);
+        l++;
+        r++;
+        while (l < nextLeft && r < nextRight && left[l] == right[r]) {
+          match(l, r);
+          l++;
+          r++;
+        }
+        previousLeft = l;
+        previousRight = r;
+      }
+    }
+
+    /**
+     * @return the indexes of the longest strictly increasing subsequence of {@code values[0, length)}
+     */
+    private static int[] longestIncreasingSubsequence(int[] values, int length) {
+      // tails[i] is the index of the smallest tail of the increasing subsequences of length i + 1
+      int[] tails = new int[length];
+      int[] predecessors = new int[length];
+      int size = 0;
+      for (int i = 0; i < length; i++) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+          int mid = (low + high) >>> 1;
+          if (values[tails[mid]] < values[i]) {
+            low = mid + 1;
+          } else {
+            high = mid;
+          }
+        }
+        predecessors[i] = low > 0 ? tails[low - 1] : -1;
+        tails[low] = i;
+        if (low == size) {
+          size++;
+        }
+      }
+      int[] result = new int[size];
+      int index = size > 0 ? tails[size - 1] : -1;
+      for (int i = size - 1; i >= 0; i--) {
+        result[i] = index;
+        index = predecessors[index];
+      }
+      return result;
+    }
+
+    private void match(int leftLine, int rightLine) {
+      matches[rightLine] = leftLine + 1;
+    }
+  }
 }
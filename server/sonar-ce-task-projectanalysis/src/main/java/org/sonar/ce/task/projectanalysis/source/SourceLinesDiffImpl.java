@@ -21,6 +21,7 @@ package org.sonar.ce.task.projectanalysis.source;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.Optional;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -31,11 +32,14 @@ public class SourceLinesDiffImpl implements SourceLinesDiff {
   private final DbClient dbClient;
   private final FileSourceDao fileSourceDao;
   private final SourceLinesHashRepository sourceLinesHash;
+  private final FileSourceSnapshotRepository fileSourceSnapshotRepository;
 
-  public SourceLinesDiffImpl(DbClient dbClient, FileSourceDao fileSourceDao, SourceLinesHashRepository sourceLinesHash) {
+  public SourceLinesDiffImpl(DbClient dbClient, FileSourceDao fileSourceDao, SourceLinesHashRepository sourceLinesHash,
+    FileSourceSnapshotRepository fileSourceSnapshotRepository) {
     this.dbClient = dbClient;
     this.fileSourceDao = fileSourceDao;
     this.sourceLinesHash = sourceLinesHash;
+    this.fileSourceSnapshotRepository = fileSourceSnapshotRepository;
   }
 
   @Override
@@ -47,6 +51,10 @@ public class SourceLinesDiffImpl implements SourceLinesDiff {
   }
 
   private List<String> getDBLines(Component component) {
+    Optional<FileSourceSnapshot> snapshot = fileSourceSnapshotRepository.getPrevious(component);
+    if (snapshot.isPresent()) {
+      return snapshot.get().getLineHashes();
+    }
     try (DbSession dbSession = dbClient.openSession(false)) {
       List<String> database = fileSourceDao.selectLineHashes(dbSession, component.getUuid());
       if (database == null) {
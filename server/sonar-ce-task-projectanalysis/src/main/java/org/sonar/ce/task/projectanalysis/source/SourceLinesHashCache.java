@@ -24,9 +24,10 @@ import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.HashSet;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.function.Function;
 import org.sonar.api.utils.TempFolder;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -36,7 +37,10 @@ public class SourceLinesHashCache {
   private static final String FILE_NAME_PREFIX = "hashes-";
 
   private final Path cacheDirectoryPath;
-  private final Set<Integer> cacheFileIds = new HashSet<>();
+  /**
+   * A file is cached once its future is completed, ie. once the file is fully written
+   */
+  private final ConcurrentMap<Integer, CompletableFuture<Void>> cacheFiles = new ConcurrentHashMap<>();
 
   public SourceLinesHashCache(TempFolder tempFolder) {
     this.cacheDirectoryPath = tempFolder.newDir().toPath();
@@ -45,12 +49,22 @@ public class SourceLinesHashCache {
   public List<String> computeIfAbsent(Component component, Function<Component, List<String>> hashesComputer) {
     int ref = getId(component);
 
-    if (cacheFileIds.add(ref)) {
+    CompletableFuture<Void> saved = new CompletableFuture<>();
+    CompletableFuture<Void> existing = cacheFiles.putIfAbsent(ref, saved);
+    if (existing != null) {
+      // waits for the file to be written if another thread is computing it
+      existing.join();
+      return load(ref);
+    }
+    try {
       List<String> hashes = hashesComputer.apply(component);
       save(ref, hashes);
+      saved.complete(null);
       return hashes;
-    } else {
-      return load(ref);
+    } catch (RuntimeException e) {
+      cacheFiles.remove(ref, saved);
+      saved.completeExceptionally(e);
+      throw e;
     }
   }
 
@@ -63,7 +77,8 @@ public class SourceLinesHashCache {
   }
 
   public boolean contains(Component component) {
-    return cacheFileIds.contains(getId(component));
+    CompletableFuture<Void> saved = cacheFiles.get(getId(component));
+    return saved != null && saved.isDone() && !saved.isCompletedExceptionally();
   }
 
   private static int getId(Component component) {
@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import java.util.Optional;
 import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
@@ -73,6 +74,13 @@ public class CommentMeasuresStep implements ComputationStep {
       .visit(treeRootHolder.getRoot());
   }
 
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return formulas;
+  }
+
   private class CommentDensityFormula implements Formula<IntSumCounter> {
 
     private final Metric nclocMetric;
@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
+import java.util.List;
 import org.sonar.ce.task.projectanalysis.component.PathAwareCrawler;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.formula.AverageFormula;
@@ -81,6 +82,13 @@ public class ComplexityMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     new PathAwareCrawler<>(
@@ -0,0 +1,91 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.step;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import org.sonar.api.config.Configuration;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
+import org.sonar.ce.task.projectanalysis.formula.Formula;
+import org.sonar.ce.task.projectanalysis.formula.ParallelFormulaExecutor;
+import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.ce.task.projectanalysis.metric.MetricRepository;
+import org.sonar.ce.task.step.ComputationStep;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Executes the formulas of {@link SizeMeasuresStep}, {@link NewCoverageMeasuresStep}, {@link CommentMeasuresStep},
+ * {@link NewSizeMeasuresStep}, {@link LanguageDistributionMeasuresStep}, {@link UnitTestMeasuresStep} and
+ * {@link ComplexityMeasuresStep} in a single traversal of the component tree, instead of one traversal per step.
+ * <p/>
+ * Formulas of a component are executed in this order, so that the formulas of {@link CommentMeasuresStep}
+ * can read the measures created on the same component by the formulas of {@link SizeMeasuresStep}.
+ * The measures of {@link SizeMeasuresStep} which are not computed by formulas are computed first, by another traversal.
+ */
+public class FormulaMeasuresStep implements ComputationStep {
+  /**
+   * Number of threads used to aggregate the measures of the component tree. Default is 1: the tree is traversed
+   * by the thread of the task.
+   */
+  public static final String PROPERTY_FORMULAS_THREADS = "sonar.ce.task.formulas.threads";
+
+  private final TreeRootHolder treeRootHolder;
+  private final MetricRepository metricRepository;
+  private final MeasureRepository measureRepository;
+  private final SizeMeasuresStep sizeMeasuresStep;
+  private final List<Formula> formulas;
+  private final int threads;
+
+  public FormulaMeasuresStep(TreeRootHolder treeRootHolder, MetricRepository metricRepository, MeasureRepository measureRepository,
+    SizeMeasuresStep sizeMeasuresStep, NewCoverageMeasuresStep newCoverageMeasuresStep, CommentMeasuresStep commentMeasuresStep,
+    NewSizeMeasuresStep newSizeMeasuresStep, LanguageDistributionMeasuresStep languageDistributionMeasuresStep,
+    UnitTestMeasuresStep unitTestMeasuresStep, ComplexityMeasuresStep complexityMeasuresStep, Configuration configuration) {
+    this.treeRootHolder = treeRootHolder;
+    this.metricRepository = metricRepository;
+    this.measureRepository = measureRepository;
+    this.sizeMeasuresStep = sizeMeasuresStep;
+    this.formulas = ImmutableList.<Formula>builder()
+      .addAll(sizeMeasuresStep.getFormulas())
+      .addAll(newCoverageMeasuresStep.getFormulas())
+      .addAll(commentMeasuresStep.getFormulas())
+      .addAll(newSizeMeasuresStep.getFormulas())
+      .addAll(languageDistributionMeasuresStep.getFormulas())
+      .addAll(unitTestMeasuresStep.getFormulas())
+      .addAll(complexityMeasuresStep.getFormulas())
+      .build();
+    this.threads = configuration.getInt(PROPERTY_FORMULAS_THREADS).orElse(1);
+    checkArgument(threads >= 1, "The property '%s' must be an int value >= 1. Got '%s'", PROPERTY_FORMULAS_THREADS, threads);
+  }
+
+  @Override
+  public void execute(ComputationStep.Context context) {
+    sizeMeasuresStep.computeFileAndDirectoryMeasures();
+    ParallelFormulaExecutor.newBuilder(metricRepository, measureRepository)
+      .setThreads(threads)
+      .buildFor(formulas)
+      .execute(treeRootHolder.getRoot());
+  }
+
+  @Override
+  public String getDescription() {
+    return "Compute size, new coverage, comment, size on new code, language distribution, test and complexity measures";
+  }
+}
@@ -23,6 +23,7 @@ import com.google.common.base.Function;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Multiset;
 import com.google.common.collect.TreeMultiset;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import javax.annotation.Nonnull;
@@ -67,6 +68,13 @@ public class LanguageDistributionMeasuresStep implements ComputationStep {
     this.measureRepository = measureRepository;
   }
 
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return FORMULAS;
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository).buildFor(FORMULAS))
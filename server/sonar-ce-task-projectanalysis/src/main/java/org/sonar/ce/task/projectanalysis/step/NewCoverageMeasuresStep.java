@@ -96,11 +96,17 @@ public class NewCoverageMeasuresStep implements ComputationStep {
   public void execute(ComputationStep.Context context) {
     new PathAwareCrawler<>(
       FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
-        .buildFor(
-          Iterables.concat(NewLinesAndConditionsCoverageFormula.from(newLinesRepository), FORMULAS)))
+        .buildFor(getFormulas()))
       .visit(treeRootHolder.getRoot());
   }
 
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return ImmutableList.copyOf(Iterables.<Formula>concat(NewLinesAndConditionsCoverageFormula.from(newLinesRepository), FORMULAS));
+  }
+
   @Override
   public String getDescription() {
     return "Compute new coverage";
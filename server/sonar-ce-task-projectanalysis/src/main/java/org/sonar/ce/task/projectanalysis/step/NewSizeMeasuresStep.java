@@ -21,6 +21,7 @@ package org.sonar.ce.task.projectanalysis.step;
 
 import com.google.common.collect.ImmutableList;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.IntStream;
@@ -71,6 +72,13 @@ public class NewSizeMeasuresStep implements ComputationStep {
     return "Compute size measures on new code";
   }
 
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return ImmutableList.of(duplicationFormula);
+  }
+
   @Override
   public void execute(ComputationStep.Context context) {
     new PathAwareCrawler<>(
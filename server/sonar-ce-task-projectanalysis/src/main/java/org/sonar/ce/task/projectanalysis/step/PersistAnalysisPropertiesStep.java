@@ -19,11 +19,14 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.ConcurrentComputationStep;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.UuidFactory;
 import org.sonar.db.DbClient;
@@ -37,7 +40,7 @@ import static org.sonar.core.config.CorePropertyDefinitions.SONAR_ANALYSIS;
  * Persist analysis properties
  * Only properties starting with "sonar.analysis" or "sonar.pullrequest" will be persisted in database
  */
-public class PersistAnalysisPropertiesStep implements ComputationStep {
+public class PersistAnalysisPropertiesStep implements ConcurrentComputationStep {
 
   private static final String SONAR_PULL_REQUEST = "sonar.pullrequest.";
   private static final String SCM_REVISION_ID = "sonar.analysis.scm_revision_id";
@@ -88,6 +91,16 @@ public class PersistAnalysisPropertiesStep implements ComputationStep {
     }
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(AnalysisMetadataHolder.class, BatchReportReader.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Persist analysis properties";
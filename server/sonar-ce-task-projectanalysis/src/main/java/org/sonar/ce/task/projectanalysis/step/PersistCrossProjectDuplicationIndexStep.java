@@ -19,6 +19,8 @@
  */
 package org.sonar.ce.task.projectanalysis.step;
 
+import com.google.common.collect.ImmutableSet;
+import java.util.Set;
 import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReader;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -28,6 +30,7 @@ import org.sonar.ce.task.projectanalysis.component.TreeRootHolder;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
 import org.sonar.ce.task.projectanalysis.duplication.CrossProjectDuplicationStatusHolder;
 import org.sonar.ce.task.step.ComputationStep;
+import org.sonar.ce.task.step.ConcurrentComputationStep;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -39,7 +42,7 @@ import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order
 /**
  * Persist cross project duplications text blocks into DUPLICATIONS_INDEX table
  */
-public class PersistCrossProjectDuplicationIndexStep implements ComputationStep {
+public class PersistCrossProjectDuplicationIndexStep implements ConcurrentComputationStep {
 
   private final DbClient dbClient;
   private final TreeRootHolder treeRootHolder;
@@ -115,6 +118,16 @@ public class PersistCrossProjectDuplicationIndexStep implements ComputationStep
 
   }
 
+  @Override
+  public Set<Class<?>> reads() {
+    return ImmutableSet.of(CrossProjectDuplicationStatusHolder.class, TreeRootHolder.class, AnalysisMetadataHolder.class, BatchReportReader.class);
+  }
+
+  @Override
+  public Set<Class<?>> writes() {
+    return ImmutableSet.of();
+  }
+
   @Override
   public String getDescription() {
     return "Persist cross project duplications";
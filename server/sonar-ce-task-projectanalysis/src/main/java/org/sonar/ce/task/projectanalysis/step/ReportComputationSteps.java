@@ -61,17 +61,13 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     LoadCrossProjectDuplicationsRepositoryStep.class,
 
     // data computation
-    SizeMeasuresStep.class,
-    NewCoverageMeasuresStep.class,
+    // Must be executed before computation of duplication measures, which need the number of lines
+    FormulaMeasuresStep.class,
+    // Aggregates the report tree, which is not the tree of the other formulas on short living branches and pull requests
     CoverageMeasuresStep.class,
-    CommentMeasuresStep.class,
     CustomMeasuresCopyStep.class,
     DuplicationMeasuresStep.class,
     DuplicationDataMeasuresStep.class,
-    NewSizeMeasuresStep.class,
-    LanguageDistributionMeasuresStep.class,
-    UnitTestMeasuresStep.class,
-    ComplexityMeasuresStep.class,
 
     LoadMeasureComputersStep.class,
     RegisterQualityProfileStatusStep.class,
@@ -91,13 +87,14 @@ public class ReportComputationSteps extends AbstractComputationSteps {
     // Persist data
     PersistComponentsStep.class,
     PersistAnalysisStep.class,
-    PersistAnalysisPropertiesStep.class,
     PersistMeasuresStep.class,
     PersistLiveMeasuresStep.class,
     PersistAdHocRulesStep.class,
     PersistIssuesStep.class,
     PersistProjectLinksStep.class,
     PersistEventsStep.class,
+    // following steps can be executed concurrently, see ConcurrentComputationStep
+    PersistAnalysisPropertiesStep.class,
     PersistFileSourcesStep.class,
     PersistCrossProjectDuplicationIndexStep.class,
     EnableAnalysisStep.class,
@@ -74,14 +74,29 @@ public class SizeMeasuresStep implements ComputationStep {
 
   @Override
   public void execute(ComputationStep.Context context) {
+    computeFileAndDirectoryMeasures();
+    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
+      .buildFor(AGGREGATED_SIZE_MEASURE_FORMULAS))
+      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Computes the number of directories, files and lines, which are not aggregated by formulas.
+   * Also executed by {@link FormulaMeasuresStep}, before the formulas of this step.
+   */
+  void computeFileAndDirectoryMeasures() {
     new PathAwareCrawler<>(new FileAndDirectoryMeasureVisitor(
       metricRepository.getByKey(DIRECTORIES_KEY),
       metricRepository.getByKey(FILES_KEY),
       metricRepository.getByKey(LINES_KEY)))
       .visit(treeRootHolder.getRoot());
-    new PathAwareCrawler<>(FormulaExecutorComponentVisitor.newBuilder(metricRepository, measureRepository)
-      .buildFor(AGGREGATED_SIZE_MEASURE_FORMULAS))
-      .visit(treeRootHolder.getRoot());
+  }
+
+  /**
+   * Formulas of this step, also executed by {@link FormulaMeasuresStep} in a single traversal of the component tree
+   */
+  List<Formula> getFormulas() {
+    return AGGREGATED_SIZE_MEASURE_FORMULAS;
   }
 
   @Override
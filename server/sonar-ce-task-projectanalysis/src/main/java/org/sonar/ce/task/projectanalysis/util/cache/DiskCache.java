@@ -19,35 +19,58 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.ObjectOutputStream;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Serializable;
+import javax.annotation.CheckForNull;
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4FastDecompressor;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
 /**
- * Serialize and deserialize objects on disk. No search capabilities, only traversal (full scan).
+ * Serialize and deserialize objects on disk.
+ * <p/>
+ * Objects are encoded by a {@link DiskCacheCodec} and grouped in LZ4-compressed segments. The pending segment
+ * is shared by the successive appenders, so that it is written to disk only when full or when the cache
+ * is traversed, whatever the number of objects added by each appender.
  */
 public class DiskCache<O extends Serializable> {
 
+  private static final int SEGMENT_SIZE = 64 * 1024;
+  private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
   private final File file;
   private final System2 system2;
+  private final DiskCacheCodec<O> codec;
+  private final ExposedByteArrayOutputStream pendingSegment = new ExposedByteArrayOutputStream();
 
   public DiskCache(File file, System2 system2) {
+    this(file, system2, new JavaSerializationCodec<>());
+  }
+
+  public DiskCache(File file, System2 system2, DiskCacheCodec<O> codec) {
     this.system2 = system2;
     this.file = file;
+    this.codec = codec;
     OutputStream output = null;
     boolean threw = true;
     try {
-      // writes the serialization stream header required when calling "traverse()"
-      // on empty stream. Moreover it allows to call multiple times "newAppender()"
-      output = new ObjectOutputStream(new FileOutputStream(file));
-      output.flush();
+      // truncates the file so that "traverse()" can be called on empty cache
+      output = new FileOutputStream(file);
       threw = false;
     } catch (IOException e) {
       throw new IllegalStateException("Fail to write into file: " + file, e);
@@ -62,29 +85,93 @@ public class DiskCache<O extends Serializable> {
     }
   }
 
+  /**
+   * Appenders must be used one at a time.
+   */
   public DiskAppender newAppender() {
     return new DiskAppender();
   }
 
   public CloseableIterator<O> traverse() {
     try {
-      return new ObjectInputStreamIterator<>(FileUtils.openInputStream(file));
+      flushPendingSegment();
+      return new SegmentsIterator(new DataInputStream(new BufferedInputStream(FileUtils.openInputStream(file))));
     } catch (IOException e) {
       throw new IllegalStateException("Fail to traverse file: " + file, e);
     }
   }
 
+  private void flushPendingSegment() throws IOException {
+    if (pendingSegment.size() == 0) {
+      return;
+    }
+    try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)))) {
+      writeSegment(output);
+    }
+  }
+
+  private void writeSegment(DataOutputStream output) throws IOException {
+    int rawLength = pendingSegment.size();
+    LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+    byte[] compressed = new byte[compressor.maxCompressedLength(rawLength)];
+    int compressedLength = compressor.compress(pendingSegment.buffer(), 0, rawLength, compressed, 0, compressed.length);
+    output.writeInt(rawLength);
+    output.writeInt(compressedLength);
+    output.write(compressed, 0, compressedLength);
+    pendingSegment.reset();
+  }
+
+  /**
+   * @return the raw bytes of the segment, or {@code null} if end of stream is reached
+   */
+  @CheckForNull
+  private static byte[] readSegment(DataInputStream input) throws IOException {
+    int rawLength;
+    try {
+      rawLength = input.readInt();
+    } catch (EOFException e) {
+      return null;
+    }
+    byte[] compressed = new byte[input.readInt()];
+    input.readFully(compressed);
+    byte[] raw = new byte[rawLength];
+    LZ4FastDecompressor decompressor = LZ4_FACTORY.fastDecompressor();
+    decompressor.decompress(compressed, 0, raw, 0, rawLength);
+    return raw;
+  }
+
+  private static void writeVarInt(OutputStream output, int value) throws IOException {
+    int v = value;
+    while ((v & ~0x7F) != 0) {
+      output.write((v & 0x7F) | 0x80);
+      v >>>= 7;
+    }
+    output.write(v);
+  }
+
+  private static int readVarInt(InputStream input) throws IOException {
+    int result = 0;
+    for (int shift = 0; shift < 32; shift += 7) {
+      int b = input.read();
+      if (b == -1) {
+        throw new EOFException();
+      }
+      result |= (b & 0x7F) << shift;
+      if ((b & 0x80) == 0) {
+        return result;
+      }
+    }
+    throw new IllegalStateException("Malformed record length");
+  }
+
   public class DiskAppender implements AutoCloseable {
-    private final ObjectOutputStream output;
+    private final DataOutputStream output;
+    private final ExposedByteArrayOutputStream record = new ExposedByteArrayOutputStream();
+    private final DataOutputStream recordOutput = new DataOutputStream(record);
 
     private DiskAppender() {
       try {
-        this.output = new ObjectOutputStream(new FileOutputStream(file, true)) {
-          @Override
-          protected void writeStreamHeader() {
-            // do not write stream headers as it's already done in constructor of DiskCache
-          }
-        };
+        this.output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, true)));
       } catch (IOException e) {
         throw new IllegalStateException("Fail to open file " + file, e);
       }
@@ -92,17 +179,70 @@ public class DiskCache<O extends Serializable> {
 
     public DiskAppender append(O object) {
       try {
-        output.writeObject(object);
-        output.reset();
+        record.reset();
+        codec.write(object, recordOutput);
+        recordOutput.flush();
+        writeVarInt(pendingSegment, record.size());
+        pendingSegment.write(record.buffer(), 0, record.size());
+
+        if (pendingSegment.size() >= SEGMENT_SIZE) {
+          writeSegment(output);
+        }
         return this;
       } catch (IOException e) {
         throw new IllegalStateException("Fail to write into file " + file, e);
       }
     }
 
+    /**
+     * The records which do not fill a segment are kept in memory until the next appender
+     * fills it or until the cache is traversed.
+     */
     @Override
     public void close() {
       system2.close(output);
     }
   }
+
+  private class SegmentsIterator extends CloseableIterator<O> {
+    private final DataInputStream input;
+    private DataInputStream records = null;
+
+    private SegmentsIterator(DataInputStream input) {
+      this.input = input;
+    }
+
+    @Override
+    protected O doNext() {
+      try {
+        while (records == null || records.available() == 0) {
+          byte[] rawSegment = readSegment(input);
+          if (rawSegment == null) {
+            return null;
+          }
+          records = new DataInputStream(new ByteArrayInputStream(rawSegment));
+        }
+        byte[] recordBytes = new byte[readVarInt(records)];
+        records.readFully(recordBytes);
+        return codec.read(new DataInputStream(new ByteArrayInputStream(recordBytes)));
+      } catch (IOException e) {
+        throw new IllegalStateException("Fail to read file " + file, e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      IOUtils.closeQuietly(input);
+    }
+  }
+
+  private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+    private ExposedByteArrayOutputStream() {
+      super(SEGMENT_SIZE);
+    }
+
+    private byte[] buffer() {
+      return buf;
+    }
+  }
 }
@@ -19,36 +19,19 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
-import com.google.common.base.Throwables;
-import org.apache.commons.io.IOUtils;
-
-import java.io.EOFException;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.ObjectInputStream;
-import org.sonar.core.util.CloseableIterator;
-
-public class ObjectInputStreamIterator<E> extends CloseableIterator<E> {
 
-  private ObjectInputStream stream;
-
-  public ObjectInputStreamIterator(InputStream stream) throws IOException {
-    this.stream = new ObjectInputStream(stream);
-  }
+/**
+ * Encodes and decodes the objects stored in a {@link DiskCache}.
+ * <p/>
+ * Each object is encoded in its own record: {@link #read(DataInputStream)} must consume exactly the bytes written by
+ * {@link #write(Object, DataOutputStream)}.
+ */
+public interface DiskCacheCodec<O> {
 
-  @Override
-  protected E doNext() {
-    try {
-      return (E) stream.readObject();
-    } catch (EOFException e) {
-      return null;
-    } catch (Exception e) {
-      throw Throwables.propagate(e);
-    }
-  }
+  void write(O object, DataOutputStream output) throws IOException;
 
-  @Override
-  protected void doClose() {
-    IOUtils.closeQuietly(stream);
-  }
+  O read(DataInputStream input) throws IOException;
 }
@@ -0,0 +1,221 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.formula;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.SetMultimap;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.ce.task.projectanalysis.component.VisitException;
+import org.sonar.ce.task.projectanalysis.measure.Measure;
+import org.sonar.ce.task.projectanalysis.measure.MeasureRepository;
+import org.sonar.ce.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.ce.task.projectanalysis.metric.Metric;
+import org.sonar.ce.task.projectanalysis.metric.MetricRepositoryRule;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.api.measures.CoreMetrics.LINES;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.ce.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.ce.task.projectanalysis.formula.SumFormula.createIntSumFormula;
+import static org.sonar.ce.task.projectanalysis.measure.Measure.newMeasureBuilder;
+import static org.sonar.test.ExceptionCauseMatcher.hasType;
+
+public class ParallelFormulaExecutorTest {
+  private static final int ROOT_REF = 1;
+  /**
+   * Number of files of each directory. The last directory has more files than a single task processes.
+   */
+  private static final int[] FILES_BY_DIRECTORY = {1, 10, 50, 200};
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule()
+    .add(LINES)
+    .add(NCLOC);
+  @Rule
+  public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+
+  private final List<Formula> formulas = ImmutableList.of(createIntSumFormula(LINES_KEY), createIntSumFormula(NCLOC_KEY));
+
+  @Test
+  public void aggregate_measures_on_several_threads() {
+    ReportComponent root = createTreeWithMeasures();
+
+    ParallelFormulaExecutor.newBuilder(metricRepository, new SynchronizedMeasureRepository(measureRepository))
+      .setThreads(4)
+      .setMinComponents(1)
+      .buildFor(formulas)
+      .execute(root);
+
+    verifyAggregatedMeasures();
+  }
+
+  @Test
+  public void aggregate_measures_in_calling_thread_when_single_thread_is_configured() {
+    ReportComponent root = createTreeWithMeasures();
+
+    ParallelFormulaExecutor.newBuilder(metricRepository, measureRepository)
+      .setMinComponents(1)
+      .buildFor(formulas)
+      .execute(root);
+
+    verifyAggregatedMeasures();
+  }
+
+  @Test
+  public void aggregate_measures_in_calling_thread_when_tree_is_small() {
+    ReportComponent root = createTreeWithMeasures();
+
+    ParallelFormulaExecutor.newBuilder(metricRepository, measureRepository)
+      .setThreads(4)
+      .buildFor(formulas)
+      .execute(root);
+
+    verifyAggregatedMeasures();
+  }
+
+  @Test
+  public void fail_with_VisitException_when_measure_already_exists() {
+    ReportComponent root = createTreeWithMeasures();
+    measureRepository.addRawMeasure(1000, LINES_KEY, newMeasureBuilder().create(1));
+
+    expectedException.expect(VisitException.class);
+    expectedException.expectMessage("Execution of formulas failed for Component {key=key_1000,type=DIRECTORY}");
+    expectedException.expectCause(hasType(UnsupportedOperationException.class)
+      .andMessage(String.format("A measure can only be set once for Component (ref=%s), Metric (key=%s)", 1000, LINES_KEY)));
+
+    ParallelFormulaExecutor.newBuilder(metricRepository, new SynchronizedMeasureRepository(measureRepository))
+      .setThreads(4)
+      .setMinComponents(1)
+      .buildFor(formulas)
+      .execute(root);
+  }
+
+  @Test
+  public void fail_when_threads_is_less_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("threads must be >= 1. Got 0");
+
+    ParallelFormulaExecutor.newBuilder(metricRepository, measureRepository).setThreads(0);
+  }
+
+  /**
+   * Directory of index {@code i} has reference {@code 1000 * (i + 1)}, its files have references
+   * {@code 1000 * (i + 1) + j} and {@code j} lines and {@code 2 * j} lines of code, {@code j} starting from 1.
+   */
+  private ReportComponent createTreeWithMeasures() {
+    List<Component> directories = new ArrayList<>();
+    for (int i = 0; i < FILES_BY_DIRECTORY.length; i++) {
+      int directoryRef = directoryRef(i);
+      List<Component> files = new ArrayList<>();
+      for (int j = 1; j <= FILES_BY_DIRECTORY[i]; j++) {
+        files.add(builder(FILE, directoryRef + j).build());
+      }
+      directories.add(builder(DIRECTORY, directoryRef).addChildren(files.toArray(new Component[0])).build());
+    }
+    ReportComponent root = builder(PROJECT, ROOT_REF).addChildren(directories.toArray(new Component[0])).build();
+    treeRootHolder.setRoot(root);
+
+    for (int i = 0; i < FILES_BY_DIRECTORY.length; i++) {
+      for (int j = 1; j <= FILES_BY_DIRECTORY[i]; j++) {
+        measureRepository.addRawMeasure(directoryRef(i) + j, LINES_KEY, newMeasureBuilder().create(j));
+        measureRepository.addRawMeasure(directoryRef(i) + j, NCLOC_KEY, newMeasureBuilder().create(2 * j));
+      }
+    }
+    return root;
+  }
+
+  private void verifyAggregatedMeasures() {
+    int projectLines = 0;
+    for (int i = 0; i < FILES_BY_DIRECTORY.length; i++) {
+      int files = FILES_BY_DIRECTORY[i];
+      int directoryLines = files * (files + 1) / 2;
+      assertThat(measureRepository.getAddedRawMeasure(directoryRef(i), LINES_KEY).get().getIntValue()).isEqualTo(directoryLines);
+      assertThat(measureRepository.getAddedRawMeasure(directoryRef(i), NCLOC_KEY).get().getIntValue()).isEqualTo(2 * directoryLines);
+      assertThat(measureRepository.getAddedRawMeasures(directoryRef(i) + 1).isEmpty()).isTrue();
+      projectLines += directoryLines;
+    }
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, LINES_KEY).get().getIntValue()).isEqualTo(projectLines);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(2 * projectLines);
+  }
+
+  private static int directoryRef(int index) {
+    return 1000 * (index + 1);
+  }
+
+  /**
+   * {@link MeasureRepositoryRule} is not thread-safe, unlike the implementation of {@link MeasureRepository} used by
+   * the Compute Engine
+   */
+  private static final class SynchronizedMeasureRepository implements MeasureRepository {
+    private final MeasureRepository delegate;
+
+    private SynchronizedMeasureRepository(MeasureRepository delegate) {
+      this.delegate = delegate;
+    }
+
+    @Override
+    public synchronized Optional<Measure> getBaseMeasure(Component component, Metric metric) {
+      return delegate.getBaseMeasure(component, metric);
+    }
+
+    @Override
+    public synchronized Optional<Measure> getRawMeasure(Component component, Metric metric) {
+      return delegate.getRawMeasure(component, metric);
+    }
+
+    @Override
+    public synchronized Set<Measure> getRawMeasures(Component component, Metric metric) {
+      return delegate.getRawMeasures(component, metric);
+    }
+
+    @Override
+    public synchronized SetMultimap<String, Measure> getRawMeasures(Component component) {
+      return delegate.getRawMeasures(component);
+    }
+
+    @Override
+    public synchronized void add(Component component, Metric metric, Measure measure) {
+      delegate.add(component, metric, measure);
+    }
+
+    @Override
+    public synchronized void update(Component component, Metric metric, Measure measure) {
+      delegate.update(component, metric, measure);
+    }
+  }
+}
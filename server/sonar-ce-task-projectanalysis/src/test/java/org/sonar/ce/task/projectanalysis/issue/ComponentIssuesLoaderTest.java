@@ -40,6 +40,7 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.issue.Issue;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.qualityprofile.ActiveRulesHolderRule;
 import org.sonar.core.issue.DefaultIssue;
 import org.sonar.core.issue.FieldDiffs;
 import org.sonar.db.DbClient;
@@ -53,6 +54,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import static java.util.Collections.emptyList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
@@ -69,6 +71,10 @@ public class ComponentIssuesLoaderTest {
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public RuleRepositoryRule ruleRepositoryRule = new RuleRepositoryRule();
+  @Rule
+  public ActiveRulesHolderRule activeRulesHolderRule = new ActiveRulesHolderRule();
 
   private DbClient dbClient = dbTester.getDbClient();
   private System2 system2 = mock(System2.class);
@@ -317,6 +323,70 @@ public class ComponentIssuesLoaderTest {
       .hasSize(1);
   }
 
+  @Test
+  public void loadOpenIssues_loads_issues_of_prefetched_components_by_batch() {
+    ComponentDto project = dbTester.components().insertPublicProject();
+    ComponentDto file1 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    ComponentDto file2 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    ComponentDto file3 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    ruleRepositoryRule.add(rule.getKey());
+    IssueDto issue1 = dbTester.issues().insert(rule, project, file1);
+    IssueDto issue2 = dbTester.issues().insert(rule, project, file2);
+    IssueDto issue3 = dbTester.issues().insert(rule, project, file3);
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, ruleRepositoryRule, activeRulesHolderRule, newEmptySettings(), system2, 2);
+    underTest.prefetch(Arrays.asList(file1.uuid(), file2.uuid(), file3.uuid()));
+
+    assertThat(underTest.loadOpenIssues(file1.uuid())).extracting(DefaultIssue::key).containsOnly(issue1.getKey());
+    // issues of file2 have been loaded with the ones of file1
+    IssueDto issueAddedAfterPrefetch = dbTester.issues().insert(rule, project, file2);
+    assertThat(underTest.loadOpenIssues(file2.uuid())).extracting(DefaultIssue::key).containsOnly(issue2.getKey());
+    assertThat(underTest.loadOpenIssues(file3.uuid())).extracting(DefaultIssue::key).containsOnly(issue3.getKey());
+    // issues already returned are not kept in memory and are loaded again
+    assertThat(underTest.loadOpenIssues(file2.uuid())).extracting(DefaultIssue::key).containsOnly(issue2.getKey(), issueAddedAfterPrefetch.getKey());
+  }
+
+  @Test
+  public void loadOpenIssues_loads_issues_of_component_which_is_not_prefetched() {
+    ComponentDto project = dbTester.components().insertPublicProject();
+    ComponentDto file = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    ruleRepositoryRule.add(rule.getKey());
+    IssueDto issue = dbTester.issues().insert(rule, project, file);
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, ruleRepositoryRule, activeRulesHolderRule, newEmptySettings(), system2, 2);
+    underTest.prefetch(Collections.singletonList(randomAlphabetic(10)));
+
+    assertThat(underTest.loadOpenIssues(file.uuid())).extracting(DefaultIssue::key).containsOnly(issue.getKey());
+  }
+
+  @Test
+  public void loadClosedIssues_and_latest_diff_changes_of_prefetched_components_are_loaded_by_batch() {
+    ComponentDto project = dbTester.components().insertPublicProject();
+    ComponentDto file1 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    ComponentDto file2 = dbTester.components().insertComponent(ComponentTesting.newFileDto(project));
+    RuleDefinitionDto rule = dbTester.rules().insert(t -> t.setType(RuleType.CODE_SMELL));
+    Date issueDate = addDays(NOW, -10);
+    IssueDto issue1 = dbTester.issues().insert(rule, project, file1, t -> t.setStatus(STATUS_CLOSED).setIssueCloseDate(issueDate).setIsFromHotspot(false));
+    dbTester.issues().insertFieldDiffs(issue1, newToClosedDiffsWithLine(issueDate, 10));
+    IssueDto issue2 = dbTester.issues().insert(rule, project, file2, t -> t.setStatus(STATUS_CLOSED).setIssueCloseDate(issueDate).setIsFromHotspot(false));
+    dbTester.issues().insertFieldDiffs(issue2, newToClosedDiffsWithLine(issueDate, 20));
+    when(system2.now()).thenReturn(NOW.getTime());
+    ComponentIssuesLoader underTest = new ComponentIssuesLoader(dbClient, null, null, newEmptySettings(), system2, 2);
+    underTest.prefetch(Arrays.asList(file1.uuid(), file2.uuid()));
+
+    List<DefaultIssue> closedIssues1 = underTest.loadClosedIssues(file1.uuid());
+    dbTester.issues().insertFieldDiffs(issue2, newToClosedDiffsWithLine(addDays(issueDate, 1), 30));
+    List<DefaultIssue> closedIssues2 = underTest.loadClosedIssues(file2.uuid());
+    underTest.loadLatestDiffChangesForReopeningOfClosedIssues(closedIssues2);
+
+    assertThat(closedIssues1).extracting(DefaultIssue::key, DefaultIssue::getLine).containsOnly(tuple(issue1.getKey(), 10));
+    assertThat(closedIssues2).extracting(DefaultIssue::key, DefaultIssue::getLine).containsOnly(tuple(issue2.getKey(), 20));
+    // latest diff changes have been loaded with the closed issues
+    assertThat(closedIssues2.iterator().next().changes())
+      .extracting(t -> t.get("line").oldValue())
+      .containsExactly("20");
+  }
+
   private static boolean hasValue(@Nullable FieldDiffs.Diff t, String value) {
     if (t == null) {
       return false;
@@ -0,0 +1,101 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+
+import static java.util.Collections.emptyMap;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class ConcurrentIssueTrackingTest {
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private static final Component FILE_1 = ReportComponent.builder(Component.Type.FILE, 3).setUuid("FILE_1").build();
+  private static final Component FILE_2 = ReportComponent.builder(Component.Type.FILE, 4).setUuid("FILE_2").build();
+  private static final Component FILE_3 = ReportComponent.builder(Component.Type.FILE, 5).setUuid("FILE_3").build();
+  private static final Component PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1)
+    .addChildren(ReportComponent.builder(Component.Type.DIRECTORY, 2).addChildren(FILE_1, FILE_2).build(), FILE_3)
+    .build();
+
+  private IssueTrackingDelegator issueTracking = mock(IssueTrackingDelegator.class);
+  private TrackingResult result1 = newTrackingResult();
+  private TrackingResult result2 = newTrackingResult();
+  private TrackingResult result3 = newTrackingResult();
+  private ConcurrentIssueTracking underTest;
+
+  @After
+  public void tearDown() {
+    if (underTest != null) {
+      underTest.close();
+    }
+  }
+
+  @Test
+  public void track_files_in_advance() {
+    when(issueTracking.track(FILE_1)).thenReturn(result1);
+    when(issueTracking.track(FILE_2)).thenReturn(result2);
+    when(issueTracking.track(FILE_3)).thenReturn(result3);
+    underTest = new ConcurrentIssueTracking(issueTracking, PROJECT, 2);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(result1);
+    assertThat(underTest.track(FILE_2)).isSameAs(result2);
+    assertThat(underTest.track(FILE_3)).isSameAs(result3);
+    verify(issueTracking).track(FILE_1);
+    verify(issueTracking).track(FILE_2);
+    verify(issueTracking).track(FILE_3);
+  }
+
+  @Test
+  public void track_file_again_if_not_visited_in_expected_order() {
+    when(issueTracking.track(FILE_1)).thenReturn(result1);
+    underTest = new ConcurrentIssueTracking(issueTracking, PROJECT, 1);
+
+    assertThat(underTest.track(FILE_1)).isSameAs(result1);
+    assertThat(underTest.track(FILE_1)).isSameAs(result1);
+    verify(issueTracking, times(2)).track(FILE_1);
+  }
+
+  @Test
+  public void propagate_failure_of_tracking() {
+    when(issueTracking.track(FILE_1)).thenThrow(new IllegalStateException("BOOM"));
+    underTest = new ConcurrentIssueTracking(issueTracking, PROJECT, 2);
+
+    expectedException.expect(IllegalStateException.class);
+    expectedException.expectMessage("BOOM");
+
+    underTest.track(FILE_1);
+  }
+
+  private static TrackingResult newTrackingResult() {
+    return new TrackingResult(emptyMap(), emptyMap(), Stream.empty(), Stream.empty());
+  }
+}
@@ -0,0 +1,198 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
+import org.junit.Test;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.Duration;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.issue.DefaultIssueComment;
+import org.sonar.core.issue.FieldDiffs;
+import org.sonar.core.issue.IssueChangeContext;
+import org.sonar.db.protobuf.DbCommons;
+import org.sonar.db.protobuf.DbIssues;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
+import static org.assertj.core.api.Assertions.tuple;
+
+public class DefaultIssueCodecTest {
+
+  private DefaultIssueCodec underTest = new DefaultIssueCodec();
+
+  @Test
+  public void encode_and_decode_all_fields() throws IOException {
+    DbIssues.Locations locations = DbIssues.Locations.newBuilder()
+      .setTextRange(DbCommons.TextRange.newBuilder().setStartLine(3).setEndLine(4).build())
+      .build();
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .setType(RuleType.BUG)
+      .setComponentUuid("FILE_UUID")
+      .setComponentKey("FILE_KEY")
+      .setModuleUuid("MODULE_UUID")
+      .setModuleUuidPath(".MODULE_UUID.")
+      .setProjectUuid("PROJECT_UUID")
+      .setProjectKey("PROJECT_KEY")
+      .setRuleKey(RuleKey.of("java", "S001"))
+      .setLanguage("java")
+      .setSeverity("MAJOR")
+      .setManualSeverity(true)
+      .setMessage("the message")
+      .setLine(3)
+      .setGap(2.5)
+      .setEffort(Duration.create(10L))
+      .setStatus("OPEN")
+      .setResolution("FIXED")
+      .setAssigneeUuid("ASSIGNEE_UUID")
+      .setChecksum("CHECKSUM")
+      .setAuthorLogin("author")
+      .setAttribute("jira", "SONAR-123")
+      .setTags(Arrays.asList("tag1", "tag2"))
+      .setLocations(locations)
+      .setCreationDate(new Date(1_500_000_000_000L))
+      .setUpdateDate(new Date(1_500_000_001_000L))
+      .setCloseDate(new Date(1_500_000_002_000L))
+      .setSelectedAt(1_400_000_000_000L)
+      .setIsFromExternalRuleEngine(true)
+      .setIsFromHotspot(true)
+      .setNew(false)
+      .setCopied(true)
+      .setBeingClosed(true)
+      .setOnDisabledRule(true)
+      .setChanged(true)
+      .setSendNotifications(true)
+      .addComment(new DefaultIssueComment().setKey("COMMENT_KEY").setIssueKey("ISSUE_KEY").setUserUuid("USER_UUID")
+        .setMarkdownText("comment").setCreatedAt(new Date(1_500_000_000_000L)).setNew(true));
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.type()).isEqualTo(RuleType.BUG);
+    assertThat(decoded.componentUuid()).isEqualTo("FILE_UUID");
+    assertThat(decoded.componentKey()).isEqualTo("FILE_KEY");
+    assertThat(decoded.moduleUuid()).isEqualTo("MODULE_UUID");
+    assertThat(decoded.moduleUuidPath()).isEqualTo(".MODULE_UUID.");
+    assertThat(decoded.projectUuid()).isEqualTo("PROJECT_UUID");
+    assertThat(decoded.projectKey()).isEqualTo("PROJECT_KEY");
+    assertThat(decoded.ruleKey()).isEqualTo(RuleKey.of("java", "S001"));
+    assertThat(decoded.language()).isEqualTo("java");
+    assertThat(decoded.severity()).isEqualTo("MAJOR");
+    assertThat(decoded.manualSeverity()).isTrue();
+    assertThat(decoded.message()).isEqualTo("the message");
+    assertThat(decoded.line()).isEqualTo(3);
+    assertThat(decoded.gap()).isEqualTo(2.5);
+    assertThat(decoded.effort()).isEqualTo(Duration.create(10L));
+    assertThat(decoded.status()).isEqualTo("OPEN");
+    assertThat(decoded.resolution()).isEqualTo("FIXED");
+    assertThat(decoded.assignee()).isEqualTo("ASSIGNEE_UUID");
+    assertThat(decoded.checksum()).isEqualTo("CHECKSUM");
+    assertThat(decoded.authorLogin()).isEqualTo("author");
+    assertThat(decoded.attributes()).containsOnly(entry("jira", "SONAR-123"));
+    assertThat(decoded.tags()).containsExactly("tag1", "tag2");
+    assertThat((DbIssues.Locations) decoded.getLocations()).isEqualTo(locations);
+    assertThat(decoded.creationDate()).isEqualTo(issue.creationDate());
+    assertThat(decoded.updateDate()).isEqualTo(issue.updateDate());
+    assertThat(decoded.closeDate()).isEqualTo(issue.closeDate());
+    assertThat(decoded.selectedAt()).isEqualTo(1_400_000_000_000L);
+    assertThat(decoded.isFromExternalRuleEngine()).isTrue();
+    assertThat(decoded.isFromHotspot()).isTrue();
+    assertThat(decoded.isNew()).isFalse();
+    assertThat(decoded.isCopied()).isTrue();
+    assertThat(decoded.isBeingClosed()).isTrue();
+    assertThat(decoded.isOnDisabledRule()).isTrue();
+    assertThat(decoded.isChanged()).isTrue();
+    assertThat(decoded.mustSendNotifications()).isTrue();
+    assertThat(decoded.defaultIssueComments()).extracting(DefaultIssueComment::key, DefaultIssueComment::markdownText, DefaultIssueComment::isNew)
+      .containsExactly(tuple("COMMENT_KEY", "comment", true));
+    assertThat(decoded.changes()).isEmpty();
+    assertThat(decoded.currentChange()).isNull();
+  }
+
+  @Test
+  public void encode_and_decode_issue_with_null_fields() throws IOException {
+    DefaultIssue decoded = encodeAndDecode(new DefaultIssue().setKey("ISSUE_KEY"));
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat(decoded.type()).isNull();
+    assertThat(decoded.ruleKey()).isNull();
+    assertThat(decoded.line()).isNull();
+    assertThat(decoded.effort()).isNull();
+    assertThat(decoded.status()).isNull();
+    assertThat(decoded.creationDate()).isNull();
+    assertThat((Object) decoded.getLocations()).isNull();
+    assertThat(decoded.isNew()).isTrue();
+  }
+
+  @Test
+  public void encode_and_decode_changes_and_current_change() throws IOException {
+    FieldDiffs previousChange = new FieldDiffs()
+      .setIssueKey("ISSUE_KEY")
+      .setUserUuid("USER_UUID")
+      .setCreationDate(new Date(1_400_000_000_000L))
+      .setDiff("severity", "MINOR", "MAJOR")
+      .setDiff("effort", 10L, 20L);
+    DefaultIssue issue = new DefaultIssue()
+      .setKey("ISSUE_KEY")
+      .addChange(previousChange);
+    IssueChangeContext context = IssueChangeContext.createUser(new Date(1_500_000_000_000L), "OTHER_USER_UUID");
+    issue.setFieldChange(context, "assignee", "former, assignee", "new assignee");
+    issue.setFieldChange(context, "line", 2, 3);
+
+    DefaultIssue decoded = encodeAndDecode(issue);
+
+    assertThat(decoded.changes()).hasSize(3);
+    FieldDiffs decodedPrevious = decoded.changes().get(0);
+    assertThat(decodedPrevious.userUuid()).isEqualTo("USER_UUID");
+    assertThat(decodedPrevious.get("severity").newValue()).isEqualTo("MAJOR");
+    assertThat(decodedPrevious.get("effort").oldValue()).isEqualTo(10L);
+    assertThat(decoded.currentChange()).isSameAs(decoded.changes().get(1)).isSameAs(decoded.changes().get(2));
+    assertThat(decoded.currentChange().userUuid()).isEqualTo("OTHER_USER_UUID");
+    assertThat(decoded.currentChange().get("assignee").oldValue()).isEqualTo("former, assignee");
+    assertThat(decoded.currentChange().get("line").newValue()).isEqualTo(3);
+  }
+
+  @Test
+  public void fallback_to_java_serialization_if_locations_are_not_protobuf() throws IOException {
+    DefaultIssue decoded = encodeAndDecode(new DefaultIssue().setKey("ISSUE_KEY").setLocations("some locations"));
+
+    assertThat(decoded.key()).isEqualTo("ISSUE_KEY");
+    assertThat((String) decoded.getLocations()).isEqualTo("some locations");
+  }
+
+  private DefaultIssue encodeAndDecode(DefaultIssue issue) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    try (DataOutputStream output = new DataOutputStream(bytes)) {
+      underTest.write(issue, output);
+    }
+    DataInputStream input = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    DefaultIssue decoded = underTest.read(input);
+    assertThat(input.available()).isZero();
+    return decoded;
+  }
+}
@@ -22,9 +22,11 @@ package org.sonar.ce.task.projectanalysis.issue;
 import com.google.common.base.Optional;
 import java.util.Collections;
 import java.util.List;
+import java.util.stream.Collectors;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.ExpectedException;
 import org.junit.rules.TemporaryFolder;
 import org.mockito.ArgumentCaptor;
 import org.sonar.api.config.internal.MapSettings;
@@ -36,11 +38,15 @@ import org.sonar.ce.task.projectanalysis.analysis.AnalysisMetadataHolder;
 import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.CrawlerDepthLimit;
 import org.sonar.ce.task.projectanalysis.component.MergeBranchComponentUuids;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
 import org.sonar.ce.task.projectanalysis.component.ReportModulesPath;
 import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
 import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitor;
+import org.sonar.ce.task.projectanalysis.component.TypeAwareVisitorAdapter;
+import org.sonar.ce.task.projectanalysis.component.VisitException;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
 import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
 import org.sonar.ce.task.projectanalysis.issue.commonrule.CommonRuleEngineImpl;
 import org.sonar.ce.task.projectanalysis.issue.filter.IssueFilter;
@@ -67,6 +73,8 @@ import org.sonar.server.issue.IssueFieldsSetter;
 import static com.google.common.collect.Lists.newArrayList;
 import static java.util.Arrays.asList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.fail;
+import static org.sonar.ce.task.projectanalysis.component.ComponentVisitor.Order.POST_ORDER;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
@@ -98,6 +106,8 @@ public class IntegrateIssuesVisitorTest {
   @Rule
   public TemporaryFolder temp = new TemporaryFolder();
   @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
   public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule();
@@ -300,6 +310,71 @@ public class IntegrateIssuesVisitorTest {
     assertThat(issues.get(0).severity()).isEqualTo(Severity.BLOCKER);
   }
 
+  @Test
+  public void track_issues_of_files_concurrently() {
+    underTest = new IntegrateIssuesVisitor(issueCache, issueLifecycle, new IssueVisitors(new IssueVisitor[] {issueVisitor}), analysisMetadataHolder, trackingDelegator,
+      issueStatusCopier, mergeBranchComponentUuids, treeRootHolder, 2);
+    RuleKey ruleKey = RuleTesting.XOO_X1;
+    addBaseIssue(ruleKey);
+    ScannerReport.Issue reportIssue = ScannerReport.Issue.newBuilder()
+      .setMsg("the message")
+      .setRuleRepository(ruleKey.repository())
+      .setRuleKey(ruleKey.rule())
+      .setSeverity(Constants.Severity.BLOCKER)
+      .build();
+    reportReader.putIssues(FILE_REF, asList(reportIssue));
+    fileSourceRepository.addLine(FILE_REF, "line1");
+
+    underTest.visitAny(FILE);
+
+    verify(issueLifecycle).mergeExistingOpenIssue(any(DefaultIssue.class), any(DefaultIssue.class));
+    verify(issueVisitor).beforeComponent(FILE);
+    verify(issueVisitor).onIssue(eq(FILE), any(DefaultIssue.class));
+    verify(issueVisitor).afterComponent(FILE);
+    List<DefaultIssue> issues = newArrayList(issueCache.traverse());
+    assertThat(issues).hasSize(1);
+    assertThat(issues.get(0).severity()).isEqualTo(Severity.BLOCKER);
+  }
+
+  @Test
+  public void tracking_threads_are_stopped_with_container_if_another_visitor_fails() throws InterruptedException {
+    IntegrateIssuesVisitor visitor = new IntegrateIssuesVisitor(issueCache, issueLifecycle, new IssueVisitors(new IssueVisitor[] {issueVisitor}), analysisMetadataHolder,
+      trackingDelegator, issueStatusCopier, mergeBranchComponentUuids, treeRootHolder, 2);
+    TypeAwareVisitor failingVisitor = new TypeAwareVisitorAdapter(CrawlerDepthLimit.FILE, POST_ORDER) {
+      @Override
+      public void visitFile(Component file) {
+        throw new IllegalStateException("Another visitor fails");
+      }
+    };
+    fileSourceRepository.addLine(FILE_REF, "line1");
+    try {
+      new VisitorsCrawler(asList(visitor, failingVisitor)).visit(PROJECT);
+      fail("A VisitException should have been raised");
+    } catch (VisitException e) {
+      assertThat(e.getCause()).hasMessage("Another visitor fails");
+    }
+    List<Thread> trackingThreads = Thread.getAllStackTraces().keySet().stream()
+      .filter(t -> t.getName().startsWith(Thread.currentThread().getName() + "-issueTracking-"))
+      .collect(Collectors.toList());
+    assertThat(trackingThreads).isNotEmpty();
+
+    visitor.stop();
+
+    for (Thread trackingThread : trackingThreads) {
+      trackingThread.join(10_000L);
+      assertThat(trackingThread.isAlive()).isFalse();
+    }
+  }
+
+  @Test
+  public void fail_if_number_of_tracking_threads_is_lower_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The property 'sonar.ce.task.issueTracking.threads' must be an int value >= 1. Got '0'");
+
+    new IntegrateIssuesVisitor(issueCache, issueLifecycle, new IssueVisitors(new IssueVisitor[] {issueVisitor}), analysisMetadataHolder, trackingDelegator,
+      issueStatusCopier, mergeBranchComponentUuids, treeRootHolder, 0);
+  }
+
   private void addBaseIssue(RuleKey ruleKey) {
     ComponentDto project = ComponentTesting.newPrivateProjectDto(dbTester.organizations().insert(), PROJECT_UUID).setDbKey(PROJECT_KEY);
     ComponentDto file = ComponentTesting.newFileDto(project, null, FILE_UUID).setDbKey(FILE_KEY);
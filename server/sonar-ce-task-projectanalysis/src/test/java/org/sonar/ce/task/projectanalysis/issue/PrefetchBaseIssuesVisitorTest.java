@@ -0,0 +1,71 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.issue;
+
+import java.util.Arrays;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.VisitorsCrawler;
+import org.sonar.ce.task.projectanalysis.filemove.MovedFilesRepository;
+import org.sonar.ce.task.projectanalysis.filemove.MutableMovedFilesRepositoryRule;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
+
+public class PrefetchBaseIssuesVisitorTest {
+
+  @Rule
+  public MutableMovedFilesRepositoryRule movedFilesRepository = new MutableMovedFilesRepositoryRule();
+
+  private ComponentIssuesLoader issuesLoader = mock(ComponentIssuesLoader.class);
+  private VisitorsCrawler underTest = new VisitorsCrawler(Arrays.asList(new PrefetchBaseIssuesVisitor(issuesLoader, movedFilesRepository)));
+
+  @Test
+  public void prefetch_issues_of_files_in_order_of_visit_when_visiting_project() {
+    Component movedFile = ReportComponent.builder(FILE, 3).setUuid("FILE2").build();
+    movedFilesRepository.setOriginalFile(movedFile, new MovedFilesRepository.OriginalFile(10, "ORIGINAL_FILE2", "original_file2"));
+
+    underTest.visit(ReportComponent.builder(PROJECT, 1)
+      .addChildren(
+        ReportComponent.builder(DIRECTORY, 2).setUuid("DIR1")
+          .addChildren(
+            ReportComponent.builder(FILE, 4).setUuid("FILE1").build(),
+            movedFile)
+          .build(),
+        ReportComponent.builder(FILE, 5).setUuid("FILE3").build())
+      .build());
+
+    verify(issuesLoader).prefetch(Arrays.asList("FILE1", "ORIGINAL_FILE2", "FILE3"));
+  }
+
+  @Test
+  public void do_nothing_on_not_project_level() {
+    underTest.visit(ReportComponent.builder(DIRECTORY, 1).build());
+    underTest.visit(ReportComponent.builder(FILE, 2).build());
+
+    verifyZeroInteractions(issuesLoader);
+  }
+}
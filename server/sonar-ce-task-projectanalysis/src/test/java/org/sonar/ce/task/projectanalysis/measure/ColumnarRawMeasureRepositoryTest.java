@@ -54,7 +54,7 @@ import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
 @RunWith(DataProviderRunner.class)
-public class MapBasedRawMeasureRepositoryTest {
+public class ColumnarRawMeasureRepositoryTest {
   @Rule
   public DbTester dbTester = DbTester.create(System2.INSTANCE);
   @Rule
@@ -83,7 +83,7 @@ public class MapBasedRawMeasureRepositoryTest {
   private ReportMetricValidator reportMetricValidator = mock(ReportMetricValidator.class);
 
   private MetricRepository metricRepository = mock(MetricRepository.class);
-  private MapBasedRawMeasureRepository<Integer> underTest = new MapBasedRawMeasureRepository<>(component -> component.getReportAttributes().getRef());
+  private ColumnarRawMeasureRepository<Integer> underTest = new ColumnarRawMeasureRepository<>(component -> component.getReportAttributes().getRef());
   private DbClient mockedDbClient = mock(DbClient.class);
   private BatchReportReader mockBatchReportReader = mock(BatchReportReader.class);
   private MeasureRepositoryImpl underTestWithMock = new MeasureRepositoryImpl(mockedDbClient, mockBatchReportReader, metricRepository, reportMetricValidator);
@@ -252,6 +252,59 @@ public class MapBasedRawMeasureRepositoryTest {
     assertThat(underTest.getRawMeasure(FILE_COMPONENT, metric2)).isNotPresent();
   }
 
+  @Test
+  public void getRawMeasure_returns_numeric_measures_stored_in_columns() {
+    MetricImpl intMetric = new MetricImpl(1, "int", "int", Metric.MetricType.INT);
+    MetricImpl longMetric = new MetricImpl(2, "long", "long", Metric.MetricType.WORK_DUR);
+    MetricImpl doubleMetric = new MetricImpl(3, "double", "double", Metric.MetricType.FLOAT);
+    MetricImpl booleanMetric = new MetricImpl(4, "boolean", "boolean", Metric.MetricType.BOOL);
+
+    underTest.add(FILE_COMPONENT, intMetric, Measure.newMeasureBuilder().setVariation(-3d).create(12));
+    underTest.add(FILE_COMPONENT, longMetric, Measure.newMeasureBuilder().create(Long.MAX_VALUE / 1024));
+    underTest.add(FILE_COMPONENT, doubleMetric, Measure.newMeasureBuilder().create(0.123456789d, 3));
+    underTest.add(FILE_COMPONENT, booleanMetric, Measure.newMeasureBuilder().create(true));
+    underTest.add(OTHER_COMPONENT, intMetric, Measure.newMeasureBuilder().setVariation(4d).createNoValue());
+
+    Measure intMeasure = underTest.getRawMeasure(FILE_COMPONENT, intMetric).get();
+    assertThat(intMeasure.getIntValue()).isEqualTo(12);
+    assertThat(intMeasure.getVariation()).isEqualTo(-3d);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, longMetric).get().getLongValue()).isEqualTo(Long.MAX_VALUE / 1024);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, longMetric).get().hasVariation()).isFalse();
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, doubleMetric).get().getDoubleValue()).isEqualTo(0.123d);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, booleanMetric).get().getBooleanValue()).isTrue();
+    Measure noValue = underTest.getRawMeasure(OTHER_COMPONENT, intMetric).get();
+    assertThat(noValue.getValueType()).isEqualTo(Measure.ValueType.NO_VALUE);
+    assertThat(noValue.getVariation()).isEqualTo(4d);
+    assertThat(underTest.getRawMeasure(OTHER_COMPONENT, doubleMetric)).isEmpty();
+    assertThat(underTest.getRawMeasures(FILE_COMPONENT).keySet()).containsOnly("int", "long", "double", "boolean");
+  }
+
+  @Test
+  public void update_replaces_numeric_measure_by_measure_with_QualityGate_status_and_back() {
+    MetricImpl intMetric = new MetricImpl(1, "int", "int", Metric.MetricType.INT);
+    Measure measure = Measure.newMeasureBuilder().create(12);
+    Measure measureWithStatus = Measure.updatedMeasureBuilder(measure).setQualityGateStatus(new QualityGateStatus(Measure.Level.ERROR)).create();
+
+    underTest.add(FILE_COMPONENT, intMetric, measure);
+    underTest.update(FILE_COMPONENT, intMetric, measureWithStatus);
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get()).isSameAs(measureWithStatus);
+
+    underTest.update(FILE_COMPONENT, intMetric, Measure.newMeasureBuilder().create(13));
+    Measure updated = underTest.getRawMeasure(FILE_COMPONENT, intMetric).get();
+    assertThat(updated.getIntValue()).isEqualTo(13);
+    assertThat(updated.hasQualityGateStatus()).isFalse();
+  }
+
+  @Test
+  public void add_does_not_override_existing_measure_if_policy_is_DO_NOT_OVERRIDE() {
+    MetricImpl intMetric = new MetricImpl(1, "int", "int", Metric.MetricType.INT);
+    underTest.add(FILE_COMPONENT, intMetric, Measure.newMeasureBuilder().create(12));
+
+    underTest.add(FILE_COMPONENT, intMetric, Measure.newMeasureBuilder().create(13), ColumnarRawMeasureRepository.OverridePolicy.DO_NOT_OVERRIDE);
+
+    assertThat(underTest.getRawMeasure(FILE_COMPONENT, intMetric).get().getIntValue()).isEqualTo(12);
+  }
+
   @Test(expected = NullPointerException.class)
   public void getRawMeasures_for_metric_throws_NPE_if_Component_arg_is_null() {
     underTest.getRawMeasures(null, metric1);
@@ -34,11 +34,14 @@ import org.sonar.ce.task.projectanalysis.analysis.Branch;
 import org.sonar.ce.task.projectanalysis.batch.BatchReportReaderRule;
 import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.MergeBranchComponentUuids;
+import org.sonar.ce.task.projectanalysis.source.FileSourceSnapshot;
+import org.sonar.ce.task.projectanalysis.source.FileSourceSnapshotRepository;
 import org.sonar.core.hash.SourceHashComputer;
 import org.sonar.db.DbTester;
 import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDto;
 
+import static java.util.Collections.singletonList;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -68,8 +71,10 @@ public class ScmInfoDbLoaderTest {
 
   private Branch branch = mock(Branch.class);
   private MergeBranchComponentUuids mergeBranchComponentUuids = mock(MergeBranchComponentUuids.class);
+  private FileSourceSnapshotRepository fileSourceSnapshotRepository = mock(FileSourceSnapshotRepository.class);
 
-  private ScmInfoDbLoader underTest = new ScmInfoDbLoader(analysisMetadataHolder, dbTester.getDbClient(), mergeBranchComponentUuids);
+  private ScmInfoDbLoader underTest = new ScmInfoDbLoader(analysisMetadataHolder, dbTester.getDbClient(), mergeBranchComponentUuids,
+    fileSourceSnapshotRepository);
 
   @Test
   public void returns_ScmInfo_from_DB() {
@@ -86,6 +91,26 @@ public class ScmInfoDbLoaderTest {
     assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from DB for file 'FILE_UUID'");
   }
 
+  @Test
+  public void returns_ScmInfo_from_snapshot_of_sources() {
+    analysisMetadataHolder.setBaseAnalysis(baseProjectAnalysis);
+    analysisMetadataHolder.setBranch(null);
+
+    String hash = computeSourceHash(1);
+    DbFileSources.Data scmData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setScmAuthor("henry").setScmDate(DATE_1).setScmRevision("rev-1"))
+      .build();
+    when(fileSourceSnapshotRepository.getPrevious(FILE))
+      .thenReturn(Optional.of(FileSourceSnapshot.of(hash, "dataHash", 0, singletonList("lineHash"), scmData)));
+
+    DbScmInfo scmInfo = underTest.getScmInfo(FILE).get();
+    assertThat(scmInfo.getAllChangesets()).hasSize(1);
+    assertThat(scmInfo.getLatestChangeset().getAuthor()).isEqualTo("henry");
+    assertThat(scmInfo.fileHash()).isEqualTo(hash);
+
+    assertThat(logTester.logs(TRACE)).containsOnly("Reading SCM info from snapshot of file 'FILE_UUID'");
+  }
+
   @Test
   public void read_from_merge_branch_if_no_base() {
     analysisMetadataHolder.setBaseAnalysis(null);
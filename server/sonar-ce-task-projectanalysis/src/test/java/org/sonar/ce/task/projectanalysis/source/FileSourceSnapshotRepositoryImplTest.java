@@ -0,0 +1,197 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.component.Component;
+import org.sonar.ce.task.projectanalysis.component.ReportComponent;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.db.DbTester;
+import org.sonar.db.protobuf.DbFileSources;
+import org.sonar.db.source.FileSourceDto;
+import org.sonar.server.platform.ServerFileSystem;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class FileSourceSnapshotRepositoryImplTest {
+  private static final String PROJECT_UUID = "PROJECT_UUID";
+  private static final Component FILE_1 = ReportComponent.builder(Component.Type.FILE, 2).setUuid("FILE_1").build();
+  private static final Component FILE_2 = ReportComponent.builder(Component.Type.FILE, 3).setUuid("FILE_2").build();
+  private static final Component PROJECT = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID)
+    .addChildren(FILE_1, FILE_2).build();
+
+  @Rule
+  public TemporaryFolder temp = new TemporaryFolder();
+  @Rule
+  public DbTester db = DbTester.create(System2.INSTANCE);
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule().setRoot(PROJECT);
+
+  private ServerFileSystem serverFileSystem = mock(ServerFileSystem.class);
+  private File tempDir;
+
+  @Before
+  public void setUp() throws IOException {
+    tempDir = temp.newFolder();
+    when(serverFileSystem.getTempDir()).thenReturn(tempDir);
+  }
+
+  @Test
+  public void getPrevious_returns_empty_if_no_snapshot_has_been_saved() {
+    insertFileSource(FILE_1, dto -> {
+    });
+
+    assertThat(newRepository().getPrevious(FILE_1)).isEmpty();
+  }
+
+  @Test
+  public void getPrevious_returns_snapshot_saved_by_previous_analysis() {
+    insertFileSource(FILE_1, dto -> {
+    });
+    insertFileSource(FILE_2, dto -> dto.setSrcHash("srcHash2").setLineHashesVersion(1));
+    FileSourceSnapshotRepositoryImpl previousAnalysis = newRepository();
+    previousAnalysis.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.add(FILE_2, newSnapshot("srcHash2", "dataHash", 1));
+    previousAnalysis.save();
+    previousAnalysis.stop();
+
+    FileSourceSnapshotRepositoryImpl underTest = newRepository();
+
+    FileSourceSnapshot snapshot = underTest.getPrevious(FILE_1).get();
+    assertThat(snapshot.getSrcHash()).isEqualTo("srcHash");
+    assertThat(snapshot.getDataHash()).isEqualTo("dataHash");
+    assertThat(snapshot.getLineHashesVersion()).isZero();
+    assertThat(snapshot.getLineHashes()).containsExactly("hash1", "", "hash3");
+    assertThat(snapshot.getScmLines()).hasSize(2);
+    assertThat(snapshot.getScmLines().get(0).getScmAuthor()).isEqualTo("john");
+    assertThat(snapshot.getScmLines().get(0).hasSource()).isFalse();
+    assertThat(underTest.getPrevious(FILE_2).get().getLineHashesVersion()).isEqualTo(1);
+  }
+
+  @Test
+  public void getPrevious_returns_empty_if_snapshot_is_not_consistent_with_db() {
+    insertFileSource(FILE_1, dto -> dto.setSrcHash("otherSrcHash"));
+    insertFileSource(FILE_2, dto -> dto.setLineHashesVersion(1));
+    FileSourceSnapshotRepositoryImpl previousAnalysis = newRepository();
+    previousAnalysis.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.add(FILE_2, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.save();
+
+    FileSourceSnapshotRepositoryImpl underTest = newRepository();
+
+    assertThat(underTest.getPrevious(FILE_1)).isEmpty();
+    assertThat(underTest.getPrevious(FILE_2)).isEmpty();
+  }
+
+  @Test
+  public void getPrevious_returns_empty_if_file_is_not_in_db() {
+    FileSourceSnapshotRepositoryImpl previousAnalysis = newRepository();
+    previousAnalysis.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.save();
+
+    assertThat(newRepository().getPrevious(FILE_1)).isEmpty();
+  }
+
+  @Test
+  public void getPrevious_returns_empty_once_snapshots_of_current_analysis_are_saved() {
+    insertFileSource(FILE_1, dto -> {
+    });
+    FileSourceSnapshotRepositoryImpl previousAnalysis = newRepository();
+    previousAnalysis.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.save();
+
+    FileSourceSnapshotRepositoryImpl underTest = newRepository();
+    assertThat(underTest.getPrevious(FILE_1)).isPresent();
+    underTest.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    underTest.save();
+
+    assertThat(underTest.getPrevious(FILE_1)).isEmpty();
+    assertThat(newRepository().getPrevious(FILE_1)).isPresent();
+  }
+
+  @Test
+  public void snapshots_are_not_replaced_if_not_saved() {
+    insertFileSource(FILE_1, dto -> {
+    });
+    FileSourceSnapshotRepositoryImpl previousAnalysis = newRepository();
+    previousAnalysis.add(FILE_1, newSnapshot("srcHash", "dataHash", 0));
+    previousAnalysis.save();
+
+    FileSourceSnapshotRepositoryImpl failedAnalysis = newRepository();
+    failedAnalysis.add(FILE_2, newSnapshot("srcHash", "dataHash", 0));
+    failedAnalysis.stop();
+
+    assertThat(newRepository().getPrevious(FILE_1)).isPresent();
+    assertThat(snapshotsDir().toFile().list()).containsOnly(PROJECT_UUID);
+  }
+
+  @Test
+  public void getPrevious_returns_empty_if_snapshots_are_corrupted() throws IOException {
+    insertFileSource(FILE_1, dto -> {
+    });
+    Files.createDirectories(snapshotsDir());
+    Files.write(snapshotsDir().resolve(PROJECT_UUID), "not a snapshot".getBytes(StandardCharsets.UTF_8));
+
+    assertThat(newRepository().getPrevious(FILE_1)).isEmpty();
+  }
+
+  private FileSourceSnapshotRepositoryImpl newRepository() {
+    return new FileSourceSnapshotRepositoryImpl(serverFileSystem, db.getDbClient(), treeRootHolder);
+  }
+
+  private Path snapshotsDir() {
+    return tempDir.toPath().resolve("ce-snapshots");
+  }
+
+  private static FileSourceSnapshot newSnapshot(String srcHash, String dataHash, int lineHashesVersion) {
+    DbFileSources.Data lineData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setLine(1).setSource("line1").setScmAuthor("john").setScmDate(123456789L).setScmRevision("rev-1"))
+      .addLines(DbFileSources.Line.newBuilder().setLine(2).setSource("line2"))
+      .build();
+    return FileSourceSnapshot.of(srcHash, dataHash, lineHashesVersion, Arrays.asList("hash1", "", "hash3"), lineData);
+  }
+
+  private void insertFileSource(Component file, Consumer<FileSourceDto> modifier) {
+    FileSourceDto dto = new FileSourceDto()
+      .setProjectUuid(PROJECT_UUID)
+      .setFileUuid(file.getUuid())
+      .setSrcHash("srcHash")
+      .setDataHash("dataHash")
+      .setSourceData(DbFileSources.Data.getDefaultInstance())
+      .setCreatedAt(1L)
+      .setUpdatedAt(1L);
+    modifier.accept(dto);
+    db.getDbClient().fileSourceDao().insert(db.getSession(), dto);
+    db.commit();
+  }
+}
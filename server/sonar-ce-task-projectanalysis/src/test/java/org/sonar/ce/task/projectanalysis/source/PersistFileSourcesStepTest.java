@@ -28,6 +28,8 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
 import org.mockito.Mockito;
 import org.sonar.api.utils.System2;
 import org.sonar.ce.task.projectanalysis.component.Component;
@@ -46,6 +48,9 @@ import org.sonar.db.source.FileSourceDto;
 import org.sonar.db.source.LineHashVersion;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -72,6 +77,7 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   private SourceLinesHashRepositoryImpl.LineHashesComputer lineHashesComputer = mock(SourceLinesHashRepositoryImpl.LineHashesComputer.class);
   private FileSourceDataComputer fileSourceDataComputer = mock(FileSourceDataComputer.class);
   private FileSourceDataWarnings fileSourceDataWarnings = mock(FileSourceDataWarnings.class);
+  private FileSourceSnapshotRepository fileSourceSnapshotRepository = mock(FileSourceSnapshotRepository.class);
 
   private DbClient dbClient = dbTester.getDbClient();
   private DbSession session = dbTester.getSession();
@@ -82,7 +88,8 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
   public void setup() {
     when(system2.now()).thenReturn(NOW);
     when(sourceLinesHashRepository.getLineHashesComputerToPersist(Mockito.any(Component.class))).thenReturn(lineHashesComputer);
-    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, fileSourceDataComputer, fileSourceDataWarnings);
+    underTest = new PersistFileSourcesStep(dbClient, system2, treeRootHolder, sourceLinesHashRepository, fileSourceDataComputer, fileSourceDataWarnings,
+      fileSourceSnapshotRepository);
     initBasicReport(1);
   }
 
@@ -323,6 +330,53 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
+  @Test
+  public void not_update_sources_when_nothing_has_changed_and_line_hashes_take_significant_code_into_account() {
+    dbClient.fileSourceDao().insert(dbTester.getSession(), createDto(dto -> dto.setLineHashesVersion(LineHashVersion.WITH_SIGNIFICANT_CODE.getDbValue())));
+    dbTester.getSession().commit();
+
+    Changeset changeset = Changeset.newChangesetBuilder().setDate(1L).setRevision("rev-1").build();
+    setComputedData(DbFileSources.Data.newBuilder().build(), Collections.singletonList("lineHash"), "sourceHash", changeset);
+    when(sourceLinesHashRepository.getLineHashesVersion(fileComponent().build())).thenReturn(LineHashVersion.WITH_SIGNIFICANT_CODE.getDbValue());
+
+    underTest.execute(new TestComputationStepContext());
+
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
+    assertThat(fileSourceDto.getUpdatedAt()).isEqualTo(PAST);
+  }
+
+  @Test
+  public void save_snapshot_of_sources() {
+    DbFileSources.Data dbData = DbFileSources.Data.newBuilder().addLines(
+      DbFileSources.Line.newBuilder()
+        .setLine(1)
+        .setSource("line1")
+        .setScmAuthor("john")
+        .setScmDate(123456789L)
+        .setScmRevision("rev-1")
+        .build())
+      .build();
+    setComputedData(dbData, Collections.singletonList("lineHash"), "sourceHash", null);
+
+    underTest.execute(new TestComputationStepContext());
+
+    ArgumentCaptor<FileSourceSnapshot> snapshotCaptor = ArgumentCaptor.forClass(FileSourceSnapshot.class);
+    InOrder inOrder = inOrder(fileSourceSnapshotRepository);
+    inOrder.verify(fileSourceSnapshotRepository).add(eq(fileComponent().build()), snapshotCaptor.capture());
+    inOrder.verify(fileSourceSnapshotRepository).save();
+    FileSourceSnapshot snapshot = snapshotCaptor.getValue();
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, FILE1_UUID);
+    assertThat(snapshot.getSrcHash()).isEqualTo("sourceHash");
+    assertThat(snapshot.getDataHash()).isEqualTo(fileSourceDto.getDataHash());
+    assertThat(snapshot.getLineHashes()).containsExactly("lineHash");
+    assertThat(snapshot.getScmLines()).containsExactly(DbFileSources.Line.newBuilder()
+      .setLine(1)
+      .setScmAuthor("john")
+      .setScmDate(123456789L)
+      .setScmRevision("rev-1")
+      .build());
+  }
+
   @Test
   public void update_sources_when_source_updated() {
     // Existing sources
@@ -410,6 +464,44 @@ public class PersistFileSourcesStepTest extends BaseStepTest {
     verify(fileSourceDataWarnings).commitWarnings();
   }
 
+  @Test
+  public void persist_sources_of_files_in_several_batches() {
+    ReportComponent.Builder rootBuilder = ReportComponent.builder(Component.Type.PROJECT, 1).setUuid(PROJECT_UUID).setKey(PROJECT_KEY);
+    for (int i = 0; i < 55; i++) {
+      rootBuilder.addChildren(ReportComponent.builder(Component.Type.FILE, 100 + i).setUuid("FILE_" + i).setKey(PROJECT_KEY + ":src/Foo" + i + ".java").build());
+    }
+    ReportComponent root = rootBuilder.build();
+    treeRootHolder.setRoots(root, root);
+    DbFileSources.Data sourceData = DbFileSources.Data.newBuilder()
+      .addLines(DbFileSources.Line.newBuilder().setSource("line1").setLine(1).build())
+      .build();
+    when(fileSourceDataComputer.compute(any(Component.class), eq(fileSourceDataWarnings)))
+      .thenReturn(new FileSourceDataComputer.Data(sourceData, Collections.singletonList("lineHash"), "sourceHash", null));
+
+    underTest.execute(new TestComputationStepContext());
+
+    assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(55);
+    FileSourceDto fileSourceDto = dbClient.fileSourceDao().selectByFileUuid(session, "FILE_54");
+    assertThat(fileSourceDto.getSourceData().getLines(0).getSource()).isEqualTo("line1");
+    verify(fileSourceDataWarnings).commitWarnings();
+  }
+
+  @Test
+  public void fail_with_ISE_when_sources_can_not_be_encoded() {
+    when(fileSourceDataComputer.compute(fileComponent().build(), fileSourceDataWarnings))
+      .thenReturn(new FileSourceDataComputer.Data(null, Collections.emptyList(), "", null));
+
+    thrown.expect(IllegalStateException.class);
+    thrown.expectMessage("Cannot persist sources of PROJECT_KEY:src/Foo.java");
+
+    try {
+      underTest.execute(new TestComputationStepContext());
+    } finally {
+      assertThat(dbTester.countRowsOfTable("file_sources")).isEqualTo(0);
+      verify(fileSourceDataWarnings).commitWarnings();
+    }
+  }
+
   private FileSourceDto createDto() {
     return createDto(dto -> {
     });
@@ -254,4 +254,59 @@ public class SourceLinesDiffFinderTest {
 
     assertThat(diff).containsExactly(3, 4);
   }
+
+  @Test
+  public void shouldMatchLongestSequenceWhenLinesAreMoved() {
+    List<String> database = new ArrayList<>();
+    database.add("line - 0");
+    database.add("}");
+    database.add("line - 1");
+    database.add("}");
+    database.add("line - 2");
+
+    List<String> report = new ArrayList<>();
+    report.add("line - 1");
+    report.add("}");
+    report.add("line - 0");
+    report.add("}");
+    report.add("line - 2");
+
+    int[] diff = new SourceLinesDiffFinder().findMatchingLines(database, report);
+
+    assertThat(diff).containsExactly(3, 0, 0, 4, 5);
+  }
+
+  @Test
+  public void shouldMatchHugeFilesWithManyDifferences() {
+    List<String> database = new ArrayList<>();
+    List<String> report = new ArrayList<>();
+    for (int i = 0; i < 100_000; i++) {
+      database.add("line - " + i);
+      report.add(i % 3 == 0 ? ("line - " + i + " - modified") : ("line - " + i));
+    }
+
+    int[] diff = new SourceLinesDiffFinder().findMatchingLines(database, report);
+
+    assertThat(diff).hasSize(100_000);
+    for (int i = 0; i < 100_000; i++) {
+      assertThat(diff[i]).isEqualTo(i % 3 == 0 ? 0 : (i + 1));
+    }
+  }
+
+  @Test
+  public void shouldApproximateMatchingWhenMaximumNumberOfStepsIsReached() {
+    List<String> database = new ArrayList<>();
+    List<String> report = new ArrayList<>();
+    for (int i = 0; i < 1_000; i++) {
+      database.add("line - " + i);
+      report.add(i % 2 == 0 ? ("line - " + i + " - modified") : ("line - " + i));
+    }
+
+    int[] diff = new SourceLinesDiffFinder(10).findMatchingLines(database, report);
+
+    // unique lines are still matched
+    for (int i = 0; i < 1_000; i++) {
+      assertThat(diff[i]).isEqualTo(i % 2 == 0 ? 0 : (i + 1));
+    }
+  }
 }
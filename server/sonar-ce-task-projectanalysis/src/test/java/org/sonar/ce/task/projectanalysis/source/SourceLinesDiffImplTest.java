@@ -20,6 +20,7 @@
 package org.sonar.ce.task.projectanalysis.source;
 
 import java.util.Arrays;
+import java.util.Optional;
 import javax.annotation.Nullable;
 import org.junit.Before;
 import org.junit.Test;
@@ -27,11 +28,13 @@ import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDao;
+import org.sonar.db.protobuf.DbFileSources;
 import org.sonar.db.source.FileSourceDao;
 
 import static java.lang.String.valueOf;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verifyZeroInteractions;
 import static org.mockito.Mockito.when;
 import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
 import static org.sonar.ce.task.projectanalysis.component.ReportComponent.builder;
@@ -43,8 +46,9 @@ public class SourceLinesDiffImplTest {
   private ComponentDao componentDao = mock(ComponentDao.class);
   private FileSourceDao fileSourceDao = mock(FileSourceDao.class);
   private SourceLinesHashRepository sourceLinesHash = mock(SourceLinesHashRepository.class);
+  private FileSourceSnapshotRepository fileSourceSnapshotRepository = mock(FileSourceSnapshotRepository.class);
 
-  private SourceLinesDiffImpl underTest = new SourceLinesDiffImpl(dbClient, fileSourceDao, sourceLinesHash);
+  private SourceLinesDiffImpl underTest = new SourceLinesDiffImpl(dbClient, fileSourceDao, sourceLinesHash, fileSourceSnapshotRepository);
 
   private static final int FILE_REF = 1;
   private static final String FILE_KEY = valueOf(FILE_REF);
@@ -77,6 +81,18 @@ public class SourceLinesDiffImplTest {
 
   }
 
+  @Test
+  public void read_line_hashes_from_snapshot_of_sources_if_available() {
+    Component component = fileComponent(FILE_REF);
+
+    when(fileSourceSnapshotRepository.getPrevious(component))
+      .thenReturn(Optional.of(FileSourceSnapshot.of("srcHash", "dataHash", 0, Arrays.asList(CONTENT), DbFileSources.Data.getDefaultInstance())));
+    setLineHashesInReport(component, CONTENT);
+
+    assertThat(underTest.computeMatchingLines(component)).containsExactly(1, 2, 3, 4, 5, 6, 7);
+    verifyZeroInteractions(fileSourceDao);
+  }
+
   private void mockLineHashesInDb(String key, @Nullable String[] lineHashes) {
     when(fileSourceDao.selectLineHashes(dbSession, componentUuidOf(key)))
       .thenReturn(Arrays.asList(lineHashes));
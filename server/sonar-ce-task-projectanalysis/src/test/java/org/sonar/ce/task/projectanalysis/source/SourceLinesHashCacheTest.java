@@ -21,6 +21,10 @@ package org.sonar.ce.task.projectanalysis.source;
 
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Function;
 import org.junit.Before;
 import org.junit.Rule;
@@ -31,6 +35,7 @@ import org.sonar.ce.task.projectanalysis.component.Component;
 import org.sonar.ce.task.projectanalysis.component.ReportComponent;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -86,6 +91,62 @@ public class SourceLinesHashCacheTest {
     assertThat(underTest.get(component)).isEqualTo(list);
   }
 
+  @Test
+  public void hashes_are_not_visible_to_other_threads_before_being_written() throws Exception {
+    Component component = createComponent(1);
+    List<String> list = Collections.singletonList("hash1");
+    CountDownLatch computing = new CountDownLatch(1);
+    CountDownLatch computed = new CountDownLatch(1);
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    try {
+      Future<List<String>> first = executor.submit(() -> underTest.computeIfAbsent(component, c -> {
+        computing.countDown();
+        await(computed);
+        return list;
+      }));
+      computing.await();
+
+      assertThat(underTest.contains(component)).isFalse();
+      computed.countDown();
+      // waits for the computation of the other thread instead of reading a missing file
+      assertThat(underTest.computeIfAbsent(component, c -> {
+        throw new IllegalStateException("hashes must not be computed twice");
+      })).isEqualTo(list);
+      assertThat(first.get()).isEqualTo(list);
+      assertThat(underTest.contains(component)).isTrue();
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void hashes_are_computed_again_if_computation_failed() {
+    Component component = createComponent(1);
+    List<String> list = Collections.singletonList("hash1");
+
+    try {
+      underTest.computeIfAbsent(component, c -> {
+        throw new IllegalStateException("failure");
+      });
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("failure");
+    }
+
+    assertThat(underTest.contains(component)).isFalse();
+    assertThat(underTest.computeIfAbsent(component, c -> list)).isEqualTo(list);
+    assertThat(underTest.contains(component)).isTrue();
+  }
+
+  private static void await(CountDownLatch latch) {
+    try {
+      latch.await();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
   private static Component createComponent(int ref) {
     return ReportComponent.builder(Component.Type.FILE, ref)
       .setKey(FILE_KEY)
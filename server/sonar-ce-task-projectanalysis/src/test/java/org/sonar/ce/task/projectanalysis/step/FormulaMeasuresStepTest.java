@@ -0,0 +1,238 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.step;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
+import org.sonar.ce.task.projectanalysis.component.FileAttributes;
+import org.sonar.ce.task.projectanalysis.component.TreeRootHolderRule;
+import org.sonar.ce.task.projectanalysis.duplication.DuplicationRepositoryRule;
+import org.sonar.ce.task.projectanalysis.measure.MeasureRepositoryRule;
+import org.sonar.ce.task.projectanalysis.metric.MetricRepositoryRule;
+import org.sonar.ce.task.projectanalysis.source.NewLinesRepository;
+import org.sonar.ce.task.step.TestComputationStepContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.sonar.api.measures.CoreMetrics.CLASSES;
+import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY;
+import static org.sonar.api.measures.CoreMetrics.CLASS_COMPLEXITY_DISTRIBUTION;
+import static org.sonar.api.measures.CoreMetrics.COGNITIVE_COMPLEXITY;
+import static org.sonar.api.measures.CoreMetrics.COMMENTED_OUT_CODE_LINES;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_DENSITY;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_DENSITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMMENT_LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_IN_CLASSES;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_IN_FUNCTIONS;
+import static org.sonar.api.measures.CoreMetrics.COMPLEXITY_KEY;
+import static org.sonar.api.measures.CoreMetrics.CONDITIONS_BY_LINE;
+import static org.sonar.api.measures.CoreMetrics.COVERAGE_LINE_HITS_DATA;
+import static org.sonar.api.measures.CoreMetrics.COVERED_CONDITIONS_BY_LINE;
+import static org.sonar.api.measures.CoreMetrics.DIRECTORIES;
+import static org.sonar.api.measures.CoreMetrics.FILES;
+import static org.sonar.api.measures.CoreMetrics.FILES_KEY;
+import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY;
+import static org.sonar.api.measures.CoreMetrics.FILE_COMPLEXITY_DISTRIBUTION;
+import static org.sonar.api.measures.CoreMetrics.FUNCTIONS;
+import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY;
+import static org.sonar.api.measures.CoreMetrics.FUNCTION_COMPLEXITY_DISTRIBUTION;
+import static org.sonar.api.measures.CoreMetrics.GENERATED_LINES;
+import static org.sonar.api.measures.CoreMetrics.GENERATED_NCLOC;
+import static org.sonar.api.measures.CoreMetrics.LINES;
+import static org.sonar.api.measures.CoreMetrics.LINES_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_KEY;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION;
+import static org.sonar.api.measures.CoreMetrics.NCLOC_LANGUAGE_DISTRIBUTION_KEY;
+import static org.sonar.api.measures.CoreMetrics.NEW_BLOCKS_DUPLICATED;
+import static org.sonar.api.measures.CoreMetrics.NEW_BRANCH_COVERAGE;
+import static org.sonar.api.measures.CoreMetrics.NEW_CONDITIONS_TO_COVER;
+import static org.sonar.api.measures.CoreMetrics.NEW_COVERAGE;
+import static org.sonar.api.measures.CoreMetrics.NEW_DUPLICATED_LINES;
+import static org.sonar.api.measures.CoreMetrics.NEW_DUPLICATED_LINES_DENSITY;
+import static org.sonar.api.measures.CoreMetrics.NEW_LINES;
+import static org.sonar.api.measures.CoreMetrics.NEW_LINES_TO_COVER;
+import static org.sonar.api.measures.CoreMetrics.NEW_LINE_COVERAGE;
+import static org.sonar.api.measures.CoreMetrics.NEW_UNCOVERED_CONDITIONS;
+import static org.sonar.api.measures.CoreMetrics.NEW_UNCOVERED_LINES;
+import static org.sonar.api.measures.CoreMetrics.PUBLIC_API;
+import static org.sonar.api.measures.CoreMetrics.PUBLIC_DOCUMENTED_API_DENSITY;
+import static org.sonar.api.measures.CoreMetrics.PUBLIC_UNDOCUMENTED_API;
+import static org.sonar.api.measures.CoreMetrics.SKIPPED_TESTS;
+import static org.sonar.api.measures.CoreMetrics.STATEMENTS;
+import static org.sonar.api.measures.CoreMetrics.TESTS;
+import static org.sonar.api.measures.CoreMetrics.TESTS_KEY;
+import static org.sonar.api.measures.CoreMetrics.TEST_ERRORS;
+import static org.sonar.api.measures.CoreMetrics.TEST_EXECUTION_TIME;
+import static org.sonar.api.measures.CoreMetrics.TEST_FAILURES;
+import static org.sonar.api.measures.CoreMetrics.TEST_SUCCESS_DENSITY;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.DIRECTORY;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.FILE;
+import static org.sonar.ce.task.projectanalysis.component.Component.Type.PROJECT;
+import static org.sonar.ce.task.projectanalysis.component.ReportComponent.builder;
+import static org.sonar.ce.task.projectanalysis.measure.Measure.newMeasureBuilder;
+
+public class FormulaMeasuresStepTest {
+
+  private static final int ROOT_REF = 1;
+  private static final int DIRECTORY_REF = 1234;
+  private static final int FILE_1_REF = 12341;
+  private static final int FILE_2_REF = 12342;
+
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+  @Rule
+  public TreeRootHolderRule treeRootHolder = new TreeRootHolderRule()
+    .setRoot(builder(PROJECT, ROOT_REF)
+      .addChildren(
+        builder(DIRECTORY, DIRECTORY_REF)
+          .addChildren(
+            builder(FILE, FILE_1_REF).setFileAttributes(new FileAttributes(false, "java", 1)).build(),
+            builder(FILE, FILE_2_REF).setFileAttributes(new FileAttributes(false, "xoo", 1)).build())
+          .build())
+      .build());
+  @Rule
+  public MetricRepositoryRule metricRepository = new MetricRepositoryRule()
+    .add(NEW_LINES)
+    .add(NEW_DUPLICATED_LINES)
+    .add(NEW_DUPLICATED_LINES_DENSITY)
+    .add(NEW_BLOCKS_DUPLICATED)
+    .add(NCLOC)
+    .add(NCLOC_LANGUAGE_DISTRIBUTION)
+    .add(TESTS)
+    .add(TEST_ERRORS)
+    .add(TEST_FAILURES)
+    .add(SKIPPED_TESTS)
+    .add(TEST_SUCCESS_DENSITY)
+    .add(TEST_EXECUTION_TIME)
+    .add(COMPLEXITY)
+    .add(COMPLEXITY_IN_CLASSES)
+    .add(COMPLEXITY_IN_FUNCTIONS)
+    .add(COGNITIVE_COMPLEXITY)
+    .add(FUNCTION_COMPLEXITY_DISTRIBUTION)
+    .add(FILE_COMPLEXITY_DISTRIBUTION)
+    .add(CLASS_COMPLEXITY_DISTRIBUTION)
+    .add(FILE_COMPLEXITY)
+    .add(FILES)
+    .add(CLASS_COMPLEXITY)
+    .add(CLASSES)
+    .add(FUNCTION_COMPLEXITY)
+    .add(FUNCTIONS)
+    .add(GENERATED_LINES)
+    .add(GENERATED_NCLOC)
+    .add(STATEMENTS)
+    .add(DIRECTORIES)
+    .add(LINES)
+    .add(NEW_LINES_TO_COVER)
+    .add(NEW_UNCOVERED_LINES)
+    .add(NEW_CONDITIONS_TO_COVER)
+    .add(NEW_UNCOVERED_CONDITIONS)
+    .add(NEW_COVERAGE)
+    .add(NEW_BRANCH_COVERAGE)
+    .add(NEW_LINE_COVERAGE)
+    .add(COVERAGE_LINE_HITS_DATA)
+    .add(CONDITIONS_BY_LINE)
+    .add(COVERED_CONDITIONS_BY_LINE)
+    .add(COMMENTED_OUT_CODE_LINES)
+    .add(COMMENT_LINES)
+    .add(COMMENT_LINES_DENSITY)
+    .add(PUBLIC_API)
+    .add(PUBLIC_UNDOCUMENTED_API)
+    .add(PUBLIC_DOCUMENTED_API_DENSITY);
+  @Rule
+  public MeasureRepositoryRule measureRepository = MeasureRepositoryRule.create(treeRootHolder, metricRepository);
+  @Rule
+  public DuplicationRepositoryRule duplicationRepository = DuplicationRepositoryRule.create(treeRootHolder);
+
+  private NewLinesRepository newLinesRepository = mock(NewLinesRepository.class);
+  private MapSettings settings = new MapSettings();
+
+  @Test
+  public void execute_formulas_of_all_steps() {
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(10));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(8));
+    measureRepository.addRawMeasure(FILE_1_REF, COMPLEXITY_KEY, newMeasureBuilder().create(3));
+    measureRepository.addRawMeasure(FILE_2_REF, COMPLEXITY_KEY, newMeasureBuilder().create(4));
+    measureRepository.addRawMeasure(FILE_1_REF, TESTS_KEY, newMeasureBuilder().create(5));
+    measureRepository.addRawMeasure(FILE_2_REF, TESTS_KEY, newMeasureBuilder().create(6));
+
+    createStep().execute(new TestComputationStepContext());
+
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_LANGUAGE_DISTRIBUTION_KEY).get().getStringValue()).isEqualTo("java=10;xoo=8");
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, COMPLEXITY_KEY).get().getIntValue()).isEqualTo(7);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, COMPLEXITY_KEY).get().getIntValue()).isEqualTo(7);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, TESTS_KEY).get().getIntValue()).isEqualTo(11);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, TESTS_KEY).get().getIntValue()).isEqualTo(11);
+  }
+
+  @Test
+  public void execute_formulas_of_size_and_comments_in_the_same_traversal() {
+    measureRepository.addRawMeasure(FILE_1_REF, NCLOC_KEY, newMeasureBuilder().create(10));
+    measureRepository.addRawMeasure(FILE_2_REF, NCLOC_KEY, newMeasureBuilder().create(8));
+    measureRepository.addRawMeasure(FILE_1_REF, COMMENT_LINES_KEY, newMeasureBuilder().create(2));
+
+    createStep().execute(new TestComputationStepContext());
+
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, FILES_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, LINES_KEY).get().getIntValue()).isEqualTo(2);
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(18);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, NCLOC_KEY).get().getIntValue()).isEqualTo(18);
+    // density is computed with the number of lines of code aggregated on the same component
+    assertThat(measureRepository.getAddedRawMeasure(DIRECTORY_REF, COMMENT_LINES_DENSITY_KEY).get().getDoubleValue()).isEqualTo(10d);
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, COMMENT_LINES_DENSITY_KEY).get().getDoubleValue()).isEqualTo(10d);
+  }
+
+  @Test
+  public void execute_formulas_with_several_threads() {
+    settings.setProperty(FormulaMeasuresStep.PROPERTY_FORMULAS_THREADS, 4);
+    measureRepository.addRawMeasure(FILE_1_REF, COMPLEXITY_KEY, newMeasureBuilder().create(3));
+    measureRepository.addRawMeasure(FILE_2_REF, COMPLEXITY_KEY, newMeasureBuilder().create(4));
+
+    createStep().execute(new TestComputationStepContext());
+
+    assertThat(measureRepository.getAddedRawMeasure(ROOT_REF, COMPLEXITY_KEY).get().getIntValue()).isEqualTo(7);
+  }
+
+  @Test
+  public void fail_if_number_of_threads_is_less_than_1() {
+    settings.setProperty(FormulaMeasuresStep.PROPERTY_FORMULAS_THREADS, 0);
+
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The property 'sonar.ce.task.formulas.threads' must be an int value >= 1. Got '0'");
+
+    createStep();
+  }
+
+  private FormulaMeasuresStep createStep() {
+    return new FormulaMeasuresStep(treeRootHolder, metricRepository, measureRepository,
+      new SizeMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new NewCoverageMeasuresStep(treeRootHolder, measureRepository, metricRepository, newLinesRepository),
+      new CommentMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new NewSizeMeasuresStep(treeRootHolder, metricRepository, measureRepository, newLinesRepository, duplicationRepository),
+      new LanguageDistributionMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new UnitTestMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      new ComplexityMeasuresStep(treeRootHolder, metricRepository, measureRepository),
+      settings.asConfig());
+  }
+}
@@ -19,12 +19,14 @@
  */
 package org.sonar.ce.task.projectanalysis.util.cache;
 
+import org.apache.commons.lang.StringUtils;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
 import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 
+import java.io.File;
 import java.io.ObjectOutputStream;
 import java.io.Serializable;
 
@@ -52,6 +54,64 @@ public class DiskCacheTest {
     }
   }
 
+  @Test
+  public void write_and_read_with_multiple_appenders() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    cache.newAppender().append("foo").close();
+    cache.newAppender().append("bar").append("baz").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).containsExactly("foo", "bar", "baz");
+    }
+  }
+
+  @Test
+  public void write_and_read_records_spanning_multiple_segments() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    String largeValue = StringUtils.repeat("a", 100_000);
+    DiskCache<String>.DiskAppender appender = cache.newAppender();
+    for (int i = 0; i < 10; i++) {
+      appender.append(largeValue + i);
+    }
+    appender.close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).hasSize(10);
+    }
+  }
+
+  @Test
+  public void write_and_read_records_of_many_appenders_sharing_segments() throws Exception {
+    DiskCache<String> cache = new DiskCache<>(temp.newFile(), System2.INSTANCE);
+    for (int i = 0; i < 1_000; i++) {
+      cache.newAppender().append("a" + i).close();
+    }
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).hasSize(1_000);
+    }
+
+    cache.newAppender().append("b").close();
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).hasSize(1_001).startsWith("a0", "a1").endsWith("a999", "b");
+    }
+  }
+
+  @Test
+  public void records_of_closed_appenders_are_written_in_a_single_segment() throws Exception {
+    File file = temp.newFile();
+    DiskCache<String> cache = new DiskCache<>(file, System2.INSTANCE);
+    for (int i = 0; i < 100; i++) {
+      cache.newAppender().append("a" + i).close();
+    }
+    assertThat(file).hasContent("");
+
+    try (CloseableIterator<String> traverse = cache.traverse()) {
+      assertThat(traverse).hasSize(100);
+    }
+    assertThat(file.length()).isGreaterThan(0L);
+  }
+
   @Test
   public void fail_if_file_is_not_writable() throws Exception {
     try {
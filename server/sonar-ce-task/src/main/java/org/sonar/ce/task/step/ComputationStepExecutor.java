@@ -19,8 +19,20 @@
  */
 package org.sonar.ce.task.step;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
+import org.slf4j.MDC;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.task.CeTaskInterrupter;
@@ -32,9 +44,12 @@ import static java.util.Objects.requireNonNull;
 
 public final class ComputationStepExecutor {
   private static final Logger LOGGER = Loggers.get(ComputationStepExecutor.class);
+  static final String PROPERTY_MAX_CONCURRENT_STEPS = "sonar.ce.task.maxConcurrentSteps";
+  private static final int DEFAULT_MAX_CONCURRENT_STEPS = 1;
 
   private final ComputationSteps steps;
   private final CeTaskInterrupter taskInterrupter;
+  private final int maxConcurrentSteps;
   @CheckForNull
   private final Listener listener;
 
@@ -43,15 +58,37 @@ public final class ComputationStepExecutor {
    * container.
    */
   public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter) {
-    this(steps, taskInterrupter, null);
+    this(steps, taskInterrupter, DEFAULT_MAX_CONCURRENT_STEPS, null);
   }
 
   public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, @Nullable Listener listener) {
+    this(steps, taskInterrupter, DEFAULT_MAX_CONCURRENT_STEPS, listener);
+  }
+
+  /**
+   * Used when no {@link ComputationStepExecutor.Listener} is available in pico
+   * container.
+   */
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, Configuration configuration) {
+    this(steps, taskInterrupter, configuration, null);
+  }
+
+  public ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, Configuration configuration, @Nullable Listener listener) {
+    this(steps, taskInterrupter, maxConcurrentStepsOf(configuration), listener);
+  }
+
+  ComputationStepExecutor(ComputationSteps steps, CeTaskInterrupter taskInterrupter, int maxConcurrentSteps, @Nullable Listener listener) {
+    checkArgument(maxConcurrentSteps >= 1, "The property '%s' must be an int value >= 1. Got '%s'", PROPERTY_MAX_CONCURRENT_STEPS, maxConcurrentSteps);
     this.steps = steps;
     this.taskInterrupter = taskInterrupter;
+    this.maxConcurrentSteps = maxConcurrentSteps;
     this.listener = listener;
   }
 
+  private static int maxConcurrentStepsOf(Configuration configuration) {
+    return configuration.getInt(PROPERTY_MAX_CONCURRENT_STEPS).orElse(DEFAULT_MAX_CONCURRENT_STEPS);
+  }
+
   public void execute() {
     Profiler stepProfiler = Profiler.create(LOGGER).logTimeLast(true);
     boolean allStepsExecuted = false;
@@ -68,16 +105,32 @@ public final class ComputationStepExecutor {
   private void executeSteps(Profiler stepProfiler) {
     StepStatisticsImpl statistics = new StepStatisticsImpl(stepProfiler);
     ComputationStep.Context context = new StepContextImpl(statistics);
-    for (ComputationStep step : steps.instances()) {
-      executeStep(stepProfiler, context, step);
+    if (maxConcurrentSteps == 1) {
+      for (ComputationStep step : steps.instances()) {
+        executeStep(stepProfiler, context, step, Thread.currentThread());
+      }
+      return;
+    }
+
+    ComputationStepGraph graph = new ComputationStepGraph(ImmutableList.copyOf(steps.instances()));
+    Thread ceThread = Thread.currentThread();
+    ExecutorService executorService = Executors.newFixedThreadPool(maxConcurrentSteps,
+      new ThreadFactoryBuilder()
+        .setDaemon(true)
+        .setNameFormat(ceThread.getName() + "-step-%d")
+        .build());
+    try {
+      new ConcurrentStepsRunner(graph, executorService, ceThread, stepProfiler, context).run();
+    } finally {
+      executorService.shutdownNow();
     }
   }
 
-  private void executeStep(Profiler stepProfiler, ComputationStep.Context context, ComputationStep step) {
+  private void executeStep(Profiler stepProfiler, ComputationStep.Context context, ComputationStep step, Thread ceThread) {
     String status = "FAILED";
     stepProfiler.start();
     try {
-      taskInterrupter.check(Thread.currentThread());
+      taskInterrupter.check(ceThread);
       step.execute(context);
       status = "SUCCESS";
     } finally {
@@ -96,6 +149,120 @@ public final class ComputationStepExecutor {
     }
   }
 
+  /**
+   * Executes the steps of a {@link ComputationStepGraph}: {@link ConcurrentComputationStep}s are submitted to the
+   * executor as soon as the steps they depend on are completed, any other step is executed in the CE thread, alone.
+   * <p/>
+   * When a step fails, no more step is started and the failure is thrown once the running steps are completed.
+   */
+  private final class ConcurrentStepsRunner {
+    private final ComputationStepGraph graph;
+    private final CompletionService<Integer> completionService;
+    private final Thread ceThread;
+    private final Profiler stepProfiler;
+    private final ComputationStep.Context context;
+    @CheckForNull
+    private final Map<String, String> mdcContext;
+    private final int[] pendingPredecessorCounts;
+    private final TreeSet<Integer> readySteps = new TreeSet<>();
+    private int runningSteps = 0;
+    private Throwable failure = null;
+
+    private ConcurrentStepsRunner(ComputationStepGraph graph, ExecutorService executorService, Thread ceThread,
+      Profiler stepProfiler, ComputationStep.Context context) {
+      this.graph = graph;
+      this.completionService = new ExecutorCompletionService<>(executorService);
+      this.ceThread = ceThread;
+      this.stepProfiler = stepProfiler;
+      this.context = context;
+      this.mdcContext = MDC.getCopyOfContextMap();
+      this.pendingPredecessorCounts = graph.copyOfPredecessorCounts();
+      for (int i = 0; i < pendingPredecessorCounts.length; i++) {
+        if (pendingPredecessorCounts[i] == 0) {
+          readySteps.add(i);
+        }
+      }
+    }
+
+    private void run() {
+      while ((failure == null && !readySteps.isEmpty()) || runningSteps > 0) {
+        while (failure == null && !readySteps.isEmpty()) {
+          startStep(readySteps.pollFirst());
+        }
+        if (runningSteps > 0) {
+          waitForRunningStep();
+        }
+      }
+      if (failure instanceof RuntimeException) {
+        throw (RuntimeException) failure;
+      }
+      if (failure instanceof Error) {
+        throw (Error) failure;
+      }
+      if (failure != null) {
+        throw new IllegalStateException("Execution of computation step failed", failure);
+      }
+    }
+
+    private void startStep(int index) {
+      ComputationStep step = graph.get(index);
+      if (step instanceof ConcurrentComputationStep) {
+        completionService.submit(() -> {
+          executeInWorkerThread(step);
+          return index;
+        });
+        runningSteps++;
+      } else {
+        // such step conflicts with any other step: all preceding steps are completed and no following step can start
+        executeStep(stepProfiler, context, step, ceThread);
+        markCompleted(index);
+      }
+    }
+
+    private void executeInWorkerThread(ComputationStep step) {
+      if (mdcContext != null) {
+        MDC.setContextMap(mdcContext);
+      }
+      try {
+        Profiler profiler = Profiler.create(LOGGER).logTimeLast(true);
+        executeStep(profiler, new StepContextImpl(new StepStatisticsImpl(profiler)), step, ceThread);
+      } finally {
+        MDC.clear();
+      }
+    }
+
+    private void waitForRunningStep() {
+      Future<Integer> completed;
+      try {
+        completed = completionService.take();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        taskInterrupter.check(ceThread);
+        throw new IllegalStateException("Interrupted while waiting for computation steps to complete", e);
+      }
+      runningSteps--;
+      try {
+        markCompleted(completed.get());
+      } catch (ExecutionException e) {
+        if (failure == null) {
+          failure = e.getCause();
+        }
+      } catch (InterruptedException e) {
+        // can not happen, future is completed
+        Thread.currentThread().interrupt();
+      }
+    }
+
+    private void markCompleted(int index) {
+      for (Integer successor : graph.successorsOf(index)) {
+        pendingPredecessorCounts[successor]--;
+        if (pendingPredecessorCounts[successor] == 0) {
+          readySteps.add(successor);
+        }
+      }
+    }
+  }
+
   @FunctionalInterface
   public interface Listener {
     void finished(boolean allStepsExecuted);
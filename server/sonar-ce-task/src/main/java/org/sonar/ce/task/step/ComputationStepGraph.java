@@ -0,0 +1,86 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.step;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Dependency graph between the {@link ComputationStep}s of a task: a step depends on every preceding step it
+ * conflicts with (see {@link ConcurrentComputationStep}).
+ */
+final class ComputationStepGraph {
+  private final List<ComputationStep> steps;
+  private final int[] predecessorCounts;
+  private final List<List<Integer>> successors;
+
+  ComputationStepGraph(List<ComputationStep> steps) {
+    this.steps = Collections.unmodifiableList(new ArrayList<>(steps));
+    this.predecessorCounts = new int[steps.size()];
+    this.successors = new ArrayList<>(steps.size());
+    for (int i = 0; i < steps.size(); i++) {
+      successors.add(new ArrayList<>());
+    }
+    for (int j = 0; j < steps.size(); j++) {
+      for (int i = 0; i < j; i++) {
+        if (conflict(steps.get(i), steps.get(j))) {
+          successors.get(i).add(j);
+          predecessorCounts[j]++;
+        }
+      }
+    }
+  }
+
+  int size() {
+    return steps.size();
+  }
+
+  ComputationStep get(int index) {
+    return steps.get(index);
+  }
+
+  /**
+   * @return a new array which can be decremented by the caller as steps complete
+   */
+  int[] copyOfPredecessorCounts() {
+    return predecessorCounts.clone();
+  }
+
+  List<Integer> successorsOf(int index) {
+    return successors.get(index);
+  }
+
+  static boolean conflict(ComputationStep a, ComputationStep b) {
+    if (!(a instanceof ConcurrentComputationStep) || !(b instanceof ConcurrentComputationStep)) {
+      return true;
+    }
+    ConcurrentComputationStep first = (ConcurrentComputationStep) a;
+    ConcurrentComputationStep second = (ConcurrentComputationStep) b;
+    return intersect(first.writes(), second.writes())
+      || intersect(first.writes(), second.reads())
+      || intersect(first.reads(), second.writes());
+  }
+
+  private static boolean intersect(Set<Class<?>> a, Set<Class<?>> b) {
+    return !Collections.disjoint(a, b);
+  }
+}
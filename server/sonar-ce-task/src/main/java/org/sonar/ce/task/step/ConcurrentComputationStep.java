@@ -0,0 +1,47 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.step;
+
+import java.util.Set;
+
+/**
+ * A {@link ComputationStep} which declares the holders and repositories it reads and writes, so that
+ * {@link ComputationStepExecutor} can execute it concurrently with other {@link ConcurrentComputationStep}s
+ * it does not conflict with.
+ * <p/>
+ * Two steps conflict when one of them writes a type the other one reads or writes. Conflicting steps are always executed
+ * in the order returned by {@link ComputationSteps#instances()}. Steps which do not implement this interface conflict
+ * with every other step.
+ * <p/>
+ * Types are compared by equality, implementations should therefore declare the interface they are injected with
+ * (eg. {@code TreeRootHolder.class}) rather than the implementation class.
+ */
+public interface ConcurrentComputationStep extends ComputationStep {
+
+  /**
+   * Types of the holders and repositories this step only reads from.
+   */
+  Set<Class<?>> reads();
+
+  /**
+   * Types of the holders and repositories this step populates or modifies, including lazily loaded caches.
+   */
+  Set<Class<?>> writes();
+}
@@ -19,12 +19,18 @@
  */
 package org.sonar.ce.task.step;
 
+import com.google.common.collect.ImmutableSet;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.mockito.InOrder;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.task.CeTaskInterrupter;
@@ -39,6 +45,7 @@ import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -275,6 +282,105 @@ public class ComputationStepExecutorTest {
     inOrder.verifyNoMoreInteractions();
   }
 
+  @Test
+  public void constructor_fails_with_IAE_if_max_concurrent_steps_is_less_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("The property 'sonar.ce.task.maxConcurrentSteps' must be an int value >= 1. Got '0'");
+
+    new ComputationStepExecutor(mockComputationSteps(computationStep1), taskInterrupter,
+      new MapSettings().setProperty("sonar.ce.task.maxConcurrentSteps", 0).asConfig());
+  }
+
+  @Test
+  public void execute_runs_non_conflicting_concurrent_steps_at_the_same_time() {
+    CountDownLatch latch = new CountDownLatch(2);
+    ConcurrentStep step1 = new ConcurrentStep("step1", ImmutableSet.of(String.class), ImmutableSet.of(Integer.class), () -> awaitOther(latch));
+    ConcurrentStep step2 = new ConcurrentStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(Long.class), () -> awaitOther(latch));
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.INFO)) {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, 2, null).execute();
+
+      assertThat(latch.getCount()).isZero();
+      assertThat(logTester.logs(LoggerLevel.INFO))
+        .anyMatch(log -> log.contains("step1 | status=SUCCESS | time="))
+        .anyMatch(log -> log.contains("step2 | status=SUCCESS | time="));
+    }
+  }
+
+  @Test
+  public void execute_runs_conflicting_concurrent_steps_in_order() {
+    List<String> executed = new CopyOnWriteArrayList<>();
+    ConcurrentStep step1 = new ConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> sleepAndAdd(executed, "step1"));
+    ConcurrentStep step2 = new ConcurrentStep("step2", ImmutableSet.of(), ImmutableSet.of(Long.class), () -> sleepAndAdd(executed, "step2"));
+    ConcurrentStep step3 = new ConcurrentStep("step3", ImmutableSet.of(String.class), ImmutableSet.of(), () -> executed.add("step3"));
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), taskInterrupter, 3, null).execute();
+
+    assertThat(executed).containsSubsequence("step1", "step3");
+    assertThat(executed).containsOnly("step1", "step2", "step3");
+  }
+
+  @Test
+  public void execute_runs_non_concurrent_steps_alone_in_current_thread() {
+    Thread currentThread = Thread.currentThread();
+    List<String> executed = new CopyOnWriteArrayList<>();
+    ConcurrentStep step1 = new ConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> sleepAndAdd(executed, "step1"));
+    ComputationStep step2 = new StepWithStatistics("step2") {
+      @Override
+      public void execute(Context context) {
+        assertThat(Thread.currentThread()).isSameAs(currentThread);
+        executed.add("step2");
+      }
+    };
+    ConcurrentStep step3 = new ConcurrentStep("step3", ImmutableSet.of(), ImmutableSet.of(Long.class), () -> {
+      assertThat(Thread.currentThread()).isNotSameAs(currentThread);
+      executed.add("step3");
+    });
+
+    new ComputationStepExecutor(mockComputationSteps(step1, step2, step3), taskInterrupter, 2, null).execute();
+
+    assertThat(executed).containsExactly("step1", "step2", "step3");
+    verify(taskInterrupter, times(3)).check(currentThread);
+  }
+
+  @Test
+  public void execute_throws_exception_of_failed_concurrent_step_and_does_not_start_following_steps() {
+    RuntimeException expected = new RuntimeException("faking step failing with RuntimeException");
+    ConcurrentStep step1 = new ConcurrentStep("step1", ImmutableSet.of(), ImmutableSet.of(String.class), () -> {
+      throw expected;
+    });
+    ConcurrentStep step2 = new ConcurrentStep("step2", ImmutableSet.of(String.class), ImmutableSet.of(), () -> fail("step2 should not be executed"));
+
+    try (ChangeLogLevel executor = new ChangeLogLevel(ComputationStepExecutor.class, LoggerLevel.INFO)) {
+      new ComputationStepExecutor(mockComputationSteps(step1, step2), taskInterrupter, 2, listener).execute();
+      fail("a RuntimeException should have been thrown");
+    } catch (RuntimeException e) {
+      assertThat(e).isSameAs(expected);
+      assertThat(logTester.logs(LoggerLevel.INFO)).anyMatch(log -> log.contains("step1 | status=FAILED | time="));
+      verify(listener).finished(false);
+    }
+  }
+
+  private static void awaitOther(CountDownLatch latch) {
+    latch.countDown();
+    try {
+      assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static void sleepAndAdd(List<String> executed, String stepName) {
+    try {
+      Thread.sleep(50);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException(e);
+    }
+    executed.add(stepName);
+  }
+
   private void runInOtherThread(Runnable r) throws Throwable {
     Throwable[] otherThreadException = new Throwable[1];
     Thread t = new Thread(() -> {
@@ -325,4 +431,38 @@ public class ComputationStepExecutorTest {
       return description;
     }
   }
+
+  private static class ConcurrentStep implements ConcurrentComputationStep {
+    private final String description;
+    private final Set<Class<?>> reads;
+    private final Set<Class<?>> writes;
+    private final Runnable runnable;
+
+    private ConcurrentStep(String description, Set<Class<?>> reads, Set<Class<?>> writes, Runnable runnable) {
+      this.description = description;
+      this.reads = reads;
+      this.writes = writes;
+      this.runnable = runnable;
+    }
+
+    @Override
+    public Set<Class<?>> reads() {
+      return reads;
+    }
+
+    @Override
+    public Set<Class<?>> writes() {
+      return writes;
+    }
+
+    @Override
+    public void execute(Context context) {
+      runnable.run();
+    }
+
+    @Override
+    public String getDescription() {
+      return description;
+    }
+  }
 }
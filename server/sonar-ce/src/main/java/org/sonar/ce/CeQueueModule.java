@@ -19,6 +19,7 @@
  */
 package org.sonar.ce;
 
+import org.sonar.ce.monitoring.CeQueueLatencies;
 import org.sonar.ce.monitoring.CeTasksMBeanImpl;
 import org.sonar.ce.queue.CeQueueInitializer;
 import org.sonar.ce.queue.InternalCeQueueImpl;
@@ -33,6 +34,7 @@ public class CeQueueModule extends Module {
 
       // queue monitoring
       CeTasksMBeanImpl.class,
+      CeQueueLatencies.class,
 
       // init queue state and queue processing
       CeQueueInitializer.class);
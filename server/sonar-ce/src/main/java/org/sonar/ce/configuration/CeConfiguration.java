@@ -37,6 +37,13 @@ public interface CeConfiguration {
    */
   long getQueuePollingDelay();
 
+  /**
+   * The maximum delay in millisecond before a {@link org.sonar.ce.taskprocessor.CeWorker} shall try and find a task
+   * to process. Each time the queue is found empty, the delay is doubled, starting from {@link #getQueuePollingDelay()},
+   * until this value is reached. Equal to {@link #getQueuePollingDelay()} when the delay does not grow.
+   */
+  long getQueueMaxPollingDelay();
+
   /**
    * Delay before running job that cleans CE tasks for the first time (in minutes).
    */
@@ -52,4 +59,17 @@ public interface CeConfiguration {
    */
   int getGracefulStopTimeoutInMs();
 
+  /**
+   * The number of workers, among the {@link #getWorkerCount() workers}, which process in priority the tasks estimated
+   * as large. 0 when workers are not split in lanes.
+   *
+   * @see org.sonar.ce.queue.CeTaskLane
+   */
+  int getLargeTaskWorkerCount();
+
+  /**
+   * Tasks which last execution on the same component lasted at least this delay, in milliseconds, are estimated as large.
+   */
+  long getLargeTaskThresholdInMs();
+
 }
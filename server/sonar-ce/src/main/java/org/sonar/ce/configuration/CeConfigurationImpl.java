@@ -26,12 +26,19 @@ import org.sonar.api.config.Configuration;
 import org.sonar.api.utils.MessageException;
 
 import static java.lang.String.format;
+import static org.sonar.process.ProcessProperties.Property.CLUSTER_ENABLED;
+import static org.sonar.process.ProcessProperties.Property.SONARCLOUD_ENABLED;
 
 /**
  * Immutable implementation of {@link CeConfiguration} which takes value returned by an implementation of
  * {@link WorkerCountProvider}, if any is available, or use the {@link #DEFAULT_WORKER_COUNT default worker count}.
  * In addition, it always returns {@link #DEFAULT_QUEUE_POLLING_DELAY} when
  * {@link CeConfiguration#getQueuePollingDelay()} is called.
+ * <p>
+ * The polling delay of idle workers grows only in a clustered SonarQube instance, where all the submissions of tasks
+ * wake up the workers (see {@link org.sonar.ce.queue.CeQueueSignal}), unless property
+ * {@link #SONAR_CE_QUEUE_MAX_POLLING_DELAY_IN_MS} is set.
+ * </p>
  */
 public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final int DEFAULT_WORKER_THREAD_COUNT = 1;
@@ -39,6 +46,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   private static final int DEFAULT_WORKER_COUNT = 1;
   // 2 seconds
   private static final long DEFAULT_QUEUE_POLLING_DELAY = 2 * 1000L;
+  // 1 minute
+  private static final long DEFAULT_CLUSTER_QUEUE_MAX_POLLING_DELAY = 60 * 1000L;
+  public static final String SONAR_CE_QUEUE_MAX_POLLING_DELAY_IN_MS = "sonar.ce.queueMaxPollingDelayInMs";
   // 0 minute
   private static final long CANCEL_WORN_OUTS_INITIAL_DELAY = 0;
   // 2 minutes
@@ -46,11 +56,18 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   // 40 seconds
   private static final int GRACEFUL_STOP_TIMEOUT = 40;
   public static final String SONAR_CE_GRACEFUL_STOP_TIME_OUT_IN_MS = "sonar.ce.gracefulStopTimeOutInMs";
+  // 5 minutes
+  private static final long DEFAULT_LARGE_TASK_THRESHOLD = 5 * 60 * 1000L;
+  public static final String SONAR_CE_LARGE_TASK_WORKER_SHARE = "sonar.ce.largeTaskWorkerShare";
+  public static final String SONAR_CE_LARGE_TASK_THRESHOLD_IN_MS = "sonar.ce.largeTaskThresholdInMs";
 
   @CheckForNull
   private final WorkerCountProvider workerCountProvider;
   private final int workerThreadCount;
   private final int gracefultStopTimeoutInMs;
+  private final double largeTaskWorkerShare;
+  private final long largeTaskThresholdInMs;
+  private final long queueMaxPollingDelay;
   private int workerCount;
 
   public CeConfigurationImpl(Configuration configuration) {
@@ -60,6 +77,9 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
   public CeConfigurationImpl(Configuration configuration, @Nullable WorkerCountProvider workerCountProvider) {
     this.workerCountProvider = workerCountProvider;
     this.gracefultStopTimeoutInMs = configuration.getInt(SONAR_CE_GRACEFUL_STOP_TIME_OUT_IN_MS).orElse(GRACEFUL_STOP_TIMEOUT);
+    this.largeTaskWorkerShare = readLargeTaskWorkerShare(configuration);
+    this.largeTaskThresholdInMs = configuration.getLong(SONAR_CE_LARGE_TASK_THRESHOLD_IN_MS).orElse(DEFAULT_LARGE_TASK_THRESHOLD);
+    this.queueMaxPollingDelay = readQueueMaxPollingDelay(configuration);
     if (workerCountProvider == null) {
       this.workerCount = DEFAULT_WORKER_COUNT;
       this.workerThreadCount = DEFAULT_WORKER_THREAD_COUNT;
@@ -77,6 +97,29 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return value;
   }
 
+  private static double readLargeTaskWorkerShare(Configuration configuration) {
+    double value = configuration.getDouble(SONAR_CE_LARGE_TASK_WORKER_SHARE).orElse(0d);
+    if (value < 0 || value >= 1) {
+      throw MessageException.of(format(
+        "Property %s must be a number greater or equal to 0 and less than 1. Got '%s'",
+        SONAR_CE_LARGE_TASK_WORKER_SHARE, value));
+    }
+    return value;
+  }
+
+  private static long readQueueMaxPollingDelay(Configuration configuration) {
+    boolean cluster = configuration.getBoolean(CLUSTER_ENABLED.getKey()).orElse(false)
+      && !configuration.getBoolean(SONARCLOUD_ENABLED.getKey()).orElse(false);
+    long value = configuration.getLong(SONAR_CE_QUEUE_MAX_POLLING_DELAY_IN_MS)
+      .orElse(cluster ? DEFAULT_CLUSTER_QUEUE_MAX_POLLING_DELAY : DEFAULT_QUEUE_POLLING_DELAY);
+    if (value < DEFAULT_QUEUE_POLLING_DELAY) {
+      throw MessageException.of(format(
+        "Property %s must be a number greater or equal to %s. Got '%s'",
+        SONAR_CE_QUEUE_MAX_POLLING_DELAY_IN_MS, DEFAULT_QUEUE_POLLING_DELAY, value));
+    }
+    return value;
+  }
+
   private static MessageException parsingError(int value) {
     return MessageException.of(format(
       "Worker count '%s' is invalid. It must be an integer strictly greater than 0 and less or equal to 10",
@@ -111,6 +154,11 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return DEFAULT_QUEUE_POLLING_DELAY;
   }
 
+  @Override
+  public long getQueueMaxPollingDelay() {
+    return queueMaxPollingDelay;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return CANCEL_WORN_OUTS_INITIAL_DELAY;
@@ -126,4 +174,22 @@ public class CeConfigurationImpl implements CeConfiguration, Startable {
     return gracefultStopTimeoutInMs;
   }
 
+  /**
+   * Share of the workers defined by property {@link #SONAR_CE_LARGE_TASK_WORKER_SHARE}, rounded. At least one worker
+   * processes large tasks and at least one worker processes small tasks when the share is not 0.
+   */
+  @Override
+  public int getLargeTaskWorkerCount() {
+    int count = getWorkerCount();
+    if (largeTaskWorkerShare == 0 || count < 2) {
+      return 0;
+    }
+    return Math.max(1, Math.min(count - 1, (int) Math.round(count * largeTaskWorkerShare)));
+  }
+
+  @Override
+  public long getLargeTaskThresholdInMs() {
+    return largeTaskThresholdInMs;
+  }
+
 }
@@ -59,7 +59,9 @@ import org.sonar.ce.platform.CECoreExtensionsInstaller;
 import org.sonar.ce.platform.ComputeEngineExtensionInstaller;
 import org.sonar.ce.platform.DatabaseCompatibility;
 import org.sonar.ce.queue.CeQueueCleaner;
+import org.sonar.ce.queue.DistributedCeQueueSignal;
 import org.sonar.ce.queue.PurgeCeActivities;
+import org.sonar.ce.queue.StandaloneCeQueueSignal;
 import org.sonar.ce.task.projectanalysis.ProjectAnalysisTaskModule;
 import org.sonar.ce.task.projectanalysis.analysis.ProjectConfigurationFactory;
 import org.sonar.ce.task.projectanalysis.issue.AdHocRuleCreator;
@@ -459,6 +461,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       container.add(
         NoopCeCleaningSchedulerImpl.class,
         StandaloneCeDistributedInformation.class,
+        StandaloneCeQueueSignal.class,
         CEQueueStatusImpl.class);
     } else if (props.valueAsBoolean(CLUSTER_ENABLED.getKey())) {
       container.add(
@@ -466,6 +469,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
 
         // system health
         CeDistributedInformationImpl.class,
+        DistributedCeQueueSignal.class,
 
         // system info
         DbSection.class,
@@ -476,6 +480,7 @@ public class ComputeEngineContainerImpl implements ComputeEngineContainer {
       container.add(
         CeCleaningModule.class,
         StandaloneCeDistributedInformation.class,
+        StandaloneCeQueueSignal.class,
         CEQueueStatusImpl.class);
     }
   }
@@ -0,0 +1,87 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.monitoring;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Map;
+import org.sonar.api.ce.ComputeEngineSide;
+import org.sonar.ce.queue.CeTaskLane;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Time spent by the last peeked tasks waiting in the queue, by {@link CeTaskLane lane}.
+ */
+@ComputeEngineSide
+public class CeQueueLatencies {
+
+  private static final int MAX_LATENCIES_BY_LANE = 1_000;
+
+  private final Map<CeTaskLane, Latencies> latenciesByLane = new EnumMap<>(CeTaskLane.class);
+
+  public CeQueueLatencies() {
+    for (CeTaskLane lane : CeTaskLane.values()) {
+      latenciesByLane.put(lane, new Latencies());
+    }
+  }
+
+  /**
+   * @param latencyInMs time spent in the queue by a task of the specified lane, before being peeked by a worker
+   */
+  public void add(CeTaskLane lane, long latencyInMs) {
+    latenciesByLane.get(lane).add(Math.max(0, latencyInMs));
+  }
+
+  /**
+   * @param percentile a number between 0 and 100
+   * @return the specified percentile of the last latencies of the specified lane, in milliseconds, or 0 if no task
+   * of this lane has been peeked
+   */
+  public long getPercentile(CeTaskLane lane, double percentile) {
+    checkArgument(percentile >= 0 && percentile <= 100, "Percentile must be between 0 and 100. Got %s", percentile);
+    return latenciesByLane.get(lane).getPercentile(percentile);
+  }
+
+  /**
+   * Circular buffer of the last {@link #MAX_LATENCIES_BY_LANE} latencies.
+   */
+  private static class Latencies {
+    private final long[] values = new long[MAX_LATENCIES_BY_LANE];
+    private int count = 0;
+    private int next = 0;
+
+    private synchronized void add(long latencyInMs) {
+      values[next] = latencyInMs;
+      next = (next + 1) % values.length;
+      count = Math.min(count + 1, values.length);
+    }
+
+    private synchronized long getPercentile(double percentile) {
+      if (count == 0) {
+        return 0L;
+      }
+      long[] sorted = Arrays.copyOf(values, count);
+      Arrays.sort(sorted);
+      int rank = (int) Math.ceil(percentile / 100 * count);
+      return sorted[Math.max(0, rank - 1)];
+    }
+  }
+}
@@ -20,6 +20,7 @@
 package org.sonar.ce.monitoring;
 
 import java.util.List;
+import java.util.Map;
 
 public interface CeTasksMBean {
 
@@ -63,4 +64,15 @@ public interface CeTasksMBean {
   List<String> getWorkerUuids();
 
   List<String> getEnabledWorkerUuids();
+
+  /**
+   * Percentiles p50, p95 and p99 of the time, in milliseconds, spent in the queue by the last tasks estimated to be
+   * small. Only tasks peeked while workers are split into lanes are taken into account.
+   */
+  Map<String, Long> getSmallTasksQueueLatencies();
+
+  /**
+   * Same as {@link #getSmallTasksQueueLatencies()} for tasks estimated to be large.
+   */
+  Map<String, Long> getLargeTasksQueueLatencies();
 }
@@ -19,11 +19,14 @@
  */
 package org.sonar.ce.monitoring;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 import org.picocontainer.Startable;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeTaskLane;
 import org.sonar.ce.taskprocessor.CeWorker;
 import org.sonar.ce.taskprocessor.CeWorkerController;
 import org.sonar.ce.taskprocessor.CeWorkerFactory;
@@ -36,12 +39,15 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
   private final CeConfiguration ceConfiguration;
   private final CeWorkerFactory ceWorkerFactory;
   private final CeWorkerController ceWorkerController;
+  private final CeQueueLatencies queueLatencies;
 
-  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeWorkerFactory ceWorkerFactory, CeWorkerController CeWorkerController) {
+  public CeTasksMBeanImpl(CEQueueStatus queueStatus, CeConfiguration ceConfiguration, CeWorkerFactory ceWorkerFactory, CeWorkerController CeWorkerController,
+    CeQueueLatencies queueLatencies) {
     this.queueStatus = queueStatus;
     this.ceConfiguration = ceConfiguration;
     this.ceWorkerFactory = ceWorkerFactory;
     this.ceWorkerController = CeWorkerController;
+    this.queueLatencies = queueLatencies;
   }
 
   @Override
@@ -111,6 +117,24 @@ public class CeTasksMBeanImpl implements CeTasksMBean, Startable, SystemInfoSect
       .collect(Collectors.toList());
   }
 
+  @Override
+  public Map<String, Long> getSmallTasksQueueLatencies() {
+    return getQueueLatencies(CeTaskLane.SMALL);
+  }
+
+  @Override
+  public Map<String, Long> getLargeTasksQueueLatencies() {
+    return getQueueLatencies(CeTaskLane.LARGE);
+  }
+
+  private Map<String, Long> getQueueLatencies(CeTaskLane lane) {
+    Map<String, Long> res = new LinkedHashMap<>();
+    res.put("p50", queueLatencies.getPercentile(lane, 50));
+    res.put("p95", queueLatencies.getPercentile(lane, 95));
+    res.put("p99", queueLatencies.getPercentile(lane, 99));
+    return res;
+  }
+
   @Override
   public ProtobufSystemInfo.Section toProtobuf() {
     ProtobufSystemInfo.Section.Builder builder = ProtobufSystemInfo.Section.newBuilder();
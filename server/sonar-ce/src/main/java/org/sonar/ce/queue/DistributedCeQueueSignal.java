@@ -0,0 +1,78 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.spi.exception.RetryableHazelcastException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import javax.annotation.CheckForNull;
+import org.picocontainer.Startable;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMISSIONS;
+
+/**
+ * {@link CeQueueSignal} of a clustered SonarQube instance: submissions done by any node of the cluster are published on
+ * a Hazelcast topic, to which every Compute Engine node subscribes.
+ */
+public class DistributedCeQueueSignal implements CeQueueSignal, Startable {
+  private final HazelcastMember hazelcastMember;
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+  @CheckForNull
+  private String registrationId;
+
+  public DistributedCeQueueSignal(HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  @Override
+  public void start() {
+    registrationId = getTopic().addMessageListener(message -> listeners.forEach(Runnable::run));
+  }
+
+  @Override
+  public void stop() {
+    if (registrationId == null) {
+      return;
+    }
+    try {
+      getTopic().removeMessageListener(registrationId);
+    } catch (RetryableHazelcastException e) {
+      Loggers.get(DistributedCeQueueSignal.class).debug("Unable to unsubscribe from submissions to the queue: {}", e.getMessage());
+    }
+    registrationId = null;
+  }
+
+  @Override
+  public void addWakeUpListener(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  @Override
+  public void onSubmit() {
+    getTopic().publish(hazelcastMember.getUuid());
+  }
+
+  private ITopic<String> getTopic() {
+    return hazelcastMember.getTopic(CE_QUEUE_SUBMISSIONS);
+  }
+}
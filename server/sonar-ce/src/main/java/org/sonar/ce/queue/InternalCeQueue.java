@@ -49,6 +49,13 @@ public interface InternalCeQueue extends CeQueue {
    */
   Optional<CeTask> peek(String workerUuid);
 
+  /**
+   * Same as {@link #peek(String)}, but the oldest task estimated to belong to the specified {@link CeTaskLane lane}
+   * is preferred. When there is no such task, the oldest task of the other lane is peeked instead, so that
+   * workers of a lane never stay idle while tasks are waiting in the other one.
+   */
+  Optional<CeTask> peek(String workerUuid, CeTaskLane lane);
+
   /**
    * Removes all the tasks from the queue, whatever their status. They are marked
    * as {@link Status#CANCELED} in past activity.
@@ -23,18 +23,24 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.PrintWriter;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Stream;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.ce.ComputeEngineSide;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.configuration.CeConfiguration;
 import org.sonar.ce.container.ComputeEngineStatus;
 import org.sonar.ce.monitoring.CEQueueStatus;
+import org.sonar.ce.monitoring.CeQueueLatencies;
 import org.sonar.ce.task.CeTask;
 import org.sonar.ce.task.CeTaskResult;
 import org.sonar.ce.task.TypedException;
@@ -50,32 +56,55 @@ import org.sonar.db.component.ComponentDto;
 import org.sonar.server.organization.DefaultOrganizationProvider;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Strings.nullToEmpty;
 import static java.lang.String.format;
 import static java.util.Collections.singletonList;
 import static java.util.Objects.requireNonNull;
 import static java.util.Optional.ofNullable;
+import static java.util.stream.Collectors.toList;
 import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 
 @ComputeEngineSide
 public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue {
   private static final Logger LOG = Loggers.get(InternalCeQueueImpl.class);
+  /**
+   * Number of the oldest eligible tasks among which a task of the lane of the worker is searched for.
+   */
+  private static final int MAX_ELIGIBLE_TASKS_FOR_LANES = 10;
 
+  private final System2 system2;
   private final DbClient dbClient;
   private final CEQueueStatus queueStatus;
   private final ComputeEngineStatus computeEngineStatus;
+  private final CeConfiguration ceConfiguration;
+  private final CeQueueLatencies queueLatencies;
 
   public InternalCeQueueImpl(System2 system2, DbClient dbClient, UuidFactory uuidFactory, CEQueueStatus queueStatus,
-    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus) {
-    super(system2, dbClient, uuidFactory, defaultOrganizationProvider);
+    DefaultOrganizationProvider defaultOrganizationProvider, ComputeEngineStatus computeEngineStatus,
+    CeConfiguration ceConfiguration, CeQueueLatencies queueLatencies, CeQueueSignal queueSignal) {
+    super(system2, dbClient, uuidFactory, defaultOrganizationProvider, new CeQueueListener[] {queueSignal});
+    this.system2 = system2;
     this.dbClient = dbClient;
     this.queueStatus = queueStatus;
     this.computeEngineStatus = computeEngineStatus;
+    this.ceConfiguration = ceConfiguration;
+    this.queueLatencies = queueLatencies;
   }
 
   @Override
   public Optional<CeTask> peek(String workerUuid) {
     requireNonNull(workerUuid, "workerUuid can't be null");
+    return peek(workerUuid, dbSession -> dbClient.ceQueueDao().peek(dbSession, workerUuid));
+  }
 
+  @Override
+  public Optional<CeTask> peek(String workerUuid, CeTaskLane lane) {
+    requireNonNull(workerUuid, "workerUuid can't be null");
+    requireNonNull(lane, "lane can't be null");
+    return peek(workerUuid, dbSession -> peekInLane(dbSession, workerUuid, lane));
+  }
+
+  private Optional<CeTask> peek(String workerUuid, Function<DbSession, Optional<CeQueueDto>> peeker) {
     if (computeEngineStatus.getStatus() != ComputeEngineStatus.Status.STARTED || getWorkersPauseStatus() != WorkersPauseStatus.RESUMED) {
       return Optional.empty();
     }
@@ -86,7 +115,7 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
         dbSession.commit();
         LOG.debug("{} in progress tasks reset for worker uuid {}", i, workerUuid);
       }
-      Optional<CeQueueDto> opt = ceQueueDao.peek(dbSession, workerUuid);
+      Optional<CeQueueDto> opt = peeker.apply(dbSession);
       if (opt.isPresent()) {
         CeQueueDto taskDto = opt.get();
         Map<String, ComponentDto> componentsByUuid = loadComponentDtos(dbSession, taskDto);
@@ -103,6 +132,87 @@ public class InternalCeQueueImpl extends CeQueueImpl implements InternalCeQueue
     }
   }
 
+  /**
+   * Peeks the oldest eligible task of the specified lane or, if there is none, the oldest eligible task of the other
+   * lane. Tasks are looked for among the {@link #MAX_ELIGIBLE_TASKS_FOR_LANES} oldest eligible tasks only.
+   */
+  private Optional<CeQueueDto> peekInLane(DbSession dbSession, String workerUuid, CeTaskLane lane) {
+    CeQueueDao ceQueueDao = dbClient.ceQueueDao();
+    List<CeQueueDto> eligibles = oldestByMainComponent(ceQueueDao.selectEligibleForPeek(dbSession, MAX_ELIGIBLE_TASKS_FOR_LANES));
+    if (eligibles.isEmpty()) {
+      return Optional.empty();
+    }
+
+    Map<String, CeTaskLane> lanesByTaskUuid = estimateLanes(dbSession, eligibles);
+    List<CeQueueDto> candidates = Stream.concat(
+      eligibles.stream().filter(t -> lanesByTaskUuid.get(t.getUuid()) == lane),
+      eligibles.stream().filter(t -> lanesByTaskUuid.get(t.getUuid()) != lane))
+      .collect(toList());
+    for (CeQueueDto candidate : candidates) {
+      Optional<CeQueueDto> peeked = ceQueueDao.tryToPeek(dbSession, candidate.getUuid(), workerUuid);
+      if (peeked.isPresent()) {
+        queueLatencies.add(lanesByTaskUuid.get(candidate.getUuid()), system2.now() - candidate.getCreatedAt());
+        return peeked;
+      }
+    }
+    return Optional.empty();
+  }
+
+  /**
+   * Tasks of a given project must be processed in order, whatever their lane: only the oldest eligible task of each
+   * main component is kept.
+   */
+  private static List<CeQueueDto> oldestByMainComponent(List<CeQueueDto> eligibles) {
+    Set<String> mainComponentUuids = new HashSet<>();
+    return eligibles.stream()
+      .filter(t -> t.getMainComponentUuid() == null || mainComponentUuids.add(t.getMainComponentUuid()))
+      .collect(toList());
+  }
+
+  /**
+   * A task is estimated to be large when the last execution of a task of the same type on the same component (or,
+   * if there is none, on the same main component) took at least {@link CeConfiguration#getLargeTaskThresholdInMs()}.
+   * Tasks without history are estimated to be small.
+   */
+  private Map<String, CeTaskLane> estimateLanes(DbSession dbSession, List<CeQueueDto> tasks) {
+    Set<String> isLastKeys = new HashSet<>();
+    Set<String> mainIsLastKeys = new HashSet<>();
+    tasks.forEach(t -> {
+      isLastKeys.add(isLastKey(t.getTaskType(), t.getComponentUuid()));
+      mainIsLastKeys.add(isLastKey(t.getTaskType(), t.getMainComponentUuid()));
+    });
+
+    Map<String, Long> executionTimesByIsLastKey = new HashMap<>();
+    Map<String, Long> executionTimesByMainIsLastKey = new HashMap<>();
+    for (CeActivityDto activity : dbClient.ceActivityDao().selectLastExecutionTimesByIsLastKeys(dbSession, isLastKeys, mainIsLastKeys)) {
+      Long executionTimeMs = activity.getExecutionTimeMs();
+      if (executionTimeMs == null) {
+        continue;
+      }
+      if (activity.getIsLast()) {
+        executionTimesByIsLastKey.put(activity.getIsLastKey(), executionTimeMs);
+      }
+      if (activity.getMainIsLast()) {
+        executionTimesByMainIsLastKey.put(activity.getMainIsLastKey(), executionTimeMs);
+      }
+    }
+
+    long threshold = ceConfiguration.getLargeTaskThresholdInMs();
+    Map<String, CeTaskLane> res = new HashMap<>();
+    for (CeQueueDto task : tasks) {
+      Long executionTimeMs = executionTimesByIsLastKey.get(isLastKey(task.getTaskType(), task.getComponentUuid()));
+      if (executionTimeMs == null) {
+        executionTimeMs = executionTimesByMainIsLastKey.get(isLastKey(task.getTaskType(), task.getMainComponentUuid()));
+      }
+      res.put(task.getUuid(), executionTimeMs != null && executionTimeMs >= threshold ? CeTaskLane.LARGE : CeTaskLane.SMALL);
+    }
+    return res;
+  }
+
+  private static String isLastKey(String taskType, @Nullable String componentUuid) {
+    return format("%s%s", taskType, nullToEmpty(componentUuid));
+  }
+
   @Override
   public int clear() {
     return cancelAll(true);
@@ -22,34 +22,44 @@ package org.sonar.ce.taskprocessor;
 import com.google.common.util.concurrent.FutureCallback;
 import com.google.common.util.concurrent.Futures;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.common.util.concurrent.ListenableScheduledFuture;
+import java.util.concurrent.Callable;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeQueueSignal;
 
-import static com.google.common.util.concurrent.Futures.addCallback;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+/**
+ * Runs the workers in chain. A worker which did not find any task in the queue polls it again after a delay, which
+ * doubles each time the queue is found empty, up to {@link CeConfiguration#getQueueMaxPollingDelay()}. Idle workers are
+ * woken up as soon as tasks are submitted, through {@link CeQueueSignal}.
+ */
 public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private static final Logger LOG = Loggers.get(CeProcessingSchedulerImpl.class);
   private static final long DELAY_BETWEEN_DISABLED_TASKS = 30 * 1000L; // 30 seconds
 
   private final CeProcessingSchedulerExecutorService executorService;
   private final long delayBetweenEnabledTasks;
+  private final long maxDelayBetweenEnabledTasks;
   private final TimeUnit timeUnit;
   private final ChainingCallback[] chainingCallbacks;
   private final CeWorkerController ceWorkerController;
   private final int gracefulStopTimeoutInMs;
+  private final CeQueueSignal queueSignal;
 
   public CeProcessingSchedulerImpl(CeConfiguration ceConfiguration,
     CeProcessingSchedulerExecutorService processingExecutorService, CeWorkerFactory ceCeWorkerFactory,
-    CeWorkerController ceWorkerController) {
+    CeWorkerController ceWorkerController, CeQueueSignal queueSignal) {
     this.executorService = processingExecutorService;
+    this.queueSignal = queueSignal;
 
     this.delayBetweenEnabledTasks = ceConfiguration.getQueuePollingDelay();
+    this.maxDelayBetweenEnabledTasks = Math.max(delayBetweenEnabledTasks, ceConfiguration.getQueueMaxPollingDelay());
     this.gracefulStopTimeoutInMs = ceConfiguration.getGracefulStopTimeoutInMs();
     this.ceWorkerController = ceWorkerController;
     this.timeUnit = MILLISECONDS;
@@ -65,8 +75,14 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   @Override
   public void startScheduling() {
     for (ChainingCallback chainingCallback : chainingCallbacks) {
-      ListenableScheduledFuture<CeWorker.Result> future = executorService.schedule(chainingCallback.worker, delayBetweenEnabledTasks, timeUnit);
-      addCallback(future, chainingCallback);
+      chainingCallback.start();
+    }
+    queueSignal.addWakeUpListener(this::wakeUpWorkers);
+  }
+
+  private void wakeUpWorkers() {
+    for (ChainingCallback chainingCallback : chainingCallbacks) {
+      chainingCallback.wakeUp();
     }
   }
 
@@ -107,16 +123,28 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
   private class ChainingCallback implements FutureCallback<CeWorker.Result> {
     private volatile boolean keepRunning = true;
     private final CeWorker worker;
+    private long idleDelay;
+    /**
+     * Whether tasks were submitted while the worker was not waiting for its next polling of the queue
+     */
+    private boolean wokenUp = false;
 
     @CheckForNull
     private ListenableFuture<CeWorker.Result> workerFuture;
+    @CheckForNull
+    private IdlePoll idlePoll;
 
     public ChainingCallback(CeWorker worker) {
       this.worker = worker;
+      this.idleDelay = delayBetweenEnabledTasks;
+    }
+
+    public synchronized void start() {
+      chainWithEnabledTaskDelay();
     }
 
     @Override
-    public void onSuccess(@Nullable CeWorker.Result result) {
+    public synchronized void onSuccess(@Nullable CeWorker.Result result) {
       if (keepRunning) {
         if (result == null) {
           chainWithEnabledTaskDelay();
@@ -130,6 +158,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
               break;
             case TASK_PROCESSED:
             default:
+              idleDelay = delayBetweenEnabledTasks;
               chainWithoutDelay();
           }
         }
@@ -137,7 +166,7 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
     }
 
     @Override
-    public void onFailure(Throwable t) {
+    public synchronized void onFailure(Throwable t) {
       if (t instanceof Error) {
         LOG.error("Compute Engine execution failed. Scheduled processing interrupted.", t);
       } else if (keepRunning) {
@@ -145,32 +174,122 @@ public class CeProcessingSchedulerImpl implements CeProcessingScheduler {
       }
     }
 
+    /**
+     * Polls the queue right away if the worker is waiting for its next polling. Otherwise, the worker polls the queue
+     * right away once its current execution is over.
+     */
+    public synchronized void wakeUp() {
+      if (!keepRunning) {
+        return;
+      }
+      ListenableFuture<CeWorker.Result> idleFuture = workerFuture;
+      if (idlePoll != null && idleFuture != null && idlePoll.claim()) {
+        idleDelay = delayBetweenEnabledTasks;
+        chainWithoutDelay();
+        // callbacks of the cancelled future are ignored as it is not the current one anymore
+        idleFuture.cancel(false);
+      } else {
+        wokenUp = true;
+      }
+    }
+
     private void chainWithoutDelay() {
+      wokenUp = false;
+      idlePoll = null;
       workerFuture = executorService.submit(worker);
       addCallback();
     }
 
     private void chainWithEnabledTaskDelay() {
-      workerFuture = executorService.schedule(worker, delayBetweenEnabledTasks, timeUnit);
+      if (wokenUp) {
+        idleDelay = delayBetweenEnabledTasks;
+        chainWithoutDelay();
+        return;
+      }
+      idlePoll = new IdlePoll(worker);
+      workerFuture = executorService.schedule(idlePoll, idleDelay, timeUnit);
+      idleDelay = Math.min(idleDelay * 2, maxDelayBetweenEnabledTasks);
       addCallback();
     }
 
     private void chainWithDisabledTaskDelay() {
+      idlePoll = null;
       workerFuture = executorService.schedule(worker, DELAY_BETWEEN_DISABLED_TASKS, timeUnit);
       addCallback();
     }
 
     private void addCallback() {
-      if (workerFuture != null) {
-        Futures.addCallback(workerFuture, this);
+      ListenableFuture<CeWorker.Result> future = workerFuture;
+      if (future != null) {
+        Futures.addCallback(future, new CurrentFutureCallback(future));
+      }
+    }
+
+    /**
+     * Forwards to {@link ChainingCallback} the outcome of a future only if it is still the current one of the worker.
+     */
+    private final class CurrentFutureCallback implements FutureCallback<CeWorker.Result> {
+      private final ListenableFuture<CeWorker.Result> future;
+
+      private CurrentFutureCallback(ListenableFuture<CeWorker.Result> future) {
+        this.future = future;
+      }
+
+      @Override
+      public void onSuccess(@Nullable CeWorker.Result result) {
+        synchronized (ChainingCallback.this) {
+          if (future == workerFuture) {
+            ChainingCallback.this.onSuccess(result);
+          }
+        }
+      }
+
+      @Override
+      public void onFailure(Throwable t) {
+        synchronized (ChainingCallback.this) {
+          if (future == workerFuture) {
+            ChainingCallback.this.onFailure(t);
+          }
+        }
       }
     }
 
-    public void stop(boolean interrupt) {
+    public synchronized void stop(boolean interrupt) {
       keepRunning = false;
       if (workerFuture != null) {
         workerFuture.cancel(interrupt);
       }
     }
   }
+
+  /**
+   * Delayed polling of the queue by an idle worker. It is run either by the executor, once the delay is over, or
+   * replaced by a polling without delay when the worker is woken up, whichever claims it first. This guarantees the
+   * worker is never run twice at the same time.
+   */
+  static final class IdlePoll implements Callable<CeWorker.Result> {
+    private final CeWorker worker;
+    private final AtomicBoolean claimed = new AtomicBoolean(false);
+
+    IdlePoll(CeWorker worker) {
+      this.worker = worker;
+    }
+
+    CeWorker getWorker() {
+      return worker;
+    }
+
+    private boolean claim() {
+      return claimed.compareAndSet(false, true);
+    }
+
+    @Override
+    public CeWorker.Result call() throws Exception {
+      if (claim()) {
+        return worker.call();
+      }
+      // claimed by a wake-up, the result of this future is ignored
+      return CeWorker.Result.NO_TASK;
+    }
+  }
 }
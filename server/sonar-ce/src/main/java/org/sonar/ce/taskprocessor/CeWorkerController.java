@@ -20,6 +20,7 @@
 package org.sonar.ce.taskprocessor;
 
 import java.util.Optional;
+import org.sonar.ce.queue.CeTaskLane;
 
 /**
  * This class is responsible of knowing/deciding which {@link CeWorker} is enabled and should actually try and find a
@@ -44,6 +45,11 @@ public interface CeWorkerController {
    */
   boolean isEnabled(CeWorker ceWorker);
 
+  /**
+   * Returns the lane of tasks the specified {@link CeWorker} processes in priority, if workers are split in lanes.
+   */
+  Optional<CeTaskLane> getLane(CeWorker ceWorker);
+
   /**
    * @return the {@link CeWorker} running in the specified {@link Thread}, if any.
    */
@@ -23,6 +23,7 @@ import java.util.Optional;
 import java.util.concurrent.ConcurrentHashMap;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeTaskLane;
 
 public class CeWorkerControllerImpl implements CeWorkerController {
   private final ConcurrentHashMap<CeWorker, Status> workerStatuses = new ConcurrentHashMap<>();
@@ -72,6 +73,20 @@ public class CeWorkerControllerImpl implements CeWorkerController {
     return ceWorker.getOrdinal() < ceConfiguration.getWorkerCount();
   }
 
+  /**
+   * The last {@link CeConfiguration#getLargeTaskWorkerCount()} enabled workers process large tasks in priority, the other
+   * ones process small tasks in priority.
+   */
+  @Override
+  public Optional<CeTaskLane> getLane(CeWorker ceWorker) {
+    int largeTaskWorkerCount = ceConfiguration.getLargeTaskWorkerCount();
+    if (largeTaskWorkerCount == 0) {
+      return Optional.empty();
+    }
+    int smallTaskWorkerCount = ceConfiguration.getWorkerCount() - largeTaskWorkerCount;
+    return Optional.of(ceWorker.getOrdinal() < smallTaskWorkerCount ? CeTaskLane.SMALL : CeTaskLane.LARGE);
+  }
+
   private class ProcessingRecorderHookImpl implements ProcessingRecorderHook {
     private final CeWorker ceWorker;
 
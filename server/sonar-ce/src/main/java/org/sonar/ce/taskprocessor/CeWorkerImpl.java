@@ -32,6 +32,7 @@ import javax.annotation.Nullable;
 import org.sonar.api.utils.MessageException;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.ce.queue.CeTaskLane;
 import org.sonar.ce.queue.InternalCeQueue;
 import org.sonar.ce.task.CeTask;
 import org.sonar.ce.task.CeTaskInterruptedException;
@@ -162,6 +163,10 @@ public class CeWorkerImpl implements CeWorker {
 
   private Optional<CeTask> tryAndFindTaskToExecute() {
     try {
+      Optional<CeTaskLane> lane = ceWorkerController.getLane(this);
+      if (lane.isPresent()) {
+        return queue.peek(uuid, lane.get());
+      }
       return queue.peek(uuid);
     } catch (Exception e) {
       LOG.error("Failed to pop the queue of analysis reports", e);
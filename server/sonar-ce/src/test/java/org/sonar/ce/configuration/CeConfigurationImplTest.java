@@ -116,6 +116,77 @@ public class CeConfigurationImplTest {
       .isEqualTo(2L);
   }
 
+  @Test
+  public void getLargeTaskWorkerCount_returns_0_by_default() {
+    workerCountProvider.set(4);
+
+    assertThat(new CeConfigurationImpl(EMPTY_CONFIGURATION, workerCountProvider).getLargeTaskWorkerCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void getLargeTaskWorkerCount_returns_share_of_workers() {
+    workerCountProvider.set(4);
+
+    assertThat(new CeConfigurationImpl(configurationWithLargeTaskWorkerShare("0.5"), workerCountProvider).getLargeTaskWorkerCount()).isEqualTo(2);
+    assertThat(new CeConfigurationImpl(configurationWithLargeTaskWorkerShare("0.1"), workerCountProvider).getLargeTaskWorkerCount()).isEqualTo(1);
+    assertThat(new CeConfigurationImpl(configurationWithLargeTaskWorkerShare("0.99"), workerCountProvider).getLargeTaskWorkerCount()).isEqualTo(3);
+  }
+
+  @Test
+  public void getLargeTaskWorkerCount_returns_0_when_there_is_a_single_worker() {
+    workerCountProvider.set(1);
+
+    assertThat(new CeConfigurationImpl(configurationWithLargeTaskWorkerShare("0.5"), workerCountProvider).getLargeTaskWorkerCount()).isEqualTo(0);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_large_task_worker_share_is_not_less_than_1() {
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.ce.largeTaskWorkerShare must be a number greater or equal to 0 and less than 1. Got '1.0'");
+
+    new CeConfigurationImpl(configurationWithLargeTaskWorkerShare("1"));
+  }
+
+  @Test
+  public void getLargeTaskThresholdInMs_returns_5_minutes_by_default() {
+    assertThat(new CeConfigurationImpl(EMPTY_CONFIGURATION).getLargeTaskThresholdInMs()).isEqualTo(300_000L);
+    assertThat(new CeConfigurationImpl(new ConfigurationBridge(new MapSettings().setProperty("sonar.ce.largeTaskThresholdInMs", "1000")))
+      .getLargeTaskThresholdInMs()).isEqualTo(1_000L);
+  }
+
+  @Test
+  public void getQueueMaxPollingDelay_returns_polling_delay_by_default() {
+    assertThat(new CeConfigurationImpl(EMPTY_CONFIGURATION).getQueueMaxPollingDelay()).isEqualTo(2_000L);
+  }
+
+  @Test
+  public void getQueueMaxPollingDelay_returns_1_minute_by_default_in_cluster() {
+    assertThat(new CeConfigurationImpl(new ConfigurationBridge(new MapSettings().setProperty("sonar.cluster.enabled", "true")))
+      .getQueueMaxPollingDelay()).isEqualTo(60_000L);
+    assertThat(new CeConfigurationImpl(new ConfigurationBridge(new MapSettings()
+      .setProperty("sonar.cluster.enabled", "true")
+      .setProperty("sonar.sonarcloud.enabled", "true")))
+      .getQueueMaxPollingDelay()).isEqualTo(2_000L);
+  }
+
+  @Test
+  public void getQueueMaxPollingDelay_returns_value_of_property() {
+    assertThat(new CeConfigurationImpl(new ConfigurationBridge(new MapSettings().setProperty("sonar.ce.queueMaxPollingDelayInMs", "30000")))
+      .getQueueMaxPollingDelay()).isEqualTo(30_000L);
+  }
+
+  @Test
+  public void constructor_throws_MessageException_when_queue_max_polling_delay_is_less_than_polling_delay() {
+    expectedException.expect(MessageException.class);
+    expectedException.expectMessage("Property sonar.ce.queueMaxPollingDelayInMs must be a number greater or equal to 2000. Got '1000'");
+
+    new CeConfigurationImpl(new ConfigurationBridge(new MapSettings().setProperty("sonar.ce.queueMaxPollingDelayInMs", "1000")));
+  }
+
+  private static ConfigurationBridge configurationWithLargeTaskWorkerShare(String share) {
+    return new ConfigurationBridge(new MapSettings().setProperty("sonar.ce.largeTaskWorkerShare", share));
+  }
+
   private static final class SimpleWorkerCountProvider implements WorkerCountProvider {
     private int value = 0;
 
@@ -30,8 +30,11 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
   private int workerThreadCount = 1;
   private int workerCount = 1;
   private long queuePollingDelay = 2 * 1000L;
+  private long queueMaxPollingDelay = 2 * 1000L;
   private long cancelWornOutsInitialDelay = 1L;
   private long cancelWornOutsDelay = 10L;
+  private int largeTaskWorkerCount = 0;
+  private long largeTaskThresholdInMs = 5 * 60 * 1000L;
 
   @Override
   public int getWorkerMaxCount() {
@@ -64,6 +67,17 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     this.queuePollingDelay = queuePollingDelay;
   }
 
+  @Override
+  public long getQueueMaxPollingDelay() {
+    return queueMaxPollingDelay;
+  }
+
+  public CeConfigurationRule setQueueMaxPollingDelay(long queueMaxPollingDelay) {
+    checkArgument(queueMaxPollingDelay > 0, "Queue max polling delay must be > 0");
+    this.queueMaxPollingDelay = queueMaxPollingDelay;
+    return this;
+  }
+
   @Override
   public long getCleanCeTasksInitialDelay() {
     return cancelWornOutsInitialDelay;
@@ -79,6 +93,27 @@ public class CeConfigurationRule extends ExternalResource implements CeConfigura
     return cancelWornOutsDelay;
   }
 
+  @Override
+  public int getLargeTaskWorkerCount() {
+    return largeTaskWorkerCount;
+  }
+
+  public CeConfigurationRule setLargeTaskWorkerCount(int largeTaskWorkerCount) {
+    checkArgument(largeTaskWorkerCount >= 0, "large task worker count must be >= 0");
+    this.largeTaskWorkerCount = largeTaskWorkerCount;
+    return this;
+  }
+
+  @Override
+  public long getLargeTaskThresholdInMs() {
+    return largeTaskThresholdInMs;
+  }
+
+  public CeConfigurationRule setLargeTaskThresholdInMs(long largeTaskThresholdInMs) {
+    this.largeTaskThresholdInMs = largeTaskThresholdInMs;
+    return this;
+  }
+
   @Override
   public int getGracefulStopTimeoutInMs() {
     return 40_000;
@@ -99,7 +99,7 @@ public class ComputeEngineContainerImplTest {
           CONTAINER_ITSELF
             + 69 // level 4
             + 6 // content of CeConfigurationModule
-            + 4 // content of CeQueueModule
+            + 5 // content of CeQueueModule
             + 3 // content of CeHttpModule
             + 3 // content of CeTaskCommonsModule
             + 4 // content of ProjectAnalysisTaskModule
@@ -108,6 +108,7 @@ public class ComputeEngineContainerImplTest {
             + 3 // CeCleaningModule + its content
             + 4 // WebhookModule
             + 1 // CeDistributedInformation
+            + 1 // CeQueueSignal
         );
       assertThat(picoContainer.getParent().getComponentAdapters()).hasSize(
         CONTAINER_ITSELF
@@ -0,0 +1,80 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.monitoring;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.sonar.ce.queue.CeTaskLane;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class CeQueueLatenciesTest {
+  @Rule
+  public ExpectedException expectedException = ExpectedException.none();
+
+  private CeQueueLatencies underTest = new CeQueueLatencies();
+
+  @Test
+  public void getPercentile_returns_0_when_no_latency() {
+    assertThat(underTest.getPercentile(CeTaskLane.SMALL, 50)).isZero();
+    assertThat(underTest.getPercentile(CeTaskLane.LARGE, 99)).isZero();
+  }
+
+  @Test
+  public void getPercentile_returns_nearest_rank() {
+    for (int i = 100; i >= 1; i--) {
+      underTest.add(CeTaskLane.LARGE, i);
+    }
+
+    assertThat(underTest.getPercentile(CeTaskLane.LARGE, 0)).isEqualTo(1L);
+    assertThat(underTest.getPercentile(CeTaskLane.LARGE, 50)).isEqualTo(50L);
+    assertThat(underTest.getPercentile(CeTaskLane.LARGE, 95)).isEqualTo(95L);
+    assertThat(underTest.getPercentile(CeTaskLane.LARGE, 100)).isEqualTo(100L);
+    assertThat(underTest.getPercentile(CeTaskLane.SMALL, 100)).isZero();
+  }
+
+  @Test
+  public void only_last_1000_latencies_are_kept() {
+    for (int i = 0; i < 1_000; i++) {
+      underTest.add(CeTaskLane.SMALL, 1_000_000L);
+    }
+    for (int i = 0; i < 1_000; i++) {
+      underTest.add(CeTaskLane.SMALL, 10L);
+    }
+
+    assertThat(underTest.getPercentile(CeTaskLane.SMALL, 100)).isEqualTo(10L);
+  }
+
+  @Test
+  public void negative_latencies_are_recorded_as_0() {
+    underTest.add(CeTaskLane.SMALL, -5L);
+
+    assertThat(underTest.getPercentile(CeTaskLane.SMALL, 100)).isZero();
+  }
+
+  @Test
+  public void getPercentile_fails_with_IAE_if_percentile_is_greater_than_100() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Percentile must be between 0 and 100. Got 101.0");
+
+    underTest.getPercentile(CeTaskLane.SMALL, 101);
+  }
+}
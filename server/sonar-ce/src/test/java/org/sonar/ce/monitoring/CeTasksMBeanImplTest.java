@@ -34,6 +34,7 @@ import javax.management.ObjectName;
 import org.apache.commons.lang.RandomStringUtils;
 import org.junit.Test;
 import org.sonar.ce.configuration.CeConfiguration;
+import org.sonar.ce.queue.CeTaskLane;
 import org.sonar.ce.taskprocessor.CeWorker;
 import org.sonar.ce.taskprocessor.CeWorkerController;
 import org.sonar.ce.taskprocessor.CeWorkerFactory;
@@ -41,6 +42,7 @@ import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.process.systeminfo.protobuf.ProtobufSystemInfo;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -62,7 +64,9 @@ public class CeTasksMBeanImplTest {
     .collect(MoreCollectors.toSet());
 
   private CeWorkerController ceWorkerController = mock(CeWorkerController.class);
-  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), new DumbCeWorkerFactory(), ceWorkerController);
+  private CeQueueLatencies queueLatencies = new CeQueueLatencies();
+  private CeTasksMBeanImpl underTest = new CeTasksMBeanImpl(new DumbCEQueueStatus(), new DumbCeConfiguration(), new DumbCeWorkerFactory(), ceWorkerController,
+    queueLatencies);
 
   @Test
   public void register_and_unregister() throws Exception {
@@ -138,6 +142,16 @@ public class CeTasksMBeanImplTest {
     assertThat(enabledWorkerUuids).isNotInstanceOf(ImmutableSet.class);
   }
 
+  @Test
+  public void get_queue_latencies_by_lane() {
+    for (int i = 1; i <= 100; i++) {
+      queueLatencies.add(CeTaskLane.SMALL, i);
+    }
+
+    assertThat(underTest.getSmallTasksQueueLatencies()).containsExactly(entry("p50", 50L), entry("p95", 95L), entry("p99", 99L));
+    assertThat(underTest.getLargeTasksQueueLatencies()).containsExactly(entry("p50", 0L), entry("p95", 0L), entry("p99", 0L));
+  }
+
   @Test
   public void export_system_info() {
     ProtobufSystemInfo.Section section = underTest.toProtobuf();
@@ -214,6 +228,11 @@ public class CeTasksMBeanImplTest {
       throw new UnsupportedOperationException("getQueuePollingDelay is not implemented");
     }
 
+    @Override
+    public long getQueueMaxPollingDelay() {
+      throw new UnsupportedOperationException("getQueueMaxPollingDelay is not implemented");
+    }
+
     @Override
     public long getCleanCeTasksInitialDelay() {
       throw new UnsupportedOperationException("getCleanCeTasksInitialDelay is not implemented");
@@ -229,6 +248,16 @@ public class CeTasksMBeanImplTest {
       return 40_000;
     }
 
+    @Override
+    public int getLargeTaskWorkerCount() {
+      throw new UnsupportedOperationException("getLargeTaskWorkerCount is not implemented");
+    }
+
+    @Override
+    public long getLargeTaskThresholdInMs() {
+      throw new UnsupportedOperationException("getLargeTaskThresholdInMs is not implemented");
+    }
+
   }
 
   private static class DumbCeWorkerFactory implements CeWorkerFactory {
@@ -0,0 +1,72 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import com.hazelcast.core.ITopic;
+import com.hazelcast.core.Message;
+import com.hazelcast.core.MessageListener;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMISSIONS;
+
+public class DistributedCeQueueSignalTest {
+
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<Object> topic = mock(ITopic.class);
+  private Runnable listener = mock(Runnable.class);
+  private DistributedCeQueueSignal underTest = new DistributedCeQueueSignal(hazelcastMember);
+
+  @Test
+  public void onSubmit_publishes_uuid_of_member_on_topic() {
+    when(hazelcastMember.getUuid()).thenReturn("member uuid");
+    when(hazelcastMember.getTopic(CE_QUEUE_SUBMISSIONS)).thenReturn(topic);
+    underTest.addWakeUpListener(listener);
+
+    underTest.onSubmit();
+
+    verify(topic).publish("member uuid");
+    // listeners are run when the message is received from the topic
+    verifyZeroInteractions(listener);
+  }
+
+  @Test
+  public void messages_received_from_topic_run_listeners_until_stopped() {
+    when(hazelcastMember.getTopic(CE_QUEUE_SUBMISSIONS)).thenReturn(topic);
+    when(topic.addMessageListener(any())).thenReturn("registration id");
+    underTest.addWakeUpListener(listener);
+
+    underTest.start();
+    ArgumentCaptor<MessageListener> captor = ArgumentCaptor.forClass(MessageListener.class);
+    verify(topic).addMessageListener(captor.capture());
+    captor.getValue().onMessage(mock(Message.class));
+
+    verify(listener).run();
+
+    underTest.stop();
+    verify(topic).removeMessageListener("registration id");
+  }
+}
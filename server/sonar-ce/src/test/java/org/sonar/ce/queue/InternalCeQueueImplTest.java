@@ -31,9 +31,11 @@ import org.junit.Test;
 import org.junit.rules.ExpectedException;
 import org.sonar.api.utils.System2;
 import org.sonar.api.utils.internal.AlwaysIncreasingSystem2;
+import org.sonar.ce.configuration.CeConfigurationRule;
 import org.sonar.ce.container.ComputeEngineStatus;
 import org.sonar.ce.monitoring.CEQueueStatus;
 import org.sonar.ce.monitoring.CEQueueStatusImpl;
+import org.sonar.ce.monitoring.CeQueueLatencies;
 import org.sonar.ce.task.CeTask;
 import org.sonar.ce.task.CeTaskResult;
 import org.sonar.ce.task.TypedException;
@@ -83,7 +85,11 @@ public class InternalCeQueueImplTest {
   private CEQueueStatus queueStatus = new CEQueueStatusImpl(db.getDbClient());
   private DefaultOrganizationProvider defaultOrganizationProvider = mock(DefaultOrganizationProvider.class);
   private ComputeEngineStatus computeEngineStatus = mock(ComputeEngineStatus.class);
-  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus);
+  private CeConfigurationRule ceConfiguration = new CeConfigurationRule().setLargeTaskThresholdInMs(1_000L);
+  private CeQueueLatencies queueLatencies = new CeQueueLatencies();
+  private CeQueueSignal queueSignal = mock(CeQueueSignal.class);
+  private InternalCeQueue underTest = new InternalCeQueueImpl(system2, db.getDbClient(), uuidFactory, queueStatus, defaultOrganizationProvider, computeEngineStatus,
+    ceConfiguration, queueLatencies, queueSignal);
 
   @Before
   public void setUp() {
@@ -107,6 +113,13 @@ public class InternalCeQueueImplTest {
     verifyCeQueueDtoForTaskSubmit(taskSubmit);
   }
 
+  @Test
+  public void submit_signals_submission_to_workers() {
+    underTest.submit(createTaskSubmit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"), null));
+
+    verify(queueSignal).onSubmit();
+  }
+
   @Test
   public void submit_populates_component_name_and_key_of_CeTask_if_component_exists() {
     ComponentDto componentDto = insertComponent(newProjectDto("PROJECT_1"));
@@ -259,7 +272,7 @@ public class InternalCeQueueImplTest {
     db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
     db.commit();
 
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatus, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatus, null, null, null, null, null);
 
     try {
       underTest.remove(task, CeActivityDto.Status.SUCCESS, null, null);
@@ -276,7 +289,7 @@ public class InternalCeQueueImplTest {
     CeTask task = submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
     db.getDbClient().ceQueueDao().deleteByUuid(db.getSession(), task.getUuid());
     db.commit();
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null, null, null, null);
 
     try {
       underTest.remove(task, CeActivityDto.Status.FAILED, null, null);
@@ -293,7 +306,7 @@ public class InternalCeQueueImplTest {
     CeTask task = submit(CeTaskTypes.REPORT, newProjectDto("PROJECT_1"));
     db.executeUpdateSql("update ce_queue set status = 'PENDING', started_at = 123 where uuid = '" + task.getUuid() + "'");
     db.commit();
-    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null);
+    InternalCeQueueImpl underTest = new InternalCeQueueImpl(system2, db.getDbClient(), null, queueStatusMock, null, null, null, null, null);
 
     underTest.cancelWornOuts();
 
@@ -452,6 +465,78 @@ public class InternalCeQueueImplTest {
     verifyUnmodifiedTask(u4);
   }
 
+  @Test
+  public void peek_in_lane_throws_NPE_if_lane_is_null() {
+    expectedException.expect(NullPointerException.class);
+    expectedException.expectMessage("lane can't be null");
+
+    underTest.peek(WORKER_UUID_1, null);
+  }
+
+  @Test
+  public void peek_in_lane_prefers_oldest_task_of_the_lane() {
+    insertActivity("large", "PROJECT_1", 5_000L);
+    insertActivity("small", "PROJECT_2", 10L);
+    CeQueueDto large = insertPending("large", "PROJECT_1");
+    CeQueueDto small = insertPending("small", "PROJECT_2");
+
+    assertThat(underTest.peek(WORKER_UUID_1, CeTaskLane.SMALL).get().getUuid()).isEqualTo(small.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2, CeTaskLane.LARGE).get().getUuid()).isEqualTo(large.getUuid());
+  }
+
+  @Test
+  public void peek_in_lane_steals_task_of_the_other_lane_when_lane_is_empty() {
+    insertActivity("large", "PROJECT_1", 5_000L);
+    CeQueueDto large = insertPending("large", "PROJECT_1");
+
+    assertThat(underTest.peek(WORKER_UUID_1, CeTaskLane.SMALL).get().getUuid()).isEqualTo(large.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2, CeTaskLane.SMALL)).isEmpty();
+  }
+
+  @Test
+  public void peek_in_lane_estimates_tasks_without_history_as_small() {
+    CeQueueDto unknown = insertPending("unknown", "PROJECT_1");
+
+    assertThat(underTest.peek(WORKER_UUID_1, CeTaskLane.LARGE).get().getUuid()).isEqualTo(unknown.getUuid());
+    assertThat(queueLatencies.getPercentile(CeTaskLane.SMALL, 100)).isPositive();
+    assertThat(queueLatencies.getPercentile(CeTaskLane.LARGE, 100)).isZero();
+  }
+
+  @Test
+  public void peek_in_lane_does_not_peek_task_of_a_project_before_older_task_of_the_same_project() {
+    insertActivity("large", "PROJECT_1", 5_000L);
+    CeQueueDto older = insertPending("large", "PROJECT_1");
+    insertPending("small", "PROJECT_1");
+
+    assertThat(underTest.peek(WORKER_UUID_1, CeTaskLane.SMALL).get().getUuid()).isEqualTo(older.getUuid());
+    assertThat(underTest.peek(WORKER_UUID_2, CeTaskLane.SMALL)).isEmpty();
+  }
+
+  private void insertActivity(String taskType, String componentUuid, long executionTimeMs) {
+    CeQueueDto queueDto = new CeQueueDto()
+      .setUuid(uuidFactory.create())
+      .setTaskType(taskType)
+      .setComponentUuid(componentUuid)
+      .setMainComponentUuid(componentUuid);
+    CeActivityDto activityDto = new CeActivityDto(queueDto)
+      .setStatus(CeActivityDto.Status.SUCCESS)
+      .setExecutionTimeMs(executionTimeMs);
+    db.getDbClient().ceActivityDao().insert(session, activityDto);
+    db.commit();
+  }
+
+  private CeQueueDto insertPending(String taskType, String componentUuid) {
+    CeQueueDto dto = new CeQueueDto()
+      .setUuid(uuidFactory.create())
+      .setTaskType(taskType)
+      .setComponentUuid(componentUuid)
+      .setMainComponentUuid(componentUuid)
+      .setStatus(CeQueueDto.Status.PENDING);
+    db.getDbClient().ceQueueDao().insert(session, dto);
+    db.commit();
+    return dto;
+  }
+
   private void verifyResetTask(CeQueueDto originalDto) {
     CeQueueDto dto = db.getDbClient().ceQueueDao().selectByUuid(session, originalDto.getUuid()).get();
     assertThat(dto.getStatus()).isEqualTo(CeQueueDto.Status.PENDING);
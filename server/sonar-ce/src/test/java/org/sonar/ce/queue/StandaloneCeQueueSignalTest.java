@@ -0,0 +1,45 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.queue;
+
+import org.junit.Test;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+public class StandaloneCeQueueSignalTest {
+
+  private StandaloneCeQueueSignal underTest = new StandaloneCeQueueSignal();
+
+  @Test
+  public void onSubmit_runs_all_listeners() {
+    Runnable listener1 = mock(Runnable.class);
+    Runnable listener2 = mock(Runnable.class);
+    underTest.addWakeUpListener(listener1);
+    underTest.addWakeUpListener(listener2);
+
+    underTest.onSubmit();
+    underTest.onSubmit();
+
+    verify(listener1, times(2)).run();
+    verify(listener2, times(2)).run();
+  }
+}
@@ -47,7 +47,10 @@ import org.junit.Test;
 import org.junit.rules.DisableOnDebug;
 import org.junit.rules.TestRule;
 import org.junit.rules.Timeout;
+import org.mockito.ArgumentMatchers;
 import org.sonar.ce.configuration.CeConfigurationRule;
+import org.sonar.ce.queue.CeQueueSignal;
+import org.sonar.ce.queue.StandaloneCeQueueSignal;
 
 import static com.google.common.collect.ImmutableList.copyOf;
 import static java.util.Collections.emptySet;
@@ -79,8 +82,10 @@ public class CeProcessingSchedulerImplTest {
   private SchedulerCall extendedDelayedPoll = new SchedulerCall(ceWorker, 30000L, MILLISECONDS);
   private SchedulerCall notDelayedPoll = new SchedulerCall(ceWorker);
   private CeWorkerController ceWorkerController = new CeWorkerControllerImpl(ceConfiguration);
+  private CeQueueSignal queueSignal = new StandaloneCeQueueSignal();
 
-  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
+  private CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController,
+    queueSignal);
 
   @Test
   public void polls_without_delay_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
@@ -134,6 +139,86 @@ public class CeProcessingSchedulerImplTest {
       extendedDelayedPoll);
   }
 
+  @Test
+  public void polls_with_delay_doubled_up_to_max_polling_delay_when_CeWorkerCallable_returns_NO_TASK_repeatedly() throws Exception {
+    ceConfiguration.setQueueMaxPollingDelay(5_000L);
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, new TestCeWorkerFactory(ceWorker),
+      ceWorkerController, queueSignal);
+
+    underTest.startScheduling();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4_000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 5_000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 5_000L, MILLISECONDS));
+  }
+
+  @Test
+  public void polls_with_regular_delay_again_when_CeWorkerCallable_returns_TASK_PROCESSED() throws Exception {
+    ceConfiguration.setQueueMaxPollingDelay(10_000L);
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenReturn(NO_TASK)
+      .thenReturn(TASK_PROCESSED)
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, new TestCeWorkerFactory(ceWorker),
+      ceWorkerController, queueSignal);
+
+    underTest.startScheduling();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      new SchedulerCall(ceWorker, 4_000L, MILLISECONDS),
+      new SchedulerCall(ceWorker, 8_000L, MILLISECONDS),
+      notDelayedPoll,
+      regularDelayedPoll);
+  }
+
+  @Test
+  public void polls_without_delay_when_tasks_are_submitted_while_waiting_for_next_polling() throws Exception {
+    when(ceWorker.call())
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    underTest.startScheduling();
+    queueSignal.onSubmit();
+    processingExecutorService.runFutures();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll);
+    // the delayed polling has been cancelled
+    verify(ceWorker, times(2)).call();
+  }
+
+  @Test
+  public void polls_without_delay_when_tasks_are_submitted_while_polling() throws Exception {
+    when(ceWorker.call())
+      .thenAnswer(invocation -> {
+        queueSignal.onSubmit();
+        return NO_TASK;
+      })
+      .thenReturn(NO_TASK)
+      .thenThrow(ERROR_TO_INTERRUPT_CHAINING);
+
+    startSchedulingAndRun();
+
+    assertThat(processingExecutorService.getSchedulerCalls()).containsExactly(
+      regularDelayedPoll,
+      notDelayedPoll,
+      regularDelayedPoll);
+  }
+
   @Test
   public void startScheduling_schedules_CeWorkerCallable_at_fixed_rate_run_head_of_queue() throws Exception {
     when(ceWorker.call())
@@ -216,19 +301,22 @@ public class CeProcessingSchedulerImplTest {
 
     ListenableScheduledFuture listenableScheduledFuture = mock(ListenableScheduledFuture.class);
     CeProcessingSchedulerExecutorService processingExecutorService = mock(CeProcessingSchedulerExecutorService.class);
-    when(processingExecutorService.schedule(any(CeWorker.class), any(Long.class), any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
+    when(processingExecutorService.schedule(any(Callable.class), any(Long.class), any(TimeUnit.class))).thenReturn(listenableScheduledFuture);
 
     CeWorkerFactory ceWorkerFactory = spy(new TestCeWorkerFactory(workers));
-    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController);
-    when(processingExecutorService.schedule(ceWorker, ceConfiguration.getQueuePollingDelay(), MILLISECONDS))
-      .thenReturn(listenableScheduledFuture);
+    CeProcessingSchedulerImpl underTest = new CeProcessingSchedulerImpl(ceConfiguration, processingExecutorService, ceWorkerFactory, ceWorkerController,
+      queueSignal);
 
     underTest.startScheduling();
     // No exception from TestCeWorkerFactory must be thrown
 
     // Verify that schedule has been called on all workers
     for (int i = 0; i < workerCount; i++) {
-      verify(processingExecutorService).schedule(workers[i], ceConfiguration.getQueuePollingDelay(), MILLISECONDS);
+      CeWorker worker = workers[i];
+      verify(processingExecutorService).schedule(
+        ArgumentMatchers.<Callable<CeWorker.Result>>argThat(callable -> callable instanceof CeProcessingSchedulerImpl.IdlePoll
+          && ((CeProcessingSchedulerImpl.IdlePoll) callable).getWorker() == worker),
+        eq(ceConfiguration.getQueuePollingDelay()), eq(MILLISECONDS));
     }
     verify(listenableScheduledFuture, times(workerCount)).addListener(any(Runnable.class), eq(MoreExecutors.directExecutor()));
     for (int i = 0; i < workerCount; i++) {
@@ -557,17 +645,27 @@ public class CeProcessingSchedulerImplTest {
     private final TimeUnit unit;
 
     private SchedulerCall(Callable<?> callable, long delay, TimeUnit unit) {
-      this.callable = callable;
+      this.callable = unwrap(callable);
       this.delay = delay;
       this.unit = unit;
     }
 
     private SchedulerCall(Callable<?> callable) {
-      this.callable = callable;
+      this.callable = unwrap(callable);
       this.delay = -63366;
       this.unit = TimeUnit.NANOSECONDS;
     }
 
+    /**
+     * Delayed polls of the queue by idle workers are wrapped into {@link CeProcessingSchedulerImpl.IdlePoll}
+     */
+    private static Callable<?> unwrap(Callable<?> callable) {
+      if (callable instanceof CeProcessingSchedulerImpl.IdlePoll) {
+        return ((CeProcessingSchedulerImpl.IdlePoll) callable).getWorker();
+      }
+      return callable;
+    }
+
     @Override
     public boolean equals(@Nullable Object o) {
       if (this == o) {
@@ -25,6 +25,7 @@ import org.junit.Test;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.ce.configuration.CeConfigurationRule;
+import org.sonar.ce.queue.CeTaskLane;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
@@ -63,6 +64,26 @@ public class CeWorkerControllerImplTest {
     assertThat(underTest.isEnabled(ceWorker)).isFalse();
   }
 
+  @Test
+  public void getLane_returns_empty_if_there_is_no_large_task_worker() {
+    ceConfigurationRule.setWorkerCount(4).setLargeTaskWorkerCount(0);
+    when(ceWorker.getOrdinal()).thenReturn(3);
+
+    assertThat(underTest.getLane(ceWorker)).isEmpty();
+  }
+
+  @Test
+  public void getLane_returns_LARGE_for_last_workers_and_SMALL_for_other_ones() {
+    ceConfigurationRule.setWorkerCount(4).setLargeTaskWorkerCount(1);
+
+    for (int ordinal = 0; ordinal < 3; ordinal++) {
+      when(ceWorker.getOrdinal()).thenReturn(ordinal);
+      assertThat(underTest.getLane(ceWorker)).contains(CeTaskLane.SMALL);
+    }
+    when(ceWorker.getOrdinal()).thenReturn(3);
+    assertThat(underTest.getLane(ceWorker)).contains(CeTaskLane.LARGE);
+  }
+
   @Test
   public void isEnabled_returns_true_if_ordinal_is_invalid() {
     int ordinal = -1 - random.nextInt(3);
@@ -44,6 +44,7 @@ import org.sonar.api.utils.internal.TestSystem2;
 import org.sonar.api.utils.log.LogAndArguments;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
+import org.sonar.ce.queue.CeTaskLane;
 import org.sonar.ce.queue.InternalCeQueue;
 import org.sonar.ce.task.CeTask;
 import org.sonar.ce.task.CeTaskResult;
@@ -63,6 +64,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyZeroInteractions;
@@ -158,6 +160,20 @@ public class CeWorkerImplTest {
     verifyZeroInteractions(taskProcessor, executionListener1, executionListener2);
   }
 
+  @Test
+  public void peek_task_in_lane_of_worker_when_workers_are_split_into_lanes() throws Exception {
+    CeTask task = createCeTask(null);
+    taskProcessorRepository.setProcessorForTask(task.getType(), taskProcessor);
+    when(ceWorkerController.getLane(underTest)).thenReturn(Optional.of(CeTaskLane.LARGE));
+    when(queue.peek(workerUuid, CeTaskLane.LARGE)).thenReturn(Optional.of(task));
+
+    assertThat(underTest.call()).isEqualTo(TASK_PROCESSED);
+
+    verify(queue, never()).peek(anyString());
+    inOrder.verify(taskProcessor).process(task);
+    inOrder.verify(queue).remove(task, CeActivityDto.Status.SUCCESS, null, null);
+  }
+
   @Test
   public void fail_when_no_CeTaskProcessor_is_found_in_repository() throws Exception {
     CeTask task = createCeTask(null);
@@ -64,6 +64,10 @@ public interface Dialect {
    */
   boolean supportsMigration();
 
+  /**
+   * Indicates whether rows can be inserted or updated by a single statement, which can be executed in JDBC batches:
+   * {@code INSERT ... ON CONFLICT} on PostgreSQL and {@code MERGE} on Oracle and Microsoft SQL Server.
+   */
   boolean supportsUpsert();
 
   /**
@@ -46,6 +46,11 @@ public class MsSql extends AbstractDialect {
     return true;
   }
 
+  @Override
+  public boolean supportsUpsert() {
+    return true;
+  }
+
   @Override
   public void init(DatabaseMetaData metaData) throws SQLException {
     checkDbVersion(metaData, MIN_SUPPORTED_VERSION);
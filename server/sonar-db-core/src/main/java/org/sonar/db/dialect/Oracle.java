@@ -48,6 +48,11 @@ public class Oracle extends AbstractDialect {
     return true;
   }
 
+  @Override
+  public boolean supportsUpsert() {
+    return true;
+  }
+
   @Override
   public List<String> getConnectionInitStatements() {
     return INIT_STATEMENTS;
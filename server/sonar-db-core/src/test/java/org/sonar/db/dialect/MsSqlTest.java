@@ -91,8 +91,8 @@ public class MsSqlTest {
   }
 
   @Test
-  public void supportsUpsert_returns_false() {
-    assertThat(underTest.supportsUpsert()).isFalse();
+  public void supportsUpsert_returns_true() {
+    assertThat(underTest.supportsUpsert()).isTrue();
   }
 
   private DatabaseMetaData newMetadata(int dbMajorVersion, int dbMinorVersion) throws SQLException {
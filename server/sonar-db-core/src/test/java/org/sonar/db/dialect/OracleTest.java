@@ -132,8 +132,8 @@ public class OracleTest {
   }
 
   @Test
-  public void supportsUpsert_returns_false() {
-    assertThat(underTest.supportsUpsert()).isFalse();
+  public void supportsUpsert_returns_true() {
+    assertThat(underTest.supportsUpsert()).isTrue();
   }
 
   private DatabaseMetaData newMetadata(int dbMajorVersion, int dbMinorVersion, String driverVersion) throws SQLException {
@@ -19,6 +19,8 @@
  */
 package org.sonar.db.ce;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
@@ -88,6 +90,18 @@ public class CeActivityDao implements Dao {
     return Optional.ofNullable(mapper(dbSession).selectLastByMainComponentUuid(mainComponentUuid));
   }
 
+  /**
+   * Last activities of the specified {@link CeActivityDto#getIsLastKey() is_last keys} and
+   * {@link CeActivityDto#getMainIsLastKey() main_is_last keys}. Only the fields used to identify the activities and
+   * their execution time are loaded.
+   */
+  public List<CeActivityDto> selectLastExecutionTimesByIsLastKeys(DbSession dbSession, Collection<String> isLastKeys, Collection<String> mainIsLastKeys) {
+    if (isLastKeys.isEmpty() && mainIsLastKeys.isEmpty()) {
+      return Collections.emptyList();
+    }
+    return mapper(dbSession).selectLastExecutionTimesByIsLastKeys(new ArrayList<>(isLastKeys), new ArrayList<>(mainIsLastKeys));
+  }
+
   private static CeActivityMapper mapper(DbSession dbSession) {
     return dbSession.getMapper(CeActivityMapper.class);
   }
@@ -49,4 +49,7 @@ public interface CeActivityMapper {
 
   @CheckForNull
   CeActivityDto selectLastByMainComponentUuid(@Param("mainComponentUuid") String mainComponentUuid);
+
+  List<CeActivityDto> selectLastExecutionTimesByIsLastKeys(@Param("isLastKeys") List<String> isLastKeys,
+    @Param("mainIsLastKeys") List<String> mainIsLastKeys);
 }
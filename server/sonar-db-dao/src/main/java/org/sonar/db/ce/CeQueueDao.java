@@ -22,6 +22,7 @@ package org.sonar.db.ce;
 import com.google.common.collect.ImmutableMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import javax.annotation.Nullable;
@@ -33,6 +34,8 @@ import org.sonar.db.Pagination;
 
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.stream.Collectors.toList;
+import static org.sonar.core.util.stream.MoreCollectors.uniqueIndex;
 import static org.sonar.db.DatabaseUtils.executeLargeUpdates;
 import static org.sonar.db.ce.CeQueueDto.Status.IN_PROGRESS;
 import static org.sonar.db.ce.CeQueueDto.Status.PENDING;
@@ -163,6 +166,24 @@ public class CeQueueDao implements Dao {
     return builder.build();
   }
 
+  /**
+   * Tasks which can be peeked, at most {@code maxResults}, in the order in which {@link #peek(DbSession, String)}
+   * would peek them.
+   */
+  public List<CeQueueDto> selectEligibleForPeek(DbSession session, int maxResults) {
+    List<String> eligibles = mapper(session).selectEligibleForPeek(Pagination.forPage(1).andSize(maxResults));
+    if (eligibles.isEmpty()) {
+      return emptyList();
+    }
+
+    Map<String, CeQueueDto> dtosByUuid = mapper(session).selectByUuids(eligibles).stream()
+      .collect(uniqueIndex(CeQueueDto::getUuid));
+    return eligibles.stream()
+      .map(dtosByUuid::get)
+      .filter(Objects::nonNull)
+      .collect(toList());
+  }
+
   public Optional<CeQueueDto> peek(DbSession session, String workerUuid) {
     List<String> eligibles = mapper(session).selectEligibleForPeek(ONE_RESULT_PAGINATION);
     if (eligibles.isEmpty()) {
@@ -173,7 +194,10 @@ public class CeQueueDao implements Dao {
     return tryToPeek(session, eligible, workerUuid);
   }
 
-  private Optional<CeQueueDto> tryToPeek(DbSession session, String eligibleTaskUuid, String workerUuid) {
+  /**
+   * Assigns the specified task to the specified worker, if the task is still pending.
+   */
+  public Optional<CeQueueDto> tryToPeek(DbSession session, String eligibleTaskUuid, String workerUuid) {
     long now = system2.now();
     int touchedRows = mapper(session).updateIf(eligibleTaskUuid,
       new UpdateIf.NewProperties(IN_PROGRESS, workerUuid, now, now),
@@ -42,6 +42,8 @@ public interface CeQueueMapper {
   @CheckForNull
   CeQueueDto selectByUuid(@Param("uuid") String uuid);
 
+  List<CeQueueDto> selectByUuids(@Param("uuids") List<String> uuids);
+
   /**
    * Select all pending tasks
    */
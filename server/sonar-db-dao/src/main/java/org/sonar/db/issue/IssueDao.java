@@ -19,11 +19,13 @@
  */
 package org.sonar.db.issue;
 
+import com.google.common.collect.Lists;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
-
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.db.Dao;
 import org.sonar.db.DbSession;
 import org.sonar.db.RowNotFoundException;
@@ -35,6 +37,11 @@ import static org.sonar.db.DatabaseUtils.executeLargeInputs;
 
 public class IssueDao implements Dao {
 
+  /**
+   * Each base component is a sub-query of a "union all" statement
+   */
+  private static final int BASE_COMPONENTS_PARTITION_SIZE = 100;
+
   public Optional<IssueDto> selectByKey(DbSession session, String key) {
     return Optional.ofNullable(mapper(session).selectByKey(key));
   }
@@ -57,6 +64,13 @@ public class IssueDao implements Dao {
     return executeLargeInputs(keys, mapper(session)::selectByKeys);
   }
 
+  /**
+   * Uuids of the projects and branches which have at least one issue, whatever its status.
+   */
+  public List<String> selectProjectUuidsOfIssues(DbSession session) {
+    return mapper(session).selectProjectUuidsOfIssues();
+  }
+
   public Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(DbSession session, String projectUuid) {
     return mapper(session).selectComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
@@ -65,13 +79,28 @@ public class IssueDao implements Dao {
     return mapper(session).selectModuleAndDirComponentUuidsOfOpenIssuesForProjectUuid(projectUuid);
   }
 
-  public List<IssueDto> selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(DbSession dbSession, String componentUuid) {
-    return mapper(dbSession).selectNonClosedByComponentUuidExcludingExternals(componentUuid);
+  public void scrollNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(DbSession dbSession, String componentUuid, ResultHandler<IssueDto> handler) {
+    mapper(dbSession).scrollNonClosedByComponentUuidExcludingExternals(componentUuid, handler);
+  }
+
+  public void scrollNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(DbSession dbSession, ComponentDto module, ResultHandler<IssueDto> handler) {
+    String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
+    mapper(dbSession).scrollNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath, handler);
+  }
+
+  /**
+   * Uuids of the assignees of the issues returned by {@link #scrollNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(DbSession, String, ResultHandler)}
+   */
+  public Set<String> selectAssigneeUuidsOfNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(DbSession dbSession, String componentUuid) {
+    return mapper(dbSession).selectAssigneeUuidsOfNonClosedByComponentUuidExcludingExternals(componentUuid);
   }
 
-  public List<IssueDto> selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(DbSession dbSession, ComponentDto module) {
+  /**
+   * Uuids of the assignees of the issues returned by {@link #scrollNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(DbSession, ComponentDto, ResultHandler)}
+   */
+  public Set<String> selectAssigneeUuidsOfNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(DbSession dbSession, ComponentDto module) {
     String likeModuleUuidPath = buildLikeValue(module.moduleUuidPath(), WildcardPosition.AFTER);
-    return mapper(dbSession).selectNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath);
+    return mapper(dbSession).selectAssigneeUuidsOfNonClosedByModuleOrProject(module.projectUuid(), likeModuleUuidPath);
   }
 
   public List<ShortBranchIssueDto> selectOpenByComponentUuids(DbSession dbSession, Collection<String> componentUuids) {
@@ -82,6 +111,18 @@ public class IssueDao implements Dao {
     return mapper(dbSession).selectIssueGroupsByBaseComponent(baseComponent, leakPeriodBeginningDate);
   }
 
+  /**
+   * Same as {@link #selectIssueGroupsByBaseComponent(DbSession, ComponentDto, long)}, for several base components at once.
+   * Groups are aggregated on each base component by the database, see {@link IssueGroupDto#getComponentUuid()}.
+   */
+  public List<IssueGroupDto> selectIssueGroupsByBaseComponents(DbSession dbSession, Collection<ComponentDto> baseComponents, long leakPeriodBeginningDate) {
+    List<IssueGroupDto> result = new ArrayList<>();
+    for (List<ComponentDto> partition : Lists.partition(new ArrayList<>(baseComponents), BASE_COMPONENTS_PARTITION_SIZE)) {
+      result.addAll(mapper(dbSession).selectIssueGroupsByBaseComponents(partition, leakPeriodBeginningDate));
+    }
+    return result;
+  }
+
   public void insert(DbSession session, IssueDto dto) {
     mapper(session).insert(dto);
   }
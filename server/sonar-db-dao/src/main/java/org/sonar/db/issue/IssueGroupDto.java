@@ -23,6 +23,8 @@ import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 
 public class IssueGroupDto {
+  @Nullable
+  private String componentUuid;
   private int ruleType;
   private String severity;
   @Nullable
@@ -32,6 +34,15 @@ public class IssueGroupDto {
   private long count;
   private boolean inLeak;
 
+  /**
+   * Only set when issues are grouped by base component, see
+   * {@link IssueDao#selectIssueGroupsByBaseComponents(org.sonar.db.DbSession, java.util.Collection, long)}
+   */
+  @CheckForNull
+  public String getComponentUuid() {
+    return componentUuid;
+  }
+
   public int getRuleType() {
     return ruleType;
   }
@@ -61,6 +72,11 @@ public class IssueGroupDto {
     return inLeak;
   }
 
+  public IssueGroupDto setComponentUuid(@Nullable String componentUuid) {
+    this.componentUuid = componentUuid;
+    return this;
+  }
+
   public IssueGroupDto setRuleType(int ruleType) {
     this.ruleType = ruleType;
     return this;
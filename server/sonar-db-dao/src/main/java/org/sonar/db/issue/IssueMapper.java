@@ -30,6 +30,8 @@ public interface IssueMapper {
 
   IssueDto selectByKey(String key);
 
+  List<String> selectProjectUuidsOfIssues();
+
   Set<String> selectComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
 
   Set<String> selectModuleAndDirComponentUuidsOfOpenIssuesForProjectUuid(String projectUuid);
@@ -50,12 +52,26 @@ public interface IssueMapper {
 
   void scrollClosedByComponentUuid(@Param("componentUuid") String componentUuid, @Param("closeDateAfter") long closeDateAfter, ResultHandler<IssueDto> handler);
 
-  List<IssueDto> selectNonClosedByComponentUuidExcludingExternals(@Param("componentUuid") String componentUuid);
+  void scrollNonClosedByComponentUuids(@Param("componentUuids") List<String> componentUuids, ResultHandler<IssueDto> handler);
+
+  void scrollClosedByComponentUuids(@Param("componentUuids") List<String> componentUuids, @Param("closeDateAfter") long closeDateAfter,
+    ResultHandler<IssueDto> handler);
+
+  Set<String> selectAssigneeUuidsOfNonClosedByComponentUuidExcludingExternals(@Param("componentUuid") String componentUuid);
+
+  Set<String> selectAssigneeUuidsOfNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath);
 
-  List<IssueDto> selectNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath);
+  void scrollNonClosedByComponentUuidExcludingExternals(@Param("componentUuid") String componentUuid, ResultHandler<IssueDto> handler);
+
+  void scrollNonClosedByModuleOrProject(@Param("projectUuid") String projectUuid, @Param("likeModuleUuidPath") String likeModuleUuidPath,
+    ResultHandler<IssueDto> handler);
 
   Collection<IssueGroupDto> selectIssueGroupsByBaseComponent(
     @Param("baseComponent") ComponentDto baseComponent,
     @Param("leakPeriodBeginningDate") long leakPeriodBeginningDate);
 
+  Collection<IssueGroupDto> selectIssueGroupsByBaseComponents(
+    @Param("baseComponents") List<ComponentDto> baseComponents,
+    @Param("leakPeriodBeginningDate") long leakPeriodBeginningDate);
+
 }
@@ -47,6 +47,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
 import org.sonar.db.Pagination;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.singleton;
 import static java.util.Collections.singletonList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
@@ -671,6 +672,27 @@ public class CeActivityDaoTest {
     assertThat(underTest.countLastByStatusAndMainComponentUuid(dbSession, SUCCESS, null)).isEqualTo(2);
   }
 
+  @Test
+  public void selectLastExecutionTimesByIsLastKeys() {
+    insert("TASK_1", CeTaskTypes.REPORT, COMPONENT_1, MAINCOMPONENT_1, SUCCESS);
+    insert("TASK_2", CeTaskTypes.REPORT, MAINCOMPONENT_1, MAINCOMPONENT_1, FAILED);
+    insert("TASK_3", CeTaskTypes.REPORT, MAINCOMPONENT_2, MAINCOMPONENT_2, SUCCESS);
+    insert("TASK_4", "other type", MAINCOMPONENT_2, MAINCOMPONENT_2, SUCCESS);
+    db.commit();
+
+    assertThat(underTest.selectLastExecutionTimesByIsLastKeys(dbSession, emptyList(), emptyList())).isEmpty();
+    assertThat(underTest.selectLastExecutionTimesByIsLastKeys(dbSession, singletonList(CeTaskTypes.REPORT + COMPONENT_1), emptyList()))
+      .extracting(CeActivityDto::getUuid, CeActivityDto::getExecutionTimeMs)
+      .containsExactly(tuple("TASK_1", 500L));
+    assertThat(underTest.selectLastExecutionTimesByIsLastKeys(dbSession, emptyList(), singletonList(CeTaskTypes.REPORT + MAINCOMPONENT_1)))
+      .extracting(CeActivityDto::getUuid)
+      .containsExactly("TASK_2");
+    assertThat(underTest.selectLastExecutionTimesByIsLastKeys(dbSession, singletonList(CeTaskTypes.REPORT + MAINCOMPONENT_2),
+      singletonList(CeTaskTypes.REPORT + MAINCOMPONENT_1)))
+      .extracting(CeActivityDto::getUuid)
+      .containsExactlyInAnyOrder("TASK_2", "TASK_3");
+  }
+
   private CeActivityDto insert(String uuid, String type, @Nullable String mainComponentUuid, CeActivityDto.Status status) {
     return insert(uuid, type, mainComponentUuid, mainComponentUuid, status);
   }
@@ -375,6 +375,36 @@ public class CeQueueDaoTest {
     assertThat(underTest.peek(db.getSession(), WORKER_UUID_1).isPresent()).isFalse();
   }
 
+  @Test
+  public void selectEligibleForPeek_returns_oldest_pending_tasks_in_order() {
+    insertPending(TASK_UUID_1, MAIN_COMPONENT_UUID_1);
+    system2.setNow(INIT_TIME + 3_000_000);
+    insertPending(TASK_UUID_2, MAIN_COMPONENT_UUID_2);
+    system2.setNow(INIT_TIME + 4_000_000);
+    insertPending(TASK_UUID_3, MAIN_COMPONENT_UUID_2);
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10))
+      .extracting(CeQueueDto::getUuid, CeQueueDto::getMainComponentUuid)
+      .containsExactly(tuple(TASK_UUID_1, MAIN_COMPONENT_UUID_1), tuple(TASK_UUID_2, MAIN_COMPONENT_UUID_2), tuple(TASK_UUID_3, MAIN_COMPONENT_UUID_2));
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 2))
+      .extracting(CeQueueDto::getUuid)
+      .containsExactly(TASK_UUID_1, TASK_UUID_2);
+
+    makeInProgress(WORKER_UUID_1, 2_232_222L, underTest.selectByUuid(db.getSession(), TASK_UUID_2).get());
+
+    assertThat(underTest.selectEligibleForPeek(db.getSession(), 10))
+      .extracting(CeQueueDto::getUuid)
+      .containsExactly(TASK_UUID_1);
+  }
+
+  @Test
+  public void tryToPeek_does_not_peek_task_which_is_not_pending_anymore() {
+    insertPending(TASK_UUID_1, MAIN_COMPONENT_UUID_1);
+
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_1, WORKER_UUID_1).get().getWorkerUuid()).isEqualTo(WORKER_UUID_1);
+    assertThat(underTest.tryToPeek(db.getSession(), TASK_UUID_1, WORKER_UUID_2)).isEmpty();
+  }
+
   @Test
   public void do_not_peek_multiple_tasks_on_same_main_component_at_the_same_time() {
     // two pending tasks on the same project
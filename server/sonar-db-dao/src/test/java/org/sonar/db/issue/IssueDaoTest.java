@@ -19,6 +19,7 @@
  */
 package org.sonar.db.issue;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
@@ -43,8 +44,10 @@ import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
 import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
 import static org.apache.commons.lang.math.RandomUtils.nextInt;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
 import static org.junit.rules.ExpectedException.none;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.db.component.ComponentTesting.newModuleDto;
@@ -128,6 +131,22 @@ public class IssueDaoTest {
     assertThat(issues).extracting("key").containsOnly("I1", "I2");
   }
 
+  @Test
+  public void selectProjectUuidsOfIssues() {
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project));
+    ComponentDto anotherProject = db.components().insertPrivateProject();
+    // project without issues
+    db.components().insertPrivateProject();
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null));
+    db.issues().insert(rule, project, project, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+    db.issues().insert(rule, anotherProject, anotherProject, i -> i.setStatus("CLOSED").setResolution("FIXED"));
+
+    assertThat(underTest.selectProjectUuidsOfIssues(db.getSession()))
+      .containsExactlyInAnyOrder(project.uuid(), anotherProject.uuid());
+  }
+
   @Test
   public void scrollNonClosedByComponentUuid() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -144,15 +163,15 @@ public class IssueDaoTest {
     RuleDefinitionDto external = db.rules().insert(ruleDefinitionDto -> ruleDefinitionDto.setIsExternal(true));
     IssueDto issueFromExteralruleOnFile = db.issues().insert(external, project, file, i -> i.setKee("ON_FILE_FROM_EXTERNAL").setType(randomRuleTypeExceptHotspot()));
 
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), file.uuid()))
+    assertThat(nonClosedIssuesOfComponent(file.uuid()))
       .extracting(IssueDto::getKey)
       .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile}).map(IssueDto::getKey).toArray(String[]::new));
 
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), project.uuid()))
+    assertThat(nonClosedIssuesOfComponent(project.uuid()))
       .extracting(IssueDto::getKey)
       .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssueOnProject}).map(IssueDto::getKey).toArray(String[]::new));
 
-    assertThat(underTest.selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), "does_not_exist")).isEmpty();
+    assertThat(nonClosedIssuesOfComponent("does_not_exist")).isEmpty();
   }
 
   @Test
@@ -175,16 +194,43 @@ public class IssueDaoTest {
     RuleDefinitionDto external = db.rules().insert(ruleDefinitionDto -> ruleDefinitionDto.setIsExternal(true));
     IssueDto issueFromExteralruleOnFile = db.issues().insert(external, project, file, i -> i.setKee("ON_FILE_FROM_EXTERNAL").setType(randomRuleTypeExceptHotspot()));
 
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), project))
+    assertThat(nonClosedIssuesOfModuleOrProject(project))
       .extracting(IssueDto::getKey)
       .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile, openIssueOnModule, openIssueOnProject}).map(IssueDto::getKey).toArray(String[]::new));
 
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), module))
+    assertThat(nonClosedIssuesOfModuleOrProject(module))
       .extracting(IssueDto::getKey)
       .containsExactlyInAnyOrder(Arrays.stream(new IssueDto[] {openIssue1OnFile, openIssue2OnFile, openIssueOnModule}).map(IssueDto::getKey).toArray(String[]::new));
 
     ComponentDto notPersisted = ComponentTesting.newPrivateProjectDto(db.getDefaultOrganization());
-    assertThat(underTest.selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), notPersisted)).isEmpty();
+    assertThat(nonClosedIssuesOfModuleOrProject(notPersisted)).isEmpty();
+  }
+
+  @Test
+  public void selectAssigneeUuidsOfNonClosed() {
+    RuleDefinitionDto rule = db.rules().insert();
+    RuleDefinitionDto external = db.rules().insert(ruleDefinitionDto -> ruleDefinitionDto.setIsExternal(true));
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto anotherProject = db.components().insertPrivateProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file = db.components().insertComponent(newFileDto(module));
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("onFile"));
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("onFile"));
+    db.issues().insert(rule, project, file, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(null));
+    db.issues().insert(rule, project, module, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("onModule"));
+    db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("onProject"));
+    db.issues().insert(rule, anotherProject, anotherProject, i -> i.setStatus("OPEN").setResolution(null).setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("onAnotherProject"));
+    db.issues().insert(rule, project, file, i -> i.setStatus("CLOSED").setResolution("FIXED").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("closed"));
+    db.issues().insert(rule, project, file, i -> i.setType(RuleType.SECURITY_HOTSPOT).setAssigneeUuid("hotspot"));
+    db.issues().insert(rule, project, file, i -> i.setType(RuleType.VULNERABILITY).setIsFromHotspot(true).setAssigneeUuid("fromHotspot"));
+    db.issues().insert(external, project, file, i -> i.setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("external"));
+
+    assertThat(underTest.selectAssigneeUuidsOfNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), file.uuid()))
+      .containsExactlyInAnyOrder("onFile");
+    assertThat(underTest.selectAssigneeUuidsOfNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), module))
+      .containsExactlyInAnyOrder("onFile", "onModule");
+    assertThat(underTest.selectAssigneeUuidsOfNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), project))
+      .containsExactlyInAnyOrder("onFile", "onModule", "onProject");
   }
 
   @Test
@@ -291,6 +337,38 @@ public class IssueDaoTest {
     assertThat(result.stream().filter(g -> !g.isInLeak()).mapToLong(IssueGroupDto::getCount).sum()).isEqualTo(3);
   }
 
+  @Test
+  public void selectIssueGroupsByBaseComponents() {
+    ComponentDto project = db.components().insertPublicProject();
+    ComponentDto module = db.components().insertComponent(newModuleDto(project));
+    ComponentDto file1 = db.components().insertComponent(ComponentTesting.newFileDto(module));
+    ComponentDto file2 = db.components().insertComponent(ComponentTesting.newFileDto(project));
+    RuleDefinitionDto rule = db.rules().insert();
+    db.issues().insert(rule, project, file1,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(10L).setIssueCreationTime(1_500L));
+    db.issues().insert(rule, project, file1,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(20L).setIssueCreationTime(1_600L));
+    db.issues().insert(rule, project, file2,
+      i -> i.setStatus("OPEN").setResolution(null).setSeverity("CRITICAL").setType(RuleType.BUG).setEffort(5L).setIssueCreationTime(1_600L));
+    db.issues().insert(rule, project, module,
+      i -> i.setStatus("RESOLVED").setResolution("FALSE-POSITIVE").setSeverity("MAJOR").setType(RuleType.CODE_SMELL).setEffort(1L).setIssueCreationTime(500L));
+    // closed issues are ignored
+    db.issues().insert(rule, project, file2,
+      i -> i.setStatus("CLOSED").setResolution("REMOVED").setSeverity("CRITICAL").setType(RuleType.BUG).setIssueCreationTime(1_700L));
+
+    Collection<IssueGroupDto> result = underTest.selectIssueGroupsByBaseComponents(db.getSession(), asList(module, file1, file2), 1_000L);
+
+    assertThat(result)
+      .extracting(IssueGroupDto::getComponentUuid, IssueGroupDto::getRuleType, IssueGroupDto::getCount, IssueGroupDto::getEffort, IssueGroupDto::isInLeak)
+      .containsExactlyInAnyOrder(
+        tuple(module.uuid(), RuleType.BUG.getDbConstant(), 2L, 30.0, true),
+        tuple(module.uuid(), RuleType.CODE_SMELL.getDbConstant(), 1L, 1.0, false),
+        tuple(file1.uuid(), RuleType.BUG.getDbConstant(), 2L, 30.0, true),
+        tuple(file2.uuid(), RuleType.BUG.getDbConstant(), 1L, 5.0, true));
+
+    assertThat(underTest.selectIssueGroupsByBaseComponents(db.getSession(), emptyList(), 1_000L)).isEmpty();
+  }
+
   private static IssueDto newIssueDto(String key) {
     IssueDto dto = new IssueDto();
     dto.setComponent(new ComponentDto().setDbKey("struts:Action").setId(123L).setUuid("component-uuid"));
@@ -334,6 +412,18 @@ public class IssueDaoTest {
     db.getSession().commit();
   }
 
+  private List<IssueDto> nonClosedIssuesOfComponent(String componentUuid) {
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(db.getSession(), componentUuid, context -> issues.add(context.getResultObject()));
+    return issues;
+  }
+
+  private List<IssueDto> nonClosedIssuesOfModuleOrProject(ComponentDto module) {
+    List<IssueDto> issues = new ArrayList<>();
+    underTest.scrollNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(db.getSession(), module, context -> issues.add(context.getResultObject()));
+    return issues;
+  }
+
   private static RuleType randomRuleTypeExceptHotspot() {
     return RULE_TYPES_EXCEPT_HOTSPOT[nextInt(RULE_TYPES_EXCEPT_HOTSPOT.length)];
   }
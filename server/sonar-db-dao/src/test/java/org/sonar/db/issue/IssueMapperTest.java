@@ -51,6 +51,7 @@ import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.db.rule.RuleDto;
 import org.sonar.db.rule.RuleTesting;
 
+import static java.util.stream.Collectors.toList;
 import static org.apache.commons.lang.RandomStringUtils.randomAlphabetic;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -504,6 +505,57 @@ public class IssueMapperTest {
         tuple(issue.getKey(), changes[1].getChangeData()));
   }
 
+  @Test
+  public void scrollNonClosedByComponentUuids_returns_non_closed_issues_of_specified_components() {
+    OrganizationDto organization = dbTester.organizations().insert();
+    ComponentDto component1 = randomComponent(organization);
+    ComponentDto component2 = randomComponent(organization);
+    ComponentDto otherComponent = randomComponent(organization);
+    RuleDefinitionDto rule = dbTester.rules().insert();
+    IssueDto open1 = insertNewClosedIssue(component1, rule, t -> t.setStatus(Issue.STATUS_OPEN));
+    IssueDto confirmed2 = insertNewClosedIssue(component2, rule, t -> t.setStatus(Issue.STATUS_CONFIRMED));
+    insertNewClosedIssue(component2, rule);
+    insertNewClosedIssue(otherComponent, rule, t -> t.setStatus(Issue.STATUS_OPEN));
+
+    RecorderResultHandler resultHandler = new RecorderResultHandler();
+    underTest.scrollNonClosedByComponentUuids(Arrays.asList(component1.uuid(), component2.uuid()), resultHandler);
+
+    assertThat(resultHandler.issues)
+      .extracting(IssueDto::getKey, IssueDto::getComponentUuid)
+      .containsOnly(
+        tuple(open1.getKey(), component1.uuid()),
+        tuple(confirmed2.getKey(), component2.uuid()));
+  }
+
+  @Test
+  public void scrollClosedByComponentUuids_returns_closed_issues_of_specified_components_sorted_by_issue_and_most_recent_change_first() {
+    OrganizationDto organization = dbTester.organizations().insert();
+    ComponentDto component1 = randomComponent(organization);
+    ComponentDto component2 = randomComponent(organization);
+    ComponentDto otherComponent = randomComponent(organization);
+    RuleDefinitionDto rule = dbTester.rules().insert(t -> t.setType(randomSupportedRuleType()));
+    IssueDto issue1 = insertNewClosedIssue(component1, rule);
+    IssueChangeDto olderChange1 = insertToClosedDiff(issue1, new Date(1_000L));
+    IssueChangeDto recentChange1 = insertToClosedDiff(issue1, new Date(2_000L));
+    IssueDto issue2 = insertNewClosedIssue(component2, rule);
+    IssueChangeDto change2 = insertToClosedDiff(issue2);
+    insertToClosedDiff(insertNewClosedIssue(otherComponent, rule));
+
+    RecorderResultHandler resultHandler = new RecorderResultHandler();
+    underTest.scrollClosedByComponentUuids(Arrays.asList(component1.uuid(), component2.uuid()), NO_FILTERING_ON_CLOSE_DATE, resultHandler);
+
+    assertThat(resultHandler.issues)
+      .extracting(IssueDto::getKey, t -> t.getClosedChangeData().get())
+      .containsOnly(
+        tuple(issue1.getKey(), recentChange1.getChangeData()),
+        tuple(issue1.getKey(), olderChange1.getChangeData()),
+        tuple(issue2.getKey(), change2.getChangeData()));
+    List<IssueDto> issue1Rows = resultHandler.issues.stream().filter(t -> t.getKey().equals(issue1.getKey())).collect(toList());
+    assertThat(issue1Rows)
+      .extracting(t -> t.getClosedChangeData().get())
+      .containsExactly(recentChange1.getChangeData(), olderChange1.getChangeData());
+  }
+
   private IssueChangeDto insertToClosedDiff(IssueDto issueDto) {
     return insertToClosedDiff(issueDto, new Date());
   }
@@ -21,6 +21,7 @@ package org.sonar.process.cluster.hz;
 
 import com.hazelcast.core.Cluster;
 import com.hazelcast.core.IAtomicReference;
+import com.hazelcast.core.ITopic;
 import com.hazelcast.core.MemberSelector;
 import java.util.Map;
 import java.util.Set;
@@ -59,6 +60,12 @@ public interface HazelcastMember extends AutoCloseable {
    */
   <K, V> Map<K, V> getReplicatedMap(String name);
 
+  /**
+   * Gets the topic shared by the cluster and identified by name. Messages published on the topic are delivered
+   * to the listeners registered on all members, including the local one.
+   */
+  <E> ITopic<E> getTopic(String name);
+
   String getUuid();
 
   /**
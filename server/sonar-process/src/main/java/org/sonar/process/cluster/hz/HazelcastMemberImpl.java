@@ -24,6 +24,7 @@ import com.hazelcast.core.HazelcastInstance;
 import com.hazelcast.core.HazelcastInstanceNotActiveException;
 import com.hazelcast.core.IAtomicReference;
 import com.hazelcast.core.IExecutorService;
+import com.hazelcast.core.ITopic;
 import com.hazelcast.core.Member;
 import com.hazelcast.core.MemberSelector;
 import java.util.Map;
@@ -54,6 +55,11 @@ class HazelcastMemberImpl implements HazelcastMember {
     return hzInstance.getReplicatedMap(s);
   }
 
+  @Override
+  public <E> ITopic<E> getTopic(String name) {
+    return hzInstance.getTopic(name);
+  }
+
   @Override
   public String getUuid() {
     return hzInstance.getLocalEndpoint().getUuid();
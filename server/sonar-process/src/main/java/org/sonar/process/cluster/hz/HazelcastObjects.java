@@ -53,6 +53,10 @@ public final class HazelcastObjects {
    * {@link CeCleaningSchedulerImpl}
    */
   public static final String CE_CLEANING_JOB_LOCK = "CE_CLEANING_JOB_LOCK";
+  /**
+   * The key of the topic on which submissions of tasks to the CE queue are published
+   */
+  public static final String CE_QUEUE_SUBMISSIONS = "CE_QUEUE_SUBMISSIONS";
   /**
    * THe key of the replicated map holding the health state information of all SQ nodes.
    */
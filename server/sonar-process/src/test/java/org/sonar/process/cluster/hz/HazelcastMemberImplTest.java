@@ -26,6 +26,8 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 import org.junit.AfterClass;
 import org.junit.BeforeClass;
@@ -109,6 +111,18 @@ public class HazelcastMemberImplTest {
     assertThat(failures.get(0)).hasMessageContaining("BOOM");
   }
 
+  @Test
+  public void messages_published_on_topic_are_delivered_to_all_members() throws InterruptedException {
+    CountDownLatch latch = new CountDownLatch(3);
+    member1.<String>getTopic("topic").addMessageListener(message -> latch.countDown());
+    member2.<String>getTopic("topic").addMessageListener(message -> latch.countDown());
+    member3.<String>getTopic("topic").addMessageListener(message -> latch.countDown());
+
+    member1.<String>getTopic("topic").publish("foo");
+
+    assertThat(latch.await(30, TimeUnit.SECONDS)).isTrue();
+  }
+
   private static HazelcastMember newHzMember(int port, int... otherPorts) {
     return new HazelcastMemberBuilder()
       .setProcessId(ProcessId.COMPUTE_ENGINE)
@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+/**
+ * Adapts the size of bulk requests and the number of bulk requests executed concurrently to the load
+ * of Elasticsearch. Both are halved as soon as a bulk request is slow or has documents rejected because
+ * the queues of Elasticsearch are full. They are increased again step by step while bulk requests are fast.
+ */
+class BulkFlowControl {
+
+  static final long MIN_FLUSH_BYTE_SIZE = 256 * 1024L;
+  static final long INITIAL_FLUSH_BYTE_SIZE = 1024 * 1024L;
+  static final long MAX_FLUSH_BYTE_SIZE = 5 * 1024 * 1024L;
+  private static final long FLUSH_BYTE_SIZE_INCREMENT = 256 * 1024L;
+  static final long FAST_BULK_MS = 1_000L;
+  static final long SLOW_BULK_MS = 5_000L;
+
+  private final int maxConcurrentRequests;
+  private long flushByteSize = INITIAL_FLUSH_BYTE_SIZE;
+  private int concurrentRequests;
+  private int inFlightRequests = 0;
+
+  /**
+   * @param maxConcurrentRequests see {@link org.elasticsearch.action.bulk.BulkProcessor.Builder#setConcurrentRequests(int)}.
+   *                              Zero means that bulk requests are executed by the thread which adds documents, one at a time.
+   */
+  BulkFlowControl(int maxConcurrentRequests) {
+    this.maxConcurrentRequests = Math.max(1, maxConcurrentRequests);
+    this.concurrentRequests = this.maxConcurrentRequests;
+  }
+
+  synchronized long getFlushByteSize() {
+    return flushByteSize;
+  }
+
+  synchronized int getConcurrentRequests() {
+    return concurrentRequests;
+  }
+
+  /**
+   * Blocks until a new bulk request is allowed to be executed.
+   */
+  synchronized void beforeBulk() {
+    try {
+      while (inFlightRequests >= concurrentRequests) {
+        wait();
+      }
+    } catch (InterruptedException e) {
+      // request is executed anyway, limit is exceeded
+      Thread.currentThread().interrupt();
+    }
+    inFlightRequests++;
+  }
+
+  /**
+   * @param durationMs duration of the bulk request, including the retries of rejected documents
+   * @param rejected whether some documents have been rejected, even after retries
+   */
+  synchronized void afterBulk(long durationMs, boolean rejected) {
+    inFlightRequests = Math.max(0, inFlightRequests - 1);
+    if (rejected || durationMs >= SLOW_BULK_MS) {
+      flushByteSize = Math.max(MIN_FLUSH_BYTE_SIZE, flushByteSize / 2);
+      concurrentRequests = Math.max(1, concurrentRequests / 2);
+    } else if (durationMs <= FAST_BULK_MS) {
+      flushByteSize = Math.min(MAX_FLUSH_BYTE_SIZE, flushByteSize + FLUSH_BYTE_SIZE_INCREMENT);
+      concurrentRequests = Math.min(maxConcurrentRequests, concurrentRequests + 1);
+    }
+    notifyAll();
+  }
+}
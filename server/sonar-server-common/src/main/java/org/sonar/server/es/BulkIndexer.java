@@ -27,7 +27,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.Nullable;
 import org.elasticsearch.action.DocWriteRequest;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
@@ -48,6 +50,7 @@ import org.elasticsearch.cluster.metadata.IndexMetaData;
 import org.elasticsearch.common.unit.ByteSizeUnit;
 import org.elasticsearch.common.unit.ByteSizeValue;
 import org.elasticsearch.common.unit.TimeValue;
+import org.elasticsearch.rest.RestStatus;
 import org.elasticsearch.search.SearchHit;
 import org.elasticsearch.search.SearchHitField;
 import org.elasticsearch.search.sort.SortOrder;
@@ -61,15 +64,27 @@ import static java.lang.String.format;
 /**
  * Helper to bulk requests in an efficient way :
  * <ul>
- * <li>bulk request is sent on the wire when its size is higher than 5Mb</li>
+ * <li>bulk request is sent on the wire when its size is higher than a threshold, between 256Kb and 5Mb,
+ * which adapts to the latency of Elasticsearch (see {@link BulkFlowControl})</li>
+ * <li>the number of concurrent bulk requests decreases when Elasticsearch is slow or rejects documents</li>
+ * <li>documents rejected because the queues of Elasticsearch are full are sent again with an exponential backoff</li>
  * <li>on large table indexing, replicas and automatic refresh can be temporarily disabled</li>
  * </ul>
+ * Statistics of bulk requests are exported by JMX for each index (see {@link BulkIndexerMBean}).
  */
 public class BulkIndexer {
 
   private static final Logger LOGGER = Loggers.get(BulkIndexer.class);
-  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(1, ByteSizeUnit.MB);
+  /**
+   * Bulk requests are flushed by {@link #addToBulk(DocWriteRequest)}, according to {@link BulkFlowControl#getFlushByteSize()}
+   */
+  private static final ByteSizeValue FLUSH_BYTE_SIZE = new ByteSizeValue(-1, ByteSizeUnit.BYTES);
   private static final int FLUSH_ACTIONS = -1;
+  /**
+   * Rejected documents are retried for about 25 seconds, instead of 5 seconds with the default
+   * policy of Elasticsearch, before being considered as failed.
+   */
+  private static final BackoffPolicy BACKOFF_POLICY = BackoffPolicy.exponentialBackoff(TimeValue.timeValueMillis(100), 10);
   private static final String REFRESH_INTERVAL_SETTING = "index.refresh_interval";
   private static final int DEFAULT_NUMBER_OF_SHARDS = 5;
 
@@ -79,22 +94,42 @@ public class BulkIndexer {
   private final IndexingResult result = new IndexingResult();
   private final IndexingListener indexingListener;
   private final SizeHandler sizeHandler;
+  private final BulkFlowControl flowControl;
+  private final BulkIndexerMBeanImpl statistics;
+  private final AtomicLong pendingBytes = new AtomicLong();
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size) {
     this(client, indexType, size, IndexingListener.FAIL_ON_ERROR);
   }
 
   public BulkIndexer(EsClient client, IndexType indexType, Size size, IndexingListener indexingListener) {
+    this(client, indexType, size.createHandler(Runtime2.INSTANCE), indexingListener, null);
+  }
+
+  /**
+   * @param concurrentRequests maximum number of bulk requests in flight, overriding the value
+   *                           defined by {@code size}. It should not be zero when documents are
+   *                           added from several threads, otherwise these threads execute bulk requests
+   *                           one after the other.
+   */
+  public BulkIndexer(EsClient client, IndexType indexType, Size size, IndexingListener indexingListener, int concurrentRequests) {
+    this(client, indexType, size.createHandler(Runtime2.INSTANCE), indexingListener, concurrentRequests);
+  }
+
+  private BulkIndexer(EsClient client, IndexType indexType, SizeHandler sizeHandler, IndexingListener indexingListener, @Nullable Integer concurrentRequests) {
     this.client = client;
     this.indexType = indexType;
-    this.sizeHandler = size.createHandler(Runtime2.INSTANCE);
+    this.sizeHandler = sizeHandler;
     this.indexingListener = indexingListener;
+    int maxConcurrentRequests = concurrentRequests == null ? sizeHandler.getConcurrentRequests() : concurrentRequests;
+    this.flowControl = new BulkFlowControl(maxConcurrentRequests);
+    this.statistics = BulkIndexerMBeanImpl.forIndex(indexType.getIndex());
     BulkProcessorListener bulkProcessorListener = new BulkProcessorListener();
     this.bulkProcessor = BulkProcessor.builder(client.nativeClient(), bulkProcessorListener)
-      .setBackoffPolicy(BackoffPolicy.exponentialBackoff())
+      .setBackoffPolicy(BACKOFF_POLICY)
       .setBulkSize(FLUSH_BYTE_SIZE)
       .setBulkActions(FLUSH_ACTIONS)
-      .setConcurrentRequests(sizeHandler.getConcurrentRequests())
+      .setConcurrentRequests(maxConcurrentRequests)
       .build();
   }
 
@@ -125,17 +160,26 @@ public class BulkIndexer {
 
   public void add(IndexRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    addToBulk(request);
   }
 
   public void add(DeleteRequest request) {
     result.incrementRequests();
-    bulkProcessor.add(request);
+    addToBulk(request);
   }
 
   public void add(DocWriteRequest request) {
     result.incrementRequests();
+    addToBulk(request);
+  }
+
+  private void addToBulk(DocWriteRequest request) {
     bulkProcessor.add(request);
+    long bytes = pendingBytes.addAndGet(new BulkRequest().add(request).estimatedSizeInBytes());
+    // if another thread added a request in the meantime, then this thread is the one which flushes
+    if (bytes >= flowControl.getFlushByteSize() && pendingBytes.compareAndSet(bytes, 0L)) {
+      bulkProcessor.flush();
+    }
   }
 
   public void addDeletion(SearchRequestBuilder searchRequest) {
@@ -199,9 +243,12 @@ public class BulkIndexer {
 
   private final class BulkProcessorListener implements Listener {
     private final Profiler profiler = Profiler.createIfTrace(EsClient.LOGGER);
+    private final Map<Long, Long> startDatesByExecutionId = new ConcurrentHashMap<>();
 
     @Override
     public void beforeBulk(long executionId, BulkRequest request) {
+      flowControl.beforeBulk();
+      startDatesByExecutionId.put(executionId, System.currentTimeMillis());
       profiler.start();
     }
 
@@ -209,14 +256,21 @@ public class BulkIndexer {
     public void afterBulk(long executionId, BulkRequest request, BulkResponse response) {
       stopProfiler(request);
       List<DocId> successDocIds = new ArrayList<>();
+      int rejected = 0;
       for (BulkItemResponse item : response.getItems()) {
         if (item.isFailed()) {
           LOGGER.error("index [{}], type [{}], id [{}], message [{}]", item.getIndex(), item.getType(), item.getId(), item.getFailureMessage());
+          if (item.getFailure().getStatus() == RestStatus.TOO_MANY_REQUESTS) {
+            rejected++;
+          }
         } else {
           result.incrementSuccess();
           successDocIds.add(new DocId(item.getIndex(), item.getType(), item.getId()));
         }
       }
+      long durationMs = durationMs(executionId);
+      statistics.onBulk(durationMs, successDocIds.size(), response.getItems().length - successDocIds.size(), rejected);
+      flowControl.afterBulk(durationMs, rejected > 0);
       indexingListener.onSuccess(successDocIds);
     }
 
@@ -224,6 +278,14 @@ public class BulkIndexer {
     public void afterBulk(long executionId, BulkRequest request, Throwable e) {
       LOGGER.error("Fail to execute bulk index request: " + request, e);
       stopProfiler(request);
+      long durationMs = durationMs(executionId);
+      statistics.onBulk(durationMs, 0, request.numberOfActions(), 0);
+      flowControl.afterBulk(durationMs, true);
+    }
+
+    private long durationMs(long executionId) {
+      Long startDate = startDatesByExecutionId.remove(executionId);
+      return startDate == null ? 0L : (System.currentTimeMillis() - startDate);
     }
 
     private void stopProfiler(BulkRequest request) {
@@ -0,0 +1,43 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+/**
+ * Statistics of the bulk requests sent by {@link BulkIndexer} to an index, since startup.
+ */
+public interface BulkIndexerMBean {
+
+  String OBJECT_NAME_PATTERN = "SonarQube:name=BulkIndexer,index=%s";
+
+  long getBulkRequests();
+
+  long getIndexedDocuments();
+
+  long getFailedDocuments();
+
+  /**
+   * Documents rejected by Elasticsearch because its queues are full, even after retries
+   */
+  long getRejectedDocuments();
+
+  long getTotalLatencyMs();
+
+  long getAverageLatencyMs();
+}
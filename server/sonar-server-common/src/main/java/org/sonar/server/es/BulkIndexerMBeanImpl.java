@@ -0,0 +1,97 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import org.sonar.api.utils.log.Loggers;
+import org.sonar.process.Jmx;
+
+import static java.lang.String.format;
+
+/**
+ * {@link BulkIndexer} is not a component, so statistics are kept in a static registry. The
+ * MBean of an index is registered when the first bulk request is sent to this index.
+ */
+class BulkIndexerMBeanImpl implements BulkIndexerMBean {
+
+  private static final Map<String, BulkIndexerMBeanImpl> BY_INDEX = new ConcurrentHashMap<>();
+
+  private final AtomicLong bulkRequests = new AtomicLong();
+  private final AtomicLong indexedDocuments = new AtomicLong();
+  private final AtomicLong failedDocuments = new AtomicLong();
+  private final AtomicLong rejectedDocuments = new AtomicLong();
+  private final AtomicLong totalLatencyMs = new AtomicLong();
+
+  static BulkIndexerMBeanImpl forIndex(String index) {
+    return BY_INDEX.computeIfAbsent(index, BulkIndexerMBeanImpl::register);
+  }
+
+  private static BulkIndexerMBeanImpl register(String index) {
+    BulkIndexerMBeanImpl mbean = new BulkIndexerMBeanImpl();
+    try {
+      Jmx.register(format(OBJECT_NAME_PATTERN, index), mbean);
+    } catch (RuntimeException e) {
+      // statistics are still collected, but not exported
+      Loggers.get(BulkIndexerMBeanImpl.class).warn("Fail to register MBean of index " + index, e);
+    }
+    return mbean;
+  }
+
+  void onBulk(long latencyMs, int indexed, int failed, int rejected) {
+    bulkRequests.incrementAndGet();
+    totalLatencyMs.addAndGet(latencyMs);
+    indexedDocuments.addAndGet(indexed);
+    failedDocuments.addAndGet(failed);
+    rejectedDocuments.addAndGet(rejected);
+  }
+
+  @Override
+  public long getBulkRequests() {
+    return bulkRequests.get();
+  }
+
+  @Override
+  public long getIndexedDocuments() {
+    return indexedDocuments.get();
+  }
+
+  @Override
+  public long getFailedDocuments() {
+    return failedDocuments.get();
+  }
+
+  @Override
+  public long getRejectedDocuments() {
+    return rejectedDocuments.get();
+  }
+
+  @Override
+  public long getTotalLatencyMs() {
+    return totalLatencyMs.get();
+  }
+
+  @Override
+  public long getAverageLatencyMs() {
+    long requests = bulkRequests.get();
+    return requests == 0 ? 0 : (totalLatencyMs.get() / requests);
+  }
+}
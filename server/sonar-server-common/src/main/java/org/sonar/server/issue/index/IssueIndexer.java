@@ -23,15 +23,27 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ListMultimap;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
+import org.sonar.api.config.Configuration;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
+import org.sonar.core.util.ProgressLogger;
 import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
@@ -49,6 +61,7 @@ import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.permission.index.AuthorizationScope;
 import org.sonar.server.permission.index.NeedAuthorizationIndexer;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static java.util.Collections.emptyList;
 import static org.elasticsearch.index.query.QueryBuilders.boolQuery;
 import static org.elasticsearch.index.query.QueryBuilders.termQuery;
@@ -68,15 +81,30 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
   private static final Logger LOGGER = Loggers.get(IssueIndexer.class);
   private static final AuthorizationScope AUTHORIZATION_SCOPE = new AuthorizationScope(INDEX_TYPE_ISSUE, project -> Qualifiers.PROJECT.equals(project.getQualifier()));
   private static final ImmutableSet<IndexType> INDEX_TYPES = ImmutableSet.of(INDEX_TYPE_ISSUE);
+  /**
+   * Number of threads reading issues from DB when index is built on startup. Default is 1.
+   */
+  static final String STARTUP_INDEXING_THREADS_PROPERTY = "sonar.search.issues.startupIndexing.threads";
 
   private final EsClient esClient;
   private final DbClient dbClient;
   private final IssueIteratorFactory issueIteratorFactory;
+  private final int startupIndexingThreads;
 
   public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory) {
+    this(esClient, dbClient, issueIteratorFactory, 1);
+  }
+
+  public IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, Configuration configuration) {
+    this(esClient, dbClient, issueIteratorFactory, configuration.getInt(STARTUP_INDEXING_THREADS_PROPERTY).orElse(1));
+  }
+
+  private IssueIndexer(EsClient esClient, DbClient dbClient, IssueIteratorFactory issueIteratorFactory, int startupIndexingThreads) {
+    checkArgument(startupIndexingThreads >= 1, "Property %s must be greater than or equal to 1. Got %s", STARTUP_INDEXING_THREADS_PROPERTY, startupIndexingThreads);
     this.esClient = esClient;
     this.dbClient = dbClient;
     this.issueIteratorFactory = issueIteratorFactory;
+    this.startupIndexingThreads = startupIndexingThreads;
   }
 
   @Override
@@ -91,11 +119,89 @@ public class IssueIndexer implements ProjectIndexer, NeedAuthorizationIndexer {
 
   @Override
   public void indexOnStartup(Set<IndexType> uninitializedIndexTypes) {
+    if (startupIndexingThreads > 1) {
+      indexOnStartupByProject();
+      return;
+    }
     try (IssueIterator issues = issueIteratorFactory.createForAll()) {
       doIndex(issues, Size.LARGE, IndexingListener.FAIL_ON_ERROR);
     }
   }
 
+  /**
+   * Issues are loaded project by project, by several threads which share the same {@link BulkIndexer}.
+   * Projects are pulled one at a time from a queue, so that a thread loading a big project does not
+   * delay the indexing of the other projects.
+   */
+  private void indexOnStartupByProject() {
+    Queue<String> projectUuids;
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      projectUuids = new ConcurrentLinkedQueue<>(dbClient.issueDao().selectProjectUuidsOfIssues(dbSession));
+    }
+    LOGGER.info("Indexing issues of {} projects with {} threads", projectUuids.size(), startupIndexingThreads);
+
+    BulkIndexer bulkIndexer = new BulkIndexer(esClient, INDEX_TYPE_ISSUE, Size.LARGE, IndexingListener.FAIL_ON_ERROR, startupIndexingThreads);
+    bulkIndexer.start();
+    AtomicLong indexedProjects = new AtomicLong();
+    ProgressLogger progressLogger = new ProgressLogger("ProgressProjects[" + INDEX_TYPE_ISSUE.getIndex() + "]", indexedProjects, LOGGER)
+      .setPluralLabel("projects");
+    progressLogger.start();
+    ExecutorService executor = Executors.newFixedThreadPool(startupIndexingThreads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("IssueIndexer-%d")
+      .build());
+    try {
+      List<Future<?>> futures = new ArrayList<>(startupIndexingThreads);
+      for (int i = 0; i < startupIndexingThreads; i++) {
+        futures.add(executor.submit(() -> indexProjects(projectUuids, bulkIndexer, indexedProjects)));
+      }
+      for (Future<?> future : futures) {
+        waitFor(future);
+      }
+    } finally {
+      // on failure, the other threads stop after their current project
+      projectUuids.clear();
+      executor.shutdownNow();
+      awaitTermination(executor);
+      progressLogger.stop();
+      // restores the settings of index and releases the bulk processor, even on failure
+      bulkIndexer.stop();
+    }
+  }
+
+  private void indexProjects(Queue<String> projectUuids, BulkIndexer bulkIndexer, AtomicLong indexedProjects) {
+    String projectUuid;
+    while ((projectUuid = projectUuids.poll()) != null) {
+      try (IssueIterator issues = issueIteratorFactory.createForProject(projectUuid)) {
+        while (issues.hasNext()) {
+          bulkIndexer.add(newIndexRequest(issues.next()));
+        }
+      }
+      indexedProjects.incrementAndGet();
+    }
+  }
+
+  private static void awaitTermination(ExecutorService executor) {
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+        LOGGER.info("Waiting for issue indexing threads to stop");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing issues", e);
+    } catch (ExecutionException e) {
+      throw new IllegalStateException("Fail to index issues", e.getCause());
+    }
+  }
+
   @Override
   public void indexOnAnalysis(String branchUuid) {
     try (IssueIterator issues = issueIteratorFactory.createForProject(branchUuid)) {
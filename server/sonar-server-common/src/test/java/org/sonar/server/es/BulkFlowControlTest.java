@@ -0,0 +1,119 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.es;
+
+import org.junit.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.sonar.server.es.BulkFlowControl.FAST_BULK_MS;
+import static org.sonar.server.es.BulkFlowControl.INITIAL_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.BulkFlowControl.MAX_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.BulkFlowControl.MIN_FLUSH_BYTE_SIZE;
+import static org.sonar.server.es.BulkFlowControl.SLOW_BULK_MS;
+
+public class BulkFlowControlTest {
+
+  private BulkFlowControl underTest = new BulkFlowControl(4);
+
+  @Test
+  public void start_with_initial_bulk_size_and_max_concurrent_requests() {
+    assertThat(underTest.getFlushByteSize()).isEqualTo(INITIAL_FLUSH_BYTE_SIZE);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(4);
+  }
+
+  @Test
+  public void at_least_one_request_is_allowed_when_requests_are_executed_by_caller_thread() {
+    underTest = new BulkFlowControl(0);
+
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void decrease_bulk_size_and_concurrent_requests_when_documents_are_rejected() {
+    executeBulk(10L, true);
+
+    assertThat(underTest.getFlushByteSize()).isEqualTo(INITIAL_FLUSH_BYTE_SIZE / 2);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(2);
+  }
+
+  @Test
+  public void decrease_bulk_size_and_concurrent_requests_when_request_is_slow() {
+    executeBulk(SLOW_BULK_MS, false);
+    executeBulk(SLOW_BULK_MS, false);
+
+    assertThat(underTest.getFlushByteSize()).isEqualTo(INITIAL_FLUSH_BYTE_SIZE / 4);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void bulk_size_and_concurrent_requests_have_lower_limits() {
+    for (int i = 0; i < 20; i++) {
+      executeBulk(10L, true);
+    }
+
+    assertThat(underTest.getFlushByteSize()).isEqualTo(MIN_FLUSH_BYTE_SIZE);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+  }
+
+  @Test
+  public void increase_bulk_size_and_concurrent_requests_up_to_upper_limits_when_requests_are_fast() {
+    executeBulk(10L, true);
+    executeBulk(10L, true);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(1);
+
+    executeBulk(FAST_BULK_MS, false);
+    assertThat(underTest.getFlushByteSize()).isGreaterThan(INITIAL_FLUSH_BYTE_SIZE / 4);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(2);
+
+    for (int i = 0; i < 50; i++) {
+      executeBulk(10L, false);
+    }
+    assertThat(underTest.getFlushByteSize()).isEqualTo(MAX_FLUSH_BYTE_SIZE);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(4);
+  }
+
+  @Test
+  public void do_not_change_limits_when_latency_is_average() {
+    executeBulk(FAST_BULK_MS + 1, false);
+
+    assertThat(underTest.getFlushByteSize()).isEqualTo(INITIAL_FLUSH_BYTE_SIZE);
+    assertThat(underTest.getConcurrentRequests()).isEqualTo(4);
+  }
+
+  @Test
+  public void beforeBulk_blocks_while_too_many_requests_are_in_flight() throws InterruptedException {
+    underTest = new BulkFlowControl(1);
+    underTest.beforeBulk();
+
+    Thread thread = new Thread(underTest::beforeBulk);
+    thread.start();
+    thread.join(100L);
+    assertThat(thread.isAlive()).isTrue();
+
+    underTest.afterBulk(10L, false);
+    thread.join();
+    assertThat(thread.isAlive()).isFalse();
+  }
+
+  private void executeBulk(long durationMs, boolean rejected) {
+    underTest.beforeBulk();
+    underTest.afterBulk(durationMs, rejected);
+  }
+}
@@ -20,8 +20,10 @@
 package org.sonar.server.es;
 
 import com.google.common.collect.ImmutableMap;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.List;
+import javax.management.ObjectName;
 import org.elasticsearch.action.admin.indices.settings.get.GetSettingsResponse;
 import org.elasticsearch.action.index.IndexRequest;
 import org.elasticsearch.action.search.SearchRequestBuilder;
@@ -35,6 +37,7 @@ import org.sonar.api.utils.log.LoggerLevel;
 import org.sonar.db.DbTester;
 import org.sonar.server.es.BulkIndexer.Size;
 
+import static java.lang.String.format;
 import static java.util.Collections.emptyMap;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.sonar.server.es.FakeIndexDefinition.INDEX;
@@ -100,6 +103,26 @@ public class BulkIndexerTest {
     assertThat(replicas()).isEqualTo(1);
   }
 
+  @Test
+  public void statistics_of_bulk_requests_are_exported_by_index() throws Exception {
+    BulkIndexerMBeanImpl statistics = BulkIndexerMBeanImpl.forIndex(INDEX);
+    long bulkRequests = statistics.getBulkRequests();
+    long indexedDocuments = statistics.getIndexedDocuments();
+    long failedDocuments = statistics.getFailedDocuments();
+
+    BulkIndexer indexer = new BulkIndexer(es.client(), INDEX_TYPE_FAKE, Size.REGULAR);
+    indexer.start();
+    indexer.add(newIndexRequestWithDocId("foo"));
+    indexer.add(newIndexRequestWithDocId("bar"));
+    indexer.add(new IndexRequest("index_does_not_exist", "index_does_not_exist", "baz").source(emptyMap()));
+    indexer.stop();
+
+    assertThat(statistics.getBulkRequests()).isEqualTo(bulkRequests + 1);
+    assertThat(statistics.getIndexedDocuments()).isEqualTo(indexedDocuments + 2);
+    assertThat(statistics.getFailedDocuments()).isEqualTo(failedDocuments + 1);
+    assertThat(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(format(BulkIndexerMBean.OBJECT_NAME_PATTERN, INDEX)))).isTrue();
+  }
+
   @Test
   public void bulk_delete() {
     int max = 500;
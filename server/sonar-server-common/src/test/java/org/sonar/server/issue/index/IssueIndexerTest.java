@@ -19,6 +19,7 @@
  */
 package org.sonar.server.issue.index;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Date;
@@ -31,6 +32,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.resources.Qualifiers;
 import org.sonar.api.utils.log.LogTester;
 import org.sonar.api.utils.log.LoggerLevel;
@@ -53,7 +55,11 @@ import static java.util.Arrays.asList;
 import static java.util.Collections.emptyList;
 import static java.util.Collections.emptySet;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.Assert.fail;
 import static org.junit.rules.ExpectedException.none;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 import static org.sonar.db.component.ComponentTesting.newFileDto;
 import static org.sonar.server.issue.IssueDocTesting.newDoc;
 import static org.sonar.server.issue.index.IssueIndexDefinition.INDEX_TYPE_ISSUE;
@@ -108,6 +114,54 @@ public class IssueIndexerTest {
     assertThatIndexHasOnly(issue1, issue2);
   }
 
+  @Test
+  public void indexOnStartup_loads_projects_concurrently_when_several_threads_are_configured() {
+    IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()),
+      new MapSettings().setProperty("sonar.search.issues.startupIndexing.threads", 3).asConfig());
+    RuleDefinitionDto rule = db.rules().insert();
+    List<IssueDto> issues = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      ComponentDto project = db.components().insertPrivateProject(organization);
+      ComponentDto file = db.components().insertComponent(newFileDto(project));
+      issues.add(db.issues().insert(rule, project, file));
+      issues.add(db.issues().insert(rule, project, project));
+    }
+
+    underTest.indexOnStartup(emptySet());
+
+    assertThatIndexHasOnly(issues.toArray(new IssueDto[0]));
+  }
+
+  @Test
+  public void indexOnStartup_restores_index_settings_if_a_thread_fails() {
+    IssueIteratorFactory issueIteratorFactory = mock(IssueIteratorFactory.class);
+    when(issueIteratorFactory.createForProject(anyString())).thenThrow(new IllegalStateException("db failure"));
+    IssueIndexer underTest = new IssueIndexer(es.client(), db.getDbClient(), issueIteratorFactory,
+      new MapSettings().setProperty("sonar.search.issues.startupIndexing.threads", 2).asConfig());
+    db.issues().insertIssue(organization);
+    String initialRefreshInterval = refreshInterval();
+
+    try {
+      underTest.indexOnStartup(emptySet());
+      fail();
+    } catch (IllegalStateException e) {
+      assertThat(e).hasMessage("Fail to index issues");
+      assertThat(e.getCause()).hasMessage("db failure");
+    }
+
+    // periodical refresh is disabled during indexing, then restored
+    assertThat(refreshInterval()).isEqualTo(initialRefreshInterval).isNotEqualTo("-1");
+  }
+
+  @Test
+  public void fail_if_number_of_startup_indexing_threads_is_lower_than_1() {
+    expectedException.expect(IllegalArgumentException.class);
+    expectedException.expectMessage("Property sonar.search.issues.startupIndexing.threads must be greater than or equal to 1. Got 0");
+
+    new IssueIndexer(es.client(), db.getDbClient(), new IssueIteratorFactory(db.getDbClient()),
+      new MapSettings().setProperty("sonar.search.issues.startupIndexing.threads", 0).asConfig());
+  }
+
   @Test
   public void verify_indexed_fields() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -513,6 +567,11 @@ public class IssueIndexerTest {
     assertThat(es.countDocuments(INDEX_TYPE_ISSUE)).isEqualTo(expectedSize);
   }
 
+  private String refreshInterval() {
+    String index = INDEX_TYPE_ISSUE.getIndex();
+    return es.client().nativeClient().admin().indices().prepareGetSettings(index).get().getSetting(index, "index.refresh_interval");
+  }
+
   private void assertThatIndexHasOnly(IssueDto... expectedIssues) {
     assertThat(es.getDocuments(INDEX_TYPE_ISSUE))
       .extracting(SearchHit::getId)
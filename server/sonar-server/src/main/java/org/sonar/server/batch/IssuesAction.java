@@ -22,15 +22,18 @@ package org.sonar.server.batch;
 import com.google.common.base.Splitter;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import javax.annotation.Nullable;
+import org.apache.ibatis.session.ResultHandler;
 import org.sonar.api.resources.Scopes;
 import org.sonar.api.rules.RuleType;
 import org.sonar.api.server.ws.Change;
 import org.sonar.api.server.ws.Request;
 import org.sonar.api.server.ws.Response;
 import org.sonar.api.server.ws.WebService;
+import org.sonar.core.util.stream.MoreCollectors;
 import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
@@ -45,8 +48,6 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.collect.Maps.newHashMap;
 import static java.lang.String.format;
 import static java.util.Optional.ofNullable;
-import static java.util.stream.Collectors.toList;
-import static java.util.stream.Collectors.toMap;
 import static org.sonar.api.web.UserRole.USER;
 import static org.sonar.server.ws.KeyExamples.KEY_BRANCH_EXAMPLE_001;
 import static org.sonar.server.ws.KeyExamples.KEY_PROJECT_EXAMPLE_001;
@@ -96,40 +97,36 @@ public class IssuesAction implements BatchWsAction {
       ComponentDto component = loadComponent(dbSession, request);
       userSession.checkComponentPermission(USER, component);
       Map<String, String> keysByUUid = keysByUUid(dbSession, component);
+      // issues are scrolled, which on some databases prevents any other query on the same connection until the end of the scroll,
+      // hence logins of assignees are loaded before. A second connection is not opened, as many scanners can request issues at the
+      // same time.
+      Map<String, String> assigneeLoginsByUuid = loadAssigneeLogins(dbSession, component);
 
       ScannerInput.ServerIssue.Builder responseBuilder = ScannerInput.ServerIssue.newBuilder();
       response.stream().setMediaType(MediaTypes.PROTOBUF);
       OutputStream output = response.stream().output();
 
-      List<IssueDto> issueDtos = new ArrayList<>();
+      ResultHandler<IssueDto> handler = context -> {
+        IssueDto issue = context.getResultObject();
+        String assigneeUuid = issue.getAssigneeUuid();
+        handleIssue(issue, assigneeUuid == null ? null : assigneeLoginsByUuid.get(assigneeUuid), responseBuilder, keysByUUid, output);
+      };
       switch (component.scope()) {
         case Scopes.PROJECT:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(dbSession, component));
+          dbClient.issueDao().scrollNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(dbSession, component, handler);
           break;
         case Scopes.FILE:
-          issueDtos.addAll(dbClient.issueDao().selectNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(dbSession, component.uuid()));
+          dbClient.issueDao().scrollNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(dbSession, component.uuid(), handler);
           break;
         default:
           // only projects, modules and files are supported. Other types of components are not allowed.
           throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
       }
-
-      List<String> usersUuids = issueDtos.stream()
-        .filter(issue -> issue.getAssigneeUuid() != null)
-        .map(IssueDto::getAssigneeUuid)
-        .collect(toList());
-
-      Map<String, String> userLoginsByUserUuids = dbClient.userDao().selectByUuids(dbSession, usersUuids)
-        .stream().collect(toMap(UserDto::getUuid, UserDto::getLogin));
-
-      issueDtos.forEach(issue -> {
-        issue.setAssigneeUuid(userLoginsByUserUuids.get(issue.getAssigneeUuid()));
-        handleIssue(issue, responseBuilder, keysByUUid, output);
-      });
     }
   }
 
-  private static void handleIssue(IssueDto issue, ScannerInput.ServerIssue.Builder issueBuilder, Map<String, String> keysByUUid, OutputStream out) {
+  private static void handleIssue(IssueDto issue, @Nullable String assigneeLogin, ScannerInput.ServerIssue.Builder issueBuilder,
+    Map<String, String> keysByUUid, OutputStream out) {
     issueBuilder.setKey(issue.getKey());
     String moduleUuid = extractModuleUuid(issue);
     issueBuilder.setModuleKey(keysByUUid.get(moduleUuid));
@@ -137,7 +134,7 @@ public class IssuesAction implements BatchWsAction {
     issueBuilder.setRuleRepository(issue.getRuleRepo());
     issueBuilder.setRuleKey(issue.getRule());
     ofNullable(issue.getChecksum()).ifPresent(issueBuilder::setChecksum);
-    ofNullable(issue.getAssigneeUuid()).ifPresent(issueBuilder::setAssigneeLogin);
+    ofNullable(assigneeLogin).ifPresent(issueBuilder::setAssigneeLogin);
     ofNullable(issue.getLine()).ifPresent(issueBuilder::setLine);
     ofNullable(issue.getMessage()).ifPresent(issueBuilder::setMsg);
     issueBuilder.setSeverity(org.sonar.scanner.protocol.Constants.Severity.valueOf(issue.getSeverity()));
@@ -175,6 +172,27 @@ public class IssuesAction implements BatchWsAction {
     return keysByUUid;
   }
 
+  /**
+   * Logins of the assignees of the issues, by user uuid. The size of the map depends on the number of assignees, not on
+   * the number of issues.
+   */
+  private Map<String, String> loadAssigneeLogins(DbSession dbSession, ComponentDto component) {
+    Set<String> assigneeUuids;
+    switch (component.scope()) {
+      case Scopes.PROJECT:
+        assigneeUuids = dbClient.issueDao().selectAssigneeUuidsOfNonClosedByModuleOrProjectExcludingExternalsAndSecurityHotspots(dbSession, component);
+        break;
+      case Scopes.FILE:
+        assigneeUuids = dbClient.issueDao().selectAssigneeUuidsOfNonClosedByComponentUuidExcludingExternalsAndSecurityHotspots(dbSession, component.uuid());
+        break;
+      default:
+        // only projects, modules and files are supported. Other types of components are not allowed.
+        throw new IllegalArgumentException(format("Component of scope '%s' is not allowed", component.scope()));
+    }
+    return dbClient.userDao().selectByUuids(dbSession, assigneeUuids).stream()
+      .collect(MoreCollectors.uniqueIndex(UserDto::getUuid, UserDto::getLogin, assigneeUuids.size()));
+  }
+
   private ComponentDto loadComponent(DbSession dbSession, Request request) {
     String componentKey = request.mandatoryParam(PARAM_KEY);
     String branch = request.param(PARAM_BRANCH);
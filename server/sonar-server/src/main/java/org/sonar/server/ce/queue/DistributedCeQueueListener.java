@@ -0,0 +1,42 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import org.sonar.ce.queue.CeQueueListener;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMISSIONS;
+
+/**
+ * Publishes submissions of tasks on the topic to which Compute Engine nodes of the cluster subscribe, so that their
+ * idle workers poll the queue without waiting for their next polling.
+ */
+public class DistributedCeQueueListener implements CeQueueListener {
+  private final HazelcastMember hazelcastMember;
+
+  public DistributedCeQueueListener(HazelcastMember hazelcastMember) {
+    this.hazelcastMember = hazelcastMember;
+  }
+
+  @Override
+  public void onSubmit() {
+    hazelcastMember.<String>getTopic(CE_QUEUE_SUBMISSIONS).publish(hazelcastMember.getUuid());
+  }
+}
@@ -23,17 +23,17 @@ import java.util.Collection;
 import java.util.List;
 import org.sonar.api.server.ServerSide;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 
 @ServerSide
 public interface IssueChangePostProcessor {
 
   /**
-   * Refresh measures, quality gate status and send webhooks
+   * Refresh measures, quality gate status and send webhooks. This is done asynchronously, so changes of issues
+   * must already be committed.
    *
    * @param components the components of changed issues
    */
-  void process(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components);
+  void process(List<DefaultIssue> changedIssues, Collection<ComponentDto> components);
 
 }
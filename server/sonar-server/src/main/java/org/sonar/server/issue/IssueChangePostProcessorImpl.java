@@ -19,28 +19,113 @@
  */
 package org.sonar.server.issue;
 
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
 import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.server.measure.live.LiveMeasureComputer;
+import org.sonar.server.measure.live.LiveMeasureRefreshExecutorService;
 import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
 import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
 
+import static java.util.Collections.emptyList;
+import static java.util.stream.Collectors.groupingBy;
+
+/**
+ * Refreshes are coalesced by branch: changes made on a branch during {@link #COALESCING_DELAY_MS} are processed
+ * together, so that measures are computed and webhooks are sent only once, outside of the HTTP request.
+ * <p/>
+ * Refreshes of a branch are run one at a time. Changes made during a refresh are refreshed once it finishes.
+ */
 public class IssueChangePostProcessorImpl implements IssueChangePostProcessor {
+  static final long COALESCING_DELAY_MS = 500L;
+  private static final Logger LOG = Loggers.get(IssueChangePostProcessorImpl.class);
 
+  private final DbClient dbClient;
   private final LiveMeasureComputer liveMeasureComputer;
   private final QGChangeEventListeners qualityGateListeners;
+  private final LiveMeasureRefreshExecutorService executorService;
+  private final ConcurrentMap<String, PendingRefresh> pendingRefreshesByBranchUuid = new ConcurrentHashMap<>();
+  private final Set<String> runningBranchUuids = ConcurrentHashMap.newKeySet();
 
-  public IssueChangePostProcessorImpl(LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners) {
+  public IssueChangePostProcessorImpl(DbClient dbClient, LiveMeasureComputer liveMeasureComputer, QGChangeEventListeners qualityGateListeners,
+    LiveMeasureRefreshExecutorService executorService) {
+    this.dbClient = dbClient;
     this.liveMeasureComputer = liveMeasureComputer;
     this.qualityGateListeners = qualityGateListeners;
+    this.executorService = executorService;
   }
 
   @Override
-  public void process(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
-    List<QGChangeEvent> gateChangeEvents = liveMeasureComputer.refresh(dbSession, components);
-    qualityGateListeners.broadcastOnIssueChange(changedIssues, gateChangeEvents);
+  public void process(List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
+    Map<String, List<DefaultIssue>> issuesByBranchUuid = changedIssues.stream().collect(groupingBy(DefaultIssue::projectUuid));
+    components.stream().collect(groupingBy(ComponentDto::projectUuid))
+      .forEach((branchUuid, branchComponents) -> {
+        List<DefaultIssue> branchIssues = issuesByBranchUuid.getOrDefault(branchUuid, emptyList());
+        PendingRefresh refresh = new PendingRefresh();
+        PendingRefresh pendingRefresh = pendingRefreshesByBranchUuid.merge(branchUuid, refresh.add(branchIssues, branchComponents),
+          (pending, added) -> pending.add(branchIssues, branchComponents));
+        if (pendingRefresh == refresh) {
+          scheduleRefresh(branchUuid);
+        }
+      });
+  }
+
+  private void scheduleRefresh(String branchUuid) {
+    executorService.schedule(() -> refresh(branchUuid), COALESCING_DELAY_MS, TimeUnit.MILLISECONDS);
+  }
+
+  private void refresh(String branchUuid) {
+    if (!runningBranchUuids.add(branchUuid)) {
+      // pending changes are rescheduled by the running refresh when it finishes
+      return;
+    }
+    try {
+      PendingRefresh refresh = pendingRefreshesByBranchUuid.remove(branchUuid);
+      if (refresh != null) {
+        refresh(branchUuid, refresh);
+      }
+    } finally {
+      runningBranchUuids.remove(branchUuid);
+      if (pendingRefreshesByBranchUuid.containsKey(branchUuid)) {
+        scheduleRefresh(branchUuid);
+      }
+    }
+  }
+
+  private void refresh(String branchUuid, PendingRefresh refresh) {
+    try (DbSession dbSession = dbClient.openSession(false)) {
+      List<QGChangeEvent> gateChangeEvents = liveMeasureComputer.refresh(dbSession, new ArrayList<>(refresh.componentsByUuid.values()));
+      qualityGateListeners.broadcastOnIssueChange(new ArrayList<>(refresh.issuesByKey.values()), gateChangeEvents);
+    } catch (Exception e) {
+      LOG.error("Failed to refresh live measures of branch " + branchUuid, e);
+    }
+  }
+
+  /**
+   * Changes of a branch which are not processed yet. Only mutated by {@link ConcurrentMap#merge}, so that
+   * changes are not lost when the refresh starts.
+   */
+  private static class PendingRefresh {
+    // the last change of an issue wins
+    private final Map<String, DefaultIssue> issuesByKey = new LinkedHashMap<>();
+    private final Map<String, ComponentDto> componentsByUuid = new LinkedHashMap<>();
+
+    private PendingRefresh add(Collection<DefaultIssue> issues, Collection<ComponentDto> components) {
+      issues.forEach(issue -> issuesByKey.put(issue.key(), issue));
+      components.forEach(component -> componentsByUuid.put(component.uuid(), component));
+      return this;
+    }
   }
 }
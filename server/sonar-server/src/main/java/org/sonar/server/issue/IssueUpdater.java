@@ -76,7 +76,7 @@ public class IssueUpdater {
 
     if (refreshMeasures) {
       List<DefaultIssue> changedIssues = result.getIssues().stream().map(IssueDto::toDefaultIssue).collect(MoreCollectors.toList(result.getIssues().size()));
-      issueChangePostProcessor.process(dbSession, changedIssues, singleton(component));
+      issueChangePostProcessor.process(changedIssues, singleton(component));
     }
 
     return result;
@@ -199,7 +199,7 @@ public class BulkChangeAction implements IssuesWsAction {
       .collect(MoreCollectors.toList());
     issueStorage.save(dbSession, items);
 
-    refreshLiveMeasures(dbSession, bulkChangeData, result);
+    refreshLiveMeasures(bulkChangeData, result);
 
     Set<String> assigneeUuids = items.stream().map(DefaultIssue::assignee).filter(Objects::nonNull).collect(toSet());
     Map<String, UserDto> userDtoByUuid = dbClient.userDao().selectByUuids(dbSession, assigneeUuids).stream().collect(toMap(UserDto::getUuid, u -> u));
@@ -211,7 +211,7 @@ public class BulkChangeAction implements IssuesWsAction {
     return result;
   }
 
-  private void refreshLiveMeasures(DbSession dbSession, BulkChangeData data, BulkChangeResult result) {
+  private void refreshLiveMeasures(BulkChangeData data, BulkChangeResult result) {
     if (!data.shouldRefreshMeasures()) {
       return;
     }
@@ -223,7 +223,7 @@ public class BulkChangeAction implements IssuesWsAction {
       .collect(MoreCollectors.toList(touchedComponentUuids.size()));
 
     List<DefaultIssue> changedIssues = data.issues.stream().filter(result.success::contains).collect(MoreCollectors.toList());
-    issueChangePostProcessor.process(dbSession, changedIssues, touchedComponents);
+    issueChangePostProcessor.process(changedIssues, touchedComponents);
   }
 
   private static Predicate<DefaultIssue> bulkChange(IssueChangeContext issueChangeContext, BulkChangeData bulkChangeData, BulkChangeResult result) {
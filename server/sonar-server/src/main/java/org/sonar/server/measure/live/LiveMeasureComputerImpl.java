@@ -21,6 +21,7 @@ package org.sonar.server.measure.live;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -36,6 +37,7 @@ import org.sonar.db.DbSession;
 import org.sonar.db.component.BranchDto;
 import org.sonar.db.component.ComponentDto;
 import org.sonar.db.component.SnapshotDto;
+import org.sonar.db.issue.IssueGroupDto;
 import org.sonar.db.measure.LiveMeasureComparator;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
@@ -118,8 +120,9 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
 
     MeasureMatrix matrix = new MeasureMatrix(components, metricsPerId.values(), dbMeasures);
     FormulaContextImpl context = new FormulaContextImpl(matrix, debtRatingGrid);
+    Map<String, List<IssueGroupDto>> issueGroupsByComponentUuid = loadIssueGroups(dbSession, project, components, beginningOfLeakPeriod.orElse(Long.MAX_VALUE));
     components.forEach(c -> {
-      IssueCounter issueCounter = new IssueCounter(dbClient.issueDao().selectIssueGroupsByBaseComponent(dbSession, c, beginningOfLeakPeriod.orElse(Long.MAX_VALUE)));
+      IssueCounter issueCounter = new IssueCounter(issueGroupsByComponentUuid.get(c.uuid()));
       for (IssueMetricFormula formula : formulaFactory.getFormulas()) {
         // exclude leak formulas when leak period is not defined
         if (beginningOfLeakPeriod.isPresent() || !formula.isOnLeak()) {
@@ -136,14 +139,39 @@ public class LiveMeasureComputerImpl implements LiveMeasureComputer {
     EvaluatedQualityGate evaluatedQualityGate = qGateComputer.refreshGateStatus(project, qualityGate, matrix);
 
     // persist the measures that have been created or updated
+    boolean supportUpsert = dbClient.getDatabase().getDialect().supportsUpsert();
     matrix.getChanged().sorted(LiveMeasureComparator.INSTANCE)
-      .forEach(m -> dbClient.liveMeasureDao().insertOrUpdate(dbSession, m));
+      .forEach(m -> {
+        if (supportUpsert) {
+          dbClient.liveMeasureDao().upsert(dbSession, m);
+        } else {
+          dbClient.liveMeasureDao().insertOrUpdate(dbSession, m);
+        }
+      });
     projectIndexer.commitAndIndex(dbSession, singleton(project), ProjectIndexer.Cause.MEASURE_CHANGE);
 
     return Optional.of(
       new QGChangeEvent(project, branch, lastAnalysis.get(), config, previousStatus, () -> Optional.of(evaluatedQualityGate)));
   }
 
+  /**
+   * Issues are grouped on each refreshed component by the database. Issues of the project are aggregated by a dedicated query,
+   * which does not need to be grouped by component.
+   */
+  private Map<String, List<IssueGroupDto>> loadIssueGroups(DbSession dbSession, ComponentDto project, List<ComponentDto> components,
+    long beginningOfLeakPeriod) {
+    List<ComponentDto> nonProjectComponents = components.stream()
+      .filter(c -> !c.uuid().equals(project.uuid()))
+      .collect(toArrayList(components.size()));
+    Map<String, List<IssueGroupDto>> groupsByComponentUuid = new HashMap<>(dbClient.issueDao()
+      .selectIssueGroupsByBaseComponents(dbSession, nonProjectComponents, beginningOfLeakPeriod)
+      .stream()
+      .collect(groupingBy(IssueGroupDto::getComponentUuid)));
+    groupsByComponentUuid.put(project.uuid(), new ArrayList<>(dbClient.issueDao().selectIssueGroupsByBaseComponent(dbSession, project, beginningOfLeakPeriod)));
+    components.forEach(c -> groupsByComponentUuid.putIfAbsent(c.uuid(), emptyList()));
+    return groupsByComponentUuid;
+  }
+
   @CheckForNull
   private static Metric.Level loadPreviousStatus(List<MetricDto> metrics, List<LiveMeasureDto> dbMeasures) {
     MetricDto alertStatusMetric = metrics.stream()
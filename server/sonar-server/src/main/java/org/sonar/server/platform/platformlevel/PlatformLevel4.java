@@ -42,6 +42,7 @@ import org.sonar.server.branch.BranchFeatureProxyImpl;
 import org.sonar.server.branch.pr.ws.PullRequestWsModule;
 import org.sonar.server.branch.ws.BranchWsModule;
 import org.sonar.server.ce.CeModule;
+import org.sonar.server.ce.queue.DistributedCeQueueListener;
 import org.sonar.server.ce.ws.CeWsModule;
 import org.sonar.server.component.ComponentCleanerService;
 import org.sonar.server.component.ComponentFinder;
@@ -252,6 +253,7 @@ public class PlatformLevel4 extends PlatformLevel {
       EsDbCompatibilityImpl.class);
 
     addIfCluster(NodeHealthModule.class);
+    addIfCluster(DistributedCeQueueListener.class);
 
     add(
       ClusterVerification.class,
@@ -147,6 +147,52 @@ public class IssuesActionTest {
     assertThat(serverIssue.getAssigneeLogin()).isEqualTo(user.getLogin());
   }
 
+  @Test
+  public void return_logins_of_assignees() {
+    UserDto simon = db.users().insertUser(u -> u.setLogin("simon"));
+    UserDto julien = db.users().insertUser(u -> u.setLogin("julien"));
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project, null));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_1").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(simon.getUuid()));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_2").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(julien.getUuid()));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_3").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(simon.getUuid()));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_4").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid("unknown"));
+    addPermissionTo(project);
+
+    try (CloseableIterator<ServerIssue> result = callStream(project.getKey(), null)) {
+      assertThat(result)
+        .extracting(ServerIssue::getKey, ServerIssue::getAssigneeLogin)
+        .containsExactlyInAnyOrder(
+          tuple("ISSUE_1", "simon"),
+          tuple("ISSUE_2", "julien"),
+          tuple("ISSUE_3", "simon"),
+          tuple("ISSUE_4", ""));
+    }
+  }
+
+  @Test
+  public void return_logins_of_assignees_of_issues_of_file() {
+    UserDto simon = db.users().insertUser(u -> u.setLogin("simon"));
+    UserDto julien = db.users().insertUser(u -> u.setLogin("julien"));
+    RuleDefinitionDto rule = db.rules().insert();
+    ComponentDto project = db.components().insertPrivateProject();
+    ComponentDto file = db.components().insertComponent(newFileDto(project, null));
+    ComponentDto anotherFile = db.components().insertComponent(newFileDto(project, null));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_1").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(simon.getUuid()));
+    db.issues().insert(rule, project, file, i -> i.setKee("ISSUE_2").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(null));
+    db.issues().insert(rule, project, anotherFile, i -> i.setKee("ISSUE_3").setType(randomRuleTypeExceptHotspot()).setAssigneeUuid(julien.getUuid()));
+    addPermissionTo(project);
+
+    try (CloseableIterator<ServerIssue> result = callStream(file.getKey(), null)) {
+      assertThat(result)
+        .extracting(ServerIssue::getKey, ServerIssue::getAssigneeLogin)
+        .containsExactlyInAnyOrder(
+          tuple("ISSUE_1", "simon"),
+          tuple("ISSUE_2", ""));
+    }
+  }
+
   @Test
   public void return_issues_of_project() {
     RuleDefinitionDto rule = db.rules().insert();
@@ -0,0 +1,46 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.ce.queue;
+
+import com.hazelcast.core.ITopic;
+import org.junit.Test;
+import org.sonar.process.cluster.hz.HazelcastMember;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.sonar.process.cluster.hz.HazelcastObjects.CE_QUEUE_SUBMISSIONS;
+
+public class DistributedCeQueueListenerTest {
+
+  private HazelcastMember hazelcastMember = mock(HazelcastMember.class);
+  private ITopic<Object> topic = mock(ITopic.class);
+  private DistributedCeQueueListener underTest = new DistributedCeQueueListener(hazelcastMember);
+
+  @Test
+  public void onSubmit_publishes_uuid_of_member_on_topic() {
+    when(hazelcastMember.getUuid()).thenReturn("member uuid");
+    when(hazelcastMember.getTopic(CE_QUEUE_SUBMISSIONS)).thenReturn(topic);
+
+    underTest.onSubmit();
+
+    verify(topic).publish("member uuid");
+  }
+}
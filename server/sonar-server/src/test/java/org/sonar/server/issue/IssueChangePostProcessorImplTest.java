@@ -0,0 +1,182 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.server.issue;
+
+import java.util.Collection;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.db.DbClient;
+import org.sonar.db.DbSession;
+import org.sonar.db.component.ComponentDto;
+import org.sonar.server.measure.live.LiveMeasureComputer;
+import org.sonar.server.measure.live.LiveMeasureRefreshExecutorService;
+import org.sonar.server.qualitygate.changeevent.QGChangeEvent;
+import org.sonar.server.qualitygate.changeevent.QGChangeEventListeners;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.singletonList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
+import static org.sonar.server.issue.IssueChangePostProcessorImpl.COALESCING_DELAY_MS;
+
+public class IssueChangePostProcessorImplTest {
+
+  private DbClient dbClient = mock(DbClient.class);
+  private DbSession dbSession = mock(DbSession.class);
+  private LiveMeasureComputer liveMeasureComputer = mock(LiveMeasureComputer.class);
+  private QGChangeEventListeners qualityGateListeners = mock(QGChangeEventListeners.class);
+  private LiveMeasureRefreshExecutorService executorService = mock(LiveMeasureRefreshExecutorService.class);
+  private List<QGChangeEvent> gateChangeEvents = singletonList(mock(QGChangeEvent.class));
+
+  private IssueChangePostProcessorImpl underTest = new IssueChangePostProcessorImpl(dbClient, liveMeasureComputer, qualityGateListeners, executorService);
+
+  @Before
+  public void setUp() {
+    when(dbClient.openSession(false)).thenReturn(dbSession);
+    when(liveMeasureComputer.refresh(any(), anyCollection())).thenReturn(gateChangeEvents);
+  }
+
+  @Test
+  public void refresh_is_done_asynchronously() {
+    ComponentDto file = newComponent("FILE", "BRANCH");
+    DefaultIssue issue = newIssue("ISSUE", "BRANCH");
+
+    underTest.process(singletonList(issue), singletonList(file));
+
+    verifyZeroInteractions(liveMeasureComputer, qualityGateListeners);
+    scheduledRefreshes(1).forEach(Runnable::run);
+
+    assertThat(refreshedComponents(1)).containsExactly(singletonList(file));
+    verify(qualityGateListeners).broadcastOnIssueChange(singletonList(issue), gateChangeEvents);
+  }
+
+  @Test
+  public void changes_of_a_branch_are_coalesced() {
+    ComponentDto file1 = newComponent("FILE1", "BRANCH");
+    ComponentDto file2 = newComponent("FILE2", "BRANCH");
+    DefaultIssue issue1 = newIssue("ISSUE1", "BRANCH");
+    DefaultIssue issue2 = newIssue("ISSUE2", "BRANCH");
+    DefaultIssue issue1Again = newIssue("ISSUE1", "BRANCH");
+
+    underTest.process(singletonList(issue1), singletonList(file1));
+    underTest.process(asList(issue2, issue1Again), asList(file1, file2));
+    scheduledRefreshes(1).forEach(Runnable::run);
+
+    assertThat(refreshedComponents(1)).containsExactly(asList(file1, file2));
+    verify(qualityGateListeners).broadcastOnIssueChange(asList(issue1Again, issue2), gateChangeEvents);
+  }
+
+  @Test
+  public void branches_are_refreshed_separately() {
+    ComponentDto file1 = newComponent("FILE1", "BRANCH1");
+    ComponentDto file2 = newComponent("FILE2", "BRANCH2");
+
+    underTest.process(asList(newIssue("ISSUE1", "BRANCH1"), newIssue("ISSUE2", "BRANCH2")), asList(file1, file2));
+    scheduledRefreshes(2).forEach(Runnable::run);
+
+    assertThat(refreshedComponents(2)).containsExactlyInAnyOrder(singletonList(file1), singletonList(file2));
+    verify(qualityGateListeners, times(2)).broadcastOnIssueChange(anyList(), eq(gateChangeEvents));
+  }
+
+  @Test
+  public void changes_made_after_start_of_refresh_are_refreshed_again() {
+    ComponentDto file = newComponent("FILE", "BRANCH");
+
+    underTest.process(singletonList(newIssue("ISSUE1", "BRANCH")), singletonList(file));
+    scheduledRefreshes(1).forEach(Runnable::run);
+    underTest.process(singletonList(newIssue("ISSUE2", "BRANCH")), singletonList(file));
+    scheduledRefreshes(2).get(1).run();
+
+    assertThat(refreshedComponents(2)).containsExactly(singletonList(file), singletonList(file));
+  }
+
+  @Test
+  public void refreshes_of_a_branch_do_not_overlap() {
+    ComponentDto file = newComponent("FILE", "BRANCH");
+    DefaultIssue issue2 = newIssue("ISSUE2", "BRANCH");
+    when(liveMeasureComputer.refresh(any(), anyCollection()))
+      .thenAnswer(invocation -> {
+        // changes are made and their refresh starts while the first refresh is running
+        underTest.process(singletonList(issue2), singletonList(file));
+        scheduledRefreshes(2).get(1).run();
+        return gateChangeEvents;
+      })
+      .thenReturn(gateChangeEvents);
+
+    underTest.process(singletonList(newIssue("ISSUE1", "BRANCH")), singletonList(file));
+    scheduledRefreshes(1).get(0).run();
+
+    // second refresh did nothing and has been rescheduled at the end of the first one
+    assertThat(refreshedComponents(1)).containsExactly(singletonList(file));
+    scheduledRefreshes(3).get(2).run();
+
+    assertThat(refreshedComponents(2)).containsExactly(singletonList(file), singletonList(file));
+    verify(qualityGateListeners).broadcastOnIssueChange(singletonList(issue2), gateChangeEvents);
+  }
+
+  @Test
+  public void failure_of_refresh_does_not_prevent_next_refreshes() {
+    ComponentDto file = newComponent("FILE", "BRANCH");
+    when(liveMeasureComputer.refresh(any(), anyCollection()))
+      .thenThrow(new IllegalStateException("db failure"))
+      .thenReturn(gateChangeEvents);
+
+    underTest.process(singletonList(newIssue("ISSUE1", "BRANCH")), singletonList(file));
+    scheduledRefreshes(1).forEach(Runnable::run);
+    verifyZeroInteractions(qualityGateListeners);
+
+    underTest.process(singletonList(newIssue("ISSUE2", "BRANCH")), singletonList(file));
+    scheduledRefreshes(2).get(1).run();
+    verify(qualityGateListeners).broadcastOnIssueChange(anyList(), eq(gateChangeEvents));
+  }
+
+  private List<Runnable> scheduledRefreshes(int count) {
+    ArgumentCaptor<Runnable> captor = ArgumentCaptor.forClass(Runnable.class);
+    verify(executorService, times(count)).schedule(captor.capture(), eq(COALESCING_DELAY_MS), any());
+    return captor.getAllValues();
+  }
+
+  @SuppressWarnings("unchecked")
+  private List<Collection<ComponentDto>> refreshedComponents(int count) {
+    ArgumentCaptor<Collection<ComponentDto>> captor = ArgumentCaptor.forClass(Collection.class);
+    verify(liveMeasureComputer, times(count)).refresh(same(dbSession), captor.capture());
+    return captor.getAllValues();
+  }
+
+  private static ComponentDto newComponent(String uuid, String branchUuid) {
+    return new ComponentDto().setUuid(uuid).setProjectUuid(branchUuid);
+  }
+
+  private static DefaultIssue newIssue(String key, String branchUuid) {
+    return new DefaultIssue().setKey(key).setProjectUuid(branchUuid);
+  }
+}
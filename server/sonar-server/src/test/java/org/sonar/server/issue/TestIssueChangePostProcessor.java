@@ -23,7 +23,6 @@ import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
 import org.sonar.core.issue.DefaultIssue;
-import org.sonar.db.DbSession;
 import org.sonar.db.component.ComponentDto;
 
 public class TestIssueChangePostProcessor implements IssueChangePostProcessor {
@@ -32,7 +31,7 @@ public class TestIssueChangePostProcessor implements IssueChangePostProcessor {
   private final List<ComponentDto> calledComponents = new ArrayList<>();
 
   @Override
-  public void process(DbSession dbSession, List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
+  public void process(List<DefaultIssue> changedIssues, Collection<ComponentDto> components) {
     called = true;
     calledComponents.addAll(components);
   }
@@ -38,6 +38,7 @@ import org.sonar.api.config.internal.MapSettings;
 import org.sonar.api.measures.CoreMetrics;
 import org.sonar.api.measures.Metric;
 import org.sonar.api.resources.Qualifiers;
+import org.sonar.api.rules.RuleType;
 import org.sonar.core.config.CorePropertyDefinitions;
 import org.sonar.db.DbSession;
 import org.sonar.db.DbTester;
@@ -47,6 +48,7 @@ import org.sonar.db.component.ComponentTesting;
 import org.sonar.db.measure.LiveMeasureDto;
 import org.sonar.db.metric.MetricDto;
 import org.sonar.db.organization.OrganizationDto;
+import org.sonar.db.rule.RuleDefinitionDto;
 import org.sonar.server.measure.Rating;
 import org.sonar.server.es.ProjectIndexer;
 import org.sonar.server.es.TestProjectIndexers;
@@ -143,6 +145,24 @@ public class LiveMeasureComputerImplTest {
     assertThatIntMeasureHasValue(file2, 42.0);
   }
 
+  @Test
+  public void issues_are_counted_on_component_and_its_ancestors() {
+    markProjectAsAnalyzed(project);
+    RuleDefinitionDto rule = db.rules().insert();
+    db.issues().insert(rule, project, file1, i -> i.setStatus("OPEN").setResolution(null).setType(RuleType.BUG));
+    db.issues().insert(rule, project, file1, i -> i.setStatus("OPEN").setResolution(null).setType(RuleType.BUG));
+    db.issues().insert(rule, project, file2, i -> i.setStatus("OPEN").setResolution(null).setType(RuleType.BUG));
+    db.issues().insert(rule, project, dir, i -> i.setStatus("OPEN").setResolution(null).setType(RuleType.BUG));
+    db.issues().insert(rule, project, project, i -> i.setStatus("OPEN").setResolution(null).setType(RuleType.BUG));
+    db.issues().insert(rule, project, file2, i -> i.setStatus("CLOSED").setResolution("FIXED").setType(RuleType.BUG));
+
+    run(file1, newUnresolvedCountFormula());
+
+    assertThatIntMeasureHasValue(file1, 2.0);
+    assertThatIntMeasureHasValue(dir, 4.0);
+    assertThatIntMeasureHasValue(project, 5.0);
+  }
+
   @Test
   public void variation_is_refreshed_when_int_value_is_changed() {
     markProjectAsAnalyzed(project);
@@ -428,6 +448,13 @@ public class LiveMeasureComputerImplTest {
     });
   }
 
+  private IssueMetricFormula newUnresolvedCountFormula() {
+    Metric metric = new Metric.Builder(intMetric.getKey(), intMetric.getShortName(), Metric.ValueType.valueOf(intMetric.getValueType())).create();
+    return new IssueMetricFormula(metric, false, (ctx, issues) -> {
+      ctx.setValue((double) issues.countUnresolved(false));
+    });
+  }
+
   private IssueMetricFormula newIntConstantFormula(double constant) {
     Metric metric = new Metric.Builder(intMetric.getKey(), intMetric.getShortName(), Metric.ValueType.valueOf(intMetric.getValueType())).create();
     return new IssueMetricFormula(metric, false, (ctx, issues) -> {
@@ -0,0 +1,69 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.api.batch.fs.internal;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Computation of the hashes of the lines of a synthetic file, as done for issue tracking.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class FileMetadataBenchmark {
+
+  @Param({"10000"})
+  public int lines;
+
+  private DefaultInputFile inputFile;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      if (i % 10 == 0) {
+        sb.append('\n');
+      } else {
+        sb.append("    int  var").append(i).append(" =\t").append(random.nextInt()).append(";   \n");
+      }
+    }
+    inputFile = new TestInputFileBuilder("project", "src/Generated.java")
+      .setCharset(StandardCharsets.UTF_8)
+      .setContents(sb.toString())
+      .build();
+  }
+
+  @Benchmark
+  public void computeLineHashesForIssueTracking(Blackhole blackhole) {
+    FileMetadata.computeLineHashesForIssueTracking(inputFile, (lineIdx, hash) -> blackhole.consume(hash));
+  }
+}
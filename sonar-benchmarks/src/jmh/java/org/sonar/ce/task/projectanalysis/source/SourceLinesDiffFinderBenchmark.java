@@ -0,0 +1,89 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.source;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Matching of the lines of a synthetic file with the lines of its previous version, in which
+ * some lines have been added, removed or modified.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class SourceLinesDiffFinderBenchmark {
+
+  @Param({"5000"})
+  public int lines;
+
+  /**
+   * Percentage of the lines which are added, removed or modified in the new version of the file
+   */
+  @Param({"10"})
+  public int modifiedPercent;
+
+  private final SourceLinesDiffFinder finder = new SourceLinesDiffFinder();
+  private List<String> database;
+  private List<String> report;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    database = new ArrayList<>(lines);
+    for (int i = 0; i < lines; i++) {
+      database.add("line hash " + random.nextInt(lines));
+    }
+    report = new ArrayList<>(lines);
+    for (String line : database) {
+      if (random.nextInt(100) >= modifiedPercent) {
+        report.add(line);
+        continue;
+      }
+      switch (random.nextInt(3)) {
+        case 0:
+          report.add(line);
+          report.add("added " + random.nextInt());
+          break;
+        case 1:
+          // removed
+          break;
+        default:
+          report.add("modified " + random.nextInt());
+          break;
+      }
+    }
+  }
+
+  @Benchmark
+  public int[] findMatchingLines() {
+    return finder.findMatchingLines(database, report);
+  }
+}
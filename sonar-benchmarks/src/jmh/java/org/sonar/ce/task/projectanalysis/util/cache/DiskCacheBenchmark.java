@@ -0,0 +1,168 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.ce.task.projectanalysis.util.cache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.api.rule.Severity;
+import org.sonar.api.rules.RuleType;
+import org.sonar.api.utils.System2;
+import org.sonar.ce.task.projectanalysis.issue.IssueCache;
+import org.sonar.core.issue.DefaultIssue;
+import org.sonar.core.util.CloseableIterator;
+
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+
+/**
+ * Write and read of synthetic issues in {@link IssueCache}, compared to a {@link DiskCache} using Java serialization.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class DiskCacheBenchmark {
+
+  @Param({"20000"})
+  public int issues;
+
+  @Param({"200"})
+  public int components;
+
+  private final List<DefaultIssue> input = new ArrayList<>();
+  private Map<String, List<DefaultIssue>> inputByComponent;
+  private File writeFile;
+  private File issueCacheFile;
+  private File javaSerializationFile;
+  private IssueCache issueCache;
+  private DiskCache<DefaultIssue> javaSerializationCache;
+
+  @Setup
+  public void setUp() throws IOException {
+    Random random = new Random(42);
+    for (int i = 0; i < issues; i++) {
+      // issues are grouped by component, as done by the visitors of the component tree
+      String componentUuid = "COMPONENT_" + (i * components / issues);
+      input.add(new DefaultIssue()
+        .setKey("ISSUE_" + i)
+        .setType(RuleType.CODE_SMELL)
+        .setRuleKey(RuleKey.of("java", "S" + random.nextInt(500)))
+        .setComponentUuid(componentUuid)
+        .setComponentKey("project:src/" + componentUuid + ".java")
+        .setProjectUuid("PROJECT")
+        .setProjectKey("project")
+        .setSeverity(Severity.MAJOR)
+        .setLine(1 + random.nextInt(1000))
+        .setMessage("Synthetic message " + random.nextInt(100))
+        .setChecksum(Integer.toHexString(random.nextInt()))
+        .setGap(random.nextDouble())
+        .setStatus(Issue.STATUS_OPEN)
+        .setCreationDate(new Date(1_500_000_000_000L))
+        .setUpdateDate(new Date(1_500_000_000_000L)));
+    }
+
+    inputByComponent = input.stream().collect(groupingBy(DefaultIssue::componentUuid, LinkedHashMap::new, toList()));
+
+    writeFile = File.createTempFile("issues-write", ".dat");
+    issueCacheFile = File.createTempFile("issues", ".dat");
+    javaSerializationFile = File.createTempFile("issues-serialization", ".dat");
+    issueCache = new IssueCache(issueCacheFile, System2.INSTANCE);
+    javaSerializationCache = new DiskCache<>(javaSerializationFile, System2.INSTANCE);
+    write(issueCache);
+    write(javaSerializationCache);
+  }
+
+  @TearDown
+  public void tearDown() {
+    writeFile.delete();
+    issueCacheFile.delete();
+    javaSerializationFile.delete();
+  }
+
+  @Benchmark
+  public void writeIssueCache() {
+    write(new IssueCache(writeFile, System2.INSTANCE));
+  }
+
+  @Benchmark
+  public void writeJavaSerialization() {
+    write(new DiskCache<>(writeFile, System2.INSTANCE));
+  }
+
+  @Benchmark
+  public void traverseIssueCache(Blackhole blackhole) {
+    consume(issueCache.traverse(), blackhole);
+  }
+
+  @Benchmark
+  public void traverseJavaSerialization(Blackhole blackhole) {
+    consume(javaSerializationCache.traverse(), blackhole);
+  }
+
+  /**
+   * One appender per component, as done by the visitors of the component tree
+   */
+  @Benchmark
+  public void writeIssueCacheByComponent() {
+    IssueCache cache = new IssueCache(writeFile, System2.INSTANCE);
+    inputByComponent.values().forEach(componentIssues -> {
+      try (DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender()) {
+        componentIssues.forEach(appender::append);
+      }
+    });
+    // pending records are written when the cache is traversed
+    cache.traverse().close();
+  }
+
+  private void write(DiskCache<DefaultIssue> cache) {
+    try (DiskCache<DefaultIssue>.DiskAppender appender = cache.newAppender()) {
+      input.forEach(appender::append);
+    }
+    cache.traverse().close();
+  }
+
+  private static void consume(CloseableIterator<DefaultIssue> it, Blackhole blackhole) {
+    try {
+      while (it.hasNext()) {
+        blackhole.consume(it.next());
+      }
+    } finally {
+      it.close();
+    }
+  }
+}
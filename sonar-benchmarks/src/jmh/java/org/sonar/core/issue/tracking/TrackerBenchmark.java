@@ -0,0 +1,154 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.core.issue.tracking;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.api.issue.Issue;
+import org.sonar.api.rule.RuleKey;
+import org.sonar.core.issue.DefaultIssue;
+
+/**
+ * Tracking of the issues of a synthetic file, which lines have been shifted and partially modified
+ * since the previous analysis.
+ * <p>
+ * In the same package as {@link BlockRecognizer}, which is not public.
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class TrackerBenchmark {
+
+  private static final RuleKey[] RULES = {RuleKey.of("java", "S1"), RuleKey.of("java", "S2"), RuleKey.of("java", "S3")};
+
+  @Param({"5000"})
+  public int lines;
+
+  @Param({"1000"})
+  public int issues;
+
+  /**
+   * Percentage of the lines which are modified in the new version of the file
+   */
+  @Param({"10"})
+  public int modifiedPercent;
+
+  private final Tracker<DefaultIssue, DefaultIssue> tracker = new Tracker<>();
+  private SimpleInput rawInput;
+  private SimpleInput baseInput;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    List<String> baseLines = new ArrayList<>(lines);
+    for (int i = 0; i < lines; i++) {
+      baseLines.add("int line" + i + " = " + random.nextInt(lines) + ";");
+    }
+    // new version of the file: some lines are inserted at the beginning, some others are modified
+    int shift = 1 + lines / 100;
+    List<String> rawLines = new ArrayList<>(lines + shift);
+    for (int i = 0; i < shift; i++) {
+      rawLines.add("// inserted " + i);
+    }
+    for (String line : baseLines) {
+      rawLines.add(random.nextInt(100) < modifiedPercent ? (line + " // modified") : line);
+    }
+
+    LineHashSequence baseHashes = LineHashSequence.createForLines(baseLines);
+    LineHashSequence rawHashes = LineHashSequence.createForLines(rawLines);
+    List<DefaultIssue> baseIssues = new ArrayList<>(issues);
+    List<DefaultIssue> rawIssues = new ArrayList<>(issues);
+    for (int i = 0; i < issues; i++) {
+      int baseLine = 1 + random.nextInt(lines);
+      RuleKey ruleKey = RULES[random.nextInt(RULES.length)];
+      String message = "message " + random.nextInt(issues / 10 + 1);
+      baseIssues.add(newIssue("base" + i, ruleKey, baseLine, message, baseHashes));
+      // a few issues are fixed
+      if (random.nextInt(100) >= 5) {
+        rawIssues.add(newIssue("raw" + i, ruleKey, baseLine + shift, message, rawHashes));
+      }
+    }
+    baseInput = new SimpleInput(baseHashes, baseIssues);
+    rawInput = new SimpleInput(rawHashes, rawIssues);
+  }
+
+  @Benchmark
+  public NonClosedTracking<DefaultIssue, DefaultIssue> trackNonClosed() {
+    return tracker.trackNonClosed(rawInput, baseInput);
+  }
+
+  @Benchmark
+  public Tracking<DefaultIssue, DefaultIssue> blockRecognizer() {
+    Tracking<DefaultIssue, DefaultIssue> tracking = new Tracking<>(rawInput.getIssues(), baseInput.getIssues());
+    new BlockRecognizer<DefaultIssue, DefaultIssue>().match(rawInput, baseInput, tracking);
+    return tracking;
+  }
+
+  private static DefaultIssue newIssue(String key, RuleKey ruleKey, int line, String message, LineHashSequence hashes) {
+    return new DefaultIssue()
+      .setKey(key)
+      .setRuleKey(ruleKey)
+      .setLine(line)
+      .setMessage(message)
+      .setChecksum(hashes.getHashForLine(line))
+      .setStatus(Issue.STATUS_OPEN)
+      .setCreationDate(new Date(0L));
+  }
+
+  private static class SimpleInput implements Input<DefaultIssue> {
+    private final LineHashSequence lineHashes;
+    private final BlockHashSequence blockHashes;
+    private final Collection<DefaultIssue> issues;
+
+    SimpleInput(LineHashSequence lineHashes, Collection<DefaultIssue> issues) {
+      this.lineHashes = lineHashes;
+      this.blockHashes = BlockHashSequence.create(lineHashes);
+      this.issues = issues;
+    }
+
+    @Override
+    public LineHashSequence getLineHashSequence() {
+      return lineHashes;
+    }
+
+    @Override
+    public BlockHashSequence getBlockHashSequence() {
+      return blockHashes;
+    }
+
+    @Override
+    public Collection<DefaultIssue> getIssues() {
+      return issues;
+    }
+  }
+}
@@ -0,0 +1,88 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.block;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.sonar.duplications.java.JavaStatementBuilder;
+import org.sonar.duplications.java.JavaTokenProducer;
+import org.sonar.duplications.statement.Statement;
+import org.sonar.duplications.statement.StatementChunker;
+import org.sonar.duplications.token.TokenChunker;
+import org.sonar.duplications.token.TokenQueue;
+
+/**
+ * Chunking of a synthetic Java source file into tokens, then into blocks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ChunkerBenchmark {
+
+  @Param({"5000"})
+  public int methods;
+
+  private final TokenChunker tokenChunker = JavaTokenProducer.build();
+  private final StatementChunker statementChunker = JavaStatementBuilder.build();
+  private final BlockChunker blockChunker = new BlockChunker(10);
+
+  private String source;
+  private List<Statement> statements;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    StringBuilder sb = new StringBuilder("package org.sonar.bench;\n\npublic class Generated {\n");
+    for (int i = 0; i < methods; i++) {
+      sb.append("  /** method ").append(i).append(" */\n")
+        .append("  public int method").append(i).append("(int a, String b) {\n")
+        .append("    int x = a * ").append(random.nextInt(100)).append(";\n")
+        .append("    if (b.length() > x) {\n")
+        .append("      x += b.indexOf(\"").append(random.nextInt(10)).append("\");\n")
+        .append("    }\n")
+        .append("    for (int j = 0; j < x; j++) {\n")
+        .append("      a = a + j % 3;\n")
+        .append("    }\n")
+        .append("    return a + x;\n")
+        .append("  }\n\n");
+    }
+    source = sb.append("}\n").toString();
+    statements = statementChunker.chunk(tokenChunker.chunk(source));
+  }
+
+  @Benchmark
+  public TokenQueue tokenChunker() {
+    return tokenChunker.chunk(source);
+  }
+
+  @Benchmark
+  public List<Block> blockChunker() {
+    return blockChunker.chunk("Generated.java", statements);
+  }
+}
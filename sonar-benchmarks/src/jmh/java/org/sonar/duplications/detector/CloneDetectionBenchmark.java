@@ -0,0 +1,117 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.detector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.detector.original.OriginalCloneDetectionAlgorithm;
+import org.sonar.duplications.detector.suffixtree.SuffixTreeCloneDetectionAlgorithm;
+import org.sonar.duplications.index.CloneIndex;
+import org.sonar.duplications.index.PackedMemoryCloneIndex;
+
+/**
+ * Detection of duplications of all the files of a synthetic project. Files are made of
+ * unique blocks and of sequences of blocks copied from a shared pool, which creates clones
+ * between files.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class CloneDetectionBenchmark {
+
+  @Param({"100"})
+  public int files;
+
+  @Param({"500"})
+  public int blocksPerFile;
+
+  /**
+   * Percentage of blocks which are copied from the shared pool
+   */
+  @Param({"30"})
+  public int duplicatedPercent;
+
+  private CloneIndex index;
+  private List<List<Block>> blocksByFile;
+
+  @Setup
+  public void setUp() {
+    Random random = new Random(42);
+    long[] pool = new long[blocksPerFile * 4];
+    for (int i = 0; i < pool.length; i++) {
+      pool[i] = random.nextLong();
+    }
+
+    index = new PackedMemoryCloneIndex();
+    blocksByFile = new ArrayList<>(files);
+    for (int f = 0; f < files; f++) {
+      String resourceId = "file" + f;
+      List<Block> blocks = new ArrayList<>(blocksPerFile);
+      while (blocks.size() < blocksPerFile) {
+        int length = Math.min(10 + random.nextInt(20), blocksPerFile - blocks.size());
+        boolean duplicated = random.nextInt(100) < duplicatedPercent;
+        int poolOffset = random.nextInt(pool.length - length);
+        for (int i = 0; i < length; i++) {
+          long hash = duplicated ? pool[poolOffset + i] : random.nextLong();
+          blocks.add(newBlock(resourceId, hash, blocks.size()));
+        }
+      }
+      blocks.forEach(index::insert);
+      blocksByFile.add(blocks);
+    }
+  }
+
+  @Benchmark
+  public void suffixTree(Blackhole blackhole) {
+    for (List<Block> blocks : blocksByFile) {
+      blackhole.consume(SuffixTreeCloneDetectionAlgorithm.detect(index, blocks));
+    }
+  }
+
+  @Benchmark
+  public void original(Blackhole blackhole) {
+    for (List<Block> blocks : blocksByFile) {
+      blackhole.consume(OriginalCloneDetectionAlgorithm.detect(index, blocks));
+    }
+  }
+
+  private static Block newBlock(String resourceId, long hash, int indexInFile) {
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(new ByteArray(hash))
+      .setIndexInFile(indexInFile)
+      .setLines(indexInFile + 1, indexInFile + 10)
+      .setUnit(indexInFile * 10, indexInFile * 10 + 100)
+      .build();
+  }
+}
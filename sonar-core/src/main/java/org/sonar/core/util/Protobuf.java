@@ -19,6 +19,7 @@
  */
 package org.sonar.core.util;
 
+import com.google.protobuf.CodedInputStream;
 import com.google.protobuf.InvalidProtocolBufferException;
 import com.google.protobuf.Message;
 import com.google.protobuf.Parser;
@@ -28,7 +29,11 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import org.apache.commons.io.IOUtils;
 
 /**
@@ -56,6 +61,28 @@ public class Protobuf {
     }
   }
 
+  /**
+   * Same as {@link #read(File, Parser)}, except that the file is mapped in memory and the message is parsed
+   * straight from the mapped buffer, without copying the file content through an {@link InputStream}.
+   * <p>
+   * The file stays mapped until the buffer is garbage collected. On Windows, it can't be deleted meanwhile.
+   * </p>
+   */
+  public static <MSG extends Message> MSG readMapped(File file, Parser<MSG> parser) {
+    try {
+      return parser.parseFrom(CodedInputStream.newInstance(map(file)));
+    } catch (Exception e) {
+      throw ContextException.of("Unable to read message", e).addContext("file", file);
+    }
+  }
+
+  private static MappedByteBuffer map(File file) throws IOException {
+    // the mapping stays valid once the channel is closed
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+    }
+  }
+
   public static <MSG extends Message> MSG read(InputStream input, Parser<MSG> parser) {
     try {
       return parser.parseFrom(input);
@@ -146,6 +173,52 @@ public class Protobuf {
     return new StreamIterator<>(parser, input);
   }
 
+  /**
+   * Same as {@link #readStream(File, Parser)}, except that the file is mapped in memory and the messages are parsed
+   * straight from the mapped buffer, without copying the file content through an {@link InputStream}.
+   * <p>
+   * The file stays mapped until the buffer is garbage collected, even when the iterator is closed. On Windows,
+   * it can't be deleted meanwhile.
+   * </p>
+   */
+  public static <MSG extends Message> CloseableIterator<MSG> readMappedStream(File file, Parser<MSG> parser) {
+    try {
+      return new MappedStreamIterator<>(parser, CodedInputStream.newInstance(map(file)));
+    } catch (Exception e) {
+      throw ContextException.of("Unable to read messages", e).addContext("file", file);
+    }
+  }
+
+  private static class MappedStreamIterator<MSG extends Message> extends CloseableIterator<MSG> {
+    private final Parser<MSG> parser;
+    private final CodedInputStream input;
+
+    private MappedStreamIterator(Parser<MSG> parser, CodedInputStream input) {
+      this.parser = parser;
+      this.input = input;
+    }
+
+    @Override
+    protected MSG doNext() {
+      try {
+        if (input.isAtEnd()) {
+          return null;
+        }
+        int oldLimit = input.pushLimit(input.readRawVarint32());
+        MSG message = parser.parsePartialFrom(input);
+        input.popLimit(oldLimit);
+        return message;
+      } catch (IOException e) {
+        throw ContextException.of(e);
+      }
+    }
+
+    @Override
+    protected void doClose() {
+      // nothing to close, the buffer is unmapped when garbage collected
+    }
+  }
+
   private static class StreamIterator<MSG extends Message> extends CloseableIterator<MSG> {
     private final Parser<MSG> parser;
     private final InputStream input;
@@ -98,6 +98,52 @@ public class ProtobufTest {
     assertThat(it.hasNext()).isFalse();
   }
 
+  @Test
+  public void read_mapped_file_returns_message() throws Exception {
+    File file = temp.newFile();
+    Protobuf.write(Fake.newBuilder().setLabel("one").setLine(1).build(), file);
+
+    Fake message = Protobuf.readMapped(file, Fake.parser());
+
+    assertThat(message.getLabel()).isEqualTo("one");
+    assertThat(message.getLine()).isEqualTo(1);
+  }
+
+  @Test
+  public void read_mapped_file_fails_if_file_does_not_exist() throws Exception {
+    thrown.expect(ContextException.class);
+    thrown.expectMessage("Unable to read message");
+
+    File file = temp.newFile();
+    FileUtils.forceDelete(file);
+    Protobuf.readMapped(file, Fake.parser());
+  }
+
+  @Test
+  public void write_and_read_mapped_streams() throws Exception {
+    File file = temp.newFile();
+
+    Fake item1 = Fake.newBuilder().setLabel("one").setLine(1).build();
+    Fake item2 = Fake.newBuilder().setLabel("two").build();
+    Protobuf.writeStream(asList(item1, item2), file, false);
+
+    CloseableIterator<Fake> it = Protobuf.readMappedStream(file, Fake.parser());
+    Fake read = it.next();
+    assertThat(read.getLabel()).isEqualTo("one");
+    assertThat(read.getLine()).isEqualTo(1);
+    read = it.next();
+    assertThat(read.getLabel()).isEqualTo("two");
+    assertThat(read.hasLine()).isFalse();
+    assertThat(it.hasNext()).isFalse();
+  }
+
+  @Test
+  public void read_empty_mapped_stream() throws Exception {
+    File file = temp.newFile();
+    CloseableIterator<Fake> it = Protobuf.readMappedStream(file, Fake.parser());
+    assertThat(it.hasNext()).isFalse();
+  }
+
   @Test
   public void fail_to_read_stream() throws Exception {
     thrown.expect(ContextException.class);
@@ -0,0 +1,376 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import javax.annotation.Nullable;
+import org.sonar.duplications.block.Block;
+import org.sonar.duplications.block.ByteArray;
+import org.sonar.duplications.index.PackedMemoryCloneIndex.ResourceBlocks;
+import org.sonar.duplications.utils.FastStringComparator;
+
+/**
+ * Same as {@link PackedMemoryCloneIndex}, but data of blocks is stored outside of the Java heap, in direct buffers,
+ * so that indexing of big projects does not put pressure on the garbage collector nor requires a big heap.
+ * <p>
+ * Blocks are never moved once inserted: sorting is done on off-heap arrays of block positions, and resource ids
+ * are interned, so that only one String per resource remains on the heap.
+ * </p>
+ * <p>
+ * Note that memory allocated by this index is released only when the index is garbage collected.
+ * </p>
+ * <p>
+ * Once sorted (see {@link #iterator()}), index can be queried by {@link #getBySequenceHash(ByteArray)} from several threads
+ * concurrently, as long as no block is inserted.
+ * </p>
+ */
+public class OffHeapCloneIndex extends AbstractCloneIndex {
+
+  private static final int BLOCK_INTS = 6;
+
+  private final int hashInts;
+
+  private final int blockInts;
+
+  /**
+   * Indicates that index requires sorting to perform queries.
+   */
+  private volatile boolean sorted;
+
+  /**
+   * Current number of blocks in index.
+   */
+  private int size;
+
+  private final OffHeapIntArray blockData = new OffHeapIntArray();
+  private final OffHeapIntArray byHashIndex = new OffHeapIntArray();
+  private final OffHeapIntArray byResourceIndex = new OffHeapIntArray();
+
+  private final Map<String, Integer> resourceOrdinals = new HashMap<>();
+  private final List<String> resourceIds = new ArrayList<>();
+
+  public OffHeapCloneIndex() {
+    this(8);
+  }
+
+  /**
+   * @param hashBytes size of hash in bytes
+   */
+  public OffHeapCloneIndex(int hashBytes) {
+    this.sorted = false;
+    this.hashInts = hashBytes / 4;
+    this.blockInts = hashInts + BLOCK_INTS;
+    this.size = 0;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation does not guarantee that blocks would be sorted by index.</strong>
+   * </p>
+   */
+  @Override
+  public Collection<Block> getByResourceId(String resourceId) {
+    ensureSorted();
+
+    List<Block> result = new ArrayList<>();
+    Integer ordinal = resourceOrdinals.get(resourceId);
+    if (ordinal == null) {
+      return result;
+    }
+    int index = lowerBoundOfResource(resourceId);
+    while (index < size && resourceOrdinal(byResourceIndex.get(index)) == ordinal) {
+      result.add(createBlock(byResourceIndex.get(index), resourceId, null));
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Collection<Block> getBySequenceHash(ByteArray sequenceHash) {
+    ensureSorted();
+
+    int[] hash = sequenceHash.toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    int index = lowerBoundOfHash(hash);
+
+    List<Block> result = new ArrayList<>();
+    while (index < size && compareHash(byHashIndex.get(index), hash) == 0) {
+      int block = byHashIndex.get(index);
+      result.add(createBlock(block, resourceIds.get(resourceOrdinal(block)), sequenceHash));
+      index++;
+    }
+    return result;
+  }
+
+  /**
+   * {@inheritDoc}
+   * <p>
+   * <strong>Note that this implementation allows insertion of two blocks with same index for one resource.</strong>
+   * </p>
+   */
+  @Override
+  public void insert(Block block) {
+    int[] hash = block.getBlockHash().toIntArray();
+    if (hash.length != hashInts) {
+      throw new IllegalArgumentException("Expected " + hashInts + " ints in hash, but got " + hash.length);
+    }
+
+    sorted = false;
+    long offset = (long) size * blockInts;
+    blockData.ensureCapacity(offset + blockInts);
+    for (int i = 0; i < hashInts; i++) {
+      blockData.set(offset++, hash[i]);
+    }
+    blockData.set(offset++, internResourceId(block.getResourceId()));
+    blockData.set(offset++, block.getIndexInFile());
+    blockData.set(offset++, block.getStartLine());
+    blockData.set(offset++, block.getEndLine());
+    blockData.set(offset++, block.getStartUnit());
+    blockData.set(offset, block.getEndUnit());
+
+    size++;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public Iterator<ResourceBlocks> iterator() {
+    ensureSorted();
+    return new ResourceIterator();
+  }
+
+  @Override
+  public int noResources() {
+    return resourceIds.size();
+  }
+
+  private int internResourceId(String resourceId) {
+    Integer ordinal = resourceOrdinals.get(resourceId);
+    if (ordinal == null) {
+      ordinal = resourceIds.size();
+      resourceOrdinals.put(resourceId, ordinal);
+      resourceIds.add(resourceId);
+    }
+    return ordinal;
+  }
+
+  private int resourceOrdinal(int block) {
+    return blockData.get((long) block * blockInts + hashInts);
+  }
+
+  private Block createBlock(int block, String resourceId, @Nullable ByteArray byteHash) {
+    long offset = (long) block * blockInts;
+    ByteArray blockHash;
+
+    if (byteHash == null) {
+      int[] hash = new int[hashInts];
+      for (int j = 0; j < hashInts; j++) {
+        hash[j] = blockData.get(offset++);
+      }
+      blockHash = new ByteArray(hash);
+    } else {
+      blockHash = byteHash;
+      offset += hashInts;
+    }
+
+    // skip resource ordinal
+    offset++;
+    int indexInFile = blockData.get(offset++);
+    int firstLineNumber = blockData.get(offset++);
+    int lastLineNumber = blockData.get(offset++);
+    int startUnit = blockData.get(offset++);
+    int endUnit = blockData.get(offset);
+
+    return Block.builder()
+      .setResourceId(resourceId)
+      .setBlockHash(blockHash)
+      .setIndexInFile(indexInFile)
+      .setLines(firstLineNumber, lastLineNumber)
+      .setUnit(startUnit, endUnit)
+      .build();
+  }
+
+  private class ResourceIterator implements Iterator<ResourceBlocks> {
+    private int index = 0;
+
+    @Override
+    public boolean hasNext() {
+      return index < size;
+    }
+
+    @Override
+    public ResourceBlocks next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+
+      int ordinal = resourceOrdinal(byResourceIndex.get(index));
+      String resourceId = resourceIds.get(ordinal);
+      List<Block> blocks = new ArrayList<>();
+
+      // while we are at the same resource, keep going
+      do {
+        blocks.add(createBlock(byResourceIndex.get(index), resourceId, null));
+        index++;
+      } while (hasNext() && resourceOrdinal(byResourceIndex.get(index)) == ordinal);
+
+      return new ResourceBlocks(resourceId, blocks);
+    }
+
+    @Override
+    public void remove() {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  /**
+   * Performs sorting, if necessary.
+   */
+  private void ensureSorted() {
+    if (sorted) {
+      return;
+    }
+
+    synchronized (this) {
+      if (sorted) {
+        return;
+      }
+      byHashIndex.ensureCapacity(size);
+      byResourceIndex.ensureCapacity(size);
+      for (int i = 0; i < size; i++) {
+        byHashIndex.set(i, i);
+        byResourceIndex.set(i, i);
+      }
+      DataUtils.sort(byBlockHash);
+      DataUtils.sort(byResourceId);
+
+      sorted = true;
+    }
+  }
+
+  /**
+   * @return position in {@link #byHashIndex} of the first block which hash is not less than the specified hash
+   */
+  private int lowerBoundOfHash(int[] hash) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      if (compareHash(byHashIndex.get(mid), hash) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * @return position in {@link #byResourceIndex} of the first block which resource id is not less than the specified one
+   */
+  private int lowerBoundOfResource(String resourceId) {
+    int low = 0;
+    int high = size;
+    while (low < high) {
+      int mid = (low + high) >>> 1;
+      String midResourceId = resourceIds.get(resourceOrdinal(byResourceIndex.get(mid)));
+      if (FastStringComparator.INSTANCE.compare(midResourceId, resourceId) < 0) {
+        low = mid + 1;
+      } else {
+        high = mid;
+      }
+    }
+    return low;
+  }
+
+  private int compareHash(int block, int[] hash) {
+    long offset = (long) block * blockInts;
+    for (int k = 0; k < hashInts; k++, offset++) {
+      int value = blockData.get(offset);
+      if (value != hash[k]) {
+        return value < hash[k] ? -1 : 1;
+      }
+    }
+    return 0;
+  }
+
+  private final DataUtils.Sortable byBlockHash = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int tmp = byHashIndex.get(i);
+      byHashIndex.set(i, byHashIndex.get(j));
+      byHashIndex.set(j, tmp);
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      long i2 = (long) byHashIndex.get(i) * blockInts;
+      long j2 = (long) byHashIndex.get(j) * blockInts;
+      for (int k = 0; k < hashInts; k++, i2++, j2++) {
+        int x = blockData.get(i2);
+        int y = blockData.get(j2);
+        if (x != y) {
+          return x < y;
+        }
+      }
+      return false;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+
+  private final DataUtils.Sortable byResourceId = new DataUtils.Sortable() {
+    @Override
+    public void swap(int i, int j) {
+      int tmp = byResourceIndex.get(i);
+      byResourceIndex.set(i, byResourceIndex.get(j));
+      byResourceIndex.set(j, tmp);
+    }
+
+    @Override
+    public boolean isLess(int i, int j) {
+      int o1 = resourceOrdinal(byResourceIndex.get(i));
+      int o2 = resourceOrdinal(byResourceIndex.get(j));
+      return o1 != o2 && FastStringComparator.INSTANCE.compare(resourceIds.get(o1), resourceIds.get(o2)) < 0;
+    }
+
+    @Override
+    public int size() {
+      return size;
+    }
+  };
+}
@@ -0,0 +1,55 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.duplications.index;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Growable array of ints stored outside of the Java heap, in direct buffers of fixed size, so that growing
+ * does not require to copy existing values.
+ */
+class OffHeapIntArray {
+
+  private static final int SEGMENT_SHIFT = 20;
+  private static final int SEGMENT_INTS = 1 << SEGMENT_SHIFT;
+  private static final long SEGMENT_MASK = SEGMENT_INTS - 1L;
+
+  private final List<IntBuffer> segments = new ArrayList<>();
+  private long capacity = 0;
+
+  int get(long index) {
+    return segments.get((int) (index >>> SEGMENT_SHIFT)).get((int) (index & SEGMENT_MASK));
+  }
+
+  void set(long index, int value) {
+    segments.get((int) (index >>> SEGMENT_SHIFT)).put((int) (index & SEGMENT_MASK), value);
+  }
+
+  void ensureCapacity(long minCapacity) {
+    while (capacity < minCapacity) {
+      segments.add(ByteBuffer.allocateDirect(SEGMENT_INTS * Integer.BYTES).order(ByteOrder.nativeOrder()).asIntBuffer());
+      capacity += SEGMENT_INTS;
+    }
+  }
+}
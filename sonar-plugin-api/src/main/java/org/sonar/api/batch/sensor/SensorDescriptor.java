@@ -99,4 +99,13 @@ public interface SensorDescriptor {
    * @since 6.5
    */
   SensorDescriptor onlyWhenConfiguration(Predicate<Configuration> predicate);
+
+  /**
+   * Declares that the {@link Sensor} can be executed at the same time as other thread-safe sensors working on other
+   * languages (see {@link #onlyOnLanguages(String...)}), when the scanner is configured to execute sensors with
+   * several threads. Such a sensor must not share mutable state with other sensors, nor depend on the data they save.
+   * Default is to execute the {@link Sensor} alone.
+   * @since 7.7
+   */
+  SensorDescriptor threadSafe();
 }
@@ -106,6 +106,14 @@ public abstract class AbstractExtensionDictionnary {
       .collect(Collectors.toList());
   }
 
+  /**
+   * Whether the extension is sorted only because of its phase, which is the default one: it does not depend upon other
+   * objects and no object depends upon it.
+   */
+  public boolean isIndependent(Object extension) {
+    return evaluatePhase(extension) == Phase.Name.DEFAULT && getDependencies(extension).isEmpty() && getDependents(extension).isEmpty();
+  }
+
   /**
    * Extension dependencies
    */
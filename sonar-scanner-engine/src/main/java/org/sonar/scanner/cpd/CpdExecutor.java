@@ -20,11 +20,16 @@
 package org.sonar.scanner.cpd;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Deque;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
@@ -55,6 +60,9 @@ import org.sonar.scanner.util.ProgressReport;
  * Runs on the root module, at the end of the project analysis.
  * It executes copy paste detection involving all files of all modules, which were indexed during sensors execution for each module.
  * The sensors are responsible for handling exclusions and block sizes.
+ * <p>
+ * Detection of the duplications of several files can run concurrently (see property "sonar.cpd.threads"), as the index is
+ * read-only at this stage. Duplications are saved in the order of the files, whatever the number of threads.
  */
 public class CpdExecutor {
   private static final Logger LOG = Loggers.get(CpdExecutor.class);
@@ -73,7 +81,7 @@ public class CpdExecutor {
   private int total;
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache) {
-    this(settings, index, publisher, inputComponentCache, Executors.newSingleThreadExecutor());
+    this(settings, index, publisher, inputComponentCache, newExecutorService(settings.getThreads()));
   }
 
   public CpdExecutor(CpdSettings settings, SonarCpdBlockIndex index, ReportPublisher publisher, InputComponentStore inputComponentCache,
@@ -86,6 +94,13 @@ public class CpdExecutor {
     this.executorService = executorService;
   }
 
+  private static ExecutorService newExecutorService(int threads) {
+    return Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setNameFormat("cpd-%d")
+      .setDaemon(true)
+      .build());
+  }
+
   public void execute() {
     execute(TIMEOUT);
   }
@@ -112,10 +127,7 @@ public class CpdExecutor {
     total = components.size();
     progressReport.start(String.format("Calculating CPD for %d %s", total, pluralize(total)));
     try {
-      for (FileBlocks fileBlocks : components) {
-        runCpdAnalysis(executorService, fileBlocks.getInputFile(), fileBlocks.getBlocks(), timeout);
-        count++;
-      }
+      runCpdAnalysis(components, timeout);
       progressReport.stop("CPD calculation finished");
     } catch (Exception e) {
       progressReport.stop("");
@@ -129,20 +141,42 @@ public class CpdExecutor {
     return files == 1 ? "file" : "files";
   }
 
-  @VisibleForTesting
-  void runCpdAnalysis(ExecutorService executorService, DefaultInputFile inputFile, Collection<Block> fileBlocks, long timeout) {
-    LOG.debug("Detection of duplications for {}", inputFile.absolutePath());
-    progressReport.message(String.format("%d/%d - current file: %s", count, total, inputFile.absolutePath()));
+  /**
+   * Submits at most {@code 2 * threads} detections in advance and saves the results in the order of the files.
+   */
+  private void runCpdAnalysis(List<FileBlocks> components, long timeout) {
+    int maxPendingDetections = 2 * Math.max(1, settings.getThreads());
+    Deque<PendingDetection> pendingDetections = new ArrayDeque<>(maxPendingDetections);
+    Iterator<FileBlocks> it = components.iterator();
+    while (it.hasNext() || !pendingDetections.isEmpty()) {
+      while (it.hasNext() && pendingDetections.size() < maxPendingDetections) {
+        pendingDetections.add(submitDetection(it.next()));
+      }
+      PendingDetection pendingDetection = pendingDetections.poll();
+      progressReport.message(String.format("%d/%d - current file: %s", count, total, pendingDetection.inputFile.absolutePath()));
+      awaitAndSaveDuplications(pendingDetection, timeout);
+      count++;
+    }
+  }
+
+  private PendingDetection submitDetection(FileBlocks fileBlocks) {
+    DetectionTask task = new DetectionTask(fileBlocks);
+    return new PendingDetection(fileBlocks.getInputFile(), task, executorService.submit(task));
+  }
 
+  private void awaitAndSaveDuplications(PendingDetection pendingDetection, long timeout) {
+    DefaultInputFile inputFile = pendingDetection.inputFile;
     List<CloneGroup> duplications;
-    Future<List<CloneGroup>> futureResult = executorService.submit(() -> SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks));
     try {
-      duplications = futureResult.get(timeout, TimeUnit.MILLISECONDS);
+      duplications = pendingDetection.future.get(pendingDetection.task.remainingTime(timeout), TimeUnit.MILLISECONDS);
     } catch (TimeoutException e) {
       LOG.warn("Timeout during detection of duplications for {}", inputFile.absolutePath());
-      futureResult.cancel(true);
+      pendingDetection.future.cancel(true);
       return;
-    } catch (Exception e) {
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted during detection of duplication for " + inputFile.absolutePath(), e);
+    } catch (ExecutionException e) {
       throw new IllegalStateException("Fail during detection of duplication for " + inputFile.absolutePath(), e);
     }
 
@@ -224,6 +258,45 @@ public class CpdExecutor {
     return dupBuilder.build();
   }
 
+  private class DetectionTask implements Callable<List<CloneGroup>> {
+    private final FileBlocks fileBlocks;
+    private volatile long startTime = 0L;
+
+    private DetectionTask(FileBlocks fileBlocks) {
+      this.fileBlocks = fileBlocks;
+    }
+
+    @Override
+    public List<CloneGroup> call() {
+      startTime = System.currentTimeMillis();
+      LOG.debug("Detection of duplications for {}", fileBlocks.getInputFile().absolutePath());
+      return SuffixTreeCloneDetectionAlgorithm.detect(index, fileBlocks.getBlocks());
+    }
+
+    /**
+     * The timeout applies from the start of the detection, which may have been running for a while when results are awaited.
+     */
+    private long remainingTime(long timeout) {
+      long start = startTime;
+      if (start == 0L) {
+        return timeout;
+      }
+      return Math.max(0L, timeout - (System.currentTimeMillis() - start));
+    }
+  }
+
+  private static class PendingDetection {
+    private final DefaultInputFile inputFile;
+    private final DetectionTask task;
+    private final Future<List<CloneGroup>> future;
+
+    private PendingDetection(DefaultInputFile inputFile, DetectionTask task, Future<List<CloneGroup>> future) {
+      this.inputFile = inputFile;
+      this.task = task;
+      this.future = future;
+    }
+  }
+
   private static class FileBlocks {
     private final DefaultInputFile inputFile;
     private final Collection<Block> blocks;
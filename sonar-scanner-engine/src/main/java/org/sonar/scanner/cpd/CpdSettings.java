@@ -26,6 +26,9 @@ import org.sonar.api.config.Configuration;
 import org.sonar.duplications.block.BlockChunker;
 
 public class CpdSettings {
+  static final String THREADS_PROPERTY = "sonar.cpd.threads";
+  static final String OFF_HEAP_INDEX_PROPERTY = "sonar.cpd.index.offHeap";
+
   private final Configuration settings;
   private final String branch;
 
@@ -47,4 +50,18 @@ public class CpdSettings {
   int getMinimumTokens(String languageKey) {
     return settings.getInt("sonar.cpd." + languageKey + ".minimumTokens").orElse(100);
   }
+
+  /**
+   * Number of threads used to detect duplications, see {@link CpdExecutor}.
+   */
+  int getThreads() {
+    return Math.max(1, settings.getInt(THREADS_PROPERTY).orElse(1));
+  }
+
+  /**
+   * Whether blocks are indexed outside of the Java heap, see {@link org.sonar.duplications.index.OffHeapCloneIndex}.
+   */
+  public boolean isOffHeapIndexEnabled() {
+    return settings.getBoolean(OFF_HEAP_INDEX_PROPERTY).orElse(false);
+  }
 }
@@ -53,7 +53,6 @@ public class ServerIssueRepository {
   public void load() {
     Profiler profiler = Profiler.create(LOG).startInfo(LOG_MSG);
     this.issuesCache = caches.createCache("previousIssues");
-    caches.registerValueCoder(ServerIssue.class, new ServerIssueValueCoder());
     previousIssuesLoader.load(project.getKeyWithBranch(), this::store);
     profiler.stopInfo();
   }
@@ -40,6 +40,8 @@ public class ScanProperties {
   public static final String SONAR_REPORT_EXPORT_PATH = "sonar.report.export.path";
   public static final String PRELOAD_FILE_METADATA_KEY = "sonar.preloadFileMetadata";
   public static final String FORCE_RELOAD_KEY = "sonar.scm.forceReloadAll";
+  public static final String INDEXING_THREADS_KEY = "sonar.scanner.indexing.threads";
+  public static final String SENSOR_THREADS_KEY = "sonar.scanner.sensors.threads";
 
   private final Configuration configuration;
   private final DefaultInputProject project;
@@ -57,6 +59,30 @@ public class ScanProperties {
     return configuration.getBoolean(PRELOAD_FILE_METADATA_KEY).orElse(false);
   }
 
+  /**
+   * Number of threads which resolve the paths of files and preload their metadata while files are indexed. Default is 1:
+   * files are indexed by the thread which walks directories.
+   */
+  public int indexingThreads() {
+    return threads(INDEXING_THREADS_KEY);
+  }
+
+  /**
+   * Number of threads which execute sensors declared as thread-safe. Default is 1: sensors are executed one after the
+   * other.
+   */
+  public int sensorThreads() {
+    return threads(SENSOR_THREADS_KEY);
+  }
+
+  private int threads(String key) {
+    int threads = configuration.getInt(key).orElse(1);
+    if (threads < 1) {
+      throw MessageException.of(String.format("Property '%s' must be an int value >= 1. Got '%s'", key, threads));
+    }
+    return threads;
+  }
+
   public Optional<String> organizationKey() {
     return configuration.get(ORGANIZATION);
   }
@@ -83,5 +109,7 @@ public class ScanProperties {
    */
   public void validate() {
     metadataFilePath();
+    indexingThreads();
+    sensorThreads();
   }
 }
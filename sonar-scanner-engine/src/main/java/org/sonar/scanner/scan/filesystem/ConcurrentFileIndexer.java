@@ -0,0 +1,149 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.filesystem;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import javax.annotation.Nullable;
+import org.sonar.api.batch.fs.InputFile.Type;
+import org.sonar.api.batch.fs.internal.DefaultInputFile;
+import org.sonar.api.batch.fs.internal.DefaultInputModule;
+import org.sonar.api.batch.scm.IgnoreCommand;
+import org.sonar.scanner.util.ProgressReport;
+
+/**
+ * Indexes files with a pool of threads, while directories are walked by the caller thread.
+ * <p>
+ * Paths of files are resolved, filtered and their language detected by the pool (see {@link FileIndexer#resolveFile}). Files
+ * are then added to {@link InputComponentStore} by the caller thread, in the order in which they have been submitted, so
+ * that ids and order of files do not depend on the number of threads. If metadata of files must be preloaded, it is loaded
+ * by the pool.
+ * </p>
+ */
+class ConcurrentFileIndexer implements AutoCloseable {
+  /**
+   * Number of files which are resolved in advance by each thread, so that the latency of the file system is hidden
+   */
+  private static final int PENDING_FILES_PER_THREAD = 16;
+
+  private final FileIndexer fileIndexer;
+  private final ProgressReport progressReport;
+  private final ProjectFileIndexer.ExclusionCounter exclusionCounter;
+  @Nullable
+  private final IgnoreCommand ignoreCommand;
+  private final boolean preloadMetadata;
+  private final ExecutorService executor;
+  private final int maxPendingFiles;
+  private final Deque<PendingFile> pendingFiles = new ArrayDeque<>();
+  private final Deque<Future<?>> pendingMetadata = new ArrayDeque<>();
+
+  ConcurrentFileIndexer(FileIndexer fileIndexer, int threads, boolean preloadMetadata, ProgressReport progressReport,
+    ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand) {
+    this.fileIndexer = fileIndexer;
+    this.progressReport = progressReport;
+    this.exclusionCounter = exclusionCounter;
+    this.ignoreCommand = ignoreCommand;
+    this.preloadMetadata = preloadMetadata;
+    this.maxPendingFiles = threads * PENDING_FILES_PER_THREAD;
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("file-indexer-%d")
+      .build());
+  }
+
+  /**
+   * Submits a file to the pool. Blocks while the oldest submitted file is resolved if too many files are pending.
+   */
+  void submit(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters,
+    ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, Path sourceFile, Type type) {
+    Future<FileIndexer.ResolvedFile> resolvedFile = executor.submit(() -> fileIndexer.resolveFile(module, moduleExclusionFilters, sourceFile, type, exclusionCounter));
+    pendingFiles.add(new PendingFile(resolvedFile, moduleCoverageAndDuplicationExclusions));
+    if (pendingFiles.size() > maxPendingFiles) {
+      indexOldestPendingFile();
+    }
+    while (!pendingMetadata.isEmpty() && pendingMetadata.peek().isDone()) {
+      waitFor(pendingMetadata.poll());
+    }
+  }
+
+  /**
+   * Indexes all the submitted files and waits for their metadata to be loaded.
+   */
+  void finish() {
+    while (!pendingFiles.isEmpty()) {
+      indexOldestPendingFile();
+    }
+    while (!pendingMetadata.isEmpty()) {
+      waitFor(pendingMetadata.poll());
+    }
+  }
+
+  private void indexOldestPendingFile() {
+    PendingFile pendingFile = pendingFiles.poll();
+    FileIndexer.ResolvedFile resolvedFile = waitFor(pendingFile.resolvedFile);
+    if (resolvedFile == null) {
+      return;
+    }
+    DefaultInputFile inputFile = fileIndexer.indexResolvedFile(resolvedFile, pendingFile.moduleCoverageAndDuplicationExclusions, progressReport,
+      exclusionCounter, ignoreCommand);
+    if (inputFile != null && preloadMetadata) {
+      pendingMetadata.add(executor.submit(inputFile::checkMetadata));
+    }
+  }
+
+  private static <T> T waitFor(Future<T> future) {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while indexing files", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof IOException) {
+        throw new IllegalStateException("Failed to index files", e.getCause());
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+
+  private static final class PendingFile {
+    private final Future<FileIndexer.ResolvedFile> resolvedFile;
+    private final ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions;
+
+    private PendingFile(Future<FileIndexer.ResolvedFile> resolvedFile, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions) {
+      this.resolvedFile = resolvedFile;
+      this.moduleCoverageAndDuplicationExclusions = moduleCoverageAndDuplicationExclusions;
+    }
+  }
+}
@@ -24,6 +24,7 @@ import java.nio.file.LinkOption;
 import java.nio.file.Path;
 import java.util.Arrays;
 import java.util.function.BooleanSupplier;
+import javax.annotation.CheckForNull;
 import javax.annotation.Nullable;
 import org.apache.commons.io.FilenameUtils;
 import org.sonar.api.CoreProperties;
@@ -96,50 +97,87 @@ public class FileIndexer {
   void indexFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions,
     Path sourceFile, Type type, ProgressReport progressReport, ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand)
     throws IOException {
+    ResolvedFile resolvedFile = resolveFile(module, moduleExclusionFilters, sourceFile, type, exclusionCounter);
+    if (resolvedFile == null) {
+      return;
+    }
+    DefaultInputFile inputFile = indexResolvedFile(resolvedFile, moduleCoverageAndDuplicationExclusions, progressReport, exclusionCounter, ignoreCommand);
+    if (inputFile != null && properties.preloadFileMetadata()) {
+      inputFile.checkMetadata();
+    }
+  }
+
+  /**
+   * First part of the indexation of a file, which resolves its path, applies inclusions and exclusions and detects its
+   * language. Can be called concurrently by several threads.
+   *
+   * @return {@code null} if the file must not be indexed
+   */
+  @CheckForNull
+  ResolvedFile resolveFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters, Path sourceFile, Type type,
+    ProjectFileIndexer.ExclusionCounter exclusionCounter) throws IOException {
     // get case of real file without resolving link
     Path realAbsoluteFile = sourceFile.toRealPath(LinkOption.NOFOLLOW_LINKS).toAbsolutePath().normalize();
     if (!realAbsoluteFile.startsWith(project.getBaseDir())) {
       LOG.warn("File '{}' is ignored. It is not located in project basedir '{}'.", realAbsoluteFile.toAbsolutePath(), project.getBaseDir());
-      return;
+      return null;
     }
     if (!realAbsoluteFile.startsWith(module.getBaseDir())) {
       LOG.warn("File '{}' is ignored. It is not located in module basedir '{}'.", realAbsoluteFile.toAbsolutePath(), module.getBaseDir());
-      return;
+      return null;
     }
     Path projectRelativePath = project.getBaseDir().relativize(realAbsoluteFile);
     Path moduleRelativePath = module.getBaseDir().relativize(realAbsoluteFile);
     boolean included = evaluateInclusionsFilters(moduleExclusionFilters, realAbsoluteFile, projectRelativePath, moduleRelativePath, type);
     if (!included) {
       exclusionCounter.increaseByPatternsCount();
-      return;
+      return null;
     }
     boolean excluded = evaluateExclusionsFilters(moduleExclusionFilters, realAbsoluteFile, projectRelativePath, moduleRelativePath, type);
     if (excluded) {
       exclusionCounter.increaseByPatternsCount();
-      return;
+      return null;
     }
     String language = langDetection.language(realAbsoluteFile, projectRelativePath);
     if (language == null && langDetection.getForcedLanguage() != null) {
       LOG.warn("File '{}' is ignored because it doesn't belong to the forced language '{}'", realAbsoluteFile.toAbsolutePath(), langDetection.getForcedLanguage());
-      return;
+      return null;
     }
+    return new ResolvedFile(module, realAbsoluteFile, projectRelativePath, moduleRelativePath, type, language);
+  }
+
+  /**
+   * Second part of the indexation of a file, which adds it to {@link InputComponentStore}. Must be called by a single
+   * thread, in the order in which files are walked, so that ids of files do not depend on the number of threads
+   * which resolve files. Metadata of the file is not loaded, even if it must be preloaded.
+   *
+   * @return {@code null} if the file has not been indexed
+   */
+  @CheckForNull
+  DefaultInputFile indexResolvedFile(ResolvedFile resolvedFile, ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions,
+    ProgressReport progressReport, ProjectFileIndexer.ExclusionCounter exclusionCounter, @Nullable IgnoreCommand ignoreCommand) {
+    Path realAbsoluteFile = resolvedFile.realAbsoluteFile;
+    Path projectRelativePath = resolvedFile.projectRelativePath;
+    Type type = resolvedFile.type;
+    String language = resolvedFile.language;
+    DefaultInputModule module = resolvedFile.module;
 
     if (ignoreCommand != null && ignoreCommand.isIgnored(realAbsoluteFile)) {
       LOG.debug("File '{}' is excluded by the scm ignore settings.");
       exclusionCounter.increaseByScmCount();
-      return;
+      return null;
     }
 
     DefaultIndexedFile indexedFile = new DefaultIndexedFile(realAbsoluteFile, project.key(),
       projectRelativePath.toString(),
-      moduleRelativePath.toString(),
+      resolvedFile.moduleRelativePath.toString(),
       type, language, scannerComponentIdGenerator.getAsInt(), sensorStrategy);
     DefaultInputFile inputFile = new DefaultInputFile(indexedFile, f -> metadataGenerator.setMetadata(module.getKeyWithBranch(), f, module.getEncoding()));
     if (language != null) {
       inputFile.setPublished(true);
     }
     if (!accept(inputFile)) {
-      return;
+      return null;
     }
     checkIfAlreadyIndexed(inputFile);
     componentStore.put(module.key(), inputFile);
@@ -147,11 +185,9 @@ public class FileIndexer {
     LOG.debug("'{}' indexed {}with language '{}'", projectRelativePath, type == Type.TEST ? "as test " : "", inputFile.language());
     evaluateCoverageExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
     evaluateDuplicationExclusions(moduleCoverageAndDuplicationExclusions, inputFile);
-    if (properties.preloadFileMetadata()) {
-      inputFile.checkMetadata();
-    }
     int count = componentStore.inputFiles().size();
     progressReport.message(count + " " + pluralizeFiles(count) + " indexed...  (last one was " + inputFile.getProjectRelativePath() + ")");
+    return inputFile;
   }
 
   private boolean evaluateInclusionsFilters(ModuleExclusionFilters moduleExclusionFilters, Path realAbsoluteFile, Path projectRelativePath, Path moduleRelativePath,
@@ -245,7 +281,7 @@ public class FileIndexer {
     return false;
   }
 
-  private void warnOnce(String propKey, String filePath, BooleanSupplier alreadyLoggedGetter, Runnable markAsLogged) {
+  private synchronized void warnOnce(String propKey, String filePath, BooleanSupplier alreadyLoggedGetter, Runnable markAsLogged) {
     if (!alreadyLoggedGetter.getAsBoolean()) {
       String msg = "Specifying module-relative paths at project level in the property '" + propKey + "' is deprecated. " +
         "To continue matching files like '" + filePath + "', update this property so that patterns refer to project-relative paths.";
@@ -270,4 +306,26 @@ public class FileIndexer {
     return count == 1 ? "file" : "files";
   }
 
+  /**
+   * File which passed the inclusions and exclusions, see {@link #resolveFile(DefaultInputModule, ModuleExclusionFilters, Path, Type, ProjectFileIndexer.ExclusionCounter)}
+   */
+  static final class ResolvedFile {
+    private final DefaultInputModule module;
+    private final Path realAbsoluteFile;
+    private final Path projectRelativePath;
+    private final Path moduleRelativePath;
+    private final Type type;
+    @Nullable
+    private final String language;
+
+    private ResolvedFile(DefaultInputModule module, Path realAbsoluteFile, Path projectRelativePath, Path moduleRelativePath, Type type, @Nullable String language) {
+      this.module = module;
+      this.realAbsoluteFile = realAbsoluteFile;
+      this.projectRelativePath = projectRelativePath;
+      this.moduleRelativePath = moduleRelativePath;
+      this.type = type;
+      this.language = language;
+    }
+  }
+
 }
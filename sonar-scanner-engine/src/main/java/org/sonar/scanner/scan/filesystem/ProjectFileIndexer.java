@@ -36,6 +36,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
+import javax.annotation.Nullable;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.lang.SystemUtils;
 import org.sonar.api.batch.fs.InputFile.Type;
@@ -50,6 +51,7 @@ import org.sonar.scanner.bootstrap.GlobalServerSettings;
 import org.sonar.scanner.scan.ModuleConfiguration;
 import org.sonar.scanner.scan.ModuleConfigurationProvider;
 import org.sonar.scanner.scan.ProjectServerSettings;
+import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.scm.ScmConfiguration;
 import org.sonar.scanner.util.ProgressReport;
 
@@ -70,12 +72,16 @@ public class ProjectFileIndexer {
   private final FileIndexer fileIndexer;
   private final IgnoreCommand ignoreCommand;
   private final boolean useScmExclusion;
+  private final ScanProperties properties;
 
   private ProgressReport progressReport;
+  @Nullable
+  private ConcurrentFileIndexer concurrentFileIndexer;
 
   public ProjectFileIndexer(InputComponentStore componentStore, ProjectExclusionFilters exclusionFilters,
     InputModuleHierarchy inputModuleHierarchy, GlobalConfiguration globalConfig, GlobalServerSettings globalServerSettings, ProjectServerSettings projectServerSettings,
-    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration) {
+    FileIndexer fileIndexer, ProjectCoverageAndDuplicationExclusions projectCoverageAndDuplicationExclusions, ScmConfiguration scmConfiguration,
+    ScanProperties properties) {
     this.componentStore = componentStore;
     this.inputModuleHierarchy = inputModuleHierarchy;
     this.globalConfig = globalConfig;
@@ -87,6 +93,7 @@ public class ProjectFileIndexer {
     this.scmConfiguration = scmConfiguration;
     this.ignoreCommand = loadIgnoreCommand();
     this.useScmExclusion = ignoreCommand != null;
+    this.properties = properties;
   }
 
   public void index() {
@@ -99,10 +106,10 @@ public class ProjectFileIndexer {
 
     if (useScmExclusion) {
       ignoreCommand.init(inputModuleHierarchy.root().getBaseDir().toAbsolutePath());
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      indexProject(exclusionCounter);
       ignoreCommand.clean();
     } else {
-      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      indexProject(exclusionCounter);
     }
 
     int totalIndexed = componentStore.inputFiles().size();
@@ -130,6 +137,23 @@ public class ProjectFileIndexer {
     return null;
   }
 
+  private void indexProject(ExclusionCounter exclusionCounter) {
+    int threads = properties.indexingThreads();
+    if (threads == 1) {
+      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      return;
+    }
+    LOG.debug("Indexing files with {} threads", threads);
+    try (ConcurrentFileIndexer indexer = new ConcurrentFileIndexer(fileIndexer, threads, properties.preloadFileMetadata(), progressReport, exclusionCounter,
+      ignoreCommand)) {
+      concurrentFileIndexer = indexer;
+      indexModulesRecursively(inputModuleHierarchy.root(), exclusionCounter);
+      indexer.finish();
+    } finally {
+      concurrentFileIndexer = null;
+    }
+  }
+
   private void indexModulesRecursively(DefaultInputModule module, ExclusionCounter exclusionCounter) {
     inputModuleHierarchy.children(module).stream().sorted(Comparator.comparing(DefaultInputModule::key)).forEach(m -> indexModulesRecursively(m, exclusionCounter));
     index(module, exclusionCounter);
@@ -188,7 +212,7 @@ public class ProjectFileIndexer {
         if (dirOrFile.toFile().isDirectory()) {
           indexDirectory(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, exclusionCounter);
         } else {
-          fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, progressReport, exclusionCounter, ignoreCommand);
+          indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, dirOrFile, type, exclusionCounter);
         }
       }
     } catch (IOException e) {
@@ -196,6 +220,15 @@ public class ProjectFileIndexer {
     }
   }
 
+  private void indexFile(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters,
+    ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, Path file, Type type, ExclusionCounter exclusionCounter) throws IOException {
+    if (concurrentFileIndexer != null) {
+      concurrentFileIndexer.submit(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type);
+    } else {
+      fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand);
+    }
+  }
+
   private void indexDirectory(DefaultInputModule module, ModuleExclusionFilters moduleExclusionFilters,
     ModuleCoverageAndDuplicationExclusions moduleCoverageAndDuplicationExclusions, Path dirToIndex, Type type, ExclusionCounter exclusionCounter)
     throws IOException {
@@ -231,7 +264,7 @@ public class ProjectFileIndexer {
     @Override
     public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
       if (!Files.isHidden(file)) {
-        fileIndexer.indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, progressReport, exclusionCounter, ignoreCommand);
+        indexFile(module, moduleExclusionFilters, moduleCoverageAndDuplicationExclusions, file, type, exclusionCounter);
       }
       return FileVisitResult.CONTINUE;
     }
@@ -35,8 +35,7 @@ public class MeasureCache {
   private final Storage<DefaultMeasure<?>> cache;
 
   public MeasureCache(Storages caches, MetricFinder metricFinder) {
-    caches.registerValueCoder(DefaultMeasure.class, new MeasureValueCoder(metricFinder));
-    cache = caches.createCache("measures");
+    cache = caches.createCache("measures", new MeasureValueCodec(metricFinder));
   }
 
   public Iterable<Entry<DefaultMeasure<?>>> entries() {
@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.scan.measure;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import org.sonar.api.batch.measure.MetricFinder;
+import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
+import org.sonar.scanner.storage.ValueCodec;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+class MeasureValueCodec implements ValueCodec<DefaultMeasure<?>> {
+  private static final byte INT = 1;
+  private static final byte LONG = 2;
+  private static final byte DOUBLE = 3;
+  private static final byte BOOLEAN = 4;
+  private static final byte STRING = 5;
+  private static final byte OTHER = 6;
+
+  private final MetricFinder metricFinder;
+
+  public MeasureValueCodec(MetricFinder metricFinder) {
+    this.metricFinder = metricFinder;
+  }
+
+  @Override
+  public void write(DefaultMeasure<?> m, DataOutputStream output) throws IOException {
+    org.sonar.api.batch.measure.Metric<?> metric = m.metric();
+    output.writeUTF(metric.key());
+    Serializable value = m.value();
+    if (value instanceof Integer) {
+      output.writeByte(INT);
+      output.writeInt((Integer) value);
+    } else if (value instanceof Long) {
+      output.writeByte(LONG);
+      output.writeLong((Long) value);
+    } else if (value instanceof Double) {
+      output.writeByte(DOUBLE);
+      output.writeDouble((Double) value);
+    } else if (value instanceof Boolean) {
+      output.writeByte(BOOLEAN);
+      output.writeBoolean((Boolean) value);
+    } else if (value instanceof String) {
+      // data measures can be bigger than the 64KB supported by writeUTF
+      byte[] bytes = ((String) value).getBytes(UTF_8);
+      output.writeByte(STRING);
+      output.writeInt(bytes.length);
+      output.write(bytes);
+    } else {
+      output.writeByte(OTHER);
+      ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+      objectOutput.writeObject(value);
+      objectOutput.flush();
+    }
+  }
+
+  @Override
+  public DefaultMeasure<?> read(DataInputStream input) throws IOException {
+    String metricKey = input.readUTF();
+    org.sonar.api.batch.measure.Metric<?> metric = metricFinder.findByKey(metricKey);
+    if (metric == null) {
+      throw new IllegalStateException("Unknow metric with key " + metricKey);
+    }
+    return new DefaultMeasure()
+      .forMetric(metric)
+      .withValue(readValue(input));
+  }
+
+  private static Serializable readValue(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case INT:
+        return input.readInt();
+      case LONG:
+        return input.readLong();
+      case DOUBLE:
+        return input.readDouble();
+      case BOOLEAN:
+        return input.readBoolean();
+      case STRING:
+        byte[] bytes = new byte[input.readInt()];
+        input.readFully(bytes);
+        return new String(bytes, UTF_8);
+      case OTHER:
+        try {
+          return (Serializable) new ObjectInputStream(input).readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new IllegalStateException("Unknown type of measure value: " + type);
+    }
+  }
+}
@@ -19,6 +19,7 @@
  */
 package org.sonar.scanner.sensor;
 
+import java.util.Collection;
 import org.sonar.api.batch.sensor.SensorContext;
 import org.sonar.api.batch.sensor.internal.DefaultSensorDescriptor;
 import org.sonar.api.scanner.sensor.ProjectSensor;
@@ -60,4 +61,12 @@ public abstract class AbstractSensorWrapper<G extends ProjectSensor> {
   public boolean isGlobal() {
     return descriptor.isGlobal();
   }
+
+  public boolean isThreadSafe() {
+    return descriptor.isThreadSafe();
+  }
+
+  public Collection<String> languages() {
+    return descriptor.languages();
+  }
 }
@@ -0,0 +1,134 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import org.sonar.api.utils.log.Logger;
+import org.sonar.core.util.logs.Profiler;
+
+/**
+ * Executes sensors in the order in which they are sorted, except that consecutive sensors which can't conflict are
+ * executed at the same time by a pool of threads. Such sensors declare to be thread-safe, declare the languages they
+ * work on, which must be different from the ones of the other sensors executed at the same time, and are independent
+ * from any other extension (see {@link org.sonar.scanner.bootstrap.AbstractExtensionDictionnary#isIndependent(Object)}).
+ */
+class ConcurrentSensorsExecutor<W extends AbstractSensorWrapper<?>> implements AutoCloseable {
+  private final Logger logger;
+  private final Function<W, String> sensorNames;
+  private final ExecutorService executor;
+
+  ConcurrentSensorsExecutor(int threads, Logger logger, Function<W, String> sensorNames) {
+    this.logger = logger;
+    this.sensorNames = sensorNames;
+    this.executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+      .setDaemon(true)
+      .setNameFormat("sensor-%d")
+      .build());
+  }
+
+  void execute(Collection<W> sensors, Predicate<W> isIndependent) {
+    for (List<W> group : group(sensors, isIndependent)) {
+      if (group.size() == 1) {
+        execute(group.get(0));
+      } else {
+        executeConcurrently(group);
+      }
+    }
+  }
+
+  /**
+   * Splits sensors in groups of consecutive sensors which can be executed at the same time. Sensors which can't be
+   * executed concurrently are alone in their group.
+   */
+  static <W extends AbstractSensorWrapper<?>> List<List<W>> group(Collection<W> sensors, Predicate<W> isIndependent) {
+    List<List<W>> groups = new ArrayList<>();
+    List<W> group = new ArrayList<>();
+    Set<String> groupLanguages = new HashSet<>();
+    boolean concurrentGroup = false;
+    for (W sensor : sensors) {
+      boolean concurrent = sensor.isThreadSafe() && !sensor.languages().isEmpty() && isIndependent.test(sensor);
+      if (group.isEmpty() || !concurrent || !concurrentGroup || !Collections.disjoint(groupLanguages, sensor.languages())) {
+        if (!group.isEmpty()) {
+          groups.add(group);
+        }
+        group = new ArrayList<>();
+        groupLanguages = new HashSet<>();
+        concurrentGroup = concurrent;
+      }
+      group.add(sensor);
+      groupLanguages.addAll(sensor.languages());
+    }
+    if (!group.isEmpty()) {
+      groups.add(group);
+    }
+    return groups;
+  }
+
+  private void executeConcurrently(List<W> group) {
+    List<Future<?>> futures = new ArrayList<>();
+    for (W sensor : group) {
+      futures.add(executor.submit(() -> execute(sensor)));
+    }
+    for (Future<?> future : futures) {
+      waitFor(future);
+    }
+  }
+
+  private void execute(W sensor) {
+    Profiler profiler = Profiler.create(logger);
+    profiler.startInfo("Sensor " + sensorNames.apply(sensor));
+    sensor.analyse();
+    profiler.stopInfo();
+  }
+
+  private static void waitFor(Future<?> future) {
+    try {
+      future.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IllegalStateException("Interrupted while executing sensors", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof RuntimeException) {
+        throw (RuntimeException) e.getCause();
+      }
+      if (e.getCause() instanceof Error) {
+        throw (Error) e.getCause();
+      }
+      throw new IllegalStateException(e.getCause());
+    }
+  }
+
+  @Override
+  public void close() {
+    executor.shutdownNow();
+  }
+}
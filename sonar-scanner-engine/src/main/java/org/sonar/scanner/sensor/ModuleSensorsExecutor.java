@@ -30,6 +30,7 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.scan.ScanProperties;
 
 public class ModuleSensorsExecutor {
   private static final Logger LOG = Loggers.get(ModuleSensorsExecutor.class);
@@ -38,13 +39,15 @@ public class ModuleSensorsExecutor {
   private final SensorStrategy strategy;
   private final ScannerPluginRepository pluginRepo;
   private final boolean isRoot;
+  private final ScanProperties properties;
 
   public ModuleSensorsExecutor(ModuleSensorExtensionDictionnary selector, DefaultInputModule module, InputModuleHierarchy hierarchy,
-                               SensorStrategy strategy, ScannerPluginRepository pluginRepo) {
+                               SensorStrategy strategy, ScannerPluginRepository pluginRepo, ScanProperties properties) {
     this.selector = selector;
     this.strategy = strategy;
     this.pluginRepo = pluginRepo;
     this.isRoot = hierarchy.isRoot(module);
+    this.properties = properties;
   }
 
   public void execute() {
@@ -79,6 +82,13 @@ public class ModuleSensorsExecutor {
   }
 
   private void execute(Collection<ModuleSensorWrapper> sensors) {
+    int threads = properties.sensorThreads();
+    if (threads > 1) {
+      try (ConcurrentSensorsExecutor<ModuleSensorWrapper> executor = new ConcurrentSensorsExecutor<>(threads, LOG, this::getSensorName)) {
+        executor.execute(sensors, s -> selector.isIndependent(s.wrappedSensor()));
+      }
+      return;
+    }
     for (ModuleSensorWrapper sensor : sensors) {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
@@ -25,16 +25,19 @@ import org.sonar.api.utils.log.Logger;
 import org.sonar.api.utils.log.Loggers;
 import org.sonar.core.util.logs.Profiler;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.scan.ScanProperties;
 
 public class ProjectSensorsExecutor {
   private static final Logger LOG = Loggers.get(ProjectSensorsExecutor.class);
   private static final Profiler profiler = Profiler.create(LOG);
   private final ProjectSensorExtensionDictionnary selector;
   private final ScannerPluginRepository pluginRepo;
+  private final ScanProperties properties;
 
-  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo) {
+  public ProjectSensorsExecutor(ProjectSensorExtensionDictionnary selector, ScannerPluginRepository pluginRepo, ScanProperties properties) {
     this.selector = selector;
     this.pluginRepo = pluginRepo;
+    this.properties = properties;
   }
 
   public void execute() {
@@ -43,6 +46,13 @@ public class ProjectSensorsExecutor {
     LOG.debug("Sensors : {}", sensors.stream()
       .map(Object::toString)
       .collect(Collectors.joining(" -> ")));
+    int threads = properties.sensorThreads();
+    if (threads > 1) {
+      try (ConcurrentSensorsExecutor<ProjectSensorWrapper> executor = new ConcurrentSensorsExecutor<>(threads, LOG, this::getSensorName)) {
+        executor.execute(sensors, s -> selector.isIndependent(s.wrappedSensor()));
+      }
+      return;
+    }
     for (ProjectSensorWrapper sensor : sensors) {
       String sensorName = getSensorName(sensor);
       profiler.startInfo("Sensor " + sensorName);
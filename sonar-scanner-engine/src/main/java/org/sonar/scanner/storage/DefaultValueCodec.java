@@ -0,0 +1,83 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.Parser;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import javax.annotation.CheckForNull;
+
+/**
+ * Codec of protobuf messages and of {@link Serializable} values. The parser of protobuf messages is the one of the
+ * first message which is written, so a storage must contain messages of a single type.
+ */
+class DefaultValueCodec<V> implements ValueCodec<V> {
+  private static final byte PROTOBUF = 1;
+  private static final byte SERIALIZABLE = 2;
+
+  @CheckForNull
+  private volatile Parser<?> parser;
+
+  @Override
+  public void write(V value, DataOutputStream output) throws IOException {
+    if (value instanceof MessageLite) {
+      MessageLite message = (MessageLite) value;
+      if (parser == null) {
+        parser = message.getParserForType();
+      }
+      output.writeByte(PROTOBUF);
+      message.writeTo(output);
+    } else if (value instanceof Serializable) {
+      output.writeByte(SERIALIZABLE);
+      ObjectOutputStream objectOutput = new ObjectOutputStream(output);
+      objectOutput.writeObject(value);
+      objectOutput.flush();
+    } else {
+      throw new IllegalArgumentException("Value must be a protobuf message or be serializable: " + value.getClass());
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  @Override
+  public V read(DataInputStream input) throws IOException {
+    byte type = input.readByte();
+    switch (type) {
+      case PROTOBUF:
+        Parser<?> messageParser = parser;
+        if (messageParser == null) {
+          throw new IllegalStateException("Parser of protobuf messages is not known");
+        }
+        return (V) messageParser.parseFrom(input);
+      case SERIALIZABLE:
+        try {
+          return (V) new ObjectInputStream(input).readObject();
+        } catch (ClassNotFoundException e) {
+          throw new IOException(e);
+        }
+      default:
+        throw new IllegalStateException("Unknown type of value: " + type);
+    }
+  }
+}
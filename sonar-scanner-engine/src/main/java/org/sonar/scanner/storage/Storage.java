@@ -19,56 +19,82 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.Exchange;
-import com.persistit.Key;
-import com.persistit.KeyFilter;
-import com.persistit.exception.PersistitException;
-import java.util.Iterator;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.LinkedHashSet;
-import java.util.NoSuchElementException;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.CheckForNull;
+import javax.annotation.Nullable;
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang.builder.ToStringBuilder;
 
 /**
+ * Values sorted by keys composed of one or more parts, for example (component key, issue key).
  * <p>
- * This storage is not thread-safe, due to direct usage of {@link com.persistit.Exchange}
+ * Values are encoded by a {@link ValueCodec}. Encoded values are kept in memory as long as the memory budget shared by
+ * the storages of {@link Storages} is not reached, and are appended to a temporary file beyond. Space of the file is not
+ * reclaimed when values are removed or replaced.
+ * </p>
+ * <p>
+ * This storage is thread-safe. Iterables are lazy and weakly consistent: they may or may not reflect the changes made
+ * while iterating.
  * </p>
  */
 public class Storage<V> {
 
   private final String name;
-  private final Exchange exchange;
+  private final ValueCodec<V> codec;
+  private final Path dir;
+  private final AtomicLong availableMemory;
+  /**
+   * Encoded values, either in memory (byte[]) or in the file ({@link FileLocation})
+   */
+  private final ConcurrentNavigableMap<StorageKey, Object> encodedValues = new ConcurrentSkipListMap<>();
+  private final AtomicLong fileSize = new AtomicLong();
+  @CheckForNull
+  private volatile FileChannel file;
 
-  Storage(String name, Exchange exchange) {
+  Storage(String name, ValueCodec<V> codec, Path dir, AtomicLong availableMemory) {
     this.name = name;
-    this.exchange = exchange;
+    this.codec = codec;
+    this.dir = dir;
+    this.availableMemory = availableMemory;
   }
 
   public Storage<V> put(Object key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(StorageKey.of(key), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, V value) {
-    resetKey(firstKey, secondKey);
-    return doPut(value);
+    return doPut(StorageKey.of(firstKey, secondKey), value);
   }
 
   public Storage<V> put(Object firstKey, Object secondKey, Object thirdKey, V value) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doPut(value);
+    return doPut(StorageKey.of(firstKey, secondKey, thirdKey), value);
   }
 
   public Storage<V> put(Object[] key, V value) {
-    resetKey(key);
-    return doPut(value);
+    return doPut(StorageKey.of(key), value);
   }
 
-  private Storage<V> doPut(V value) {
+  private Storage<V> doPut(StorageKey key, V value) {
     try {
-      exchange.getValue().put(value);
-      exchange.store();
+      byte[] bytes = encode(value);
+      Object stored = reserveMemory(bytes.length) ? bytes : append(bytes);
+      releaseMemory(encodedValues.put(key, stored));
       return this;
     } catch (Exception e) {
       throw new IllegalStateException("Fail to put element in the storage '" + name + "'", e);
@@ -79,8 +105,7 @@ public class Storage<V> {
    * Returns the value object associated with keys, or null if not found.
    */
   public V get(Object key) {
-    resetKey(key);
-    return doGet();
+    return doGet(StorageKey.of(key));
   }
 
   /**
@@ -88,8 +113,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doGet();
+    return doGet(StorageKey.of(firstKey, secondKey));
   }
 
   /**
@@ -97,8 +121,7 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doGet();
+    return doGet(StorageKey.of(firstKey, secondKey, thirdKey));
   }
 
   /**
@@ -106,169 +129,104 @@ public class Storage<V> {
    */
   @CheckForNull
   public V get(Object[] key) {
-    resetKey(key);
-    return doGet();
+    return doGet(StorageKey.of(key));
   }
 
-  @SuppressWarnings("unchecked")
   @CheckForNull
-  private V doGet() {
-    try {
-      exchange.fetch();
-      if (!exchange.getValue().isDefined()) {
-        return null;
-      }
-      return (V) exchange.getValue().get();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
+  private V doGet(StorageKey key) {
+    Object stored = encodedValues.get(key);
+    if (stored == null) {
+      return null;
     }
+    return decode(stored);
   }
 
   public boolean containsKey(Object key) {
-    resetKey(key);
-    return doContainsKey();
+    return encodedValues.containsKey(StorageKey.of(key));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doContainsKey();
+    return encodedValues.containsKey(StorageKey.of(firstKey, secondKey));
   }
 
   public boolean containsKey(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doContainsKey();
+    return encodedValues.containsKey(StorageKey.of(firstKey, secondKey, thirdKey));
   }
 
   public boolean containsKey(Object[] key) {
-    resetKey(key);
-    return doContainsKey();
-  }
-
-  private boolean doContainsKey() {
-    try {
-      exchange.fetch();
-      return exchange.isValueDefined();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to check if element is in cache " + name, e);
-    }
+    return encodedValues.containsKey(StorageKey.of(key));
   }
 
   public boolean remove(Object key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(StorageKey.of(key));
   }
 
   public boolean remove(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doRemove();
+    return doRemove(StorageKey.of(firstKey, secondKey));
   }
 
   public boolean remove(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doRemove();
+    return doRemove(StorageKey.of(firstKey, secondKey, thirdKey));
   }
 
   public boolean remove(Object[] key) {
-    resetKey(key);
-    return doRemove();
+    return doRemove(StorageKey.of(key));
   }
 
-  private boolean doRemove() {
-    try {
-      return exchange.remove();
-    } catch (Exception e) {
-      // TODO add parameters to message
-      throw new IllegalStateException("Fail to get element from cache " + name, e);
-    }
+  private boolean doRemove(StorageKey key) {
+    Object removed = encodedValues.remove(key);
+    releaseMemory(removed);
+    return removed != null;
   }
 
   /**
    * Removes everything in the specified group.
    */
   public Storage<V> clear(Object key) {
-    resetKey(key);
-    return doClear();
+    return doClear(StorageKey.of(key));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey) {
-    resetKey(firstKey, secondKey);
-    return doClear();
+    return doClear(StorageKey.of(firstKey, secondKey));
   }
 
   public Storage<V> clear(Object firstKey, Object secondKey, Object thirdKey) {
-    resetKey(firstKey, secondKey, thirdKey);
-    return doClear();
+    return doClear(StorageKey.of(firstKey, secondKey, thirdKey));
   }
 
   public Storage<V> clear(Object[] key) {
-    resetKey(key);
-    return doClear();
+    return doClear(StorageKey.of(key));
   }
 
-  private Storage<V> doClear() {
-    try {
-      Key to = new Key(exchange.getKey());
-      to.append(Key.AFTER);
-      exchange.removeKeyRange(exchange.getKey(), to);
-      return this;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear values from cache " + name, e);
+  private Storage<V> doClear(StorageKey key) {
+    for (StorageKey removedKey : encodedValues.subMap(key, true, key.after(), false).keySet()) {
+      releaseMemory(encodedValues.remove(removedKey));
     }
+    return this;
   }
 
   /**
    * Clears the default as well as all group caches.
    */
   public void clear() {
-    try {
-      exchange.clear();
-      exchange.removeAll();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to clear cache", e);
+    for (StorageKey removedKey : encodedValues.keySet()) {
+      releaseMemory(encodedValues.remove(removedKey));
     }
   }
 
   /**
    * Returns the set of cache keys associated with this group.
-   * TODO implement a lazy-loading equivalent with Iterator/Iterable
    *
    * @return The set of cache keys for this group.
    */
   @SuppressWarnings("rawtypes")
   public Set keySet(Object key) {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(key);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(StorageKey.of(key));
   }
 
   @SuppressWarnings("rawtypes")
   public Set keySet(Object firstKey, Object secondKey) {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(firstKey);
-      iteratorExchange.append(secondKey);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
-    }
+    return doKeySet(StorageKey.of(firstKey, secondKey));
   }
 
   /**
@@ -277,200 +235,157 @@ public class Storage<V> {
    * @return The set containing the keys for this cache.
    */
   public Set<Object> keySet() {
-    try {
-      Set<Object> keys = new LinkedHashSet<>();
-      exchange.clear();
-      Exchange iteratorExchange = new Exchange(exchange);
-      iteratorExchange.append(Key.BEFORE);
-      while (iteratorExchange.next(false)) {
-        keys.add(iteratorExchange.getKey().indexTo(-1).decode());
-      }
-      return keys;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to get keys from cache " + name, e);
+    return doKeySet(StorageKey.EMPTY);
+  }
+
+  /**
+   * Parts which follow the given prefix, in the order of keys. Keys with a same part are skipped.
+   */
+  private Set<Object> doKeySet(StorageKey prefix) {
+    Set<Object> keys = new LinkedHashSet<>();
+    StorageKey upperBound = prefix.after();
+    StorageKey key = encodedValues.higherKey(prefix);
+    while (key != null && key.compareTo(upperBound) < 0) {
+      Object part = key.part(prefix.size());
+      keys.add(part);
+      key = encodedValues.higherKey(prefix.append(part).after());
     }
+    return keys;
   }
 
   /**
    * Lazy-loading values for given keys
    */
   public Iterable<V> values(Object firstKey, Object secondKey) {
-    return new ValueIterable<>(exchange, firstKey, secondKey);
+    return lazyValues(StorageKey.of(firstKey, secondKey));
   }
 
   /**
    * Lazy-loading values for a given key
    */
   public Iterable<V> values(Object firstKey) {
-    return new ValueIterable<>(exchange, firstKey);
+    return lazyValues(StorageKey.of(firstKey));
   }
 
   /**
    * Lazy-loading values
    */
   public Iterable<V> values() {
-    return new ValueIterable<>(exchange);
+    return lazyValues(StorageKey.EMPTY);
   }
 
-  public Iterable<Entry<V>> entries() {
-    return new EntryIterable<>(exchange);
+  private Iterable<V> lazyValues(StorageKey prefix) {
+    return () -> descendants(prefix).values().stream()
+      .map(this::decode)
+      .iterator();
   }
 
-  public Iterable<Entry<V>> entries(Object firstKey) {
-    return new EntryIterable<>(exchange, firstKey);
+  public Iterable<Entry<V>> entries() {
+    return lazyEntries(StorageKey.EMPTY);
   }
 
-  private void resetKey(Object key) {
-    exchange.clear();
-    exchange.append(key);
+  public Iterable<Entry<V>> entries(Object firstKey) {
+    return lazyEntries(StorageKey.of(firstKey));
   }
 
-  private void resetKey(Object first, Object second) {
-    exchange.clear();
-    exchange.append(first).append(second);
+  private Iterable<Entry<V>> lazyEntries(StorageKey prefix) {
+    return () -> descendants(prefix).entrySet().stream()
+      .map(e -> new Entry<>(e.getKey().parts(), decode(e.getValue())))
+      .iterator();
   }
 
-  private void resetKey(Object first, Object second, Object third) {
-    exchange.clear();
-    exchange.append(first).append(second).append(third);
+  /**
+   * Keys starting with the given prefix, excluding the prefix itself
+   */
+  private Map<StorageKey, Object> descendants(StorageKey prefix) {
+    return encodedValues.subMap(prefix, false, prefix.after(), false);
   }
 
-  private void resetKey(Object[] keys) {
-    exchange.clear();
-    for (Object o : keys) {
-      exchange.append(o);
+  void close() {
+    clear();
+    FileChannel channel = file;
+    if (channel != null) {
+      IOUtils.closeQuietly(channel);
+      file = null;
     }
   }
 
-  //
-  // LAZY ITERATORS AND ITERABLES
-  //
-
-  private static class ValueIterable<T> implements Iterable<T> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private ValueIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<T> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new ValueIterator<>(iteratorExchange, filter);
-    }
+  private byte[] encode(V value) throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream output = new DataOutputStream(bytes);
+    codec.write(value, output);
+    output.flush();
+    return bytes.toByteArray();
   }
 
-  private static class ValueIterator<T> implements Iterator<T> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private ValueIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
+  private V decode(Object stored) {
+    try {
+      byte[] bytes = stored instanceof FileLocation ? read((FileLocation) stored) : (byte[]) stored;
+      return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)));
+    } catch (Exception e) {
+      throw new IllegalStateException("Fail to get element from cache " + name, e);
     }
+  }
 
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+  private boolean reserveMemory(int length) {
+    long available = availableMemory.get();
+    while (available >= length) {
+      if (availableMemory.compareAndSet(available, available - length)) {
+        return true;
       }
+      available = availableMemory.get();
     }
-
-    @SuppressWarnings("unchecked")
-    @Override
-    public T next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        return (T) exchange.getValue().get();
-      }
-      throw new NoSuchElementException();
-    }
-
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
-    }
+    return false;
   }
 
-  private static class EntryIterable<T> implements Iterable<Entry<T>> {
-    private final Exchange originExchange;
-    private final Object[] keys;
-
-    private EntryIterable(Exchange originExchange, Object... keys) {
-      this.originExchange = originExchange;
-      this.keys = keys;
-    }
-
-    @Override
-    public Iterator<Entry<T>> iterator() {
-      originExchange.clear();
-      KeyFilter filter = new KeyFilter();
-      for (Object key : keys) {
-        originExchange.append(key);
-        filter = filter.append(KeyFilter.simpleTerm(key));
-      }
-      originExchange.append(Key.BEFORE);
-      Exchange iteratorExchange = new Exchange(originExchange);
-      return new EntryIterator<>(iteratorExchange, filter);
+  private void releaseMemory(@Nullable Object stored) {
+    if (stored instanceof byte[]) {
+      availableMemory.addAndGet(((byte[]) stored).length);
     }
   }
 
-  private static class EntryIterator<T> implements Iterator<Entry<T>> {
-    private final Exchange exchange;
-    private final KeyFilter keyFilter;
-
-    private EntryIterator(Exchange exchange, KeyFilter keyFilter) {
-      this.exchange = exchange;
-      this.keyFilter = keyFilter;
+  private FileLocation append(byte[] bytes) throws IOException {
+    FileChannel channel = file();
+    long position = fileSize.getAndAdd(bytes.length);
+    ByteBuffer buffer = ByteBuffer.wrap(bytes);
+    while (buffer.hasRemaining()) {
+      channel.write(buffer, position + buffer.position());
     }
+    return new FileLocation(position, bytes.length);
+  }
 
-    @Override
-    public boolean hasNext() {
-      try {
-        return exchange.hasNext(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
+  private byte[] read(FileLocation location) throws IOException {
+    FileChannel channel = file();
+    ByteBuffer buffer = ByteBuffer.allocate(location.length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, location.position + buffer.position()) < 0) {
+        throw new EOFException("Unexpected end of file of the storage '" + name + "'");
       }
     }
+    return buffer.array();
+  }
 
-    @SuppressWarnings("unchecked")
-    @Override
-    public Entry<T> next() {
-      try {
-        exchange.next(keyFilter);
-      } catch (PersistitException e) {
-        throw new IllegalStateException(e);
-      }
-      if (exchange.getValue().isDefined()) {
-        T value = (T) exchange.getValue().get();
-        Key key = exchange.getKey();
-        Object[] array = new Object[key.getDepth()];
-        for (int i = 0; i < key.getDepth(); i++) {
-          array[i] = key.indexTo(i - key.getDepth()).decode();
+  private FileChannel file() throws IOException {
+    FileChannel channel = file;
+    if (channel == null) {
+      synchronized (this) {
+        channel = file;
+        if (channel == null) {
+          channel = FileChannel.open(Files.createTempFile(dir, "storage", ".bin"), StandardOpenOption.READ, StandardOpenOption.WRITE);
+          file = channel;
         }
-        return new Entry<>(array, value);
       }
-      throw new NoSuchElementException();
     }
+    return channel;
+  }
 
-    @Override
-    public void remove() {
-      throw new UnsupportedOperationException("Removing an item is not supported");
+  private static class FileLocation {
+    private final long position;
+    private final int length;
+
+    private FileLocation(long position, int length) {
+      this.position = position;
+      this.length = length;
     }
   }
 
@@ -0,0 +1,127 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.storage;
+
+import java.util.Arrays;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static java.util.Objects.requireNonNull;
+
+/**
+ * Key of a {@link Storage}, composed of one or more parts. Keys are sorted part by part, and a key is lower than the
+ * keys it is a prefix of. Parts of different types are sorted by name of their class.
+ */
+final class StorageKey implements Comparable<StorageKey> {
+  static final StorageKey EMPTY = new StorageKey(new Object[0]);
+
+  /**
+   * Part which is greater than any other part, used to get the upper bound of the keys starting with a given prefix
+   */
+  private static final Object AFTER = new Object();
+
+  private final Object[] parts;
+
+  private StorageKey(Object[] parts) {
+    this.parts = parts;
+  }
+
+  static StorageKey of(Object... parts) {
+    for (Object part : parts) {
+      requireNonNull(part, "Part of key can't be null");
+      checkArgument(part instanceof Comparable, "Part of key must be comparable: %s", part);
+    }
+    return new StorageKey(parts.clone());
+  }
+
+  int size() {
+    return parts.length;
+  }
+
+  Object part(int index) {
+    return parts[index];
+  }
+
+  Object[] parts() {
+    return parts.clone();
+  }
+
+  StorageKey append(Object part) {
+    Object[] newParts = Arrays.copyOf(parts, parts.length + 1);
+    newParts[parts.length] = part;
+    return new StorageKey(newParts);
+  }
+
+  /**
+   * Upper bound, exclusive, of this key and of all the keys starting with this key
+   */
+  StorageKey after() {
+    return append(AFTER);
+  }
+
+  @Override
+  public int compareTo(StorageKey other) {
+    int size = Math.min(parts.length, other.parts.length);
+    for (int i = 0; i < size; i++) {
+      int result = compareParts(parts[i], other.parts[i]);
+      if (result != 0) {
+        return result;
+      }
+    }
+    return Integer.compare(parts.length, other.parts.length);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compareParts(Object part, Object otherPart) {
+    if (part == otherPart) {
+      return 0;
+    }
+    if (part == AFTER) {
+      return 1;
+    }
+    if (otherPart == AFTER) {
+      return -1;
+    }
+    if (part.getClass() != otherPart.getClass()) {
+      return part.getClass().getName().compareTo(otherPart.getClass().getName());
+    }
+    return ((Comparable<Object>) part).compareTo(otherPart);
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (o == null || getClass() != o.getClass()) {
+      return false;
+    }
+    return Arrays.equals(parts, ((StorageKey) o).parts);
+  }
+
+  @Override
+  public int hashCode() {
+    return Arrays.hashCode(parts);
+  }
+
+  @Override
+  public String toString() {
+    return Arrays.toString(parts);
+  }
+}
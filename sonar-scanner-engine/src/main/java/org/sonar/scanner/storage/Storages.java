@@ -20,77 +20,63 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.base.Preconditions;
-import com.persistit.Exchange;
-import com.persistit.Persistit;
-import com.persistit.Value;
-import com.persistit.Volume;
-import com.persistit.encoding.CoderManager;
-import com.persistit.encoding.ValueCoder;
-import com.persistit.exception.PersistitException;
-import java.util.HashMap;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 import org.picocontainer.Startable;
 
+import static org.sonar.core.util.FileUtils.deleteQuietly;
+
 public class Storages implements Startable {
-  private final Map<String, Exchange> cacheMap = new HashMap<>();
-  private Persistit persistit;
-  private Volume volume;
+  private final Map<String, Storage<?>> cacheMap = new ConcurrentHashMap<>();
+  private final AtomicLong availableMemory;
+  private Path dir;
 
   public Storages(StoragesManager storagesManager) {
-    persistit = storagesManager.persistit();
-    doStart();
+    this(storagesManager, storagesManager.memoryBudget());
   }
 
-  @Override
-  public void start() {
-    // done in constructor
-  }
-
-  private void doStart() {
+  Storages(StoragesManager storagesManager, long memoryBudget) {
+    this.availableMemory = new AtomicLong(memoryBudget);
     try {
-      persistit.flush();
-      volume = persistit.createTemporaryVolume();
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create a cache volume", e);
+      dir = Files.createTempDirectory(storagesManager.tempDir().toPath(), "storages");
+    } catch (IOException e) {
+      throw new IllegalStateException("Fail to create a cache directory", e);
     }
   }
 
-  public void registerValueCoder(Class<?> clazz, ValueCoder coder) {
-    CoderManager cm = persistit.getCoderManager();
-    cm.registerValueCoder(clazz, coder);
+  @Override
+  public void start() {
+    // done in constructor
   }
 
+  /**
+   * Creates a storage of protobuf messages or of {@link java.io.Serializable} values
+   */
   public <V> Storage<V> createCache(String cacheName) {
-    Preconditions.checkState(volume != null && volume.isOpened(), "Caches are not initialized");
-    Preconditions.checkState(!cacheMap.containsKey(cacheName), "Cache is already created: %s", cacheName);
-    try {
-      Exchange exchange = persistit.getExchange(volume, cacheName, true);
-      exchange.setMaximumValueSize(Value.MAXIMUM_SIZE);
-      Storage<V> cache = new Storage<>(cacheName, exchange);
-      cacheMap.put(cacheName, exchange);
-      return cache;
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to create cache: " + cacheName, e);
-    }
+    return createCache(cacheName, new DefaultValueCodec<>());
+  }
+
+  public <V> Storage<V> createCache(String cacheName, ValueCodec<V> codec) {
+    Preconditions.checkState(dir != null, "Caches are not initialized");
+    Storage<V> cache = new Storage<>(cacheName, codec, dir, availableMemory);
+    Preconditions.checkState(cacheMap.putIfAbsent(cacheName, cache) == null, "Cache is already created: %s", cacheName);
+    return cache;
   }
 
   @Override
   public void stop() {
-    for (Entry<String, Exchange> e : cacheMap.entrySet()) {
-      persistit.releaseExchange(e.getValue());
+    for (Storage<?> cache : cacheMap.values()) {
+      cache.close();
     }
-
     cacheMap.clear();
 
-    if (volume != null) {
-      try {
-        volume.close();
-        volume.delete();
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-      volume = null;
+    if (dir != null) {
+      deleteQuietly(dir.toFile());
+      dir = null;
     }
   }
 }
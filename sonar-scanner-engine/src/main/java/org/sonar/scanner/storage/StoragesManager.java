@@ -19,13 +19,8 @@
  */
 package org.sonar.scanner.storage;
 
-import com.persistit.Persistit;
-import com.persistit.exception.PersistitException;
-import com.persistit.logging.Slf4jAdapter;
 import java.io.File;
-import java.util.Properties;
 import org.picocontainer.Startable;
-import org.slf4j.LoggerFactory;
 import org.sonar.api.utils.TempFolder;
 
 import static org.sonar.core.util.FileUtils.deleteQuietly;
@@ -36,35 +31,22 @@ import static org.sonar.core.util.FileUtils.deleteQuietly;
  * @since 3.6
  */
 public class StoragesManager implements Startable {
+  /**
+   * Part of the max heap which can be used by the values of storages. Values are written in temporary files beyond this
+   * budget.
+   */
+  private static final int MEMORY_BUDGET_HEAP_RATIO = 10;
+
   private File tempDir;
-  private Persistit persistit;
-  private final TempFolder tempFolder;
+  private final long memoryBudget;
 
   public StoragesManager(TempFolder tempFolder) {
-    this.tempFolder = tempFolder;
-    initPersistit();
+    this(tempFolder, Runtime.getRuntime().maxMemory() / MEMORY_BUDGET_HEAP_RATIO);
   }
 
-  private void initPersistit() {
-    try {
-      tempDir = tempFolder.newDir("caches");
-      persistit = new Persistit();
-      persistit.setPersistitLogger(new Slf4jAdapter(LoggerFactory.getLogger("PERSISTIT")));
-      Properties props = new Properties();
-      props.setProperty("datapath", tempDir.getAbsolutePath());
-      props.setProperty("logpath", "${datapath}/log");
-      props.setProperty("logfile", "${logpath}/persistit_${timestamp}.log");
-      props.setProperty("buffer.count.8192", "10");
-      props.setProperty("journalpath", "${datapath}/journal");
-      props.setProperty("tmpvoldir", "${datapath}");
-      props.setProperty("volume.1", "${datapath}/persistit,create,pageSize:8192,initialPages:10,extensionPages:100,maximumPages:25000");
-      props.setProperty("jmx", "false");
-      persistit.setProperties(props);
-      persistit.initialize();
-
-    } catch (Exception e) {
-      throw new IllegalStateException("Fail to start caches", e);
-    }
+  StoragesManager(TempFolder tempFolder, long memoryBudget) {
+    this.memoryBudget = memoryBudget;
+    this.tempDir = tempFolder.newDir("caches");
   }
 
   @Override
@@ -74,14 +56,6 @@ public class StoragesManager implements Startable {
 
   @Override
   public void stop() {
-    if (persistit != null) {
-      try {
-        persistit.close(false);
-        persistit = null;
-      } catch (PersistitException e) {
-        throw new IllegalStateException("Fail to close caches", e);
-      }
-    }
     deleteQuietly(tempDir);
     tempDir = null;
   }
@@ -90,7 +64,10 @@ public class StoragesManager implements Startable {
     return tempDir;
   }
 
-  Persistit persistit() {
-    return persistit;
+  /**
+   * Number of bytes of encoded values which are kept in memory by the storages of a {@link Storages}
+   */
+  long memoryBudget() {
+    return memoryBudget;
   }
 }
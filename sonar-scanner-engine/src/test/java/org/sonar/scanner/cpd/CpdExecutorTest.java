@@ -28,6 +28,7 @@ import java.util.List;
 import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.Consumer;
 import javax.annotation.Nullable;
 import org.junit.Before;
@@ -223,6 +224,32 @@ public class CpdExecutorTest {
         "Timeout during detection of duplications for .*Foo.php");
   }
 
+  @Test
+  public void should_detect_duplications_of_files_concurrently() {
+    when(settings.getThreads()).thenReturn(2);
+    executor = new CpdExecutor(settings, index, publisher, componentStore, Executors.newFixedThreadPool(2));
+    ByteArray duplicatedHash = new ByteArray("AAAABBBBCCCCDDDD");
+    index.insert(batchComponent1, Collections.singletonList(newBlock(batchComponent1, duplicatedHash)));
+    index.insert(batchComponent2, Collections.singletonList(newBlock(batchComponent2, duplicatedHash)));
+    index.insert(batchComponent3, Collections.singletonList(newBlock(batchComponent3, new ByteArray("1111222233334444"))));
+
+    executor.execute();
+
+    assertDuplication(readDuplications(batchComponent1, 1)[0], 1, 2, batchComponent2.scannerId(), 1, 2);
+    assertDuplication(readDuplications(batchComponent2, 1)[0], 1, 2, batchComponent1.scannerId(), 1, 2);
+    readDuplications(batchComponent3, 0);
+  }
+
+  private static Block newBlock(DefaultInputFile file, ByteArray hash) {
+    return Block.builder()
+      .setResourceId(file.key())
+      .setBlockHash(hash)
+      .setIndexInFile(0)
+      .setLines(1, 2)
+      .setUnit(0, 10)
+      .build();
+  }
+
   private DefaultInputFile createComponent(String relativePath, int lines) {
     return createComponent(relativePath, lines, f -> {
     });
@@ -56,4 +56,34 @@ public class CpdSettingsTest {
     assertThat(cpdSettings.getMinimumTokens("java")).isEqualTo(42);
     assertThat(cpdSettings.getMinimumTokens("php")).isEqualTo(33);
   }
+
+  @Test
+  public void defaultThreads() {
+    when(configuration.getInt(anyString())).thenReturn(Optional.empty());
+    assertThat(cpdSettings.getThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void threads() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(4));
+    assertThat(cpdSettings.getThreads()).isEqualTo(4);
+  }
+
+  @Test
+  public void threadsIsAtLeastOne() {
+    when(configuration.getInt("sonar.cpd.threads")).thenReturn(Optional.of(-2));
+    assertThat(cpdSettings.getThreads()).isEqualTo(1);
+  }
+
+  @Test
+  public void offHeapIndexIsDisabledByDefault() {
+    when(configuration.getBoolean(anyString())).thenReturn(Optional.empty());
+    assertThat(cpdSettings.isOffHeapIndexEnabled()).isFalse();
+  }
+
+  @Test
+  public void offHeapIndex() {
+    when(configuration.getBoolean("sonar.cpd.index.offHeap")).thenReturn(Optional.of(true));
+    assertThat(cpdSettings.isOffHeapIndexEnabled()).isTrue();
+  }
 }
@@ -237,6 +237,33 @@ public class FileSystemMediumTest {
     assertThat(logTester.logs()).contains("'src/sample.java' generated metadata with charset 'UTF-8'");
   }
 
+  @Test
+  public void indexFilesWithSeveralThreads() throws IOException {
+    builder.put("sonar.preloadFileMetadata", "true");
+    builder.put("sonar.scanner.indexing.threads", "4");
+
+    File srcDir = new File(baseDir, "src");
+    int nbFiles = 50;
+    for (int nb = 1; nb <= nbFiles; nb++) {
+      File dir = new File(srcDir, "dir" + (nb % 5));
+      dir.mkdirs();
+      FileUtils.write(new File(dir, "sample" + nb + ".xoo"), "Sample xoo\ncontent", StandardCharsets.UTF_8);
+    }
+
+    logTester.setLevel(LoggerLevel.DEBUG);
+
+    AnalysisResult result = tester.newAnalysis()
+      .properties(builder
+        .put("sonar.sources", "src")
+        .build())
+      .execute();
+
+    assertThat(logTester.logs()).contains(nbFiles + " files indexed");
+    assertThat(result.inputFiles()).hasSize(nbFiles);
+    assertThat(result.inputFiles()).allMatch(f -> f.lines() == 2);
+    assertThat(logTester.logs()).contains("'src/dir1/sample1.xoo' generated metadata with charset 'UTF-8'");
+  }
+
   @Test
   public void dontPublishFilesWithoutDetectedLanguage() throws IOException {
     Path mainDir = baseDir.toPath().resolve("src").resolve("main");
@@ -33,6 +33,7 @@ import org.sonar.api.batch.fs.internal.TestInputFileBuilder;
 import org.sonar.api.batch.sensor.Sensor;
 import org.sonar.scanner.sensor.ModuleSensorExtensionDictionnary;
 import org.sonar.scanner.bootstrap.ScannerPluginRepository;
+import org.sonar.scanner.scan.ScanProperties;
 import org.sonar.scanner.sensor.ModuleSensorsExecutor;
 import org.sonar.scanner.sensor.ModuleSensorWrapper;
 
@@ -54,6 +55,8 @@ public class ModuleSensorsExecutorTest {
   private ModuleSensorWrapper perModuleSensor = mock(ModuleSensorWrapper.class);
   private ModuleSensorWrapper globalSensor = mock(ModuleSensorWrapper.class);
   private ScannerPluginRepository pluginRepository = mock(ScannerPluginRepository.class);
+  private ScanProperties properties = mock(ScanProperties.class);
+  private ModuleSensorExtensionDictionnary selector = mock(ModuleSensorExtensionDictionnary.class);
 
   @Before
   public void setUp() throws IOException {
@@ -65,7 +68,7 @@ public class ModuleSensorsExecutorTest {
     when(globalSensor.shouldExecute()).thenReturn(true);
     when(globalSensor.wrappedSensor()).thenReturn(mock(Sensor.class));
 
-    ModuleSensorExtensionDictionnary selector = mock(ModuleSensorExtensionDictionnary.class);
+    when(properties.sensorThreads()).thenReturn(1);
     when(selector.selectSensors(false)).thenReturn(Collections.singleton(perModuleSensor));
     when(selector.selectSensors(true)).thenReturn(Collections.singleton(globalSensor));
 
@@ -78,8 +81,8 @@ public class ModuleSensorsExecutorTest {
     InputModuleHierarchy hierarchy = mock(InputModuleHierarchy.class);
     when(hierarchy.isRoot(rootModule)).thenReturn(true);
 
-    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository);
-    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository);
+    rootModuleExecutor = new ModuleSensorsExecutor(selector, rootModule, hierarchy, strategy, pluginRepository, properties);
+    subModuleExecutor = new ModuleSensorsExecutor(selector, subModule, hierarchy, strategy, pluginRepository, properties);
   }
 
   @Test
@@ -105,4 +108,14 @@ public class ModuleSensorsExecutorTest {
 
     verifyNoMoreInteractions(perModuleSensor, globalSensor);
   }
+
+  @Test
+  public void should_execute_all_sensors_with_several_threads() {
+    when(properties.sensorThreads()).thenReturn(2);
+
+    rootModuleExecutor.execute();
+
+    verify(globalSensor).analyse();
+    verify(perModuleSensor).analyse();
+  }
 }
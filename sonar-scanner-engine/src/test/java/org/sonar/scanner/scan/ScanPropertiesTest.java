@@ -57,6 +57,8 @@ public class ScanPropertiesTest {
     assertThat(underTest.branch()).isEmpty();
     assertThat(underTest.organizationKey()).isEmpty();
     assertThat(underTest.preloadFileMetadata()).isFalse();
+    assertThat(underTest.indexingThreads()).isEqualTo(1);
+    assertThat(underTest.sensorThreads()).isEqualTo(1);
     assertThat(underTest.shouldKeepReport()).isFalse();
     assertThat(underTest.metadataFilePath()).isEqualTo(project.getWorkDir().resolve("report-task.txt"));
     underTest.validate();
@@ -80,6 +82,18 @@ public class ScanPropertiesTest {
     assertThat(underTest.preloadFileMetadata()).isTrue();
   }
 
+  @Test
+  public void should_define_indexing_threads() {
+    settings.setProperty("sonar.scanner.indexing.threads", "4");
+    assertThat(underTest.indexingThreads()).isEqualTo(4);
+  }
+
+  @Test
+  public void should_define_sensor_threads() {
+    settings.setProperty("sonar.scanner.sensors.threads", "2");
+    assertThat(underTest.sensorThreads()).isEqualTo(2);
+  }
+
   @Test
   public void should_define_keep_report() {
     settings.setProperty("sonar.scanner.keepReport", "true");
@@ -102,4 +116,22 @@ public class ScanPropertiesTest {
     underTest.validate();
 
   }
+
+  @Test
+  public void validate_fails_if_indexing_threads_is_lower_than_1() {
+    settings.setProperty("sonar.scanner.indexing.threads", "0");
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property 'sonar.scanner.indexing.threads' must be an int value >= 1. Got '0'");
+    underTest.validate();
+  }
+
+  @Test
+  public void validate_fails_if_sensor_threads_is_lower_than_1() {
+    settings.setProperty("sonar.scanner.sensors.threads", "-1");
+
+    exception.expect(MessageException.class);
+    exception.expectMessage("Property 'sonar.scanner.sensors.threads' must be an int value >= 1. Got '-1'");
+    underTest.validate();
+  }
 }
@@ -21,9 +21,7 @@ package org.sonar.scanner.scan.measure;
 
 import java.util.Iterator;
 import org.junit.Before;
-import org.junit.Rule;
 import org.junit.Test;
-import org.junit.rules.ExpectedException;
 import org.sonar.api.batch.measure.MetricFinder;
 import org.sonar.api.batch.sensor.measure.internal.DefaultMeasure;
 import org.sonar.api.measures.CoreMetrics;
@@ -38,9 +36,6 @@ public class MeasureCacheTest extends AbstractCachesTest {
 
   private static final String COMPONENT_KEY = "struts";
 
-  @Rule
-  public ExpectedException thrown = ExpectedException.none();
-
   private MetricFinder metricFinder;
 
   private MeasureCache measureCache;
@@ -74,11 +69,8 @@ public class MeasureCacheTest extends AbstractCachesTest {
     assertThat(measureCache.byComponentKey(COMPONENT_KEY).iterator().next()).isEqualTo(m);
   }
 
-  /**
-   * This test fails with stock PersisitIt.
-   */
   @Test
-  public void should_add_measure_with_too_big_data_for_persistit_pre_patch() {
+  public void should_add_measure_with_big_data() {
     assertThat(measureCache.entries()).hasSize(0);
     assertThat(measureCache.byComponentKey(COMPONENT_KEY)).hasSize(0);
 
@@ -102,24 +94,6 @@ public class MeasureCacheTest extends AbstractCachesTest {
 
   }
 
-  @Test
-  public void should_add_measure_with_too_big_data_for_persistit() {
-    assertThat(measureCache.entries()).hasSize(0);
-    assertThat(measureCache.byComponentKey(COMPONENT_KEY)).hasSize(0);
-
-    // Limit is 64Mo
-    StringBuilder data = new StringBuilder(64 * 1024 * 1024 + 1);
-    for (int i = 0; i < 64 * 1024 * 1024 + 1; i++) {
-      data.append('a');
-    }
-    DefaultMeasure<?> m = new DefaultMeasure().forMetric(CoreMetrics.COVERAGE_LINE_HITS_DATA).withValue(data.toString());
-
-    thrown.expect(IllegalStateException.class);
-    thrown.expectMessage("Fail to put element in the storage 'measures'");
-
-    measureCache.put(COMPONENT_KEY, CoreMetrics.COVERAGE_LINE_HITS_DATA_KEY, m);
-  }
-
   @Test
   public void should_get_measures() {
     String projectKey = "struts";
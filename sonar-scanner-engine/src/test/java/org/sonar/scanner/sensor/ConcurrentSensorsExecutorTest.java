@@ -0,0 +1,116 @@
+/*
+ * SonarQube
+ * Copyright (C) 2009-2019 SonarSource SA
+ * mailto:info AT sonarsource DOT com
+ *
+ * This program is free software; you can redistribute it and/or
+ * modify it under the terms of the GNU Lesser General Public
+ * License as published by the Free Software Foundation; either
+ * version 3 of the License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ * Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin Street, Fifth Floor, Boston, MA  02110-1301, USA.
+ */
+package org.sonar.scanner.sensor;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.Nullable;
+import org.junit.Rule;
+import org.junit.Test;
+import org.sonar.api.utils.log.LogTester;
+import org.sonar.api.utils.log.Loggers;
+
+import static java.util.Arrays.asList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ConcurrentSensorsExecutorTest {
+  @Rule
+  public LogTester logTester = new LogTester();
+
+  @Test
+  public void group_thread_safe_sensors_on_different_languages() {
+    ModuleSensorWrapper java = sensor("java", true);
+    ModuleSensorWrapper js = sensor("js", true);
+    ModuleSensorWrapper xml = sensor("xml", true);
+
+    List<List<ModuleSensorWrapper>> groups = ConcurrentSensorsExecutor.group(asList(java, js, xml), s -> true);
+
+    assertThat(groups).containsExactly(asList(java, js, xml));
+  }
+
+  @Test
+  public void do_not_group_sensors_on_same_language() {
+    ModuleSensorWrapper java1 = sensor("java", true);
+    ModuleSensorWrapper js = sensor("js", true);
+    ModuleSensorWrapper java2 = sensor("java", true);
+
+    List<List<ModuleSensorWrapper>> groups = ConcurrentSensorsExecutor.group(asList(java1, js, java2), s -> true);
+
+    assertThat(groups).containsExactly(asList(java1, js), asList(java2));
+  }
+
+  @Test
+  public void do_not_group_sensors_which_are_not_thread_safe_or_without_language() {
+    ModuleSensorWrapper java = sensor("java", true);
+    ModuleSensorWrapper notThreadSafe = sensor("js", false);
+    ModuleSensorWrapper withoutLanguage = sensor(null, true);
+    ModuleSensorWrapper xml = sensor("xml", true);
+
+    List<List<ModuleSensorWrapper>> groups = ConcurrentSensorsExecutor.group(asList(java, notThreadSafe, withoutLanguage, xml), s -> true);
+
+    assertThat(groups).containsExactly(asList(java), asList(notThreadSafe), asList(withoutLanguage), asList(xml));
+  }
+
+  @Test
+  public void do_not_group_sensors_with_dependencies() {
+    ModuleSensorWrapper java = sensor("java", true);
+    ModuleSensorWrapper dependent = sensor("js", true);
+    ModuleSensorWrapper xml = sensor("xml", true);
+
+    List<List<ModuleSensorWrapper>> groups = ConcurrentSensorsExecutor.group(asList(java, dependent, xml), s -> s != dependent);
+
+    assertThat(groups).containsExactly(asList(java), asList(dependent), asList(xml));
+  }
+
+  @Test
+  public void execute_grouped_sensors_concurrently() {
+    CountDownLatch latch = new CountDownLatch(2);
+    ModuleSensorWrapper java = sensor("java", true);
+    ModuleSensorWrapper js = sensor("js", true);
+    for (ModuleSensorWrapper sensor : asList(java, js)) {
+      // each sensor waits for the other one to be started
+      doAnswer(invocation -> {
+        latch.countDown();
+        assertThat(latch.await(10, TimeUnit.SECONDS)).isTrue();
+        return null;
+      }).when(sensor).analyse();
+    }
+
+    try (ConcurrentSensorsExecutor<ModuleSensorWrapper> underTest = new ConcurrentSensorsExecutor<>(2, Loggers.get(getClass()), Object::toString)) {
+      underTest.execute(asList(java, js), s -> true);
+    }
+
+    assertThat(latch.getCount()).isZero();
+    assertThat(logTester.logs()).contains("Sensor java", "Sensor js");
+  }
+
+  private static ModuleSensorWrapper sensor(@Nullable String language, boolean threadSafe) {
+    ModuleSensorWrapper sensor = mock(ModuleSensorWrapper.class);
+    when(sensor.languages()).thenReturn(language == null ? Collections.emptyList() : Collections.singletonList(language));
+    when(sensor.isThreadSafe()).thenReturn(threadSafe);
+    when(sensor.toString()).thenReturn(language == null ? "none" : language);
+    return sensor;
+  }
+}
@@ -20,8 +20,14 @@
 package org.sonar.scanner.storage;
 
 import com.google.common.collect.Iterables;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import org.junit.Test;
 import org.sonar.scanner.index.AbstractCachesTest;
+import org.sonar.scanner.protocol.input.ScannerInput.ServerIssue;
 import org.sonar.scanner.storage.Storage.Entry;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -248,4 +254,74 @@ public class StorageTest extends AbstractCachesTest {
     cache.clear("foo", "bar", "baz");
     cache.clear();
   }
+
+  @Test
+  public void values_beyond_memory_budget_are_written_in_file() {
+    Storages smallCaches = new Storages(cachesManager, 100);
+    try {
+      Storage<String> cache = smallCaches.createCache("capitals");
+      for (int i = 0; i < 100; i++) {
+        cache.put("country" + i, "capital" + i);
+      }
+
+      assertThat(cache.get("country0")).isEqualTo("capital0");
+      assertThat(cache.get("country99")).isEqualTo("capital99");
+      assertThat(cache.values()).hasSize(100).contains("capital0", "capital99");
+
+      cache.put("country99", "other");
+      assertThat(cache.get("country99")).isEqualTo("other");
+      cache.remove("country0");
+      assertThat(cache.get("country0")).isNull();
+      assertThat(cache.keySet()).hasSize(99);
+    } finally {
+      smallCaches.stop();
+    }
+  }
+
+  @Test
+  public void store_protobuf_messages() {
+    Storage<ServerIssue> cache = caches.createCache("issues");
+    cache.put(1, "ABC", ServerIssue.newBuilder().setKey("ABC").setMsg("message").build());
+
+    ServerIssue issue = cache.get(1, "ABC");
+    assertThat(issue.getKey()).isEqualTo("ABC");
+    assertThat(issue.getMsg()).isEqualTo("message");
+  }
+
+  @Test
+  public void values_are_copies() {
+    Storage<StringBuilder> cache = caches.createCache("builders");
+    StringBuilder builder = new StringBuilder("foo");
+    cache.put("key", builder);
+    builder.append("bar");
+
+    assertThat(cache.get("key").toString()).isEqualTo("foo");
+    assertThat(cache.get("key")).isNotSameAs(cache.get("key"));
+  }
+
+  @Test
+  public void put_and_get_concurrently() throws Exception {
+    Storage<String> cache = caches.createCache("concurrent");
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (int thread = 0; thread < 4; thread++) {
+        String group = "group" + thread;
+        futures.add(executor.submit(() -> {
+          for (int i = 0; i < 1_000; i++) {
+            cache.put(group, i, "value" + i);
+            assertThat(cache.get(group, i)).isEqualTo("value" + i);
+          }
+        }));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(cache.keySet()).containsExactly("group0", "group1", "group2", "group3");
+    assertThat(cache.values("group2")).hasSize(1_000);
+  }
 }
@@ -30,13 +30,11 @@ public class StoragesManagerTest extends AbstractCachesTest {
   public void should_stop_and_clean_temp_dir() {
     File tempDir = cachesManager.tempDir();
     assertThat(tempDir).isDirectory().exists();
-    assertThat(cachesManager.persistit()).isNotNull();
-    assertThat(cachesManager.persistit().isInitialized()).isTrue();
+    assertThat(cachesManager.memoryBudget()).isPositive();
 
     cachesManager.stop();
 
     assertThat(tempDir).doesNotExist();
     assertThat(cachesManager.tempDir()).isNull();
-    assertThat(cachesManager.persistit()).isNull();
   }
 }
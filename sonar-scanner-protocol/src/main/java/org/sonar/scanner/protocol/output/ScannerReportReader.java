@@ -19,8 +19,11 @@
  */
 package org.sonar.scanner.protocol.output;
 
+import com.google.protobuf.Message;
+import com.google.protobuf.Parser;
 import java.io.File;
 import javax.annotation.CheckForNull;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.core.util.Protobuf;
 
@@ -28,10 +31,26 @@ import static org.sonar.core.util.CloseableIterator.emptyCloseableIterator;
 
 public class ScannerReportReader {
 
+  /**
+   * Files at least this large are mapped in memory rather than read through a buffered stream. Mapping smaller files
+   * would cost more than reading them.
+   */
+  private static final long MIN_MAPPED_FILE_SIZE = 64 * 1024L;
+
   private final FileStructure fileStructure;
+  /**
+   * Files are never mapped on Windows, as a mapped file can't be deleted until the buffer is garbage collected,
+   * which would prevent the report directory from being deleted once processed.
+   */
+  private final boolean mapLargeFiles;
 
   public ScannerReportReader(File dir) {
+    this(dir, System2.INSTANCE);
+  }
+
+  ScannerReportReader(File dir, System2 system2) {
     this.fileStructure = new FileStructure(dir);
+    this.mapLargeFiles = !system2.isOsWindows();
   }
 
   public ScannerReport.Metadata readMetadata() {
@@ -39,7 +58,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       throw new IllegalStateException("Metadata file is missing in analysis report: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Metadata.parser());
+    return read(file, ScannerReport.Metadata.parser());
   }
 
   public CloseableIterator<ScannerReport.ActiveRule> readActiveRules() {
@@ -47,7 +66,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ActiveRule.parser());
+    return readStream(file, ScannerReport.ActiveRule.parser());
   }
 
   public CloseableIterator<ScannerReport.AdHocRule> readAdHocRules() {
@@ -55,13 +74,13 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AdHocRule.parser());
+    return readStream(file, ScannerReport.AdHocRule.parser());
   }
 
   public CloseableIterator<ScannerReport.Measure> readComponentMeasures(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.MEASURES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Measure.parser());
+      return readStream(file, ScannerReport.Measure.parser());
     }
     return emptyCloseableIterator();
   }
@@ -70,7 +89,7 @@ public class ScannerReportReader {
   public ScannerReport.Changesets readChangesets(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGESETS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.Changesets.parser());
+      return read(file, ScannerReport.Changesets.parser());
     }
     return null;
   }
@@ -80,13 +99,13 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       throw new IllegalStateException("Unable to find report for component #" + componentRef + ". File does not exist: " + file);
     }
-    return Protobuf.read(file, ScannerReport.Component.parser());
+    return read(file, ScannerReport.Component.parser());
   }
 
   public CloseableIterator<ScannerReport.Issue> readComponentIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.ISSUES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Issue.parser());
+      return readStream(file, ScannerReport.Issue.parser());
     }
     return emptyCloseableIterator();
   }
@@ -94,7 +113,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.ExternalIssue> readComponentExternalIssues(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.EXTERNAL_ISSUES, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.ExternalIssue.parser());
+      return readStream(file, ScannerReport.ExternalIssue.parser());
     }
     return emptyCloseableIterator();
   }
@@ -102,7 +121,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.Duplication> readComponentDuplications(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.DUPLICATIONS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Duplication.parser());
+      return readStream(file, ScannerReport.Duplication.parser());
     }
     return emptyCloseableIterator();
   }
@@ -110,7 +129,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.CpdTextBlock> readCpdTextBlocks(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CPD_TEXT_BLOCKS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.CpdTextBlock.parser());
+      return readStream(file, ScannerReport.CpdTextBlock.parser());
     }
     return emptyCloseableIterator();
   }
@@ -118,7 +137,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.Symbol> readComponentSymbols(int componentRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYMBOLS, componentRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.Symbol.parser());
+      return readStream(file, ScannerReport.Symbol.parser());
     }
     return emptyCloseableIterator();
   }
@@ -132,7 +151,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.LineSgnificantCode> readComponentSignificantCode(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SGNIFICANT_CODE, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineSgnificantCode.parser());
+      return readStream(file, ScannerReport.LineSgnificantCode.parser());
     }
     return null;
   }
@@ -141,7 +160,7 @@ public class ScannerReportReader {
   public ScannerReport.ChangedLines readComponentChangedLines(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.CHANGED_LINES, fileRef);
     if (fileExists(file)) {
-      return Protobuf.read(file, ScannerReport.ChangedLines.parser());
+      return read(file, ScannerReport.ChangedLines.parser());
     }
     return null;
   }
@@ -154,7 +173,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.SyntaxHighlightingRule> readComponentSyntaxHighlighting(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.SYNTAX_HIGHLIGHTINGS, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
+      return readStream(file, ScannerReport.SyntaxHighlightingRule.parser());
     }
     return emptyCloseableIterator();
   }
@@ -167,7 +186,7 @@ public class ScannerReportReader {
   public CloseableIterator<ScannerReport.LineCoverage> readComponentCoverage(int fileRef) {
     File file = fileStructure.fileFor(FileStructure.Domain.COVERAGES, fileRef);
     if (fileExists(file)) {
-      return Protobuf.readStream(file, ScannerReport.LineCoverage.parser());
+      return readStream(file, ScannerReport.LineCoverage.parser());
     }
     return emptyCloseableIterator();
   }
@@ -186,7 +205,7 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.ContextProperty.parser());
+    return readStream(file, ScannerReport.ContextProperty.parser());
   }
 
   public CloseableIterator<ScannerReport.AnalysisWarning> readAnalysisWarnings() {
@@ -194,7 +213,25 @@ public class ScannerReportReader {
     if (!fileExists(file)) {
       return emptyCloseableIterator();
     }
-    return Protobuf.readStream(file, ScannerReport.AnalysisWarning.parser());
+    return readStream(file, ScannerReport.AnalysisWarning.parser());
+  }
+
+  private <MSG extends Message> MSG read(File file, Parser<MSG> parser) {
+    if (isMapped(file)) {
+      return Protobuf.readMapped(file, parser);
+    }
+    return Protobuf.read(file, parser);
+  }
+
+  private <MSG extends Message> CloseableIterator<MSG> readStream(File file, Parser<MSG> parser) {
+    if (isMapped(file)) {
+      return Protobuf.readMappedStream(file, parser);
+    }
+    return Protobuf.readStream(file, parser);
+  }
+
+  private boolean isMapped(File file) {
+    return mapLargeFiles && file.length() >= MIN_MAPPED_FILE_SIZE;
   }
 
   private static boolean fileExists(File file) {
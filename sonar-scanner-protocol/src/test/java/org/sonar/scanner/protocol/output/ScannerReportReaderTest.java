@@ -23,19 +23,25 @@ import com.google.common.collect.Lists;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.InputStream;
+import java.util.List;
+import java.util.stream.IntStream;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.sonar.api.utils.System2;
 import org.sonar.core.util.CloseableIterator;
 import org.sonar.scanner.protocol.output.ScannerReport.Measure.StringValue;
 import org.sonar.scanner.protocol.output.ScannerReport.SyntaxHighlightingRule.HighlightingType;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.singletonList;
+import static java.util.stream.Collectors.toList;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 public class ScannerReportReaderTest {
 
@@ -103,6 +109,21 @@ public class ScannerReportReaderTest {
     assertThat(underTest.readComponentIssues(200)).isEmpty();
   }
 
+  @Test
+  public void read_large_stream_of_issues() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(1, IntStream.range(0, 10_000)
+      .mapToObj(i -> ScannerReport.Issue.newBuilder().setRuleKey("rule_" + i).setMsg("message of issue " + i).build())
+      .collect(toList()));
+
+    try (CloseableIterator<ScannerReport.Issue> issues = underTest.readComponentIssues(1)) {
+      List<ScannerReport.Issue> read = Lists.newArrayList(issues);
+      assertThat(read).hasSize(10_000);
+      assertThat(read.get(0).getRuleKey()).isEqualTo("rule_0");
+      assertThat(read.get(9_999).getMsg()).isEqualTo("message of issue 9999");
+    }
+  }
+
   @Test
   public void read_external_issues() {
     ScannerReportWriter writer = new ScannerReportWriter(dir);
@@ -146,6 +167,60 @@ public class ScannerReportReaderTest {
     assertThat(underTest.readChangesets(1).getChangeset(0).getDate()).isEqualTo(123_456_789L);
   }
 
+  @Test
+  public void read_large_changesets() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    ScannerReport.Changesets.Builder scm = ScannerReport.Changesets.newBuilder().setComponentRef(1);
+    IntStream.range(0, 10_000).forEach(i -> scm
+      .addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setDate(i).setAuthor("jack.daniels").setRevision("revision_" + i))
+      .addChangesetIndexByLine(i));
+    writer.writeComponentChangesets(scm.build());
+
+    ScannerReport.Changesets changesets = underTest.readChangesets(1);
+    assertThat(changesets.getChangesetList()).hasSize(10_000);
+    assertThat(changesets.getChangeset(9_999).getRevision()).isEqualTo("revision_9999");
+    assertThat(changesets.getChangesetIndexByLine(9_999)).isEqualTo(9_999);
+  }
+
+  @Test
+  public void report_directory_can_be_deleted_after_reading_large_files() throws Exception {
+    writeLargeFiles();
+
+    readLargeFiles(underTest);
+    FileUtils.deleteDirectory(dir);
+
+    assertThat(dir).doesNotExist();
+  }
+
+  @Test
+  public void report_directory_can_be_deleted_after_reading_large_files_on_windows() throws Exception {
+    System2 system2 = mock(System2.class);
+    when(system2.isOsWindows()).thenReturn(true);
+    writeLargeFiles();
+
+    readLargeFiles(new ScannerReportReader(dir, system2));
+    FileUtils.deleteDirectory(dir);
+
+    assertThat(dir).doesNotExist();
+  }
+
+  private void writeLargeFiles() {
+    ScannerReportWriter writer = new ScannerReportWriter(dir);
+    writer.writeComponentIssues(1, IntStream.range(0, 10_000)
+      .mapToObj(i -> ScannerReport.Issue.newBuilder().setRuleKey("rule_" + i).build())
+      .collect(toList()));
+    ScannerReport.Changesets.Builder scm = ScannerReport.Changesets.newBuilder().setComponentRef(1);
+    IntStream.range(0, 10_000).forEach(i -> scm.addChangeset(ScannerReport.Changesets.Changeset.newBuilder().setRevision("revision_" + i)));
+    writer.writeComponentChangesets(scm.build());
+  }
+
+  private static void readLargeFiles(ScannerReportReader reader) {
+    try (CloseableIterator<ScannerReport.Issue> issues = reader.readComponentIssues(1)) {
+      assertThat(issues).hasSize(10_000);
+    }
+    assertThat(reader.readChangesets(1).getChangesetList()).hasSize(10_000);
+  }
+
   @Test
   public void null_if_no_changeset_found() {
     assertThat(underTest.readChangesets(UNKNOWN_COMPONENT_REF)).isNull();